@@ -15,7 +15,8 @@ import org.springframework.context.annotation.Configuration;
     FabricProperties.class,
     StorageProperties.class,
     AuthProperties.class,
-    ElectionProperties.class
+    ElectionProperties.class,
+    RateLimitProperties.class
 })
 public class AppProperties {
 
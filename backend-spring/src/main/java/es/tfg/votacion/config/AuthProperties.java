@@ -16,6 +16,9 @@ public class AuthProperties {
 
     private String usersFile;
     private Jwt jwt = new Jwt();
+    private Reload reload = new Reload();
+    private Login login = new Login();
+    private Password password = new Password();
     private String[] roles = { "voter", "admin", "auditor" };
 
     public String getUsersFile() {
@@ -34,6 +37,30 @@ public class AuthProperties {
         this.jwt = jwt;
     }
 
+    public Reload getReload() {
+        return reload;
+    }
+
+    public void setReload(Reload reload) {
+        this.reload = reload;
+    }
+
+    public Login getLogin() {
+        return login;
+    }
+
+    public void setLogin(Login login) {
+        this.login = login;
+    }
+
+    public Password getPassword() {
+        return password;
+    }
+
+    public void setPassword(Password password) {
+        this.password = password;
+    }
+
     public String[] getRoles() {
         return roles;
     }
@@ -47,6 +74,8 @@ public class AuthProperties {
         private int expiration = 3600;
         private String issuer;
         private String audience;
+        // Máximo de tokens validados en cache (0 desactiva la cache)
+        private int cacheMaxEntries = 10000;
 
         public String getSecret() {
             return secret;
@@ -79,5 +108,139 @@ public class AuthProperties {
         public void setAudience(String audience) {
             this.audience = audience;
         }
+
+        public int getCacheMaxEntries() {
+            return cacheMaxEntries;
+        }
+
+        public void setCacheMaxEntries(int cacheMaxEntries) {
+            this.cacheMaxEntries = cacheMaxEntries;
+        }
+    }
+
+    public static class Reload {
+        // Vigilar el archivo de usuarios y aplicar los cambios en caliente
+        private boolean enabled = true;
+        // Espera tras el último evento antes de recargar (escrituras en varias fases)
+        private long debounceMillis = 500;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getDebounceMillis() {
+            return debounceMillis;
+        }
+
+        public void setDebounceMillis(long debounceMillis) {
+            this.debounceMillis = debounceMillis;
+        }
+    }
+
+    public static class Login {
+        // Hilos dedicados a BCrypt (0 = número de núcleos)
+        private int workers = 0;
+        // Verificaciones en espera antes de rechazar con 429
+        private int queueCapacity = 64;
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
+    public static class Password {
+        // Medir BCrypt al arrancar y elegir el coste que cumple target-millis
+        private boolean calibrate = true;
+        // Presupuesto de latencia por hash
+        private long targetMillis = 250;
+        private int minCost = 10;
+        private int maxCost = 14;
+        // Coste fijo cuando no se calibra
+        private int cost = 10;
+        // Re-hashear al coste objetivo tras un login correcto
+        private boolean rehashOnLogin = true;
+        // Escribir los hashes actualizados en el archivo de usuarios
+        private boolean persistRehash = false;
+        private long persistIntervalSeconds = 30;
+
+        public boolean isCalibrate() {
+            return calibrate;
+        }
+
+        public void setCalibrate(boolean calibrate) {
+            this.calibrate = calibrate;
+        }
+
+        public long getTargetMillis() {
+            return targetMillis;
+        }
+
+        public void setTargetMillis(long targetMillis) {
+            this.targetMillis = targetMillis;
+        }
+
+        public int getMinCost() {
+            return minCost;
+        }
+
+        public void setMinCost(int minCost) {
+            this.minCost = minCost;
+        }
+
+        public int getMaxCost() {
+            return maxCost;
+        }
+
+        public void setMaxCost(int maxCost) {
+            this.maxCost = maxCost;
+        }
+
+        public int getCost() {
+            return cost;
+        }
+
+        public void setCost(int cost) {
+            this.cost = cost;
+        }
+
+        public boolean isRehashOnLogin() {
+            return rehashOnLogin;
+        }
+
+        public void setRehashOnLogin(boolean rehashOnLogin) {
+            this.rehashOnLogin = rehashOnLogin;
+        }
+
+        public boolean isPersistRehash() {
+            return persistRehash;
+        }
+
+        public void setPersistRehash(boolean persistRehash) {
+            this.persistRehash = persistRehash;
+        }
+
+        public long getPersistIntervalSeconds() {
+            return persistIntervalSeconds;
+        }
+
+        public void setPersistIntervalSeconds(long persistIntervalSeconds) {
+            this.persistIntervalSeconds = persistIntervalSeconds;
+        }
     }
-}
\ No newline at end of file
+}
@@ -17,6 +17,14 @@ public class ElectionProperties {
     private Default defaultConfig = new Default();
     private Validation validation = new Validation();
     private Notifications notifications = new Notifications();
+    private Metrics metrics = new Metrics();
+    private Idempotency idempotency = new Idempotency();
+    private Listing listing = new Listing();
+    private Turnout turnout = new Turnout();
+    private KeyPool keyPool = new KeyPool();
+    private Integrity integrity = new Integrity();
+    private Merkle merkle = new Merkle();
+    private Recount recount = new Recount();
 
     public Default getDefaultConfig() {
         return defaultConfig;
@@ -42,6 +50,70 @@ public class ElectionProperties {
         this.notifications = notifications;
     }
 
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public Idempotency getIdempotency() {
+        return idempotency;
+    }
+
+    public void setIdempotency(Idempotency idempotency) {
+        this.idempotency = idempotency;
+    }
+
+    public Listing getListing() {
+        return listing;
+    }
+
+    public void setListing(Listing listing) {
+        this.listing = listing;
+    }
+
+    public Turnout getTurnout() {
+        return turnout;
+    }
+
+    public void setTurnout(Turnout turnout) {
+        this.turnout = turnout;
+    }
+
+    public KeyPool getKeyPool() {
+        return keyPool;
+    }
+
+    public void setKeyPool(KeyPool keyPool) {
+        this.keyPool = keyPool;
+    }
+
+    public Integrity getIntegrity() {
+        return integrity;
+    }
+
+    public void setIntegrity(Integrity integrity) {
+        this.integrity = integrity;
+    }
+
+    public Merkle getMerkle() {
+        return merkle;
+    }
+
+    public void setMerkle(Merkle merkle) {
+        this.merkle = merkle;
+    }
+
+    public Recount getRecount() {
+        return recount;
+    }
+
+    public void setRecount(Recount recount) {
+        this.recount = recount;
+    }
+
     public static class Default {
         private int votingDurationHours = 24;
         private int maxVotesPerUser = 1;
@@ -158,4 +230,208 @@ public class ElectionProperties {
             this.smsEnabled = smsEnabled;
         }
     }
-}
\ No newline at end of file
+
+    public static class Metrics {
+        // Máximo de elecciones distintas usadas como tag (el resto se agrupa en "other")
+        private int maxElectionTags = 50;
+
+        public int getMaxElectionTags() {
+            return maxElectionTags;
+        }
+
+        public void setMaxElectionTags(int maxElectionTags) {
+            this.maxElectionTags = maxElectionTags;
+        }
+    }
+
+    public static class Idempotency {
+        // Máximo de Idempotency-Key recordadas (se expulsan las más antiguas)
+        private int maxEntries = 10000;
+        // Tiempo durante el que se reproduce la respuesta original
+        private long ttlSeconds = 86400;
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public long getTtlSeconds() {
+            return ttlSeconds;
+        }
+
+        public void setTtlSeconds(long ttlSeconds) {
+            this.ttlSeconds = ttlSeconds;
+        }
+    }
+
+    public static class Listing {
+        // Tamaño de página cuando el cliente no indica limit
+        private int defaultPageSize = 20;
+        // Máximo aceptado en limit (valores mayores se recortan)
+        private int maxPageSize = 100;
+        // Una línea de log de cada N listados (1 = todos)
+        private int logSampleEvery = 100;
+
+        public int getDefaultPageSize() {
+            return defaultPageSize;
+        }
+
+        public void setDefaultPageSize(int defaultPageSize) {
+            this.defaultPageSize = defaultPageSize;
+        }
+
+        public int getMaxPageSize() {
+            return maxPageSize;
+        }
+
+        public void setMaxPageSize(int maxPageSize) {
+            this.maxPageSize = maxPageSize;
+        }
+
+        public int getLogSampleEvery() {
+            return logSampleEvery;
+        }
+
+        public void setLogSampleEvery(int logSampleEvery) {
+            this.logSampleEvery = logSampleEvery;
+        }
+    }
+
+    public static class Turnout {
+        // Intervalo de agregación: como mucho un evento por elección y tick
+        private long tickMillis = 1000;
+        // Comentario SSE de keep-alive cuando no hay cambios
+        private long heartbeatSeconds = 15;
+        // Suscriptores simultáneos en total (el resto recibe 503)
+        private int maxSubscribers = 1000;
+        // Duración máxima de una conexión; EventSource reconecta automáticamente
+        private long emitterTimeoutSeconds = 1800;
+
+        public long getTickMillis() {
+            return tickMillis;
+        }
+
+        public void setTickMillis(long tickMillis) {
+            this.tickMillis = tickMillis;
+        }
+
+        public long getHeartbeatSeconds() {
+            return heartbeatSeconds;
+        }
+
+        public void setHeartbeatSeconds(long heartbeatSeconds) {
+            this.heartbeatSeconds = heartbeatSeconds;
+        }
+
+        public int getMaxSubscribers() {
+            return maxSubscribers;
+        }
+
+        public void setMaxSubscribers(int maxSubscribers) {
+            this.maxSubscribers = maxSubscribers;
+        }
+
+        public long getEmitterTimeoutSeconds() {
+            return emitterTimeoutSeconds;
+        }
+
+        public void setEmitterTimeoutSeconds(long emitterTimeoutSeconds) {
+            this.emitterTimeoutSeconds = emitterTimeoutSeconds;
+        }
+    }
+
+    public static class KeyPool {
+        // Pares RSA preparados en memoria (0 desactiva el pool)
+        private int size = 4;
+        // Tamaño de las claves de elección en bits
+        private int keySize = 2048;
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public int getKeySize() {
+            return keySize;
+        }
+
+        public void setKeySize(int keySize) {
+            this.keySize = keySize;
+        }
+    }
+
+    public static class Integrity {
+        // Verificación en segundo plano de los votos almacenados contra blockchain
+        private boolean enabled = true;
+        // Intervalo de revisión de blobs modificados y verificaciones pendientes
+        private int sweepSeconds = 60;
+        // Votos pendientes de verificar en cola (los descartados se verifican al cerrar)
+        private int maxQueue = 10000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getSweepSeconds() {
+            return sweepSeconds;
+        }
+
+        public void setSweepSeconds(int sweepSeconds) {
+            this.sweepSeconds = sweepSeconds;
+        }
+
+        public int getMaxQueue() {
+            return maxQueue;
+        }
+
+        public void setMaxQueue(int maxQueue) {
+            this.maxQueue = maxQueue;
+        }
+    }
+
+    public static class Merkle {
+        // Intervalo de anclaje en blockchain de la raíz de Merkle de cada elección con votos nuevos
+        private int anchorSeconds = 300;
+
+        public int getAnchorSeconds() {
+            return anchorSeconds;
+        }
+
+        public void setAnchorSeconds(int anchorSeconds) {
+            this.anchorSeconds = anchorSeconds;
+        }
+    }
+
+    public static class Recount {
+        // Blobs procesados entre puntos de control del recuento (trabajo repetido como mucho tras un reinicio)
+        private int checkpointEvery = 500;
+        // Intervalo de envío del progreso por SSE (GET /elections/{id}/close/progress/stream)
+        private long progressMillis = 1000;
+
+        public int getCheckpointEvery() {
+            return checkpointEvery;
+        }
+
+        public void setCheckpointEvery(int checkpointEvery) {
+            this.checkpointEvery = checkpointEvery;
+        }
+
+        public long getProgressMillis() {
+            return progressMillis;
+        }
+
+        public void setProgressMillis(long progressMillis) {
+            this.progressMillis = progressMillis;
+        }
+    }
+}
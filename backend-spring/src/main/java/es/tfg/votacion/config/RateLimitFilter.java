@@ -0,0 +1,269 @@
+package es.tfg.votacion.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.tfg.votacion.model.User;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Filtro de limitación de peticiones basado en token buckets
+ *
+ * Limita:
+ * - POST /elections/{id}/vote por ID de usuario autenticado
+ * - POST /auth/login por IP de origen
+ *
+ * Cada bucket se actualiza con CAS sobre un estado inmutable (sin bloqueos).
+ * La memoria está acotada por rate-limit.max-buckets: al alcanzarse el límite
+ * se expulsan los buckets llenos (equivalentes a uno nuevo). Si no hay
+ * ninguno, las claves nuevas se rechazan con 429 hasta que alguno se llene:
+ * rotar IPs o usuarios no deja pasar peticiones sin límite. El recorrido de
+ * expulsión se hace como mucho una vez por ese intervalo, no por petición.
+ * Se registra después de JwtAuthenticationFilter para disponer del usuario.
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ * @since Java 21
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+    private static final String LOGIN_PATH = "/auth/login";
+    private static final String VOTE_PATH_PREFIX = "/elections/";
+    private static final String VOTE_PATH_SUFFIX = "/vote";
+    // Espera indicada mientras otro hilo recorre los buckets
+    private static final long SWEEP_RETRY_NANOS = 1_000_000_000L;
+    private static final long SWEEP_IN_PROGRESS = Long.MAX_VALUE;
+
+    private final RateLimitProperties properties;
+    private final LongSupplier nanoClock;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    // Instante a partir del cual un nuevo recorrido puede expulsar algún bucket
+    private final AtomicLong nextSweepAt = new AtomicLong(Long.MIN_VALUE);
+
+    @Autowired
+    public RateLimitFilter(RateLimitProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    RateLimitFilter(RateLimitProperties properties, LongSupplier nanoClock) {
+        this.properties = properties;
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+
+        if (properties.isEnabled() && "POST".equals(request.getMethod())) {
+            String path = request.getRequestURI().substring(request.getContextPath().length());
+            String key = null;
+            RateLimitProperties.Limit limit = null;
+
+            if (LOGIN_PATH.equals(path)) {
+                key = "login:" + request.getRemoteAddr();
+                limit = properties.getLogin();
+            } else if (path.startsWith(VOTE_PATH_PREFIX) && path.endsWith(VOTE_PATH_SUFFIX)) {
+                User user = currentUser();
+                // Sin usuario, Spring Security rechazará la petición más adelante
+                if (user != null) {
+                    key = "vote:" + user.id();
+                    limit = properties.getVote();
+                }
+            }
+
+            if (key != null) {
+                long waitNanos = tryConsume(key, limit);
+                if (waitNanos > 0) {
+                    reject(request, response, waitNanos);
+                    return;
+                }
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Consume un token del bucket asociado a la clave
+     *
+     * @return 0 si se admite la petición, o nanosegundos hasta el próximo token
+     */
+    long tryConsume(String key, RateLimitProperties.Limit limit) {
+        long now = nanoClock.getAsLong();
+        TokenBucket bucket = buckets.get(key);
+
+        if (bucket == null) {
+            if (buckets.size() >= properties.getMaxBuckets()) {
+                long waitNanos = evictFullBuckets(now);
+                if (buckets.size() >= properties.getMaxBuckets()) {
+                    // Sin sitio para la clave: se rechaza en lugar de admitirla sin límite
+                    return Math.max(1, waitNanos);
+                }
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(limit, now));
+        }
+
+        return bucket.tryConsume(now);
+    }
+
+    /**
+     * Número de buckets en memoria
+     */
+    int bucketCount() {
+        return buckets.size();
+    }
+
+    /**
+     * Expulsa los buckets llenos
+     * Un solo hilo recorre el mapa y no se vuelve a recorrer hasta que el
+     * primero de los restantes pueda estar lleno
+     *
+     * @return Nanosegundos hasta que se pueda liberar algún bucket
+     */
+    private long evictFullBuckets(long now) {
+        long scheduled = nextSweepAt.get();
+        if (scheduled == SWEEP_IN_PROGRESS) {
+            return SWEEP_RETRY_NANOS;
+        }
+        if (now < scheduled) {
+            return scheduled - now;
+        }
+        if (!nextSweepAt.compareAndSet(scheduled, SWEEP_IN_PROGRESS)) {
+            return SWEEP_RETRY_NANOS;
+        }
+
+        long untilNextFull = Long.MAX_VALUE;
+        Iterator<TokenBucket> iterator = buckets.values().iterator();
+        while (iterator.hasNext()) {
+            long untilFull = iterator.next().nanosUntilFull(now);
+            if (untilFull == 0) {
+                iterator.remove();
+            } else {
+                untilNextFull = Math.min(untilNextFull, untilFull);
+            }
+        }
+        if (untilNextFull == Long.MAX_VALUE) {
+            // Mapa vacío o buckets sin recarga: se vuelve a mirar pasado un intervalo fijo
+            untilNextFull = SWEEP_RETRY_NANOS;
+        }
+
+        // Ningún bucket restante puede llenarse antes: hasta entonces no se vuelve a recorrer
+        nextSweepAt.set(now + untilNextFull);
+        if (buckets.size() < properties.getMaxBuckets()) {
+            return 0;
+        }
+        logger.warn("Rate limiter at capacity ({} buckets), rejecting new clients for {} ms",
+            buckets.size(), untilNextFull / 1_000_000);
+        return untilNextFull;
+    }
+
+    private User currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User user) {
+            return user;
+        }
+        return null;
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, long waitNanos)
+            throws IOException {
+        long retryAfterSeconds = Math.max(1, (long) Math.ceil(waitNanos / 1_000_000_000.0));
+
+        logger.warn("Rate limit exceeded for {} from IP: {}", request.getRequestURI(), request.getRemoteAddr());
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+        errorResponse.put("error", HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase());
+        errorResponse.put("message", "Demasiadas peticiones. Reintente más tarde.");
+        errorResponse.put("path", request.getRequestURI());
+        errorResponse.put("timestamp", Instant.now().toString());
+
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+
+    /**
+     * Token bucket sin bloqueos: el estado (tokens, instante de recarga)
+     * se sustituye completo mediante compareAndSet
+     */
+    static final class TokenBucket {
+
+        private record State(double tokens, long refilledAt) {
+        }
+
+        private final double capacity;
+        private final double tokensPerNano;
+        private final AtomicReference<State> state;
+
+        TokenBucket(RateLimitProperties.Limit limit, long now) {
+            this.capacity = Math.max(1, limit.getCapacity());
+            this.tokensPerNano = limit.getRefillPerSecond() / 1_000_000_000.0;
+            this.state = new AtomicReference<>(new State(capacity, now));
+        }
+
+        long tryConsume(long now) {
+            while (true) {
+                State current = state.get();
+                double available = refill(current, now);
+                if (available < 1.0) {
+                    if (tokensPerNano <= 0) {
+                        return Long.MAX_VALUE;
+                    }
+                    return (long) Math.ceil((1.0 - available) / tokensPerNano);
+                }
+                if (state.compareAndSet(current, new State(available - 1.0, now))) {
+                    return 0;
+                }
+            }
+        }
+
+        /**
+         * Nanosegundos hasta que el bucket vuelva a estar lleno (0 si ya lo está)
+         */
+        long nanosUntilFull(long now) {
+            double missing = capacity - refill(state.get(), now);
+            if (missing <= 0) {
+                return 0;
+            }
+            if (tokensPerNano <= 0) {
+                return Long.MAX_VALUE;
+            }
+            return (long) Math.ceil(missing / tokensPerNano);
+        }
+
+        private double refill(State current, long now) {
+            long elapsed = Math.max(0, now - current.refilledAt());
+            return Math.min(capacity, current.tokens() + elapsed * tokensPerNano);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package es.tfg.votacion.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Propiedades de configuración del limitador de peticiones (token bucket)
+ * 
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ * @since Java 21
+ */
+@ConfigurationProperties(prefix = "rate-limit")
+@Validated
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+    // Límite por usuario para POST /elections/{id}/vote
+    private Limit vote = new Limit(10, 1.0);
+    // Límite por IP para POST /auth/login
+    private Limit login = new Limit(20, 5.0);
+    // Máximo de buckets en memoria
+    private int maxBuckets = 100000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Limit getVote() {
+        return vote;
+    }
+
+    public void setVote(Limit vote) {
+        this.vote = vote;
+    }
+
+    public Limit getLogin() {
+        return login;
+    }
+
+    public void setLogin(Limit login) {
+        this.login = login;
+    }
+
+    public int getMaxBuckets() {
+        return maxBuckets;
+    }
+
+    public void setMaxBuckets(int maxBuckets) {
+        this.maxBuckets = maxBuckets;
+    }
+
+    public static class Limit {
+        // Ráfaga máxima permitida
+        private int capacity;
+        // Tokens repuestos por segundo
+        private double refillPerSecond;
+
+        public Limit() {
+        }
+
+        public Limit(int capacity, double refillPerSecond) {
+            this.capacity = capacity;
+            this.refillPerSecond = refillPerSecond;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public double getRefillPerSecond() {
+            return refillPerSecond;
+        }
+
+        public void setRefillPerSecond(double refillPerSecond) {
+            this.refillPerSecond = refillPerSecond;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package es.tfg.votacion.config;
 
+import jakarta.servlet.DispatcherType;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -25,6 +27,7 @@ import java.util.List;
  * Configuraciones:
  * - CORS para desarrollo con Angular
  * - JWT authentication filter
+ * - Rate limiting (token bucket) de votos y logins
  * - Endpoints públicos vs protegidos
  * - Control de acceso basado en roles (RBAC)
  * - Manejo de excepciones 401/403
@@ -44,14 +47,17 @@ public class SecurityConfig {
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
     private final JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
     private final JwtAccessDeniedHandler jwtAccessDeniedHandler;
+    private final RateLimitFilter rateLimitFilter;
 
     public SecurityConfig(
             JwtAuthenticationFilter jwtAuthenticationFilter,
             JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint,
-            JwtAccessDeniedHandler jwtAccessDeniedHandler) {
+            JwtAccessDeniedHandler jwtAccessDeniedHandler,
+            RateLimitFilter rateLimitFilter) {
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
         this.jwtAuthenticationEntryPoint = jwtAuthenticationEntryPoint;
         this.jwtAccessDeniedHandler = jwtAccessDeniedHandler;
+        this.rateLimitFilter = rateLimitFilter;
     }
 
     /**
@@ -81,6 +87,9 @@ public class SecurityConfig {
 
                 // Configurar autorización de endpoints
                 .authorizeHttpRequests(auth -> auth
+                        // Los despachos ASYNC de los streams SSE ya se autorizaron en la petición original
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                         // Endpoints públicos (sin autenticación)
                         .requestMatchers(
                                 "/auth/login",
@@ -116,18 +125,38 @@ public class SecurityConfig {
                         // Endpoints para ADMIN y AUDITOR
                         .requestMatchers(HttpMethod.GET, "/elections/*/results")
                         .hasAnyRole("ADMIN", "AUDITOR")
+                        .requestMatchers(HttpMethod.GET, "/elections/*/turnout/stream")
+                        .hasAnyRole("ADMIN", "AUDITOR")
+                        .requestMatchers(HttpMethod.GET, "/elections/*/merkle/verify")
+                        .hasAnyRole("ADMIN", "AUDITOR")
+                        .requestMatchers(HttpMethod.GET, "/elections/*/close/progress", "/elections/*/close/progress/stream")
+                        .hasAnyRole("ADMIN", "AUDITOR")
 
                         // Todos los demás endpoints requieren autenticación
                         .anyRequest().authenticated()
                 )
 
                 // Añadir filtro JWT antes del filtro de autenticación de Spring
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+
+                // Limitar peticiones tras resolver el usuario (votos por usuario, login por IP)
+                .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
 
         logger.info("Spring Security configured successfully");
         return http.build();
     }
 
+    /**
+     * Evita que el filtro de rate limiting se registre también como filtro
+     * del contenedor: solo debe ejecutarse dentro de la cadena de seguridad
+     */
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration(RateLimitFilter filter) {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
     /**
      * Configuración de CORS para desarrollo
      * Permite conexiones desde el frontend Angular
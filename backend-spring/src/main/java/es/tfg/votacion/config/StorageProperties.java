@@ -56,6 +56,12 @@ public class StorageProperties {
         private int keyLength = 256;
         private int ivLength = 12;
         private int tagLength = 128;
+        // Instancias de Cipher reutilizables (las que excedan se crean y descartan por operación)
+        private int cipherPoolSize = Runtime.getRuntime().availableProcessors() * 2;
+        // Claves de datos por elección cacheadas (derivarlas o desenvolverlas solo ocurre en el primer uso)
+        private int keyCacheSize = 256;
+        // Contadores de nonce reservados en keyring.json de una vez (una escritura a disco por tramo)
+        private long nonceReservation = 1_048_576;
 
         public String getAlgorithm() {
             return algorithm;
@@ -88,6 +94,30 @@ public class StorageProperties {
         public void setTagLength(int tagLength) {
             this.tagLength = tagLength;
         }
+
+        public int getCipherPoolSize() {
+            return cipherPoolSize;
+        }
+
+        public void setCipherPoolSize(int cipherPoolSize) {
+            this.cipherPoolSize = cipherPoolSize;
+        }
+
+        public int getKeyCacheSize() {
+            return keyCacheSize;
+        }
+
+        public void setKeyCacheSize(int keyCacheSize) {
+            this.keyCacheSize = keyCacheSize;
+        }
+
+        public long getNonceReservation() {
+            return nonceReservation;
+        }
+
+        public void setNonceReservation(long nonceReservation) {
+            this.nonceReservation = nonceReservation;
+        }
     }
 
     public static class Cleanup {
@@ -8,8 +8,10 @@ import es.tfg.votacion.model.User;
 import es.tfg.votacion.service.AuthService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,6 +25,9 @@ import org.slf4j.LoggerFactory;
  * - GET /api/v1/auth/user - Información del usuario autenticado
  * - POST /api/v1/auth/logout - Logout (informacional, JWT es stateless)
  * 
+ * El login responde 429 (Retry-After) cuando el pool de verificación
+ * BCrypt está saturado.
+ * 
  * @author Enrique Huet Adrover
  * @version 1.0
  * @since Java 21
@@ -101,6 +106,17 @@ public class AuthController {
             
             return ResponseEntity.ok(response);
             
+        } catch (AuthService.LoginCapacityExceededException e) {
+            // Pool BCrypt saturado: rechazo rápido para proteger la emisión de votos
+            return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ErrorResponse(
+                    429,
+                    "Too Many Requests",
+                    e.getMessage(),
+                    request.getRequestURI()
+                ));
         } catch (Exception e) {
             logger.error("Error during authentication for user: {}", loginRequest.username(), e);
             return ResponseEntity
@@ -118,30 +134,21 @@ public class AuthController {
      * Endpoint para validar un JWT token
      * GET /api/v1/auth/validate
      * 
-     * @param authHeader Authorization header con Bearer token
+     * El token ya fue validado por JwtAuthenticationFilter; aquí solo se
+     * consulta el usuario que dejó en el SecurityContext.
+     * 
+     * @param user Usuario autenticado por el filtro JWT
      * @param request HTTP request para logging
      * @return Información de validación del token
      */
     @GetMapping("/validate")
     public ResponseEntity<?> validateToken(
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @AuthenticationPrincipal User user,
             HttpServletRequest request) {
         
         logger.debug("Token validation requested from IP: {}", request.getRemoteAddr());
         
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            logger.warn("Missing or invalid Authorization header");
-            return ResponseEntity
-                .status(HttpStatus.UNAUTHORIZED)
-                .body(TokenValidationResponse.invalid("Missing or invalid Authorization header"));
-        }
-        
-        String token = authHeader.substring(7); // Remove "Bearer " prefix
-        
         try {
-            // Validar token y obtener usuario
-            User user = authService.validateJwtToken(token);
-            
             if (user == null) {
                 logger.warn("Invalid or expired JWT token");
                 return ResponseEntity
@@ -167,34 +174,18 @@ public class AuthController {
      * Endpoint para obtener información del usuario autenticado
      * GET /api/v1/auth/user
      * 
-     * @param authHeader Authorization header con Bearer token
+     * @param user Usuario autenticado por el filtro JWT
      * @param request HTTP request para logging
      * @return Información completa del usuario
      */
     @GetMapping("/user")
     public ResponseEntity<?> getCurrentUser(
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @AuthenticationPrincipal User user,
             HttpServletRequest request) {
         
         logger.debug("User info requested from IP: {}", request.getRemoteAddr());
         
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            logger.warn("Missing or invalid Authorization header");
-            return ResponseEntity
-                .status(HttpStatus.UNAUTHORIZED)
-                .body(new ErrorResponse(
-                    401,
-                    "Unauthorized",
-                    "Missing or invalid Authorization header",
-                    request.getRequestURI()
-                ));
-        }
-        
-        String token = authHeader.substring(7);
-        
         try {
-            User user = authService.validateJwtToken(token);
-            
             if (user == null) {
                 return ResponseEntity
                     .status(HttpStatus.UNAUTHORIZED)
@@ -238,23 +229,17 @@ public class AuthController {
      * Nota: Como JWT es stateless, este endpoint es solo informacional.
      * El cliente debe eliminar el token localmente.
      * 
-     * @param authHeader Authorization header con Bearer token
+     * @param user Usuario autenticado por el filtro JWT
      * @param request HTTP request para logging
      * @return Mensaje de confirmación
      */
     @PostMapping("/logout")
     public ResponseEntity<?> logout(
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @AuthenticationPrincipal User user,
             HttpServletRequest request) {
         
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            String token = authHeader.substring(7);
-            try {
-                String username = authService.extractUsername(token);
-                logger.info("User logged out: {} from IP: {}", username, request.getRemoteAddr());
-            } catch (Exception e) {
-                logger.debug("Could not extract username from token during logout");
-            }
+        if (user != null) {
+            logger.info("User logged out: {} from IP: {}", user.username(), request.getRemoteAddr());
         }
         
         return ResponseEntity.ok(new LogoutResponse(
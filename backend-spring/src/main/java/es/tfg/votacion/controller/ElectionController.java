@@ -1,41 +1,65 @@
 package es.tfg.votacion.controller;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import es.tfg.votacion.config.ElectionProperties;
 import es.tfg.votacion.dto.*;
 import es.tfg.votacion.model.CreateElectionRequest;
 import es.tfg.votacion.model.Election;
 import es.tfg.votacion.model.ElectionStatus;
 import es.tfg.votacion.model.Receipt;
+import es.tfg.votacion.model.TallyMode;
 import es.tfg.votacion.model.User;
 import es.tfg.votacion.service.AuthService;
+import es.tfg.votacion.service.BallotEnvelope;
 import es.tfg.votacion.service.ElectionService;
 import es.tfg.votacion.service.FabricService;
+import es.tfg.votacion.service.IdempotencyStore;
+import es.tfg.votacion.service.LogSampler;
+import es.tfg.votacion.service.MerkleAnchorer;
+import es.tfg.votacion.service.RecountProgressStreamer;
 import es.tfg.votacion.service.StorageService;
+import es.tfg.votacion.service.TurnoutBroadcaster;
+import es.tfg.votacion.service.VoteMetrics;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.net.URI;
 import java.security.MessageDigest;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 
 /**
  * Controlador para gestión de elecciones y votaciones
  * 
  * Endpoints:
- * - GET /api/v1/elections - Lista elecciones activas
+ * - GET /api/v1/elections - Lista elecciones activas (paginable con cursor)
  * - GET /api/v1/elections/{id} - Detalle de elección
  * - POST /api/v1/elections/{id}/vote - Emitir voto
- * - POST /api/v1/elections/{id}/close - Cerrar votación (ADMIN)
+ * - POST /api/v1/elections/{id}/close - Cerrar votación (ADMIN), responde 202 con el trabajo de recuento
+ * - GET /api/v1/elections/{id}/close/progress - Progreso del recuento (ADMIN/AUDITOR)
+ * - GET /api/v1/elections/{id}/close/progress/stream - Progreso del recuento por SSE (ADMIN/AUDITOR)
  * - GET /api/v1/elections/{id}/results - Obtener resultados (ADMIN/AUDITOR)
+ * - GET /api/v1/elections/{id}/turnout/stream - Participación en vivo por SSE (ADMIN/AUDITOR)
+ * - GET /api/v1/elections/{id}/merkle/proof/{blobId} - Prueba de inclusión de un voto
+ * - GET /api/v1/elections/{id}/merkle/verify - Integridad del almacenamiento frente a la raíz anclada (ADMIN/AUDITOR)
  * - POST /api/v1/elections - Crear elección (ADMIN)
  * 
+ * Los listados y el detalle devuelven un ETag derivado de la versión de las
+ * elecciones y responden 304 ante un If-None-Match vigente, sin construir
+ * las respuestas.
+ * 
  * @author Enrique Huet Adrover
  * @version 1.0
  * @since Java 21
@@ -46,23 +70,52 @@ import java.util.*;
 public class ElectionController {
 
     private static final Logger logger = LoggerFactory.getLogger(ElectionController.class);
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    // Los listados pueden guardarse en el navegador pero siempre se revalidan con el ETag
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+    // Los resultados cerrados no cambian: privados (requieren rol) pero cacheables sin revalidar
+    private static final CacheControl IMMUTABLE_RESULTS =
+        CacheControl.maxAge(java.time.Duration.ofDays(365)).cachePrivate().immutable();
+    private static final List<String> LISTING_PARAMS = List.of("status", "from", "to", "sort", "cursor", "limit");
+    // Estados visibles en el listado público
+    private static final Set<ElectionStatus> PUBLIC_STATUSES =
+        EnumSet.of(ElectionStatus.ACTIVE, ElectionStatus.CLOSING, ElectionStatus.CLOSED, ElectionStatus.COMPLETED);
     
     private final AuthService authService;
     private final ElectionService electionService;
     private final FabricService fabricService;
     private final StorageService storageService;
-    private final ObjectMapper objectMapper;
+    private final VoteMetrics voteMetrics;
+    private final IdempotencyStore idempotencyStore;
+    private final ElectionProperties electionProperties;
+    private final TurnoutBroadcaster turnoutBroadcaster;
+    private final MerkleAnchorer merkleAnchorer;
+    private final RecountProgressStreamer recountProgressStreamer;
+    private final LogSampler listingLogSampler;
 
     public ElectionController(
             AuthService authService,
             ElectionService electionService,
             FabricService fabricService,
-            StorageService storageService) {
+            StorageService storageService,
+            VoteMetrics voteMetrics,
+            IdempotencyStore idempotencyStore,
+            ElectionProperties electionProperties,
+            TurnoutBroadcaster turnoutBroadcaster,
+            MerkleAnchorer merkleAnchorer,
+            RecountProgressStreamer recountProgressStreamer) {
         this.authService = authService;
         this.electionService = electionService;
         this.fabricService = fabricService;
         this.storageService = storageService;
-        this.objectMapper = new ObjectMapper();
+        this.voteMetrics = voteMetrics;
+        this.idempotencyStore = idempotencyStore;
+        this.electionProperties = electionProperties;
+        this.turnoutBroadcaster = turnoutBroadcaster;
+        this.merkleAnchorer = merkleAnchorer;
+        this.recountProgressStreamer = recountProgressStreamer;
+        this.listingLogSampler = new LogSampler(electionProperties.getListing().getLogSampleEvery());
     }
 
     /**
@@ -72,12 +125,12 @@ public class ElectionController {
     @PostMapping
     public ResponseEntity<?> createElection(
             @Valid @RequestBody CreateElectionRequest createRequest,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @AuthenticationPrincipal User currentUser,
             HttpServletRequest request) {
         
         logger.info("Creating new election: {}", createRequest.title());
         
-        User user = validateAdminAccess(authHeader, request);
+        User user = validateAdminAccess(currentUser);
         if (user == null) {
             return ResponseEntity
                 .status(HttpStatus.FORBIDDEN)
@@ -120,7 +173,8 @@ public class ElectionController {
             null // Public Key will be generated by service
         );
         
-        ElectionCreationResult result = electionService.createElection(election);
+        TallyMode tallyMode = createRequest.tallyMode() != null ? createRequest.tallyMode() : TallyMode.DECRYPT;
+        ElectionCreationResult result = electionService.createElection(election, tallyMode);
         
         return ResponseEntity
             .status(HttpStatus.CREATED)
@@ -131,38 +185,42 @@ public class ElectionController {
      * Lista todas las elecciones activas
      * GET /api/v1/elections
      * 
-     * @param authHeader Authorization header con JWT
+     * Sin parámetros de consulta devuelve la lista completa (compatibilidad con
+     * el dashboard). Con status, from, to, sort, cursor o limit devuelve una
+     * página ({@link ElectionPageResponse}).
+     * 
+     * @param currentUser Usuario autenticado por el filtro JWT (null si anónimo)
      * @param request HTTP request para logging
-     * @return Lista de elecciones disponibles
+     * @return Lista o página de elecciones disponibles
      */
     @GetMapping
     public ResponseEntity<?> getActiveElections(
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @AuthenticationPrincipal User currentUser,
             HttpServletRequest request) {
         
-        logger.info("Fetching active elections from IP: {}", request.getRemoteAddr());
-        
-        // Validar autenticación (opcional para ver lista)
-        final User currentUser;
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            String token = authHeader.substring(7);
-            currentUser = authService.validateJwtToken(token);
-        } else {
-            currentUser = null;
-        }
-        
+        // Autenticación opcional para ver la lista: el filtro JWT ya resolvió el usuario
         try {
+            // hasVoted depende del usuario, por lo que forma parte del ETag
+            String etag = buildEtag(listingScope("active", request), electionService.getCatalogVersion(), currentUser);
+            if (isNotModified(request, etag)) {
+                return notModified(etag);
+            }
+
+            if (isPagedRequest(request)) {
+                ElectionService.ElectionQuery query = parseElectionQuery(request, PUBLIC_STATUSES);
+                ElectionService.ElectionPage page = electionService.getElectionsPage(query);
+                return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(REVALIDATE)
+                    .body(toPageResponse(page, query, currentUser));
+            }
+
             List<Election> elections = electionService.getActiveElections();
             
             List<ElectionResponse> response = elections.stream()
                 .map(election -> {
                     boolean hasVoted = currentUser != null && 
                         electionService.hasUserVoted(election.id(), currentUser.id());
-                    
-                    if (currentUser != null) {
-                        logger.info("Checking vote status for user {} in election {}: hasVoted={}", 
-                            currentUser.username(), election.id(), hasVoted);
-                    }
 
                     return ElectionResponse.fromElection(
                         election, 
@@ -172,14 +230,18 @@ public class ElectionController {
                 })
                 .toList();
             
-            logger.info("Returning {} active elections", response.size());
+            if (listingLogSampler.sample()) {
+                logger.info("Returning {} active elections (logged 1 of every {} listings)",
+                    response.size(), listingLogSampler.every());
+            }
             
             return ResponseEntity.ok()
-                .header("Cache-Control", "no-cache, no-store, must-revalidate")
-                .header("Pragma", "no-cache")
-                .header("Expires", "0")
+                .eTag(etag)
+                .cacheControl(REVALIDATE)
                 .body(response);
             
+        } catch (IllegalArgumentException e) {
+            return badListingRequest(e, request);
         } catch (Exception e) {
             logger.error("Error fetching elections", e);
             return ResponseEntity
@@ -197,18 +259,18 @@ public class ElectionController {
      * Lista todas las elecciones (ADMIN)
      * GET /api/v1/elections/all
      * 
-     * @param authHeader Authorization header con JWT
+     * Admite los mismos parámetros de paginación y filtrado que GET /elections
+     * 
+     * @param currentUser Usuario autenticado por el filtro JWT (null si anónimo)
      * @param request HTTP request para logging
-     * @return Lista de todas las elecciones
+     * @return Lista o página de todas las elecciones
      */
     @GetMapping("/all")
     public ResponseEntity<?> getAllElections(
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @AuthenticationPrincipal User currentUser,
             HttpServletRequest request) {
         
-        logger.info("Fetching all elections (ADMIN) from IP: {}", request.getRemoteAddr());
-        
-        User user = validateAdminAccess(authHeader, request);
+        User user = validateAdminAccess(currentUser);
         if (user == null) {
             return ResponseEntity
                 .status(HttpStatus.FORBIDDEN)
@@ -221,6 +283,20 @@ public class ElectionController {
         }
         
         try {
+            String etag = buildEtag(listingScope("all", request), electionService.getCatalogVersion(), null);
+            if (isNotModified(request, etag)) {
+                return notModified(etag);
+            }
+
+            if (isPagedRequest(request)) {
+                ElectionService.ElectionQuery query = parseElectionQuery(request, EnumSet.allOf(ElectionStatus.class));
+                ElectionService.ElectionPage page = electionService.getElectionsPage(query);
+                return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(REVALIDATE)
+                    .body(toPageResponse(page, query, null));
+            }
+
             List<Election> elections = electionService.getAllElections();
             
             List<ElectionResponse> response = elections.stream()
@@ -231,14 +307,18 @@ public class ElectionController {
                 ))
                 .toList();
             
-            logger.info("Returning {} elections", response.size());
+            if (listingLogSampler.sample()) {
+                logger.info("Returning {} elections (logged 1 of every {} listings)",
+                    response.size(), listingLogSampler.every());
+            }
             
             return ResponseEntity.ok()
-                .header("Cache-Control", "no-cache, no-store, must-revalidate")
-                .header("Pragma", "no-cache")
-                .header("Expires", "0")
+                .eTag(etag)
+                .cacheControl(REVALIDATE)
                 .body(response);
             
+        } catch (IllegalArgumentException e) {
+            return badListingRequest(e, request);
         } catch (Exception e) {
             logger.error("Error fetching all elections", e);
             return ResponseEntity
@@ -257,23 +337,20 @@ public class ElectionController {
      * GET /api/v1/elections/{id}
      * 
      * @param electionId ID de la elección
-     * @param authHeader Authorization header con JWT
+     * @param currentUser Usuario autenticado por el filtro JWT (null si anónimo)
      * @param request HTTP request
      * @return Detalle de la elección
      */
     @GetMapping("/{id}")
     public ResponseEntity<?> getElectionById(
             @PathVariable("id") String electionId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @AuthenticationPrincipal User currentUser,
             HttpServletRequest request) {
         
-        logger.info("Fetching election: {}", electionId);
+        // DEBUG: los clientes consultan la elección en cada refresco
+        logger.debug("Fetching election: {}", electionId);
         
-        User user = null;
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            String token = authHeader.substring(7);
-            user = authService.validateJwtToken(token);
-        }
+        User user = currentUser;
         
         Optional<Election> electionOpt = electionService.getElectionById(electionId);
         
@@ -288,6 +365,11 @@ public class ElectionController {
                 ));
         }
         
+        String etag = buildEtag(electionId, electionService.getElectionVersion(electionId), user);
+        if (isNotModified(request, etag)) {
+            return notModified(etag);
+        }
+        
         Election election = electionOpt.get();
         boolean hasVoted = user != null && 
             electionService.hasUserVoted(election.id(), user.id());
@@ -299,19 +381,189 @@ public class ElectionController {
         );
         
         return ResponseEntity.ok()
-            .header("Cache-Control", "no-cache, no-store, must-revalidate")
-            .header("Pragma", "no-cache")
-            .header("Expires", "0")
+            .eTag(etag)
+            .cacheControl(REVALIDATE)
             .body(response);
     }
 
+    /**
+     * Indica si la petición usa la API paginada (algún parámetro de listado presente)
+     */
+    private static boolean isPagedRequest(HttpServletRequest request) {
+        for (String param : LISTING_PARAMS) {
+            if (request.getParameter(param) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Traduce los parámetros de listado a una consulta del servicio
+     * 
+     * - status: códigos separados por comas (active,closed...), limitados a {@code allowed}
+     * - from / to: intervalo ISO-8601 sobre la fecha de inicio (to exclusive)
+     * - sort: startTime (ascendente) o -startTime (descendente, por defecto)
+     * - cursor: valor nextCursor de la página anterior
+     * - limit: tamaño de página, recortado a elections.listing.max-page-size
+     * 
+     * @throws IllegalArgumentException si algún parámetro no es válido
+     */
+    private ElectionService.ElectionQuery parseElectionQuery(HttpServletRequest request, Set<ElectionStatus> allowed) {
+        Set<ElectionStatus> statuses = EnumSet.copyOf(allowed);
+        String statusParam = request.getParameter("status");
+        if (statusParam != null && !statusParam.isBlank()) {
+            statuses = EnumSet.noneOf(ElectionStatus.class);
+            for (String code : statusParam.split(",")) {
+                ElectionStatus status = ElectionStatus.fromCode(code);
+                if (!allowed.contains(status)) {
+                    throw new IllegalArgumentException("Status not available in this listing: " + code.trim());
+                }
+                statuses.add(status);
+            }
+        }
+
+        String sort = request.getParameter("sort");
+        boolean descending;
+        if (sort == null || sort.isBlank() || "-startTime".equals(sort)) {
+            descending = true;
+        } else if ("startTime".equals(sort)) {
+            descending = false;
+        } else {
+            throw new IllegalArgumentException("Unsupported sort: " + sort);
+        }
+
+        ElectionProperties.Listing listing = electionProperties.getListing();
+        int limit = listing.getDefaultPageSize();
+        String limitParam = request.getParameter("limit");
+        if (limitParam != null) {
+            try {
+                limit = Integer.parseInt(limitParam.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid limit: " + limitParam);
+            }
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Invalid limit: " + limitParam);
+            }
+        }
+        limit = Math.min(limit, listing.getMaxPageSize());
+
+        String cursor = request.getParameter("cursor");
+        return new ElectionService.ElectionQuery(
+            statuses,
+            parseDateParam(request, "from"),
+            parseDateParam(request, "to"),
+            descending,
+            cursor == null || cursor.isBlank() ? null : cursor,
+            limit
+        );
+    }
+
+    private static LocalDateTime parseDateParam(HttpServletRequest request, String name) {
+        String value = request.getParameter(name);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid '" + name + "' date, expected ISO-8601: " + value);
+        }
+    }
+
+    private ElectionPageResponse toPageResponse(ElectionService.ElectionPage page,
+                                                ElectionService.ElectionQuery query, User currentUser) {
+        List<ElectionResponse> items = page.items().stream()
+            .map(election -> ElectionResponse.fromElection(
+                election,
+                currentUser != null && electionService.hasUserVoted(election.id(), currentUser.id()),
+                election.totalVotes()
+            ))
+            .toList();
+        if (listingLogSampler.sample()) {
+            logger.info("Returning page of {} elections (logged 1 of every {} listings)",
+                items.size(), listingLogSampler.every());
+        }
+        return new ElectionPageResponse(items, page.nextCursor(), query.limit());
+    }
+
+    private ResponseEntity<?> badListingRequest(IllegalArgumentException e, HttpServletRequest request) {
+        logger.warn("Invalid election listing request: {}", e.getMessage());
+        return ResponseEntity
+            .status(HttpStatus.BAD_REQUEST)
+            .body(new ErrorResponse(
+                400,
+                "Bad Request",
+                e.getMessage(),
+                request.getRequestURI()
+            ));
+    }
+
+    /**
+     * Ámbito del ETag de un listado: cada combinación de parámetros es un recurso distinto
+     */
+    private static String listingScope(String listing, HttpServletRequest request) {
+        String queryString = request.getQueryString();
+        return queryString == null ? listing : listing + "." + Integer.toHexString(queryString.hashCode());
+    }
+
+    /**
+     * Construye un ETag débil a partir de la versión de los datos
+     * 
+     * Incluye la época de arranque del servicio (las versiones se reinician
+     * con el proceso) y el usuario cuando la respuesta depende de él.
+     * 
+     * @param scope Recurso (listado o ID de elección)
+     * @param version Versión de los datos en ElectionService
+     * @param user Usuario autenticado o null si la respuesta no depende de él
+     * @return ETag entrecomillado
+     */
+    private String buildEtag(String scope, long version, User user) {
+        String viewer = user != null ? user.id() : "anonymous";
+        return "W/\"" + scope + "-" + electionService.getVersionEpoch() + "-" + version + "-" + viewer + "\"";
+    }
+
+    /**
+     * Comprueba If-None-Match (admite varios valores, "*" y comparación débil)
+     */
+    private boolean isNotModified(HttpServletRequest request, String etag) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String opaque = stripWeakPrefix(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if ("*".equals(value) || opaque.equals(stripWeakPrefix(value))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeakPrefix(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private ResponseEntity<?> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+            .eTag(etag)
+            .cacheControl(REVALIDATE)
+            .build();
+    }
+
     /**
      * Emitir voto en una elección
      * POST /api/v1/elections/{id}/vote
      * 
+     * Con la cabecera Idempotency-Key, los reintentos de una petición ya
+     * completada reciben la respuesta original (cabecera Idempotent-Replayed)
+     * sin repetir cifrado, almacenamiento ni envío a Fabric.
+     * 
      * @param electionId ID de la elección
      * @param voteRequest Datos del voto
-     * @param authHeader Authorization header con JWT
+     * @param idempotencyKey Clave de idempotencia opcional del cliente
+     * @param currentUser Usuario autenticado por el filtro JWT (null si anónimo)
      * @param request HTTP request
      * @return Recibo del voto (commitment + txId)
      */
@@ -319,38 +571,112 @@ public class ElectionController {
     public ResponseEntity<?> emitVote(
             @PathVariable("id") String electionId,
             @Valid @RequestBody VoteSubmissionRequest voteRequest,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @AuthenticationPrincipal User currentUser,
             HttpServletRequest request) {
         
-        logger.info("Vote submission for election: {}", electionId);
+        String scopedKey = null;
+        if (idempotencyKey != null && !idempotencyKey.isBlank() && currentUser != null) {
+            if (idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+                return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(new ErrorResponse(
+                        400,
+                        "Bad Request",
+                        "Idempotency-Key must not exceed " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters",
+                        request.getRequestURI()
+                    ));
+            }
+            
+            // La clave se limita al usuario y la elección: nunca se comparten respuestas
+            scopedKey = currentUser.id() + ":" + electionId + ":" + idempotencyKey;
+            ResponseEntity<?> replay = replayIdempotentVote(scopedKey, voteRequest, request);
+            if (replay != null) {
+                return replay;
+            }
+        }
         
-        // Validar autenticación
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            return ResponseEntity
-                .status(HttpStatus.UNAUTHORIZED)
+        VoteMetrics.Submission submission = voteMetrics.startSubmission();
+        ResponseEntity<?> response = null;
+        try {
+            response = processVote(electionId, voteRequest, currentUser, request, submission);
+            return response;
+        } finally {
+            int status = response != null ? response.getStatusCode().value() : 500;
+            submission.finish(status);
+            if (scopedKey != null) {
+                idempotencyStore.complete(scopedKey, status, response != null ? response.getBody() : null);
+            }
+        }
+    }
+
+    /**
+     * Reclama la clave de idempotencia
+     * 
+     * @return Respuesta a devolver sin procesar el voto, o null si debe procesarse
+     */
+    private ResponseEntity<?> replayIdempotentVote(
+            String scopedKey,
+            VoteSubmissionRequest voteRequest,
+            HttpServletRequest request) {
+        
+        IdempotencyStore.Claim claim = idempotencyStore.begin(scopedKey, voteRequest);
+        
+        return switch (claim.status()) {
+            case NEW -> null;
+            case COMPLETED -> {
+                logger.info("Replaying vote response for idempotency key");
+                yield ResponseEntity
+                    .status(claim.httpStatus())
+                    .header("Idempotent-Replayed", "true")
+                    .body(claim.body());
+            }
+            case IN_FLIGHT -> ResponseEntity
+                .status(HttpStatus.CONFLICT)
                 .body(new ErrorResponse(
-                    401,
-                    "Unauthorized",
-                    "Authentication required",
+                    409,
+                    "Conflict",
+                    "A request with this Idempotency-Key is still being processed",
                     request.getRequestURI()
                 ));
-        }
+            case MISMATCH -> ResponseEntity
+                .status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .body(new ErrorResponse(
+                    422,
+                    "Unprocessable Entity",
+                    "Idempotency-Key was already used with a different request",
+                    request.getRequestURI()
+                ));
+        };
+    }
+
+    /**
+     * Pipeline de emisión de voto instrumentado por etapas
+     */
+    private ResponseEntity<?> processVote(
+            String electionId,
+            VoteSubmissionRequest voteRequest,
+            User user,
+            HttpServletRequest request,
+            VoteMetrics.Submission submission) {
         
-        String token = authHeader.substring(7);
-        User user = authService.validateJwtToken(token);
+        logger.debug("Vote submission for election: {}", electionId);
         
+        // Validar autenticación
+        submission.stage(VoteMetrics.Stage.AUTH);
         if (user == null) {
             return ResponseEntity
                 .status(HttpStatus.UNAUTHORIZED)
                 .body(new ErrorResponse(
                     401,
                     "Unauthorized",
-                    "Invalid or expired token",
+                    "Authentication required",
                     request.getRequestURI()
                 ));
         }
         
         // Validar que la elección existe
+        submission.stage(VoteMetrics.Stage.VALIDATION);
         Optional<Election> electionOpt = electionService.getElectionById(electionId);
         if (electionOpt.isEmpty()) {
             return ResponseEntity
@@ -364,9 +690,11 @@ public class ElectionController {
         }
         
         Election election = electionOpt.get();
+        submission.election(electionId);
         
-        // Validar que la elección está activa
-        if (!election.isActiveForVoting()) {
+        // Validar que la elección está activa; admitVote impide además que se
+        // cierre mientras el voto está en curso
+        if (!election.isActiveForVoting() || !electionService.admitVote(electionId)) {
             return ResponseEntity
                 .status(HttpStatus.BAD_REQUEST)
                 .body(new ErrorResponse(
@@ -377,6 +705,24 @@ public class ElectionController {
                 ));
         }
         
+        try {
+            return processAdmittedVote(electionId, election, voteRequest, user, request, submission);
+        } finally {
+            electionService.releaseVote(electionId);
+        }
+    }
+
+    /**
+     * Resto del pipeline de un voto admitido (la elección no puede cerrarse entretanto)
+     */
+    private ResponseEntity<?> processAdmittedVote(
+            String electionId,
+            Election election,
+            VoteSubmissionRequest voteRequest,
+            User user,
+            HttpServletRequest request,
+            VoteMetrics.Submission submission) {
+        
         // Validar que el usuario no ha votado ya
         if (electionService.hasUserVoted(electionId, user.id())) {
             return ResponseEntity
@@ -400,48 +746,72 @@ public class ElectionController {
                     request.getRequestURI()
                 ));
         }
+
+        // Elecciones homomórficas: solo papeletas Paillier bien formadas (nunca voto en claro)
+        boolean homomorphic = electionService.isHomomorphic(electionId);
+        if (homomorphic) {
+            String invalidBallot = null;
+            if (voteRequest.encryptedPayload() == null) {
+                invalidBallot = "Homomorphic elections require an encrypted ballot";
+            } else {
+                try {
+                    electionService.validateHomomorphicBallot(electionId, voteRequest.encryptedPayload());
+                } catch (IllegalArgumentException e) {
+                    invalidBallot = "Invalid homomorphic ballot: " + e.getMessage();
+                }
+            }
+            if (invalidBallot != null) {
+                return ResponseEntity
+                    .status(HttpStatus.BAD_REQUEST)
+                    .body(new ErrorResponse(
+                        400,
+                        "Bad Request",
+                        invalidBallot,
+                        request.getRequestURI()
+                    ));
+            }
+        }
         
         try {
+            submission.stage(VoteMetrics.Stage.SERIALIZATION);
             byte[] voteBytes;
             String optionIdForRegistration = "ENCRYPTED";
 
             if (voteRequest.encryptedPayload() != null) {
-                // Voto cifrado en cliente (RSA)
-                Map<String, Object> voteData = new HashMap<>();
-                voteData.put("electionId", electionId);
-                voteData.put("encryptedVote", voteRequest.encryptedPayload());
-                voteData.put("userId", user.id());
-                voteData.put("timestamp", Instant.now().toString());
-                
-                voteBytes = objectMapper.writeValueAsBytes(voteData);
+                // Voto cifrado en cliente (RSA, híbrido o Paillier)
+                voteBytes = BallotEnvelope.encode(BallotEnvelope.ENCRYPTED_BALLOT, Instant.now(),
+                    voteRequest.encryptedPayload(), electionId, user.id(), null);
             } else {
                 // Voto plano (Legacy/Dev)
                 optionIdForRegistration = voteRequest.optionId();
-                Map<String, Object> voteData = Map.of(
-                    "electionId", electionId,
-                    "optionId", voteRequest.optionId(),
-                    "userId", user.id(),
-                    "timestamp", Instant.now().toString(),
-                    "comment", voteRequest.comment() != null ? voteRequest.comment() : ""
-                );
-                voteBytes = objectMapper.writeValueAsBytes(voteData);
+                voteBytes = BallotEnvelope.encode(BallotEnvelope.PLAIN_BALLOT, Instant.now(),
+                    voteRequest.optionId(), electionId, user.id(), voteRequest.comment());
             }
             
             // Cifrar y almacenar voto
+            submission.stage(VoteMetrics.Stage.STORAGE);
             String blobId = storageService.storeEncrypted(electionId, voteBytes);
-            logger.info("Vote encrypted and stored: blobId={}", blobId);
+            submission.detail("blob_id", blobId);
             
             // Generar commitment hash
+            submission.stage(VoteMetrics.Stage.COMMITMENT);
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
             byte[] hash = digest.digest(voteBytes);
             String commitment = Base64.getEncoder().encodeToString(hash);
             
             // Registrar en blockchain
+            submission.stage(VoteMetrics.Stage.FABRIC_SUBMIT);
             String transactionId = fabricService.emitVote(commitment, electionId, user.id());
-            logger.info("Vote registered in blockchain: txId={}", transactionId);
+            submission.detail("tx_id", transactionId);
             
             // Registrar voto en el servicio de elecciones
-            electionService.registerVote(electionId, user.id(), optionIdForRegistration, blobId, transactionId);
+            submission.stage(VoteMetrics.Stage.PERSISTENCE);
+            if (homomorphic) {
+                electionService.registerVote(electionId, user.id(), optionIdForRegistration, blobId, transactionId,
+                    voteRequest.encryptedPayload());
+            } else {
+                electionService.registerVote(electionId, user.id(), optionIdForRegistration, blobId, transactionId);
+            }
             
             // Crear recibo
             String verificationCode = generateVerificationCode();
@@ -458,23 +828,10 @@ public class ElectionController {
                 "Vote submitted successfully"
             );
             
-            logger.info("Vote processed successfully for user: {} in election: {}", 
-                user.username(), electionId);
-            
             return ResponseEntity
                 .status(HttpStatus.CREATED)
                 .body(response);
             
-        } catch (JsonProcessingException e) {
-            logger.error("Error serializing vote data", e);
-            return ResponseEntity
-                .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(new ErrorResponse(
-                    500,
-                    "Internal Server Error",
-                    "Error processing vote data",
-                    request.getRequestURI()
-                ));
         } catch (Exception e) {
             // Handle case where user already voted on blockchain but local DB is out of sync
             if (e.getMessage() != null && e.getMessage().contains("already voted")) {
@@ -510,22 +867,28 @@ public class ElectionController {
      * Cerrar una elección (solo ADMIN)
      * POST /api/v1/elections/{id}/close
      * 
+     * Pasa la elección a "closing" (deja de aceptar votos), lanza el recuento
+     * en segundo plano y responde 202 sin esperar a que termine; la elección
+     * pasa a "closed" al completarse el recuento. Repetir la petición durante
+     * el recuento devuelve el mismo trabajo, y tras un fallo o interrupción lo
+     * reanuda.
+     * 
      * @param electionId ID de la elección a cerrar
-     * @param authHeader Authorization header con JWT
+     * @param currentUser Usuario autenticado por el filtro JWT (null si anónimo)
      * @param request HTTP request
-     * @return Resumen del cierre
+     * @return Trabajo de recuento y URL de progreso
      */
     @PostMapping("/{id}/close")
     public ResponseEntity<?> closeElection(
             @PathVariable("id") String electionId,
             @Valid @RequestBody es.tfg.votacion.dto.CloseElectionRequest closeRequest,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @AuthenticationPrincipal User currentUser,
             HttpServletRequest request) {
         
         logger.info("Closing election: {}", electionId);
         
         // Validar autenticación y permisos ADMIN
-        User user = validateAdminAccess(authHeader, request);
+        User user = validateAdminAccess(currentUser);
         if (user == null) {
             return ResponseEntity
                 .status(HttpStatus.FORBIDDEN)
@@ -549,8 +912,9 @@ public class ElectionController {
                 ));
         }
         
+        // CLOSING: recuento en curso, fallido o interrumpido (se devuelve o se reanuda)
         Election election = electionOpt.get();
-        if (election.status() != ElectionStatus.ACTIVE) {
+        if (election.status() != ElectionStatus.ACTIVE && election.status() != ElectionStatus.CLOSING) {
              return ResponseEntity
                 .status(HttpStatus.BAD_REQUEST)
                 .body(new ErrorResponse(
@@ -562,19 +926,32 @@ public class ElectionController {
         }
 
         try {
-            Election closed = electionService.closeElection(electionId, closeRequest.privateKey());
+            ElectionService.RecountStatus job = electionService.startClose(electionId, closeRequest.privateKey());
+            String progressUrl = request.getContextPath() + "/elections/" + electionId + "/close/progress";
             
             Map<String, Object> response = Map.of(
                 "electionId", electionId,
-                "status", closed.status(),
-                "totalVotes", closed.totalVotes(),
-                "closedAt", LocalDateTime.now(),
+                "jobId", job.jobId(),
+                "status", job.status(),
+                "progressUrl", progressUrl,
                 "closedBy", user.username()
             );
             
-            logger.info("Election closed: {} by {}", electionId, user.username());
-            return ResponseEntity.ok(response);
+            logger.info("Election close started: {} by {} (job {})", electionId, user.username(), job.jobId());
+            return ResponseEntity
+                .status(HttpStatus.ACCEPTED)
+                .location(URI.create(progressUrl))
+                .body(response);
             
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(new ErrorResponse(
+                    400,
+                    "Bad Request",
+                    e.getMessage(),
+                    request.getRequestURI()
+                ));
         } catch (Exception e) {
             logger.error("Error closing election", e);
             return ResponseEntity
@@ -588,25 +965,91 @@ public class ElectionController {
         }
     }
 
+    /**
+     * Progreso del recuento de cierre de una elección (ADMIN/AUDITOR)
+     * GET /api/v1/elections/{id}/close/progress
+     * 
+     * Blobs procesados sobre el total, fallos de integridad y de descifrado y
+     * ritmo en blobs/s. Un recuento "interrupted" se reanuda desde su último
+     * punto de control al volver a cerrar la elección con la misma clave.
+     * 
+     * @param electionId ID de la elección
+     * @param currentUser Usuario autenticado por el filtro JWT (null si anónimo)
+     * @return Progreso del último trabajo de recuento
+     */
+    @GetMapping("/{id}/close/progress")
+    public ResponseEntity<?> getCloseProgress(
+            @PathVariable("id") String electionId,
+            @AuthenticationPrincipal User currentUser,
+            HttpServletRequest request) {
+        
+        User user = validateAdminOrAuditorAccess(currentUser);
+        if (user == null) {
+            return ResponseEntity
+                .status(HttpStatus.FORBIDDEN)
+                .body(new ErrorResponse(403, "Forbidden", "Admin or Auditor access required", request.getRequestURI()));
+        }
+        
+        ElectionService.RecountStatus status = electionService.getRecountStatus(electionId);
+        if (status == null) {
+            return ResponseEntity
+                .status(HttpStatus.NOT_FOUND)
+                .body(new ErrorResponse(404, "Not Found", "No recount started for election: " + electionId,
+                    request.getRequestURI()));
+        }
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.noStore())
+            .body(status);
+    }
+
+    /**
+     * Progreso del recuento de cierre por SSE (ADMIN/AUDITOR)
+     * GET /api/v1/elections/{id}/close/progress/stream
+     * 
+     * Envía un evento "progress" por intervalo y cierra la conexión cuando el
+     * recuento termina, falla o queda interrumpido.
+     * 
+     * @param electionId ID de la elección
+     * @param currentUser Usuario autenticado por el filtro JWT (null si anónimo)
+     * @return Emisor SSE
+     */
+    @GetMapping(value = "/{id}/close/progress/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamCloseProgress(
+            @PathVariable("id") String electionId,
+            @AuthenticationPrincipal User currentUser) {
+        
+        if (validateAdminOrAuditorAccess(currentUser) == null) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Admin or Auditor access required");
+        }
+        if (electionService.getElectionById(electionId).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Election not found: " + electionId);
+        }
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.noStore())
+            .header("X-Accel-Buffering", "no")
+            .body(recountProgressStreamer.subscribe(electionId));
+    }
+
     /**
      * Obtener resultados de una elección (ADMIN/AUDITOR)
      * GET /api/v1/elections/{id}/results
      * 
      * @param electionId ID de la elección
-     * @param authHeader Authorization header con JWT
+     * @param currentUser Usuario autenticado por el filtro JWT (null si anónimo)
      * @param request HTTP request
      * @return Resultados de la votación
      */
     @GetMapping("/{id}/results")
     public ResponseEntity<?> getElectionResults(
             @PathVariable("id") String electionId,
-            @RequestHeader(value = "Authorization", required = false) String authHeader,
+            @AuthenticationPrincipal User currentUser,
             HttpServletRequest request) {
         
-        logger.info("Fetching results for election: {}", electionId);
+        // DEBUG: el panel de resultados se consulta periódicamente
+        logger.debug("Fetching results for election: {}", electionId);
         
         // Validar autenticación y permisos
-        User user = validateAdminOrAuditorAccess(authHeader, request);
+        User user = validateAdminOrAuditorAccess(currentUser);
         if (user == null) {
             return ResponseEntity
                 .status(HttpStatus.FORBIDDEN)
@@ -645,65 +1088,176 @@ public class ElectionController {
                 ));
         }
         
-        Map<String, Integer> results = electionService.getElectionResults(electionId);
-        int totalVotes = election.totalVotes();
-        
-        List<ElectionResultsResponse.OptionResult> optionResults = election.options().stream()
-            .map(option -> {
-                int votes = results.getOrDefault(option.optionId(), 0);
-                double percentage = totalVotes > 0 ? (votes * 100.0 / totalVotes) : 0.0;
-                return new ElectionResultsResponse.OptionResult(
-                    option.optionId(),
-                    option.title(),
-                    votes,
-                    percentage
-                );
-            })
-            .toList();
+        // Snapshot inmutable generado al cerrar: se sirve sin recalcular ni serializar
+        ElectionService.ResultsSnapshot snapshot = electionService.getResultsSnapshot(electionId);
+        if (snapshot != null) {
+            String etag = "\"" + snapshot.contentHash() + "\"";
+            if (isNotModified(request, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(IMMUTABLE_RESULTS)
+                    .build();
+            }
+            logger.debug("Results snapshot served for election: {} by {}", electionId, user.username());
+            return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .cacheControl(IMMUTABLE_RESULTS)
+                .header("Repr-Digest", "sha-256=:" + snapshot.contentHash() + ":")
+                .body(snapshot.body());
+        }
         
-        ElectionResultsResponse response = new ElectionResultsResponse(
-            electionId,
-            election.title(),
-            election.status(),
-            Instant.now(),
-            totalVotes,
-            optionResults,
-            "blockchain-audit-trail-" + electionId
-        );
+        Map<String, Integer> results = electionService.getElectionResults(electionId);
+        ElectionResultsResponse response = ElectionResultsResponse.fromResults(election, results, Instant.now());
         
-        logger.info("Results fetched for election: {} by {}", electionId, user.username());
+        logger.debug("Results fetched for election: {} by {}", electionId, user.username());
         return ResponseEntity.ok(response);
     }
 
     /**
-     * Valida acceso ADMIN
+     * Stream SSE de participación en tiempo real (ADMIN/AUDITOR)
+     * GET /api/v1/elections/{id}/turnout/stream
+     * 
+     * Envía un evento "turnout" con los votantes totales y los votos del
+     * último minuto cuando cambian (como mucho uno por tick) y un comentario
+     * keep-alive periódico. Los errores se devuelven antes de abrir el stream.
+     * 
+     * @param electionId ID de la elección
+     * @param currentUser Usuario autenticado por el filtro JWT (null si anónimo)
+     * @return Emisor SSE
      */
-    private User validateAdminAccess(String authHeader, HttpServletRequest request) {
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            return null;
+    @GetMapping(value = "/{id}/turnout/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamTurnout(
+            @PathVariable("id") String electionId,
+            @AuthenticationPrincipal User currentUser) {
+        
+        User user = validateAdminOrAuditorAccess(currentUser);
+        if (user == null) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Admin or Auditor access required");
+        }
+        if (electionService.getElectionById(electionId).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Election not found: " + electionId);
         }
         
-        String token = authHeader.substring(7);
-        User user = authService.validateJwtToken(token);
+        try {
+            SseEmitter emitter = turnoutBroadcaster.subscribe(electionId, electionService.getTotalVoters(electionId));
+            logger.info("Turnout stream opened for election {} by {}", electionId, user.username());
+            return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                // Evita que un proxy inverso acumule los eventos
+                .header("X-Accel-Buffering", "no")
+                .body(emitter);
+        } catch (TurnoutBroadcaster.SubscriberLimitExceededException e) {
+            logger.warn("Turnout stream rejected for election {}: {}", electionId, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+    }
+
+    /**
+     * Prueba de inclusión de un voto en el árbol de Merkle de la elección
+     * GET /api/v1/elections/{id}/merkle/proof/{blobId}
+     * 
+     * El blobId figura en el recibo del voto; con la prueba y la raíz anclada
+     * en blockchain cualquiera puede comprobar que el voto está almacenado.
+     * 
+     * @param electionId ID de la elección
+     * @param blobId ID del blob del voto
+     * @return Prueba de inclusión
+     */
+    @GetMapping("/{id}/merkle/proof/{blobId}")
+    public ResponseEntity<?> getMerkleProof(
+            @PathVariable("id") String electionId,
+            @PathVariable("blobId") String blobId,
+            HttpServletRequest request) {
         
-        if (user == null || !authService.hasRole(user, es.tfg.votacion.model.UserRole.ADMIN)) {
-            return null;
+        if (electionService.getElectionById(electionId).isEmpty()) {
+            return ResponseEntity
+                .status(HttpStatus.NOT_FOUND)
+                .body(new ErrorResponse(404, "Not Found", "Election not found: " + electionId, request.getRequestURI()));
         }
         
-        return user;
+        // Contra la raíz anclada si ya cubre el voto; si no, contra la actual
+        FabricService.MerkleAnchor anchor = merkleAnchorer.getLatestAnchor(electionId);
+        StorageService.MerkleProof proof = anchor != null
+            ? storageService.getInclusionProof(electionId, blobId, (int) anchor.leafCount())
+            : null;
+        boolean anchored = proof != null;
+        if (proof == null) {
+            proof = storageService.getInclusionProof(electionId, blobId, null);
+        }
+        if (proof == null) {
+            return ResponseEntity
+                .status(HttpStatus.NOT_FOUND)
+                .body(new ErrorResponse(404, "Not Found", "Vote not found in election: " + blobId, request.getRequestURI()));
+        }
+        
+        return ResponseEntity.ok(new MerkleProofResponse(
+            electionId,
+            proof.blobId(),
+            proof.leafIndex(),
+            proof.treeSize(),
+            proof.commitment(),
+            proof.path(),
+            proof.root(),
+            anchored,
+            anchored ? anchor.txId() : null
+        ));
     }
 
     /**
-     * Valida acceso ADMIN o AUDITOR
+     * Comprueba todo el almacenamiento de la elección contra la raíz anclada (ADMIN/AUDITOR)
+     * GET /api/v1/elections/{id}/merkle/verify
+     * 
+     * @param electionId ID de la elección
+     * @param currentUser Usuario autenticado por el filtro JWT (null si anónimo)
+     * @return Raíz esperada, raíz recalculada y blobs que no coinciden
      */
-    private User validateAdminOrAuditorAccess(String authHeader, HttpServletRequest request) {
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            return null;
+    @GetMapping("/{id}/merkle/verify")
+    public ResponseEntity<?> verifyMerkleRoot(
+            @PathVariable("id") String electionId,
+            @AuthenticationPrincipal User currentUser,
+            HttpServletRequest request) {
+        
+        User user = validateAdminOrAuditorAccess(currentUser);
+        if (user == null) {
+            return ResponseEntity
+                .status(HttpStatus.FORBIDDEN)
+                .body(new ErrorResponse(403, "Forbidden", "Admin or Auditor access required", request.getRequestURI()));
+        }
+        if (electionService.getElectionById(electionId).isEmpty()) {
+            return ResponseEntity
+                .status(HttpStatus.NOT_FOUND)
+                .body(new ErrorResponse(404, "Not Found", "Election not found: " + electionId, request.getRequestURI()));
         }
         
-        String token = authHeader.substring(7);
-        User user = authService.validateJwtToken(token);
+        StorageService.MerkleVerification verification = merkleAnchorer.verifyStore(electionId);
+        if (verification == null) {
+            return ResponseEntity
+                .status(HttpStatus.NOT_FOUND)
+                .body(new ErrorResponse(404, "Not Found", "No Merkle root anchored for election: " + electionId,
+                    request.getRequestURI()));
+        }
         
+        logger.info("Merkle verification of election {} by {}: consistent={}", 
+            electionId, user.username(), verification.consistent());
+        return ResponseEntity.ok(verification);
+    }
+
+    /**
+     * Valida acceso ADMIN sobre el usuario del SecurityContext
+     */
+    private User validateAdminAccess(User user) {
+        if (user == null || !authService.hasRole(user, es.tfg.votacion.model.UserRole.ADMIN)) {
+            return null;
+        }
+        
+        return user;
+    }
+
+    /**
+     * Valida acceso ADMIN o AUDITOR sobre el usuario del SecurityContext
+     */
+    private User validateAdminOrAuditorAccess(User user) {
         if (user == null || !authService.hasAnyRole(user, 
                 es.tfg.votacion.model.UserRole.ADMIN, 
                 es.tfg.votacion.model.UserRole.AUDITOR)) {
@@ -0,0 +1,17 @@
+package es.tfg.votacion.dto;
+
+import java.util.List;
+
+/**
+ * DTO para una página del listado de elecciones
+ * 
+ * nextCursor es opaco: se envía tal cual en el parámetro cursor para
+ * obtener la página siguiente y es null en la última página.
+ * 
+ * @author Enrique Huet Adrover
+ */
+public record ElectionPageResponse(
+    List<ElectionResponse> items,
+    String nextCursor,
+    int limit
+) {}
@@ -1,8 +1,10 @@
 package es.tfg.votacion.dto;
 
+import es.tfg.votacion.model.Election;
 import es.tfg.votacion.model.ElectionStatus;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DTO para response de resultados de elección
@@ -18,6 +20,32 @@ public record ElectionResultsResponse(
     List<OptionResult> results,
     String auditTrail
 ) {
+    public static ElectionResultsResponse fromResults(Election election, Map<String, Integer> results, Instant closedAt) {
+        int totalVotes = election.totalVotes();
+        List<OptionResult> optionResults = election.options().stream()
+            .map(option -> {
+                int votes = results.getOrDefault(option.optionId(), 0);
+                double percentage = totalVotes > 0 ? (votes * 100.0 / totalVotes) : 0.0;
+                return new OptionResult(
+                    option.optionId(),
+                    option.title(),
+                    votes,
+                    percentage
+                );
+            })
+            .toList();
+
+        return new ElectionResultsResponse(
+            election.id(),
+            election.title(),
+            election.status(),
+            closedAt,
+            totalVotes,
+            optionResults,
+            "blockchain-audit-trail-" + election.id()
+        );
+    }
+
     public record OptionResult(
         String optionId,
         String label,
@@ -0,0 +1,27 @@
+package es.tfg.votacion.dto;
+
+import java.util.List;
+
+/**
+ * DTO para la prueba de inclusión de un voto en el árbol de Merkle de su elección
+ * 
+ * Si el voto está cubierto por la última raíz anclada, la prueba se calcula
+ * contra esa raíz (anchored = true) y se puede comprobar con el ledger;
+ * si no, contra la raíz actual, aún pendiente de anclar.
+ * 
+ * Verificación: hoja = SHA-256(0x00 || commitment), nodo = SHA-256(0x01 || izq || der),
+ * recorriendo path desde la hoja (RFC 9162, sección 2.1.3.2).
+ * 
+ * @author Enrique Huet Adrover
+ */
+public record MerkleProofResponse(
+    String electionId,
+    String blobId,
+    int leafIndex,
+    int treeSize,
+    String commitment,
+    List<String> path,
+    String root,
+    boolean anchored,
+    String anchorTxId
+) {}
@@ -13,7 +13,7 @@ public record VoteSubmissionRequest(
     
     String optionId, // Opcional si se usa encryptedPayload
     
-    String encryptedPayload, // Voto cifrado con RSA (Client-Side Encryption)
+    String encryptedPayload, // Voto cifrado en cliente: RSA legacy o híbrido "hyb1." (RSA-OAEP + AES-GCM)
     
     String comment  // Opcional: comentario cifrado
 ) {}
@@ -29,5 +29,8 @@ public record CreateElectionRequest(
 
     @NotNull(message = "End time is required")
     @Future(message = "End time must be in the future")
-    LocalDateTime endTime
+    LocalDateTime endTime,
+
+    // Opcional: "decrypt" (por defecto) u "homomorphic"
+    TallyMode tallyMode
 ) {}
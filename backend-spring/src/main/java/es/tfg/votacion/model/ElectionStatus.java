@@ -8,6 +8,7 @@ import com.fasterxml.jackson.annotation.JsonValue;
  * Estados del ciclo de vida:
  * - DRAFT: Elección creada pero no publicada
  * - ACTIVE: Elección activa y aceptando votos
+ * - CLOSING: Cierre solicitado, recuento en curso; no acepta más votos
  * - CLOSED: Elección cerrada, no acepta más votos
  * - COMPLETED: Elección completada con resultados finalizados
  * - CANCELLED: Elección cancelada
@@ -28,6 +29,11 @@ public enum ElectionStatus {
      */
     ACTIVE("active", "Activa"),
 
+    /**
+     * Elección en cierre - recuento en curso, no acepta más votos
+     */
+    CLOSING("closing", "Cerrando"),
+
     /**
      * Elección cerrada - no acepta más votos
      */
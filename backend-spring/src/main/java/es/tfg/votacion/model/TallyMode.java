@@ -0,0 +1,43 @@
+package es.tfg.votacion.model;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Modo de recuento de una elección
+ * 
+ * - DECRYPT: cada papeleta se cifra con RSA y se descifra al cerrar
+ * - HOMOMORPHIC: cada papeleta es un vector de cifrados Paillier que se
+ *   agrega al votar; al cerrar solo se descifra un total por opción
+ * 
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ * @since Java 21
+ */
+public enum TallyMode {
+
+    /**
+     * Descifrado individual de papeletas (por defecto)
+     */
+    DECRYPT("decrypt"),
+
+    /**
+     * Agregación homomórfica y descifrado por opción
+     */
+    HOMOMORPHIC("homomorphic");
+
+    private final String code;
+
+    TallyMode(String code) {
+        this.code = code;
+    }
+
+    /**
+     * Obtiene el código del modo para serialización JSON
+     * 
+     * @return Código del modo
+     */
+    @JsonValue
+    public String getCode() {
+        return code;
+    }
+}
@@ -0,0 +1,53 @@
+package es.tfg.votacion.service;
+
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pool acotado de instancias {@link Cipher} para AES-GCM
+ *
+ * Cipher.getInstance resuelve el proveedor y crea el objeto en cada llamada
+ * (la mayor parte de lo que se reservaba por voto). Un Cipher no es seguro
+ * para hilos pero sí reutilizable: cada uso lo vuelve a inicializar con un
+ * IV nuevo, así que se presta a un solo hilo y se devuelve al terminar.
+ *
+ * Se usa un pool acotado en lugar de ThreadLocal porque con hilos virtuales
+ * habría un Cipher por petición y nunca se reutilizaría. Si el pool está
+ * vacío se crea una instancia nueva; si está lleno al devolver, se descarta.
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ * @since Java 21
+ */
+final class AesGcmCipherPool {
+
+    private final String transformation;
+    private final BlockingQueue<Cipher> idle;
+
+    AesGcmCipherPool(String transformation, int capacity) {
+        this.transformation = transformation;
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    /**
+     * Presta un Cipher sin inicializar para el modo que necesite el llamante
+     */
+    Cipher borrow() throws NoSuchAlgorithmException, NoSuchPaddingException {
+        Cipher cipher = idle.poll();
+        return cipher != null ? cipher : Cipher.getInstance(transformation);
+    }
+
+    /**
+     * Devuelve un Cipher prestado (también tras un fallo: init lo reinicia)
+     */
+    void release(Cipher cipher) {
+        idle.offer(cipher);
+    }
+
+    int idle() {
+        return idle.size();
+    }
+}
@@ -1,32 +1,59 @@
 package es.tfg.votacion.service;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import es.tfg.votacion.config.AuthProperties;
 import es.tfg.votacion.model.User;
 import es.tfg.votacion.model.UserRole;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Servicio para autenticación mock (simula Azure EntraID)
@@ -42,6 +69,32 @@ import java.util.*;
  * - JWT firmados con HS256
  * - Validación de expiración de tokens
  * 
+ * Rendimiento:
+ * - Directorio de usuarios thread-safe indexado por username, ID, rol,
+ *   departamento y estado activo (UserDirectory)
+ * - Recarga en caliente del archivo de usuarios (WatchService) aplicando
+ *   solo las diferencias, sin bloquear logins ni validaciones
+ * - Parsers JWT construidos una sola vez en la inicialización
+ * - Cache acotada de tokens ya validados (clave: SHA-256 del token),
+ *   con expulsión al expirar el token o al desactivarse el usuario
+ * - Verificación BCrypt en un pool dedicado del tamaño de los núcleos con
+ *   cola acotada: al saturarse se rechaza el login (429) en lugar de
+ *   competir por CPU con la emisión de votos
+ * 
+ * Métricas:
+ * - auth.login.queue.depth / auth.login.active: logins en cola y en curso
+ * - auth.password.verify: Timer de la verificación BCrypt
+ * - auth.login.rejected: logins rechazados por saturación
+ * - auth.password.cost: coste BCrypt objetivo (calibrado al arrancar)
+ * - auth.password.rehash: hashes re-generados al coste objetivo
+ * 
+ * Coste BCrypt:
+ * - Al arrancar se mide el coste mínimo en el host y se elige el mayor
+ *   coste cuyo tiempo estimado cabe en auth.password.target-millis
+ * - Tras un login correcto, los hashes con otro coste se regeneran al
+ *   coste objetivo (al alza o a la baja) y, si está activado, se
+ *   escriben por lotes en el archivo de usuarios
+ * 
  * @author Enrique Huet Adrover
  * @version 1.0
  * @since Java 21
@@ -53,30 +106,87 @@ public class AuthService {
 
     private final AuthProperties authProperties;
     private final ObjectMapper objectMapper;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private volatile BCryptPasswordEncoder passwordEncoder;
+    private volatile int passwordCost;
+    private final ThreadPoolExecutor passwordExecutor;
+    private final Timer passwordVerifyTimer;
+    private final Counter loginRejectedCounter;
+    private final Counter passwordRehashCounter;
     
-    private Map<String, MockUserData> mockUsers;
+    // Hashes actualizados pendientes de escribir en el archivo de usuarios
+    private final Map<String, RehashedPassword> pendingRehashes = new ConcurrentHashMap<>();
+    private ScheduledExecutorService rehashWriter;
+    
+    private final UserDirectory userDirectory;
     private SecretKey jwtSigningKey;
+    private JwtParser jwtParser;
+    private JwtParser signatureOnlyParser;
+    private WatchService usersWatchService;
+    private Thread usersWatcherThread;
+
+    // Tokens con firma, issuer y audience ya verificados
+    private final Map<String, ValidatedToken> validatedTokens = new ConcurrentHashMap<>();
 
-    @Autowired
-    public AuthService(AuthProperties authProperties) {
+    public AuthService(AuthProperties authProperties, MeterRegistry meterRegistry) {
         this.authProperties = authProperties;
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
-        this.passwordEncoder = new BCryptPasswordEncoder();
-        this.mockUsers = new HashMap<>();
+        this.passwordCost = authProperties.getPassword().getCost();
+        this.passwordEncoder = newPasswordEncoder(passwordCost);
+        this.userDirectory = new UserDirectory();
+        this.passwordExecutor = newPasswordExecutor(authProperties.getLogin());
+        
+        Gauge.builder("auth.login.queue.depth", passwordExecutor, e -> e.getQueue().size())
+            .description("Password verifications waiting for a BCrypt worker")
+            .register(meterRegistry);
+        Gauge.builder("auth.login.active", passwordExecutor, ThreadPoolExecutor::getActiveCount)
+            .description("Password verifications currently running")
+            .register(meterRegistry);
+        this.passwordVerifyTimer = Timer.builder("auth.password.verify")
+            .description("BCrypt password verification time")
+            .register(meterRegistry);
+        this.loginRejectedCounter = Counter.builder("auth.login.rejected")
+            .description("Logins rejected because the BCrypt pool was saturated")
+            .register(meterRegistry);
+        this.passwordRehashCounter = Counter.builder("auth.password.rehash")
+            .description("Password hashes regenerated at the target BCrypt cost")
+            .register(meterRegistry);
+        Gauge.builder("auth.password.cost", this, AuthService::getPasswordCost)
+            .description("Target BCrypt cost")
+            .register(meterRegistry);
     }
 
     /**
-     * Clase interna para almacenar datos de usuario mock con contraseña
+     * Resultado de la verificación de contraseña en el pool BCrypt
+     * 
+     * @param matches      Contraseña correcta
+     * @param upgradedHash Nuevo hash al coste objetivo, o null si no hace falta
      */
-    private static class MockUserData {
-        public User user;
-        public String passwordHash;
+    private record PasswordCheck(boolean matches, String upgradedHash) {
+    }
 
-        public MockUserData(User user, String passwordHash) {
-            this.user = user;
-            this.passwordHash = passwordHash;
+    /**
+     * Hash regenerado pendiente de persistir
+     */
+    private record RehashedPassword(String previousHash, String newHash) {
+    }
+
+    /**
+     * Login rechazado porque el pool de verificación BCrypt está saturado
+     */
+    public static class LoginCapacityExceededException extends RuntimeException {
+        public LoginCapacityExceededException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Entrada de la cache de tokens validados
+     */
+    private record ValidatedToken(String username, long expiresAtMillis) {
+
+        boolean isExpired(long nowMillis) {
+            return expiresAtMillis <= nowMillis;
         }
     }
 
@@ -91,12 +201,27 @@ public class AuthService {
         try {
             // Cargar usuarios mock desde JSON
             loadMockUsers();
-            logger.info("Loaded {} mock users from {}", mockUsers.size(), authProperties.getUsersFile());
+            logger.info("Loaded {} mock users from {}", userDirectory.size(), authProperties.getUsersFile());
+            
+            // Calibrar el coste BCrypt para el hardware actual
+            if (authProperties.getPassword().isCalibrate()) {
+                calibratePasswordCost();
+            }
             
             // Configurar clave de firma JWT
             initializeJwtKey();
             logger.info("JWT signing key initialized successfully");
             
+            // Recarga en caliente del archivo de usuarios
+            if (authProperties.getReload().isEnabled()) {
+                startUsersFileWatcher();
+            }
+            
+            // Escritura por lotes de los hashes regenerados
+            if (authProperties.getPassword().isPersistRehash()) {
+                startRehashWriter();
+            }
+            
             // Log de configuración
             logger.debug("JWT issuer: {}", authProperties.getJwt().getIssuer());
             logger.debug("JWT audience: {}", authProperties.getJwt().getAudience());
@@ -131,36 +256,243 @@ public class AuthService {
         
         logger.debug("Attempting to authenticate user: {}", username);
         
-        // Normalizar username
-        String normalizedUsername = username.trim().toLowerCase();
-        
-        // Buscar usuario en mock
-        MockUserData userData = mockUsers.get(normalizedUsername);
+        // Buscar usuario en el directorio (username normalizado)
+        UserDirectory.Entry userData = userDirectory.findByUsername(username);
         
         if (userData == null) {
             logger.warn("Authentication failed: user not found: {}", username);
             return null;
         }
         
-        // Verificar contraseña con BCrypt
-        if (!passwordEncoder.matches(password, userData.passwordHash)) {
+        // Verificar contraseña con BCrypt en el pool dedicado
+        PasswordCheck passwordCheck = verifyPassword(password, userData.passwordHash());
+        if (!passwordCheck.matches()) {
             logger.warn("Authentication failed: invalid password for user: {}", username);
             return null;
         }
         
         // Verificar que el usuario esté activo
-        if (!userData.user.active()) {
+        if (!userData.user().active()) {
             logger.warn("Authentication failed: user is inactive: {}", username);
             return null;
         }
         
-        logger.info("User authenticated successfully: {} (role: {})", username, userData.user.role());
+        logger.info("User authenticated successfully: {} (role: {})", username, userData.user().role());
+        
+        if (passwordCheck.upgradedHash() != null) {
+            storeUpgradedHash(userData, passwordCheck.upgradedHash());
+        }
         
-        // Actualizar último login
-        User authenticatedUser = userData.user.withUpdatedLastLogin();
-        userData.user = authenticatedUser; // Actualizar en cache
+        // Actualizar último login de forma atómica en todos los índices
+        User authenticatedUser = userDirectory.update(username, User::withUpdatedLastLogin);
         
-        return authenticatedUser;
+        return authenticatedUser != null ? authenticatedUser : userData.user().withUpdatedLastLogin();
+    }
+
+    /**
+     * Ejecuta BCrypt en el pool acotado y espera el resultado
+     * 
+     * @throws LoginCapacityExceededException si el pool y su cola están llenos
+     */
+    private PasswordCheck verifyPassword(String password, String passwordHash) {
+        Future<PasswordCheck> verification;
+        try {
+            verification = passwordExecutor.submit(() -> passwordVerifyTimer.record(
+                () -> checkPassword(password, passwordHash)));
+        } catch (RejectedExecutionException e) {
+            loginRejectedCounter.increment();
+            logger.warn("Login rejected: password verification pool saturated ({} queued)",
+                passwordExecutor.getQueue().size());
+            throw new LoginCapacityExceededException("Too many concurrent logins, retry later");
+        }
+        
+        try {
+            return verification.get();
+        } catch (InterruptedException e) {
+            verification.cancel(true);
+            Thread.currentThread().interrupt();
+            return new PasswordCheck(false, null);
+        } catch (ExecutionException e) {
+            logger.error("Password verification failed: {}", e.getCause().getMessage());
+            return new PasswordCheck(false, null);
+        }
+    }
+
+    /**
+     * Verifica la contraseña y, si el coste del hash difiere del objetivo,
+     * genera el nuevo hash en el mismo hilo del pool
+     */
+    private PasswordCheck checkPassword(String password, String passwordHash) {
+        BCryptPasswordEncoder encoder = passwordEncoder;
+        if (!encoder.matches(password, passwordHash)) {
+            return new PasswordCheck(false, null);
+        }
+        
+        if (authProperties.getPassword().isRehashOnLogin() && costOf(passwordHash) != passwordCost) {
+            return new PasswordCheck(true, encoder.encode(password));
+        }
+        
+        return new PasswordCheck(true, null);
+    }
+
+    /**
+     * Sustituye el hash en el directorio y lo encola para persistirlo
+     */
+    private void storeUpgradedHash(UserDirectory.Entry userData, String upgradedHash) {
+        String username = userData.user().username();
+        if (!userDirectory.replacePasswordHash(username, userData.passwordHash(), upgradedHash)) {
+            return;
+        }
+        
+        passwordRehashCounter.increment();
+        logger.info("Password hash for user {} rehashed from cost {} to {}", 
+            username, costOf(userData.passwordHash()), costOf(upgradedHash));
+        
+        if (authProperties.getPassword().isPersistRehash()) {
+            pendingRehashes.merge(UserDirectory.normalize(username), 
+                new RehashedPassword(userData.passwordHash(), upgradedHash),
+                (older, newer) -> new RehashedPassword(older.previousHash(), newer.newHash()));
+        }
+    }
+
+    /**
+     * Escribe los hashes regenerados en el archivo de usuarios
+     * 
+     * Se reescribe en streaming a un archivo temporal que sustituye al original
+     * de forma atómica. Solo se cambia el hash si en el archivo sigue el hash
+     * previo (no se pisan cambios hechos por RRHH entre tanto).
+     */
+    synchronized void flushRehashedPasswords() {
+        if (pendingRehashes.isEmpty()) {
+            return;
+        }
+        
+        Map<String, RehashedPassword> batch = new HashMap<>();
+        for (String username : pendingRehashes.keySet()) {
+            RehashedPassword rehashed = pendingRehashes.remove(username);
+            if (rehashed != null) {
+                batch.put(username, rehashed);
+            }
+        }
+        
+        Path usersFilePath = Paths.get(authProperties.getUsersFile()).toAbsolutePath();
+        Path tempFile = usersFilePath.resolveSibling(usersFilePath.getFileName() + ".tmp");
+        int written = 0;
+        
+        try {
+            try (MappingIterator<ObjectNode> users = objectMapper.readerFor(ObjectNode.class)
+                    .readValues(usersFilePath.toFile());
+                 JsonGenerator generator = objectMapper.getFactory()
+                    .createGenerator(tempFile.toFile(), JsonEncoding.UTF8)) {
+                generator.useDefaultPrettyPrinter();
+                generator.writeStartArray();
+                while (users.hasNextValue()) {
+                    ObjectNode userNode = users.nextValue();
+                    RehashedPassword rehashed = batch.get(
+                        UserDirectory.normalize(userNode.path("username").asText()));
+                    if (rehashed != null && rehashed.previousHash().equals(userNode.path("password").asText())) {
+                        userNode.put("password", rehashed.newHash());
+                        written++;
+                    }
+                    objectMapper.writeTree(generator, userNode);
+                }
+                generator.writeEndArray();
+            }
+            
+            Files.move(tempFile, usersFilePath, 
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Persisted {} rehashed passwords to {}", written, usersFilePath);
+            
+        } catch (IOException e) {
+            logger.error("Failed to persist rehashed passwords: {}", e.getMessage());
+            batch.forEach(pendingRehashes::putIfAbsent);
+        }
+    }
+
+    /**
+     * Calibra el coste BCrypt midiendo el coste mínimo en este host
+     * Cada punto de coste duplica el tiempo, así que basta con una medición
+     */
+    private void calibratePasswordCost() {
+        AuthProperties.Password config = authProperties.getPassword();
+        int minCost = Math.max(4, config.getMinCost());
+        int maxCost = Math.min(31, Math.max(minCost, config.getMaxCost()));
+        
+        BCryptPasswordEncoder probe = newPasswordEncoder(minCost);
+        probe.encode("calibration-warmup");
+        long bestNanos = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            probe.encode("calibration-probe");
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+        
+        double estimatedMillis = bestNanos / 1_000_000.0;
+        int cost = minCost;
+        while (cost < maxCost && estimatedMillis * 2 <= config.getTargetMillis()) {
+            cost++;
+            estimatedMillis *= 2;
+        }
+        
+        this.passwordCost = cost;
+        this.passwordEncoder = newPasswordEncoder(cost);
+        logger.info("BCrypt cost calibrated to {} (~{} ms per hash, target {} ms)", 
+            cost, Math.round(estimatedMillis), config.getTargetMillis());
+    }
+
+    /**
+     * Coste BCrypt objetivo actual
+     * 
+     * @return Coste (log2 de las rondas)
+     */
+    public int getPasswordCost() {
+        return passwordCost;
+    }
+
+    /**
+     * Extrae el coste de un hash BCrypt ($2b$10$...)
+     */
+    static int costOf(String passwordHash) {
+        try {
+            return Integer.parseInt(passwordHash.substring(4, 6));
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static BCryptPasswordEncoder newPasswordEncoder(int cost) {
+        return new BCryptPasswordEncoder(BCryptPasswordEncoder.BCryptVersion.$2B, cost);
+    }
+
+    /**
+     * Programa la escritura periódica de hashes regenerados
+     */
+    private void startRehashWriter() {
+        long interval = Math.max(1, authProperties.getPassword().getPersistIntervalSeconds());
+        this.rehashWriter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "password-rehash-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rehashWriter.scheduleWithFixedDelay(this::flushRehashedPasswords, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Crea el pool de verificación BCrypt: tamaño fijo y cola acotada
+     */
+    private static ThreadPoolExecutor newPasswordExecutor(AuthProperties.Login login) {
+        int workers = login.getWorkers() > 0 ? login.getWorkers() : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(
+            workers, workers,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, login.getQueueCapacity())),
+            runnable -> {
+                Thread thread = new Thread(runnable, "bcrypt-worker-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
     }
 
     /**
@@ -213,13 +545,15 @@ public class AuthService {
         
         logger.debug("Validating JWT token");
         
+        String digest = tokenDigest(token);
+        ValidatedToken cached = validatedTokens.get(digest);
+        if (cached != null) {
+            return validateCachedToken(digest, cached);
+        }
+        
         try {
             // Parsear y validar el token
-            Claims claims = Jwts.parser()
-                .verifyWith(jwtSigningKey)
-                .requireIssuer(authProperties.getJwt().getIssuer())
-                .requireAudience(authProperties.getJwt().getAudience())
-                .build()
+            Claims claims = jwtParser
                 .parseSignedClaims(token)
                 .getPayload();
             
@@ -233,23 +567,25 @@ public class AuthService {
             
             UserRole role = UserRole.valueOf(roleStr);
             
-            // Buscar usuario en cache para verificar que sigue activo
-            MockUserData userData = mockUsers.get(username.toLowerCase());
+            // Buscar usuario en el directorio para verificar que sigue activo
+            UserDirectory.Entry userData = userDirectory.findByUsername(username);
             
             if (userData == null) {
                 logger.warn("JWT validation failed: user not found in cache: {}", username);
                 return null;
             }
             
-            if (!userData.user.active()) {
+            if (!userData.user().active()) {
                 logger.warn("JWT validation failed: user is no longer active: {}", username);
                 return null;
             }
             
             logger.debug("JWT token validated successfully for user: {}", username);
             
-            // Retornar el usuario desde el cache (con datos actualizados)
-            return userData.user;
+            cacheValidatedToken(digest, username, claims.getExpiration());
+            
+            // Retornar el usuario desde el directorio (con datos actualizados)
+            return userData.user();
             
         } catch (JwtException e) {
             logger.warn("JWT validation failed: {}", e.getMessage());
@@ -273,9 +609,7 @@ public class AuthService {
         }
         
         try {
-            Claims claims = Jwts.parser()
-                .verifyWith(jwtSigningKey)
-                .build()
+            Claims claims = signatureOnlyParser
                 .parseSignedClaims(token)
                 .getPayload();
             
@@ -286,6 +620,31 @@ public class AuthService {
         }
     }
 
+    /**
+     * Expulsa de la cache todos los tokens validados de un usuario
+     * Debe invocarse al desactivar o eliminar el usuario
+     * 
+     * @param username Username cuyos tokens se invalidan
+     */
+    public void invalidateTokensForUser(String username) {
+        if (username == null || username.isBlank()) {
+            return;
+        }
+        
+        String normalizedUsername = username.trim().toLowerCase();
+        validatedTokens.values().removeIf(t -> t.username().equalsIgnoreCase(normalizedUsername));
+        logger.debug("Cached JWT tokens invalidated for user: {}", normalizedUsername);
+    }
+
+    /**
+     * Número de tokens validados actualmente en cache
+     * 
+     * @return Tamaño de la cache
+     */
+    public int getValidatedTokenCacheSize() {
+        return validatedTokens.size();
+    }
+
     /**
      * Verifica si un usuario tiene un rol específico
      * 
@@ -338,8 +697,8 @@ public class AuthService {
             return null;
         }
         
-        MockUserData userData = mockUsers.get(username.trim().toLowerCase());
-        return userData != null ? userData.user : null;
+        UserDirectory.Entry userData = userDirectory.findByUsername(username);
+        return userData != null ? userData.user() : null;
     }
 
     /**
@@ -349,15 +708,8 @@ public class AuthService {
      * @return Usuario encontrado o null
      */
     public User findUserById(String userId) {
-        if (userId == null || userId.isBlank()) {
-            return null;
-        }
-        
-        return mockUsers.values().stream()
-            .map(ud -> ud.user)
-            .filter(u -> u.id().equals(userId))
-            .findFirst()
-            .orElse(null);
+        UserDirectory.Entry userData = userDirectory.findById(userId);
+        return userData != null ? userData.user() : null;
     }
 
     /**
@@ -366,10 +718,7 @@ public class AuthService {
      * @return Lista de usuarios activos
      */
     public List<User> getAllActiveUsers() {
-        return mockUsers.values().stream()
-            .map(ud -> ud.user)
-            .filter(User::active)
-            .toList();
+        return userDirectory.activeUsers();
     }
 
     /**
@@ -379,14 +728,86 @@ public class AuthService {
      * @return Lista de usuarios con ese rol
      */
     public List<User> getUsersByRole(UserRole role) {
-        if (role == null) {
-            return Collections.emptyList();
+        return userDirectory.usersByRole(role);
+    }
+
+    /**
+     * Obtiene usuarios por departamento
+     * 
+     * @param department Departamento a filtrar
+     * @return Lista de usuarios del departamento
+     */
+    public List<User> getUsersByDepartment(String department) {
+        return userDirectory.usersByDepartment(department);
+    }
+
+    /**
+     * Comprueba en tiempo constante si un usuario existe y está activo
+     * 
+     * @param username Username a comprobar
+     * @return true si el usuario está activo
+     */
+    public boolean isUserActive(String username) {
+        return userDirectory.isActive(username);
+    }
+
+    /**
+     * Resuelve un token ya presente en la cache sin re-verificar la firma
+     * Solo comprueba la expiración y que el usuario siga activo
+     */
+    private User validateCachedToken(String digest, ValidatedToken cached) {
+        if (cached.isExpired(System.currentTimeMillis())) {
+            validatedTokens.remove(digest, cached);
+            logger.warn("JWT validation failed: token expired");
+            return null;
+        }
+        
+        UserDirectory.Entry userData = userDirectory.findByUsername(cached.username());
+        
+        if (userData == null || !userData.user().active()) {
+            validatedTokens.remove(digest, cached);
+            logger.warn("JWT validation failed: user is no longer active: {}", cached.username());
+            return null;
+        }
+        
+        logger.debug("JWT token resolved from cache for user: {}", cached.username());
+        return userData.user();
+    }
+
+    /**
+     * Inserta un token validado en la cache respetando el tamaño máximo
+     * Con la cache llena se purgan los expirados; si sigue llena no se cachea
+     */
+    private void cacheValidatedToken(String digest, String username, Date expiration) {
+        int maxEntries = authProperties.getJwt().getCacheMaxEntries();
+        if (maxEntries <= 0 || expiration == null) {
+            return;
+        }
+        
+        if (validatedTokens.size() >= maxEntries) {
+            long now = System.currentTimeMillis();
+            validatedTokens.values().removeIf(t -> t.isExpired(now));
+            if (validatedTokens.size() >= maxEntries) {
+                logger.debug("JWT cache full ({} entries), token not cached", maxEntries);
+                return;
+            }
         }
         
-        return mockUsers.values().stream()
-            .map(ud -> ud.user)
-            .filter(u -> u.role() == role)
-            .toList();
+        validatedTokens.put(digest, new ValidatedToken(username, expiration.getTime()));
+    }
+
+    /**
+     * Calcula el digest SHA-256 del token usado como clave de la cache
+     * Evita retener el token completo en memoria
+     */
+    private String tokenDigest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                .digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 
     /**
@@ -403,50 +824,254 @@ public class AuthService {
             throw new IOException("Users file not found: " + usersFilePath);
         }
         
-        // Leer archivo JSON
-        String jsonContent = Files.readString(usersFilePath, StandardCharsets.UTF_8);
+        ParsedUsers parsed = parseUsersFile(usersFilePath);
+        userDirectory.replaceAll(parsed.entries());
+        
+        if (userDirectory.size() == 0) {
+            logger.warn("No users loaded from file!");
+        }
+    }
+
+    /**
+     * Recarga el archivo de usuarios aplicando solo las diferencias
+     * 
+     * Los usuarios nuevos se añaden, los modificados se reemplazan (conservando
+     * el último login más reciente) y los eliminados o desactivados pierden sus
+     * tokens cacheados. Las lecturas del directorio no se bloquean durante la
+     * recarga. Si alguna entrada es inválida no se aplica ningún cambio.
+     * 
+     * @return Resumen de los cambios aplicados
+     * @throws IOException si el archivo no existe, no es JSON válido o tiene entradas inválidas
+     */
+    public synchronized DirectoryDiff reloadUsers() throws IOException {
+        Path usersFilePath = Paths.get(authProperties.getUsersFile());
+        
+        if (!Files.exists(usersFilePath)) {
+            throw new IOException("Users file not found: " + usersFilePath);
+        }
+        
+        ParsedUsers parsed = parseUsersFile(usersFilePath);
         
-        // Parsear como array de JsonNode para extraer password
-        JsonNode usersArray = objectMapper.readTree(jsonContent);
+        if (parsed.rejected() > 0) {
+            throw new IOException(parsed.rejected() + " invalid user entries in " + usersFilePath);
+        }
         
-        mockUsers.clear();
+        if (parsed.entries().isEmpty() && userDirectory.size() > 0) {
+            throw new IOException("Users file is empty, keeping current directory: " + usersFilePath);
+        }
         
-        for (JsonNode userNode : usersArray) {
-            try {
-                // Extraer password hash
-                String passwordHash = userNode.get("password").asText();
-                
-                // Crear objeto User (sin password)
-                String id = userNode.get("id").asText();
-                String username = userNode.get("username").asText();
-                String email = userNode.get("email").asText();
-                String fullName = userNode.get("fullName").asText();
-                UserRole role = UserRole.valueOf(userNode.get("role").asText());
-                String department = userNode.has("department") && !userNode.get("department").isNull() 
-                    ? userNode.get("department").asText() : null;
-                boolean active = userNode.get("active").asBoolean();
-                
-                LocalDateTime lastLogin = null;
-                if (userNode.has("lastLogin") && !userNode.get("lastLogin").isNull()) {
-                    lastLogin = LocalDateTime.parse(userNode.get("lastLogin").asText());
+        Map<String, UserDirectory.Entry> incoming = new HashMap<>();
+        for (UserDirectory.Entry entry : parsed.entries()) {
+            incoming.put(UserDirectory.normalize(entry.user().username()), entry);
+        }
+        
+        int added = 0;
+        int updated = 0;
+        int deactivated = 0;
+        int removed = 0;
+        
+        // Primero las bajas: un lector nunca ve el usuario nuevo junto al eliminado
+        for (String username : userDirectory.usernames()) {
+            if (!incoming.containsKey(username)) {
+                userDirectory.remove(username);
+                invalidateTokensForUser(username);
+                removed++;
+            }
+        }
+        
+        for (Map.Entry<String, UserDirectory.Entry> change : incoming.entrySet()) {
+            UserDirectory.Entry next = change.getValue();
+            UserDirectory.Entry current = userDirectory.findByUsername(change.getKey());
+            
+            if (current == null) {
+                userDirectory.put(next.user(), next.passwordHash());
+                added++;
+                continue;
+            }
+            
+            User merged = withLatestLogin(next.user(), current.user());
+            if (merged.equals(current.user()) && next.passwordHash().equals(current.passwordHash())) {
+                continue;
+            }
+            
+            userDirectory.put(merged, next.passwordHash());
+            if (current.user().active() && !merged.active()) {
+                invalidateTokensForUser(change.getKey());
+                deactivated++;
+            } else {
+                updated++;
+            }
+        }
+        
+        DirectoryDiff diff = new DirectoryDiff(added, updated, deactivated, removed);
+        logger.info("User directory reloaded from {}: {} added, {} updated, {} deactivated, {} removed ({} total)",
+            usersFilePath, added, updated, deactivated, removed, userDirectory.size());
+        return diff;
+    }
+
+    /**
+     * Resumen de una recarga incremental del directorio
+     */
+    public record DirectoryDiff(int added, int updated, int deactivated, int removed) {
+    }
+
+    /**
+     * Resultado del parseo del archivo de usuarios
+     */
+    private record ParsedUsers(List<UserDirectory.Entry> entries, int rejected) {
+    }
+
+    /**
+     * Parsea el archivo de usuarios en streaming (un usuario en memoria cada vez)
+     */
+    private ParsedUsers parseUsersFile(Path usersFilePath) throws IOException {
+        List<UserDirectory.Entry> entries = new ArrayList<>();
+        int rejected = 0;
+        
+        try (MappingIterator<JsonNode> users = objectMapper.readerFor(JsonNode.class)
+                .readValues(usersFilePath.toFile())) {
+            while (users.hasNextValue()) {
+                JsonNode userNode = users.nextValue();
+                try {
+                    entries.add(parseUser(userNode));
+                } catch (Exception e) {
+                    rejected++;
+                    logger.error("Failed to parse user from JSON: {}", e.getMessage());
                 }
+            }
+        }
+        
+        return new ParsedUsers(entries, rejected);
+    }
+
+    /**
+     * Construye la entrada del directorio a partir de un nodo JSON
+     */
+    private UserDirectory.Entry parseUser(JsonNode userNode) {
+        // Extraer password hash
+        String passwordHash = userNode.get("password").asText();
+        
+        // Crear objeto User (sin password)
+        String id = userNode.get("id").asText();
+        String username = userNode.get("username").asText();
+        String email = userNode.get("email").asText();
+        String fullName = userNode.get("fullName").asText();
+        UserRole role = UserRole.valueOf(userNode.get("role").asText());
+        String department = userNode.has("department") && !userNode.get("department").isNull() 
+            ? userNode.get("department").asText() : null;
+        boolean active = userNode.get("active").asBoolean();
+        
+        LocalDateTime lastLogin = null;
+        if (userNode.has("lastLogin") && !userNode.get("lastLogin").isNull()) {
+            lastLogin = LocalDateTime.parse(userNode.get("lastLogin").asText());
+        }
+        
+        LocalDateTime createdAt = LocalDateTime.parse(userNode.get("createdAt").asText());
+        
+        User user = new User(id, username, email, fullName, role, department, active, lastLogin, createdAt);
+        
+        logger.debug("Loaded user: {} (role: {}, active: {})", username, role, active);
+        
+        return new UserDirectory.Entry(user, passwordHash);
+    }
+
+    /**
+     * Conserva el último login registrado en memoria si es posterior al del archivo
+     */
+    private User withLatestLogin(User fromFile, User inMemory) {
+        LocalDateTime lastLogin = inMemory.lastLogin();
+        if (lastLogin == null || (fromFile.lastLogin() != null && !fromFile.lastLogin().isBefore(lastLogin))) {
+            return fromFile;
+        }
+        return new User(fromFile.id(), fromFile.username(), fromFile.email(), fromFile.fullName(),
+            fromFile.role(), fromFile.department(), fromFile.active(), lastLogin, fromFile.createdAt());
+    }
+
+    /**
+     * Vigila el directorio del archivo de usuarios con un WatchService
+     * 
+     * @throws IOException si no se puede registrar el directorio
+     */
+    private void startUsersFileWatcher() throws IOException {
+        Path usersFilePath = Paths.get(authProperties.getUsersFile()).toAbsolutePath();
+        Path directory = usersFilePath.getParent();
+        
+        this.usersWatchService = directory.getFileSystem().newWatchService();
+        // Se vigila el directorio: los editores suelen reemplazar el archivo por renombrado
+        directory.register(usersWatchService, 
+            StandardWatchEventKinds.ENTRY_CREATE, 
+            StandardWatchEventKinds.ENTRY_MODIFY);
+        
+        this.usersWatcherThread = Thread.ofPlatform()
+            .name("users-file-watcher")
+            .daemon(true)
+            .start(() -> watchUsersFile(usersFilePath.getFileName()));
+        
+        logger.info("Watching users file for changes: {}", usersFilePath);
+    }
+
+    /**
+     * Bucle del vigilante: agrupa ráfagas de eventos y recarga una sola vez
+     */
+    private void watchUsersFile(Path fileName) {
+        long debounceMillis = authProperties.getReload().getDebounceMillis();
+        
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = usersWatchService.take();
+                boolean changed = isUsersFileEvent(key, fileName);
                 
-                LocalDateTime createdAt = LocalDateTime.parse(userNode.get("createdAt").asText());
-                
-                User user = new User(id, username, email, fullName, role, department, active, lastLogin, createdAt);
-                
-                // Almacenar con password hash
-                mockUsers.put(username.toLowerCase(), new MockUserData(user, passwordHash));
-                
-                logger.debug("Loaded user: {} (role: {}, active: {})", username, role, active);
+                WatchKey next;
+                while ((next = usersWatchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= isUsersFileEvent(next, fileName);
+                }
                 
-            } catch (Exception e) {
-                logger.error("Failed to parse user from JSON: {}", e.getMessage());
+                if (changed) {
+                    try {
+                        reloadUsers();
+                    } catch (Exception e) {
+                        logger.error("Failed to reload users file, keeping current directory: {}", e.getMessage());
+                    }
+                }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            logger.debug("Users file watcher closed");
         }
-        
-        if (mockUsers.isEmpty()) {
-            logger.warn("No users loaded from file!");
+    }
+
+    private boolean isUsersFileEvent(WatchKey key, Path fileName) {
+        boolean matches = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                matches = true;
+            }
+        }
+        key.reset();
+        return matches;
+    }
+
+    /**
+     * Detiene el pool BCrypt, escribe los hashes pendientes y detiene el
+     * vigilante del archivo de usuarios al destruir el bean
+     */
+    @PreDestroy
+    public void shutdown() {
+        passwordExecutor.shutdownNow();
+        if (rehashWriter != null) {
+            rehashWriter.shutdownNow();
+            flushRehashedPasswords();
+        }
+        if (usersWatcherThread != null) {
+            usersWatcherThread.interrupt();
+        }
+        if (usersWatchService != null) {
+            try {
+                usersWatchService.close();
+            } catch (IOException e) {
+                logger.debug("Error closing users file watcher: {}", e.getMessage());
+            }
         }
     }
 
@@ -464,6 +1089,17 @@ public class AuthService {
         // Crear clave HMAC SHA-256
         this.jwtSigningKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
         
+        // Los parsers son inmutables y thread-safe: se reutilizan en cada validación
+        this.jwtParser = Jwts.parser()
+            .verifyWith(jwtSigningKey)
+            .requireIssuer(authProperties.getJwt().getIssuer())
+            .requireAudience(authProperties.getJwt().getAudience())
+            .build();
+        this.signatureOnlyParser = Jwts.parser()
+            .verifyWith(jwtSigningKey)
+            .build();
+        validatedTokens.clear();
+        
         logger.debug("JWT signing key initialized with HS256 algorithm");
     }
 }
\ No newline at end of file
@@ -0,0 +1,276 @@
+package es.tfg.votacion.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Sobre binario de la papeleta que se cifra y almacena por cada voto
+ *
+ * Formato v1 (big-endian):
+ * [versión (1)][tipo de papeleta (1)][timestamp epoch ms (8)][longitud voto (4)][voto]
+ * [longitud electionId (2)][electionId][longitud userId (2)][userId]
+ * [longitud comentario (2)][comentario]
+ *
+ * El tipo de papeleta discrimina el contenido del voto (no identifica ninguna
+ * clave; la clave de datos del blob va en la cabecera de StorageService):
+ * - 0 ({@link #PLAIN_BALLOT}): el voto es el optionId en claro (modo legacy/dev)
+ * - 1 ({@link #ENCRYPTED_BALLOT}): el voto es la papeleta cifrada en cliente
+ *   con la clave de la elección (RSA, híbrida o Paillier), tal como la envía
+ *   el cliente
+ *
+ * Sustituye al JSON (mapa de campos serializado con Jackson): el
+ * codificador escribe cada campo directamente en un único array de tamaño
+ * exacto y el decodificador no copia nada, solo valida la estructura y
+ * guarda desplazamientos; cada campo se lee bajo demanda. Los votos JSON ya
+ * almacenados se leen con {@link #fromLegacyJson}; un JSON empieza por '{'
+ * y nunca por el byte de versión.
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ * @since Java 21
+ */
+public final class BallotEnvelope {
+
+    public static final byte FORMAT_VERSION = 1;
+    public static final int PLAIN_BALLOT = 0;
+    public static final int ENCRYPTED_BALLOT = 1;
+    // versión + tipo de papeleta + timestamp + longitud del voto
+    static final int HEADER_LENGTH = 1 + 1 + Long.BYTES + Integer.BYTES;
+    private static final int MAX_FIELD_LENGTH = 0xFFFF;
+
+    private final byte[] data;
+    private final ByteBuffer buffer;
+    private final int ballotType;
+    private final long timestamp;
+    private final int voteOffset;
+    private final int voteLength;
+    private final int electionIdOffset;
+    private final int userIdOffset;
+    private final int commentOffset;
+
+    private BallotEnvelope(byte[] data, ByteBuffer buffer, int ballotType, long timestamp, int voteOffset, int voteLength,
+                           int electionIdOffset, int userIdOffset, int commentOffset) {
+        this.data = data;
+        this.buffer = buffer;
+        this.ballotType = ballotType;
+        this.timestamp = timestamp;
+        this.voteOffset = voteOffset;
+        this.voteLength = voteLength;
+        this.electionIdOffset = electionIdOffset;
+        this.userIdOffset = userIdOffset;
+        this.commentOffset = commentOffset;
+    }
+
+    /**
+     * Codifica un voto en un único array de tamaño exacto
+     *
+     * @param ballotType {@link #PLAIN_BALLOT} o {@link #ENCRYPTED_BALLOT}
+     * @param vote       optionId en claro o papeleta cifrada
+     * @param comment    Comentario opcional (null se guarda vacío)
+     */
+    public static byte[] encode(int ballotType, Instant timestamp, String vote, String electionId, String userId,
+                                String comment) {
+        if (ballotType < 0 || ballotType > 0xFF) {
+            throw new IllegalArgumentException("Ballot type out of range: " + ballotType);
+        }
+        String safeComment = comment != null ? comment : "";
+        int voteLength = utf8Length(vote);
+        int electionIdLength = checkedFieldLength(electionId, "electionId");
+        int userIdLength = checkedFieldLength(userId, "userId");
+        int commentLength = checkedFieldLength(safeComment, "comment");
+
+        byte[] out = new byte[HEADER_LENGTH + voteLength
+            + 3 * Short.BYTES + electionIdLength + userIdLength + commentLength];
+        ByteBuffer buffer = ByteBuffer.wrap(out);
+        buffer.put(FORMAT_VERSION).put((byte) ballotType).putLong(timestamp.toEpochMilli()).putInt(voteLength);
+        writeUtf8(vote, voteLength, buffer);
+        buffer.putShort((short) electionIdLength);
+        writeUtf8(electionId, electionIdLength, buffer);
+        buffer.putShort((short) userIdLength);
+        writeUtf8(userId, userIdLength, buffer);
+        buffer.putShort((short) commentLength);
+        writeUtf8(safeComment, commentLength, buffer);
+        return out;
+    }
+
+    /**
+     * true si los datos son un sobre binario (y no un voto JSON legacy)
+     */
+    public static boolean isEnvelope(byte[] data) {
+        return data != null && data.length >= HEADER_LENGTH && data[0] == FORMAT_VERSION;
+    }
+
+    /**
+     * Decodifica un sobre sin copiar los datos: los campos se leen sobre {@code data}
+     *
+     * @throws IllegalArgumentException si la versión o alguna longitud no es válida
+     */
+    public static BallotEnvelope decode(byte[] data) {
+        if (!isEnvelope(data)) {
+            throw new IllegalArgumentException("Not a ballot envelope");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data).asReadOnlyBuffer();
+        buffer.position(1);
+        int ballotType = buffer.get() & 0xFF;
+        long timestamp = buffer.getLong();
+        int voteLength = buffer.getInt();
+        if (voteLength < 0 || voteLength > buffer.remaining()) {
+            throw new IllegalArgumentException("Ballot envelope vote length out of range");
+        }
+        int voteOffset = buffer.position();
+        int electionIdOffset = voteOffset + voteLength;
+        int userIdOffset = skip(buffer, electionIdOffset);
+        int commentOffset = skip(buffer, userIdOffset);
+        int end = skip(buffer, commentOffset);
+        if (end != data.length) {
+            throw new IllegalArgumentException("Trailing bytes after ballot envelope");
+        }
+        return new BallotEnvelope(data, buffer, ballotType, timestamp, voteOffset, voteLength,
+            electionIdOffset, userIdOffset, commentOffset);
+    }
+
+    /**
+     * Voto JSON del formato anterior (solo lectura)
+     * Campos: electionId, userId, timestamp y encryptedVote u optionId
+     */
+    public static BallotEnvelope fromLegacyJson(JsonNode node) {
+        boolean encrypted = node.has("encryptedVote");
+        String vote = encrypted ? node.get("encryptedVote").asText() : node.path("optionId").asText(null);
+        if (vote == null) {
+            throw new IllegalArgumentException("Legacy vote has neither encryptedVote nor optionId");
+        }
+        Instant timestamp = node.hasNonNull("timestamp") ? Instant.parse(node.get("timestamp").asText()) : Instant.EPOCH;
+        return decode(encode(encrypted ? ENCRYPTED_BALLOT : PLAIN_BALLOT, timestamp, vote,
+            node.path("electionId").asText(""), node.path("userId").asText(""), node.path("comment").asText("")));
+    }
+
+    public int version() {
+        return FORMAT_VERSION;
+    }
+
+    public int ballotType() {
+        return ballotType;
+    }
+
+    /**
+     * true si el voto es una papeleta cifrada en cliente
+     */
+    public boolean isEncrypted() {
+        return ballotType != PLAIN_BALLOT;
+    }
+
+    public Instant timestamp() {
+        return Instant.ofEpochMilli(timestamp);
+    }
+
+    /**
+     * Vista de solo lectura de los bytes del voto (sin copia)
+     */
+    public ByteBuffer voteBytes() {
+        return buffer.slice(voteOffset, voteLength);
+    }
+
+    public String vote() {
+        return string(voteOffset, voteLength);
+    }
+
+    public String electionId() {
+        return field(electionIdOffset);
+    }
+
+    public String userId() {
+        return field(userIdOffset);
+    }
+
+    public String comment() {
+        return field(commentOffset);
+    }
+
+    private String field(int offset) {
+        return string(offset + Short.BYTES, buffer.getShort(offset) & 0xFFFF);
+    }
+
+    private String string(int offset, int length) {
+        return new String(data, offset, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Valida un campo [longitud (2)][bytes] en {@code offset} y devuelve el desplazamiento siguiente
+     */
+    private static int skip(ByteBuffer buffer, int offset) {
+        if (offset + Short.BYTES > buffer.limit()) {
+            throw new IllegalArgumentException("Truncated ballot envelope");
+        }
+        int next = offset + Short.BYTES + (buffer.getShort(offset) & 0xFFFF);
+        if (next > buffer.limit()) {
+            throw new IllegalArgumentException("Truncated ballot envelope");
+        }
+        return next;
+    }
+
+    private static int checkedFieldLength(String value, String name) {
+        int length = utf8Length(value);
+        if (length > MAX_FIELD_LENGTH) {
+            throw new IllegalArgumentException("Ballot envelope field too long: " + name);
+        }
+        return length;
+    }
+
+    /**
+     * Longitud UTF-8 sin codificar la cadena a un array intermedio
+     */
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                // Sustituto aislado: se reemplaza por '?'
+                length += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Escribe {@code value} en UTF-8 directamente en el array de salida
+     * Las papeletas son ASCII (Base64 y prefijos): se copian carácter a carácter
+     * mientras cada carácter sea menor que 0x80 y el resto pasa por el codificador
+     */
+    private static void writeUtf8(String value, int utf8Length, ByteBuffer out) {
+        byte[] array = out.array();
+        int position = out.position();
+        int ascii = 0;
+        while (ascii < value.length() && value.charAt(ascii) < 0x80) {
+            array[position + ascii] = (byte) value.charAt(ascii);
+            ascii++;
+        }
+        out.position(position + ascii);
+        if (ascii == value.length()) {
+            return;
+        }
+        // Igual que String.getBytes: un sustituto aislado se escribe como '?'
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars = CharBuffer.wrap(value, ascii, value.length());
+        CoderResult result = encoder.encode(chars, out, true);
+        if (!result.isUnderflow() || !encoder.flush(out).isUnderflow() || out.position() != position + utf8Length) {
+            throw new IllegalStateException("Ballot envelope size mismatch");
+        }
+    }
+}
@@ -5,17 +5,39 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.OAEPParameterSpec;
+import javax.crypto.spec.PSource;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.security.*;
+import java.security.spec.MGF1ParameterSpec;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.Base64;
+import java.util.StringJoiner;
 
 /**
  * Servicio de criptografía para gestión de claves RSA y cifrado/descifrado.
  * Soporta el modelo de "Cold Storage" donde la clave privada no se almacena en el servidor
  * de forma persistente, sino que se inyecta solo durante el recuento.
  * 
+ * Formatos de papeleta cifrada:
+ * - Legacy: RSA PKCS#1 v1.5 directo en Base64 (máximo 245 bytes con RSA-2048)
+ * - Híbrido: "hyb1." + wrappedKey + "." + iv + "." + ciphertext (Base64url sin relleno).
+ *   El contenido se cifra con una clave AES-256-GCM efímera, envuelta con
+ *   RSA-OAEP (SHA-256 y MGF1-SHA-256, lo que genera WebCrypto). El ID de la
+ *   elección es el AAD de GCM, así una papeleta no es válida en otra elección.
+ *   No hay límite de tamaño (papeletas ordenadas o multi-opción).
+ * - Homomórfico: "phe1." + c1 + "." + c2 + … con un cifrado Paillier por opción
+ *   (1 en la opción elegida, 0 en el resto), seguidos de la prueba de validez
+ *   ({@link PaillierBallotProof}): cada cifrado es de 0 o 1 y suman 1. El
+ *   producto de los cifrados es el cifrado de la suma, así el recuento
+ *   descifra una vez por opción en lugar de una vez por papeleta.
+ * 
  * @author Enrique Huet Adrover
  * @version 1.0
  * @since Java 21
@@ -27,15 +49,69 @@ public class CryptoService {
     private static final String ALGORITHM = "RSA";
     private static final int KEY_SIZE = 2048;
 
+    static final String HYBRID_PREFIX = "hyb1.";
+    private static final String OAEP_TRANSFORMATION = "RSA/ECB/OAEPPadding";
+    // Explícito: el proveedor por defecto usaría MGF1-SHA1, incompatible con WebCrypto
+    private static final OAEPParameterSpec OAEP_SHA256 = new OAEPParameterSpec(
+            "SHA-256", "MGF1", MGF1ParameterSpec.SHA256, PSource.PSpecified.DEFAULT);
+    private static final String AES_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int AES_KEY_BITS = 256;
+    private static final int GCM_IV_LENGTH = 12;
+    private static final int GCM_TAG_BITS = 128;
+
+    static final String HOMOMORPHIC_PREFIX = "phe1.";
+    private static final int PAILLIER_KEY_SIZE = 2048;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    /**
+     * Clave pública Paillier con generador g = n + 1
+     * @param n Módulo (producto de dos primos).
+     */
+    public record PaillierPublicKey(BigInteger n) {
+
+        BigInteger nSquared() {
+            return n.multiply(n);
+        }
+    }
+
+    /**
+     * Clave privada Paillier: los factores del módulo.
+     */
+    public record PaillierPrivateKey(BigInteger p, BigInteger q) {
+
+        BigInteger n() {
+            return p.multiply(q);
+        }
+    }
+
+    /**
+     * Par de claves Paillier de una elección homomórfica.
+     */
+    public record PaillierKeyPair(PaillierPublicKey publicKey, PaillierPrivateKey privateKey) {
+    }
+
     /**
      * Genera un nuevo par de claves RSA para una elección.
      * @return KeyPair con claves pública y privada.
      */
     public KeyPair generateKeyPair() {
+        return generateKeyPair(KEY_SIZE);
+    }
+
+    /**
+     * Genera un nuevo par de claves RSA del tamaño indicado.
+     * @param keySize Tamaño del módulo en bits (mínimo 2048).
+     * @return KeyPair con claves pública y privada.
+     */
+    public KeyPair generateKeyPair(int keySize) {
+        if (keySize < KEY_SIZE) {
+            throw new IllegalArgumentException("RSA key size must be at least " + KEY_SIZE + " bits");
+        }
         try {
-            logger.info("Generating new RSA key pair of size {}", KEY_SIZE);
+            logger.info("Generating new RSA key pair of size {}", keySize);
             KeyPairGenerator keyGen = KeyPairGenerator.getInstance(ALGORITHM);
-            keyGen.initialize(KEY_SIZE);
+            keyGen.initialize(keySize);
             return keyGen.generateKeyPair();
         } catch (NoSuchAlgorithmException e) {
             logger.error("RSA algorithm not found", e);
@@ -113,8 +189,18 @@ public class CryptoService {
      * @return Mensaje descifrado en texto plano.
      */
     public String decrypt(String encryptedMessageBase64, String privateKeyPem) {
+        return decrypt(encryptedMessageBase64, pemToPrivateKey(privateKeyPem));
+    }
+
+    /**
+     * Descifra un mensaje cifrado con una clave privada ya reconstruida.
+     * Evita volver a parsear el PEM en cada voto durante el recuento.
+     * @param encryptedMessageBase64 Mensaje cifrado en Base64.
+     * @param privateKey Clave privada.
+     * @return Mensaje descifrado en texto plano.
+     */
+    public String decrypt(String encryptedMessageBase64, PrivateKey privateKey) {
         try {
-            PrivateKey privateKey = pemToPrivateKey(privateKeyPem);
             Cipher cipher = Cipher.getInstance(ALGORITHM);
             cipher.init(Cipher.DECRYPT_MODE, privateKey);
             
@@ -135,8 +221,17 @@ public class CryptoService {
      * @return Mensaje cifrado en Base64.
      */
     public String encrypt(String message, String publicKeyPem) {
+        return encrypt(message, pemToPublicKey(publicKeyPem));
+    }
+
+    /**
+     * Cifra un mensaje con una clave pública ya reconstruida.
+     * @param message Mensaje en texto plano.
+     * @param publicKey Clave pública.
+     * @return Mensaje cifrado en Base64.
+     */
+    public String encrypt(String message, PublicKey publicKey) {
         try {
-            PublicKey publicKey = pemToPublicKey(publicKeyPem);
             Cipher cipher = Cipher.getInstance(ALGORITHM);
             cipher.init(Cipher.ENCRYPT_MODE, publicKey);
             
@@ -147,4 +242,316 @@ public class CryptoService {
             throw new RuntimeException("Error encrypting message", e);
         }
     }
+
+    /**
+     * Indica si una papeleta usa el formato híbrido RSA-OAEP + AES-GCM.
+     * El Base64 legacy nunca contiene '.', por lo que el prefijo no es ambiguo.
+     * @param payload Papeleta cifrada.
+     * @return true si es híbrida.
+     */
+    public boolean isHybridBallot(String payload) {
+        return payload != null && payload.startsWith(HYBRID_PREFIX);
+    }
+
+    /**
+     * Descifra una papeleta en cualquiera de los formatos soportados.
+     * @param payload Papeleta cifrada (legacy o híbrida).
+     * @param privateKey Clave privada de la elección.
+     * @param electionId ID de la elección (AAD del formato híbrido).
+     * @return Contenido de la papeleta en texto plano.
+     */
+    public String decryptBallot(String payload, PrivateKey privateKey, String electionId) {
+        if (isHybridBallot(payload)) {
+            return new String(decryptHybrid(payload, privateKey, electionId), StandardCharsets.UTF_8);
+        }
+        return decrypt(payload, privateKey);
+    }
+
+    /**
+     * Cifra una papeleta en formato híbrido (equivalente al cliente; útil para tests o simulaciones).
+     * @param plaintext Contenido de la papeleta.
+     * @param publicKey Clave pública de la elección.
+     * @param electionId ID de la elección (AAD).
+     * @return Papeleta híbrida "hyb1.…".
+     */
+    public String encryptHybrid(byte[] plaintext, PublicKey publicKey, String electionId) {
+        try {
+            KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+            keyGenerator.init(AES_KEY_BITS, secureRandom);
+            SecretKey contentKey = keyGenerator.generateKey();
+
+            byte[] iv = new byte[GCM_IV_LENGTH];
+            secureRandom.nextBytes(iv);
+            Cipher aes = Cipher.getInstance(AES_TRANSFORMATION);
+            aes.init(Cipher.ENCRYPT_MODE, contentKey, new GCMParameterSpec(GCM_TAG_BITS, iv));
+            aes.updateAAD(electionId.getBytes(StandardCharsets.UTF_8));
+            byte[] ciphertext = aes.doFinal(plaintext);
+
+            Cipher rsa = Cipher.getInstance(OAEP_TRANSFORMATION);
+            rsa.init(Cipher.ENCRYPT_MODE, publicKey, OAEP_SHA256);
+            byte[] wrappedKey = rsa.doFinal(contentKey.getEncoded());
+
+            Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+            return HYBRID_PREFIX + encoder.encodeToString(wrappedKey)
+                    + "." + encoder.encodeToString(iv)
+                    + "." + encoder.encodeToString(ciphertext);
+        } catch (GeneralSecurityException e) {
+            logger.error("Hybrid encryption failed", e);
+            throw new RuntimeException("Error encrypting ballot", e);
+        }
+    }
+
+    /**
+     * Descifra una papeleta híbrida: una operación RSA-OAEP sobre 32 bytes y
+     * el resto en AES-GCM, que además autentica el contenido y la elección.
+     * @param envelope Papeleta "hyb1.…".
+     * @param privateKey Clave privada de la elección.
+     * @param electionId ID de la elección (AAD).
+     * @return Contenido de la papeleta.
+     */
+    public byte[] decryptHybrid(String envelope, PrivateKey privateKey, String electionId) {
+        String[] parts = envelope.substring(HYBRID_PREFIX.length()).split("\\.", -1);
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Malformed hybrid ballot");
+        }
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            byte[] wrappedKey = decoder.decode(parts[0]);
+            byte[] iv = decoder.decode(parts[1]);
+            byte[] ciphertext = decoder.decode(parts[2]);
+            if (iv.length != GCM_IV_LENGTH) {
+                throw new IllegalArgumentException("Malformed hybrid ballot");
+            }
+
+            Cipher rsa = Cipher.getInstance(OAEP_TRANSFORMATION);
+            rsa.init(Cipher.DECRYPT_MODE, privateKey, OAEP_SHA256);
+            byte[] keyBytes = rsa.doFinal(wrappedKey);
+            if (keyBytes.length != AES_KEY_BITS / 8) {
+                throw new IllegalArgumentException("Malformed hybrid ballot");
+            }
+
+            Cipher aes = Cipher.getInstance(AES_TRANSFORMATION);
+            aes.init(Cipher.DECRYPT_MODE, new SecretKeySpec(keyBytes, "AES"), new GCMParameterSpec(GCM_TAG_BITS, iv));
+            aes.updateAAD(electionId.getBytes(StandardCharsets.UTF_8));
+            return aes.doFinal(ciphertext);
+        } catch (GeneralSecurityException e) {
+            logger.error("Hybrid ballot decryption failed: {}", e.getMessage());
+            throw new RuntimeException("Error decrypting vote. Check if the private key is correct.", e);
+        }
+    }
+
+    /**
+     * Genera un par de claves Paillier para una elección homomórfica.
+     * @return Par de claves con módulo de 2048 bits.
+     */
+    public PaillierKeyPair generatePaillierKeyPair() {
+        return generatePaillierKeyPair(PAILLIER_KEY_SIZE);
+    }
+
+    /**
+     * Genera un par de claves Paillier del tamaño indicado.
+     * @param keySize Tamaño del módulo en bits (mínimo 2048).
+     * @return Par de claves.
+     */
+    public PaillierKeyPair generatePaillierKeyPair(int keySize) {
+        if (keySize < PAILLIER_KEY_SIZE) {
+            throw new IllegalArgumentException("Paillier key size must be at least " + PAILLIER_KEY_SIZE + " bits");
+        }
+        logger.info("Generating new Paillier key pair of size {}", keySize);
+        while (true) {
+            BigInteger p = BigInteger.probablePrime(keySize / 2, secureRandom);
+            BigInteger q = BigInteger.probablePrime(keySize / 2, secureRandom);
+            BigInteger n = p.multiply(q);
+            // Primos distintos del mismo tamaño garantizan gcd(n, (p-1)(q-1)) = 1
+            if (!p.equals(q) && n.bitLength() == keySize) {
+                return new PaillierKeyPair(new PaillierPublicKey(n), new PaillierPrivateKey(p, q));
+            }
+        }
+    }
+
+    /**
+     * Indica si una clave pública de elección es Paillier (modo de recuento homomórfico).
+     * @param publicKey Clave pública publicada en la elección.
+     * @return true si es homomórfica.
+     */
+    public boolean isHomomorphicKey(String publicKey) {
+        return publicKey != null && publicKey.startsWith(HOMOMORPHIC_PREFIX);
+    }
+
+    /**
+     * Serializa una clave pública Paillier: "phe1." + n (Base64url).
+     */
+    public String paillierPublicKeyToString(PaillierPublicKey publicKey) {
+        return HOMOMORPHIC_PREFIX + encodeBigInteger(publicKey.n());
+    }
+
+    /**
+     * Reconstruye una clave pública Paillier.
+     */
+    public PaillierPublicKey parsePaillierPublicKey(String publicKey) {
+        String[] parts = splitHomomorphic(publicKey, "public key");
+        if (parts.length != 1) {
+            throw new IllegalArgumentException("Malformed Paillier public key");
+        }
+        return new PaillierPublicKey(decodeBigInteger(parts[0]));
+    }
+
+    /**
+     * Serializa una clave privada Paillier: "phe1." + p + "." + q (Base64url).
+     */
+    public String paillierPrivateKeyToString(PaillierPrivateKey privateKey) {
+        return HOMOMORPHIC_PREFIX + encodeBigInteger(privateKey.p()) + "." + encodeBigInteger(privateKey.q());
+    }
+
+    /**
+     * Reconstruye una clave privada Paillier.
+     */
+    public PaillierPrivateKey parsePaillierPrivateKey(String privateKey) {
+        String[] parts = splitHomomorphic(privateKey, "private key");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Malformed Paillier private key");
+        }
+        return new PaillierPrivateKey(decodeBigInteger(parts[0]), decodeBigInteger(parts[1]));
+    }
+
+    /**
+     * Cifra un valor: c = (1 + m·n) · r^n mod n² (g = n + 1).
+     * @param publicKey Clave pública.
+     * @param message Valor en [0, n).
+     * @return Cifrado.
+     */
+    public BigInteger paillierEncrypt(PaillierPublicKey publicKey, BigInteger message) {
+        BigInteger n = publicKey.n();
+        if (message.signum() < 0 || message.compareTo(n) >= 0) {
+            throw new IllegalArgumentException("Paillier plaintext out of range");
+        }
+        return paillierEncrypt(publicKey, message, randomUnit(n, secureRandom));
+    }
+
+    private static BigInteger paillierEncrypt(PaillierPublicKey publicKey, BigInteger message, BigInteger r) {
+        BigInteger nSquared = publicKey.nSquared();
+        return BigInteger.ONE.add(message.multiply(publicKey.n())).mod(nSquared)
+                .multiply(r.modPow(publicKey.n(), nSquared)).mod(nSquared);
+    }
+
+    /**
+     * Aleatorio uniforme en Z*(n).
+     */
+    static BigInteger randomUnit(BigInteger n, SecureRandom random) {
+        BigInteger r;
+        do {
+            r = new BigInteger(n.bitLength(), random);
+        } while (r.signum() == 0 || r.compareTo(n) >= 0 || !r.gcd(n).equals(BigInteger.ONE));
+        return r;
+    }
+
+    /**
+     * Suma homomórfica: el producto de dos cifrados es el cifrado de la suma.
+     */
+    public BigInteger paillierAdd(PaillierPublicKey publicKey, BigInteger a, BigInteger b) {
+        return a.multiply(b).mod(publicKey.nSquared());
+    }
+
+    /**
+     * Descifra un valor: m = L(c^λ mod n²) · μ mod n, con L(x) = (x - 1) / n.
+     * @param privateKey Clave privada.
+     * @param ciphertext Cifrado (p. ej. un agregado de votos).
+     * @return Valor en claro.
+     */
+    public BigInteger paillierDecrypt(PaillierPrivateKey privateKey, BigInteger ciphertext) {
+        BigInteger n = privateKey.n();
+        BigInteger nSquared = n.multiply(n);
+        BigInteger pMinusOne = privateKey.p().subtract(BigInteger.ONE);
+        BigInteger qMinusOne = privateKey.q().subtract(BigInteger.ONE);
+        BigInteger lambda = pMinusOne.multiply(qMinusOne).divide(pMinusOne.gcd(qMinusOne));
+        // Con g = n + 1, L(g^λ mod n²) = λ mod n
+        BigInteger mu = lambda.modInverse(n);
+        BigInteger u = ciphertext.modPow(lambda, nSquared);
+        return u.subtract(BigInteger.ONE).divide(n).multiply(mu).mod(n);
+    }
+
+    /**
+     * Cifra una papeleta homomórfica (equivalente al cliente; útil para tests o simulaciones).
+     * @param publicKey Clave pública de la elección.
+     * @param optionIndex Posición de la opción elegida.
+     * @param optionCount Número de opciones de la elección.
+     * @return Papeleta "phe1.…" con un cifrado por opción y su prueba de validez.
+     */
+    public String encryptHomomorphicBallot(PaillierPublicKey publicKey, int optionIndex, int optionCount) {
+        if (optionIndex < 0 || optionIndex >= optionCount) {
+            throw new IllegalArgumentException("Option index out of range");
+        }
+        BigInteger[] ciphertexts = new BigInteger[optionCount];
+        BigInteger[] randomness = new BigInteger[optionCount];
+        int[] votes = new int[optionCount];
+        votes[optionIndex] = 1;
+        for (int i = 0; i < optionCount; i++) {
+            randomness[i] = randomUnit(publicKey.n(), secureRandom);
+            ciphertexts[i] = paillierEncrypt(publicKey, BigInteger.valueOf(votes[i]), randomness[i]);
+        }
+        BigInteger[] proof = PaillierBallotProof.prove(publicKey, ciphertexts, votes, randomness, secureRandom);
+
+        StringJoiner ballot = new StringJoiner(".", HOMOMORPHIC_PREFIX, "");
+        for (BigInteger ciphertext : ciphertexts) {
+            ballot.add(encodeBigInteger(ciphertext));
+        }
+        for (BigInteger element : proof) {
+            ballot.add(encodeBigInteger(element));
+        }
+        return ballot.toString();
+    }
+
+    /**
+     * Valida y decodifica una papeleta homomórfica.
+     * Comprueba que cada cifrado sea un elemento válido de Z*(n²) y verifica
+     * la prueba de conocimiento cero de que cada uno cifra 0 o 1 y suman 1.
+     * @param publicKey Clave pública de la elección.
+     * @param payload Papeleta "phe1.…".
+     * @param optionCount Número de opciones de la elección.
+     * @return Un cifrado por opción, en el orden de las opciones.
+     * @throws IllegalArgumentException si la papeleta está mal formada o la prueba no se verifica.
+     */
+    public BigInteger[] parseHomomorphicBallot(PaillierPublicKey publicKey, String payload, int optionCount) {
+        String[] parts = splitHomomorphic(payload, "ballot");
+        if (parts.length != optionCount + PaillierBallotProof.proofLength(optionCount)) {
+            throw new IllegalArgumentException(
+                "Homomorphic ballot must contain one ciphertext per option and its validity proof");
+        }
+        BigInteger nSquared = publicKey.nSquared();
+        BigInteger[] ciphertexts = new BigInteger[optionCount];
+        for (int i = 0; i < optionCount; i++) {
+            BigInteger c = decodeBigInteger(parts[i]);
+            if (c.signum() <= 0 || c.compareTo(nSquared) >= 0 || !c.gcd(publicKey.n()).equals(BigInteger.ONE)) {
+                throw new IllegalArgumentException("Homomorphic ballot contains an invalid ciphertext");
+            }
+            ciphertexts[i] = c;
+        }
+        BigInteger[] proof = new BigInteger[parts.length - optionCount];
+        for (int i = 0; i < proof.length; i++) {
+            proof[i] = decodeBigInteger(parts[optionCount + i]);
+        }
+        if (!PaillierBallotProof.verify(publicKey, ciphertexts, proof)) {
+            throw new IllegalArgumentException("Homomorphic ballot validity proof does not verify");
+        }
+        return ciphertexts;
+    }
+
+    private static String[] splitHomomorphic(String value, String what) {
+        if (value == null || !value.startsWith(HOMOMORPHIC_PREFIX)) {
+            throw new IllegalArgumentException("Not a homomorphic " + what);
+        }
+        return value.substring(HOMOMORPHIC_PREFIX.length()).split("\\.", -1);
+    }
+
+    static String encodeBigInteger(BigInteger value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.toByteArray());
+    }
+
+    static BigInteger decodeBigInteger(String value) {
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException("Empty homomorphic value");
+        }
+        // Base64.Decoder ya lanza IllegalArgumentException ante caracteres inválidos
+        return new BigInteger(1, Base64.getUrlDecoder().decode(value));
+    }
 }
@@ -0,0 +1,155 @@
+package es.tfg.votacion.service;
+
+import es.tfg.votacion.model.Election;
+import es.tfg.votacion.model.ElectionStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Índice secundario de elecciones: estado → IDs ordenados por fecha de inicio
+ *
+ * Permite paginar por cursor con coste proporcional al tamaño de página:
+ * - Cada estado mantiene un conjunto ordenado por (startTime, id)
+ * - Los filtros de fecha se resuelven con subconjuntos del conjunto ordenado
+ * - Varios estados se combinan con una mezcla ordenada de sus iteradores
+ *
+ * Concurrencia:
+ * - Lecturas sin bloqueo sobre ConcurrentSkipListSet
+ * - Escrituras serializadas: mover una elección entre estados es atómico
+ *   respecto a otras escrituras, no respecto a las lecturas (el llamante
+ *   revalida el estado al resolver los IDs)
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ * @since Java 21
+ */
+final class ElectionIndex {
+
+    /**
+     * Clave de ordenación: fecha de inicio y, para desempatar, ID
+     */
+    record Key(LocalDateTime startTime, String id) {
+
+        static final Comparator<Key> ORDER = Comparator
+            .comparing(Key::startTime, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Key::id);
+
+        static Key of(Election election) {
+            return new Key(election.startTime(), election.id());
+        }
+    }
+
+    private final Map<ElectionStatus, NavigableSet<Key>> byStatus = new EnumMap<>(ElectionStatus.class);
+    private final Object writeLock = new Object();
+
+    ElectionIndex() {
+        for (ElectionStatus status : ElectionStatus.values()) {
+            byStatus.put(status, new ConcurrentSkipListSet<>(Key.ORDER));
+        }
+    }
+
+    /**
+     * Actualiza el índice tras sustituir una elección
+     *
+     * @param previous Versión anterior (null si es un alta)
+     * @param current  Versión nueva
+     */
+    void update(Election previous, Election current) {
+        synchronized (writeLock) {
+            if (previous != null) {
+                byStatus.get(previous.status()).remove(Key.of(previous));
+            }
+            byStatus.get(current.status()).add(Key.of(current));
+        }
+    }
+
+    /**
+     * Reconstruye el índice completo
+     */
+    void rebuild(Iterable<Election> elections) {
+        synchronized (writeLock) {
+            byStatus.values().forEach(Set::clear);
+            for (Election election : elections) {
+                byStatus.get(election.status()).add(Key.of(election));
+            }
+        }
+    }
+
+    /**
+     * Devuelve como mucho {@code limit} claves en orden, posteriores al cursor
+     *
+     * @param statuses   Estados incluidos
+     * @param from       Inicio mínimo (inclusive) o null
+     * @param to         Inicio máximo (exclusive) o null
+     * @param descending true para ordenar de más reciente a más antigua
+     * @param after      Última clave de la página anterior o null
+     * @param limit      Número máximo de claves
+     */
+    List<Key> page(Set<ElectionStatus> statuses, LocalDateTime from, LocalDateTime to,
+                   boolean descending, Key after, int limit) {
+        List<Iterator<Key>> sources = new ArrayList<>(statuses.size());
+        for (ElectionStatus status : statuses) {
+            NavigableSet<Key> view = range(byStatus.get(status), from, to);
+            if (descending) {
+                view = view.descendingSet();
+            }
+            if (after != null) {
+                view = view.tailSet(after, false);
+            }
+            sources.add(view.iterator());
+        }
+
+        Comparator<Key> order = descending ? Key.ORDER.reversed() : Key.ORDER;
+        return merge(sources, order, limit);
+    }
+
+    private static NavigableSet<Key> range(NavigableSet<Key> keys, LocalDateTime from, LocalDateTime to) {
+        // Los IDs vacíos ordenan antes que cualquier otro, así las cotas solo comparan la fecha
+        if (from != null && to != null) {
+            return keys.subSet(new Key(from, ""), true, new Key(to, ""), false);
+        }
+        if (from != null) {
+            return keys.tailSet(new Key(from, ""), true);
+        }
+        if (to != null) {
+            return keys.headSet(new Key(to, ""), false);
+        }
+        return keys;
+    }
+
+    /**
+     * Mezcla ordenada de varios iteradores ya ordenados (pocos estados: búsqueda lineal del mínimo)
+     */
+    private static List<Key> merge(List<Iterator<Key>> sources, Comparator<Key> order, int limit) {
+        Key[] heads = new Key[sources.size()];
+        for (int i = 0; i < heads.length; i++) {
+            heads[i] = sources.get(i).hasNext() ? sources.get(i).next() : null;
+        }
+
+        List<Key> result = new ArrayList<>(Math.min(limit, 64));
+        while (result.size() < limit) {
+            int best = -1;
+            for (int i = 0; i < heads.length; i++) {
+                if (heads[i] != null && (best < 0 || order.compare(heads[i], heads[best]) < 0)) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            result.add(heads[best]);
+            Iterator<Key> source = sources.get(best);
+            heads[best] = source.hasNext() ? source.next() : null;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,141 @@
+package es.tfg.votacion.service;
+
+import es.tfg.votacion.config.ElectionProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.security.KeyPair;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pool de pares de claves RSA para nuevas elecciones
+ *
+ * La generación RSA tarda de cientos de milisegundos a segundos y con gran
+ * variabilidad (más con 3072/4096 bits). Un hilo de baja prioridad mantiene
+ * elections.key-pool.size pares listos, de modo que crear una elección
+ * tiene latencia constante.
+ *
+ * Seguridad:
+ * - Los pares solo viven en memoria: nunca se persisten ni se registran
+ * - Cada par se entrega una única vez y sale del pool al entregarse
+ * - Al detener la aplicación se descartan los pares no usados
+ *
+ * Si el pool está vacío (ráfaga de altas) la clave se genera en el momento.
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ * @since Java 21
+ */
+@Component
+public class ElectionKeyPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(ElectionKeyPool.class);
+    static final String AVAILABLE_GAUGE = "crypto.keypool.available";
+    static final String TAKE_COUNTER = "crypto.keypool.take";
+
+    private final CryptoService cryptoService;
+    private final int size;
+    private final int keySize;
+    private final BlockingQueue<KeyPair> ready;
+    private final Counter hits;
+    private final Counter misses;
+    private Thread generator;
+
+    public ElectionKeyPool(CryptoService cryptoService, ElectionProperties electionProperties,
+                           MeterRegistry meterRegistry) {
+        this.cryptoService = cryptoService;
+        this.size = Math.max(0, electionProperties.getKeyPool().getSize());
+        this.keySize = electionProperties.getKeyPool().getKeySize();
+        this.ready = new ArrayBlockingQueue<>(Math.max(1, size));
+
+        Gauge.builder(AVAILABLE_GAUGE, ready, BlockingQueue::size)
+            .description("Pre-generated RSA key pairs ready for new elections")
+            .register(meterRegistry);
+        this.hits = Counter.builder(TAKE_COUNTER)
+            .description("Key pairs handed out to new elections")
+            .tag("source", "pool")
+            .register(meterRegistry);
+        this.misses = Counter.builder(TAKE_COUNTER)
+            .description("Key pairs handed out to new elections")
+            .tag("source", "inline")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Arranca el hilo de generación (si el pool está habilitado)
+     */
+    @PostConstruct
+    public void start() {
+        if (size == 0) {
+            logger.info("Election key pool disabled, keys will be generated on demand");
+            return;
+        }
+        generator = new Thread(this::fill, "election-keypool");
+        generator.setDaemon(true);
+        generator.setPriority(Thread.MIN_PRIORITY);
+        generator.start();
+        logger.info("Election key pool started: size={}, keySize={}", size, keySize);
+    }
+
+    /**
+     * Entrega un par de claves nuevo, del pool si hay alguno listo
+     *
+     * @return Par de claves que no se ha entregado antes
+     */
+    public KeyPair take() {
+        KeyPair keyPair = ready.poll();
+        if (keyPair != null) {
+            hits.increment();
+            return keyPair;
+        }
+        misses.increment();
+        logger.debug("Election key pool empty, generating key pair inline");
+        return cryptoService.generateKeyPair(keySize);
+    }
+
+    /**
+     * Pares preparados en este momento
+     */
+    public int available() {
+        return ready.size();
+    }
+
+    /**
+     * Bucle del generador: put bloquea mientras el pool está lleno
+     */
+    private void fill() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                KeyPair keyPair;
+                try {
+                    keyPair = cryptoService.generateKeyPair(keySize);
+                } catch (RuntimeException e) {
+                    logger.error("Election key pool generation failed: {}", e.getMessage());
+                    Thread.sleep(1000);
+                    continue;
+                }
+                ready.put(keyPair);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Detiene el generador y descarta los pares no entregados
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (generator != null) {
+            generator.interrupt();
+        }
+        ready.clear();
+    }
+}
@@ -0,0 +1,380 @@
+package es.tfg.votacion.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Claves de datos por elección derivadas de la clave maestra
+ *
+ * Cada elección cifra sus blobs con su propia clave de datos (DEK), de modo
+ * que el presupuesto de nonces de GCM es por elección y no global:
+ * - DEK(elección, keyId) = HKDF-SHA256(clave maestra, info = "elección/keyId")
+ * - El keyId (1..255) viaja en la cabecera del blob; rotar la clave de una
+ *   elección solo cambia el keyId de los blobs nuevos
+ *
+ * Rotación de la clave maestra sin re-cifrar blobs: las DEK en uso se
+ * envuelven (AES-GCM) con la clave maestra nueva y se guardan en
+ * keyring.json. A partir de ahí se desenvuelven en lugar de derivarse, así
+ * que el coste es O(elecciones) y no O(votos). La clave maestra original, con
+ * la que están cifrados los blobs anteriores a este formato, se conserva
+ * envuelta del mismo modo.
+ *
+ * Las DEK resueltas se guardan en un mapa acotado de SecretKeySpec: el
+ * camino del voto no deriva ni desenvuelve nada salvo en el primer uso.
+ *
+ * También guarda el límite de contadores de nonce reservados por
+ * GcmNonceGenerator, de modo que un reinicio no reutiliza un nonce con las
+ * mismas DEK.
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ * @since Java 21
+ */
+final class ElectionKeyring {
+
+    static final int FIRST_KEY_ID = 1;
+    static final int MAX_KEY_ID = 255;
+    private static final byte[] HKDF_SALT = "votacion-blob-keys-v1".getBytes(StandardCharsets.UTF_8);
+    private static final String FINGERPRINT_INFO = "master-key-id";
+    private static final String LEGACY_LABEL = "legacy";
+    private static final String WRAP_ALGORITHM = "AES/GCM/NoPadding";
+    private static final int WRAP_IV_LENGTH = 12;
+    private static final int WRAP_TAG_BITS = 128;
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private final int cacheSize;
+    private final SecureRandom random = new SecureRandom();
+
+    // Estado persistido (modificado solo con el monitor de la instancia)
+    private volatile SecretKey masterKey;
+    private volatile byte[] pseudoRandomKey;
+    private volatile String legacyWrapped;
+    private long nonceHighWaterMark;
+    private final Map<String, Integer> currentKeyIds = new ConcurrentHashMap<>();
+    private final Map<String, String> wrappedKeys = new ConcurrentHashMap<>();
+
+    // "elección/keyId" -> DEK
+    private final Map<String, SecretKey> cache = new ConcurrentHashMap<>();
+    private volatile SecretKey legacyKey;
+
+    ElectionKeyring(Path file, SecretKey masterKey, int cacheSize, ObjectMapper objectMapper) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+        this.cacheSize = Math.max(1, cacheSize);
+        setMaster(masterKey);
+    }
+
+    /**
+     * Carga keyring.json si existe
+     *
+     * @return Identificador de la clave maestra con la que se escribió o null si no existe
+     */
+    synchronized String load() throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        State state = objectMapper.readValue(file.toFile(), State.class);
+        currentKeyIds.clear();
+        wrappedKeys.clear();
+        if (state.elections != null) {
+            state.elections.forEach((electionId, record) -> {
+                currentKeyIds.put(electionId, record.currentKeyId);
+                if (record.wrappedKeys != null) {
+                    record.wrappedKeys.forEach((keyId, wrapped) -> wrappedKeys.put(label(electionId, keyId), wrapped));
+                }
+            });
+        }
+        legacyWrapped = state.legacyKey;
+        nonceHighWaterMark = state.nonceHighWaterMark;
+        legacyKey = null;
+        cache.clear();
+        return state.masterKeyId;
+    }
+
+    /**
+     * Identificador público de una clave maestra (no revela la clave)
+     */
+    static String fingerprint(SecretKey masterKey) {
+        byte[] prk = extract(masterKey);
+        return HexFormat.of().formatHex(expand(prk, FINGERPRINT_INFO), 0, 8);
+    }
+
+    String masterKeyId() {
+        return fingerprint(masterKey);
+    }
+
+    /**
+     * keyId con el que se cifran los blobs nuevos de una elección
+     */
+    int currentKeyId(String electionId) {
+        return currentKeyIds.getOrDefault(electionId, FIRST_KEY_ID);
+    }
+
+    /**
+     * Límite de contadores de nonce reservados hasta ahora (0 si no hay keyring.json)
+     */
+    synchronized long nonceHighWaterMark() {
+        return nonceHighWaterMark;
+    }
+
+    /**
+     * Reserva los contadores de nonce por debajo de {@code limit}
+     * Vuelve solo cuando el límite está en disco
+     */
+    synchronized void reserveNonces(long limit) throws IOException {
+        long previous = nonceHighWaterMark;
+        nonceHighWaterMark = Math.max(previous, limit);
+        try {
+            persist(masterKey, wrappedKeys, legacyWrapped);
+        } catch (IOException | RuntimeException e) {
+            nonceHighWaterMark = previous;
+            throw e;
+        }
+    }
+
+    /**
+     * DEK de una elección
+     *
+     * @throws IllegalArgumentException si el keyId no se ha emitido nunca
+     */
+    SecretKey dataKey(String electionId, int keyId) throws GeneralSecurityException {
+        String label = label(electionId, keyId);
+        SecretKey key = cache.get(label);
+        if (key != null) {
+            return key;
+        }
+        synchronized (this) {
+            if (keyId < FIRST_KEY_ID || keyId > currentKeyId(electionId)) {
+                throw new IllegalArgumentException("Unknown data key " + keyId + " for election " + electionId);
+            }
+            key = resolve(label);
+            if (cache.size() >= cacheSize) {
+                // Acotado: se descarta una entrada cualquiera; volver a resolverla es barato
+                Iterator<String> eldest = cache.keySet().iterator();
+                if (eldest.hasNext()) {
+                    cache.remove(eldest.next());
+                }
+            }
+            cache.put(label, key);
+            return key;
+        }
+    }
+
+    /**
+     * Clave de los blobs sin cabecera (formato anterior, cifrados con la clave maestra original)
+     */
+    SecretKey legacyKey() throws GeneralSecurityException {
+        SecretKey key = legacyKey;
+        if (key == null) {
+            synchronized (this) {
+                key = legacyWrapped != null ? unwrap(legacyWrapped, LEGACY_LABEL) : masterKey;
+                legacyKey = key;
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Emite una DEK nueva para los blobs nuevos de una elección
+     * Los blobs existentes conservan su keyId y se siguen descifrando
+     *
+     * @return keyId nuevo
+     */
+    synchronized int rotateElectionKey(String electionId) throws IOException {
+        int next = currentKeyId(electionId) + 1;
+        if (next > MAX_KEY_ID) {
+            throw new IllegalStateException("Data key ids exhausted for election " + electionId);
+        }
+        currentKeyIds.put(electionId, next);
+        try {
+            persist(masterKey, wrappedKeys, legacyWrapped);
+        } catch (IOException | RuntimeException e) {
+            currentKeyIds.put(electionId, next - 1);
+            throw e;
+        }
+        return next;
+    }
+
+    /**
+     * Cambia la clave maestra reenvolviendo las DEK en uso
+     *
+     * Las elecciones se piden con el monitor tomado: una DEK resuelta después
+     * ya se deriva de la clave nueva. keyring.json se reemplaza de forma
+     * atómica antes de adoptar la clave nueva en memoria.
+     *
+     * @param elections Elecciones con blobs almacenados
+     * @return Número de DEK reenvueltas
+     */
+    synchronized int rewrap(SecretKey newMasterKey, Supplier<Collection<String>> elections)
+            throws IOException, GeneralSecurityException {
+        Set<String> electionIds = new TreeSet<>(elections.get());
+        electionIds.addAll(currentKeyIds.keySet());
+        for (String label : cache.keySet()) {
+            electionIds.add(label.substring(0, label.lastIndexOf('/')));
+        }
+
+        Map<String, String> rewrapped = new HashMap<>();
+        for (String electionId : electionIds) {
+            for (int keyId = FIRST_KEY_ID; keyId <= currentKeyId(electionId); keyId++) {
+                String label = label(electionId, keyId);
+                rewrapped.put(label, wrap(newMasterKey, resolve(label), label));
+            }
+        }
+        String legacy = wrap(newMasterKey, legacyKey(), LEGACY_LABEL);
+
+        persist(newMasterKey, rewrapped, legacy);
+        wrappedKeys.clear();
+        wrappedKeys.putAll(rewrapped);
+        legacyWrapped = legacy;
+        setMaster(newMasterKey);
+        return rewrapped.size();
+    }
+
+    int cachedKeys() {
+        return cache.size();
+    }
+
+    private void setMaster(SecretKey newMasterKey) {
+        this.masterKey = newMasterKey;
+        this.pseudoRandomKey = extract(newMasterKey);
+    }
+
+    /**
+     * Desenvuelve la DEK si está guardada; si no, la deriva de la clave maestra actual
+     */
+    private SecretKey resolve(String label) throws GeneralSecurityException {
+        SecretKey cached = cache.get(label);
+        if (cached != null) {
+            return cached;
+        }
+        String wrapped = wrappedKeys.get(label);
+        if (wrapped != null) {
+            return unwrap(wrapped, label);
+        }
+        return new SecretKeySpec(expand(pseudoRandomKey, label), "AES");
+    }
+
+    private String wrap(SecretKey kek, SecretKey key, String label) throws GeneralSecurityException {
+        byte[] out = new byte[WRAP_IV_LENGTH + key.getEncoded().length + WRAP_TAG_BITS / 8];
+        random.nextBytes(out);
+        Cipher cipher = Cipher.getInstance(WRAP_ALGORITHM);
+        cipher.init(Cipher.ENCRYPT_MODE, kek, new GCMParameterSpec(WRAP_TAG_BITS, out, 0, WRAP_IV_LENGTH));
+        // La etiqueta como AAD impide intercambiar claves envueltas entre elecciones
+        cipher.updateAAD(label.getBytes(StandardCharsets.UTF_8));
+        byte[] encoded = key.getEncoded();
+        cipher.doFinal(encoded, 0, encoded.length, out, WRAP_IV_LENGTH);
+        return Base64.getEncoder().encodeToString(out);
+    }
+
+    private SecretKey unwrap(String wrapped, String label) throws GeneralSecurityException {
+        byte[] in = Base64.getDecoder().decode(wrapped);
+        Cipher cipher = Cipher.getInstance(WRAP_ALGORITHM);
+        cipher.init(Cipher.DECRYPT_MODE, masterKey, new GCMParameterSpec(WRAP_TAG_BITS, in, 0, WRAP_IV_LENGTH));
+        cipher.updateAAD(label.getBytes(StandardCharsets.UTF_8));
+        return new SecretKeySpec(cipher.doFinal(in, WRAP_IV_LENGTH, in.length - WRAP_IV_LENGTH), "AES");
+    }
+
+    private void persist(SecretKey master, Map<String, String> wrapped, String legacy) throws IOException {
+        State state = new State();
+        state.masterKeyId = fingerprint(master);
+        state.legacyKey = legacy;
+        state.nonceHighWaterMark = nonceHighWaterMark;
+        state.elections = new TreeMap<>();
+        currentKeyIds.forEach((electionId, keyId) -> state.elections
+            .computeIfAbsent(electionId, id -> new ElectionRecord()).currentKeyId = keyId);
+        wrapped.forEach((label, value) -> {
+            int slash = label.lastIndexOf('/');
+            ElectionRecord record = state.elections.computeIfAbsent(label.substring(0, slash), id -> new ElectionRecord());
+            record.wrappedKeys.put(label.substring(slash + 1), value);
+        });
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer json = ByteBuffer.wrap(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(state));
+            while (json.hasRemaining()) {
+                channel.write(json);
+            }
+            // A disco antes del move: una reserva de nonces no puede perderse tras volver
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String label(String electionId, Object keyId) {
+        return electionId + "/" + keyId;
+    }
+
+    /**
+     * HKDF-Extract (RFC 5869) con sal fija
+     */
+    private static byte[] extract(SecretKey masterKey) {
+        return hmac(HKDF_SALT, masterKey.getEncoded());
+    }
+
+    /**
+     * HKDF-Expand (RFC 5869) de un solo bloque: 32 bytes = salida de HMAC-SHA256
+     */
+    private static byte[] expand(byte[] prk, String info) {
+        byte[] infoBytes = info.getBytes(StandardCharsets.UTF_8);
+        byte[] input = new byte[infoBytes.length + 1];
+        System.arraycopy(infoBytes, 0, input, 0, infoBytes.length);
+        input[infoBytes.length] = 1;
+        return hmac(prk, input);
+    }
+
+    private static byte[] hmac(byte[] key, byte[] data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    /**
+     * Forma persistida de keyring.json
+     */
+    static class State {
+        public int version = 1;
+        public String masterKeyId;
+        public String legacyKey;
+        public long nonceHighWaterMark;
+        public Map<String, ElectionRecord> elections;
+    }
+
+    static class ElectionRecord {
+        public int currentKeyId = FIRST_KEY_ID;
+        // keyId -> DEK envuelta con la clave maestra
+        public Map<String, String> wrappedKeys = new TreeMap<>();
+    }
+}
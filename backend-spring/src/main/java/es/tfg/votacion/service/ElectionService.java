@@ -4,25 +4,52 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import es.tfg.votacion.config.ElectionProperties;
 import es.tfg.votacion.model.Election;
 import es.tfg.votacion.model.ElectionOption;
 import es.tfg.votacion.model.ElectionStatus;
+import es.tfg.votacion.model.TallyMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.io.File;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Servicio mock para gestión de elecciones
  * 
  * Implementa almacenamiento en memoria con persistencia en archivo JSON para desarrollo.
  * 
+ * Cada elección lleva un contador de versión que se incrementa en cualquier
+ * cambio (alta, voto, cambio de estado, recuento), además de una versión
+ * global del catálogo. Los controladores los usan para calcular ETags sin
+ * reconstruir las respuestas. Los contadores viven en memoria y se acompañan
+ * de una época de arranque para no repetir ETags tras un reinicio.
+ * 
+ * Las elecciones en modo homomórfico ({@link TallyMode#HOMOMORPHIC}) acumulan
+ * al votar el producto de los cifrados Paillier de cada opción. Solo se
+ * aceptan papeletas cuya prueba de validez se verifica (cada opción cifra 0
+ * o 1 y suman 1), al votar y de nuevo en el recuento; al cerrar se descifra
+ * un único total por opción.
+ * 
+ * El recuento de cierre es un trabajo en segundo plano con puntos de control
+ * en data/recount, reanudable tras un reinicio.
+ * 
  * @author Enrique Huet Adrover
  * @version 1.1
  */
@@ -31,11 +58,26 @@ public class ElectionService {
 
     private static final Logger logger = LoggerFactory.getLogger(ElectionService.class);
     private static final String DATA_FILE = "data/elections-db.json";
+    private static final String RECOUNT_DIR = "data/recount";
     
     private final Map<String, Election> elections = new ConcurrentHashMap<>();
     private final Map<String, Set<String>> userVotes = new ConcurrentHashMap<>(); // electionId -> Set<userId>
     private final Map<String, Map<String, Integer>> voteResults = new ConcurrentHashMap<>(); // electionId -> optionId -> count
     private final Map<String, String> blobTransactions = new ConcurrentHashMap<>(); // blobId -> transactionId
+    private final Map<String, ResultsSnapshot> resultsSnapshots = new ConcurrentHashMap<>(); // electionId -> resultados serializados
+    private final Map<String, HomomorphicTally> homomorphicTallies = new ConcurrentHashMap<>(); // electionId -> agregado cifrado
+    private final Map<String, AtomicLong> electionVersions = new ConcurrentHashMap<>(); // electionId -> versión
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private final ElectionIndex electionIndex = new ElectionIndex(); // estado -> IDs ordenados por inicio
+    private final String versionEpoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<String, RecountJob> recountJobs = new ConcurrentHashMap<>(); // electionId -> último recuento
+    private final Map<String, ReentrantReadWriteLock> voteGates = new ConcurrentHashMap<>(); // electionId -> votos en curso / cierre
+    private final ExecutorService recountExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "election-recount");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Path recountDir = Path.of(RECOUNT_DIR);
     
     @org.springframework.beans.factory.annotation.Autowired
     private StorageService storageService;
@@ -46,6 +88,21 @@ public class ElectionService {
     @org.springframework.beans.factory.annotation.Autowired
     private CryptoService cryptoService;
 
+    @org.springframework.beans.factory.annotation.Autowired
+    private TurnoutBroadcaster turnoutBroadcaster;
+
+    @org.springframework.beans.factory.annotation.Autowired
+    private ElectionKeyPool electionKeyPool;
+
+    @org.springframework.beans.factory.annotation.Autowired
+    private VoteIntegrityVerifier integrityVerifier;
+
+    @org.springframework.beans.factory.annotation.Autowired
+    private MerkleAnchorer merkleAnchorer;
+
+    @org.springframework.beans.factory.annotation.Autowired
+    private ElectionProperties electionProperties;
+
     private final ObjectMapper objectMapper;
 
     public ElectionService() {
@@ -59,6 +116,7 @@ public class ElectionService {
     public void init() {
         logger.info("Initializing ElectionService");
         loadData();
+        recoverRecountJobs();
     }
 
     private void loadData() {
@@ -69,6 +127,7 @@ public class ElectionService {
                 
                 if (data.elections != null) {
                     elections.putAll(data.elections);
+                    electionIndex.rebuild(elections.values());
                 }
                 if (data.userVotes != null) {
                     userVotes.putAll(data.userVotes);
@@ -79,6 +138,19 @@ public class ElectionService {
                 if (data.blobTransactions != null) {
                     blobTransactions.putAll(data.blobTransactions);
                 }
+                if (data.resultsSnapshots != null) {
+                    data.resultsSnapshots.forEach((id, json) ->
+                        resultsSnapshots.put(id, ResultsSnapshot.of(json.getBytes(java.nio.charset.StandardCharsets.UTF_8))));
+                }
+                if (data.homomorphicTallies != null) {
+                    data.homomorphicTallies.forEach((id, state) -> {
+                        Election election = elections.get(id);
+                        if (election != null) {
+                            homomorphicTallies.put(id, HomomorphicTally.fromState(
+                                cryptoService.parsePaillierPublicKey(election.publicKey()), state));
+                        }
+                    });
+                }
                 logger.info("Loaded {} elections from disk", elections.size());
                 return;
             } catch (IOException e) {
@@ -105,6 +177,11 @@ public class ElectionService {
             data.userVotes = new HashMap<>(userVotes);
             data.voteResults = new HashMap<>(voteResults);
             data.blobTransactions = new HashMap<>(blobTransactions);
+            data.resultsSnapshots = new HashMap<>();
+            resultsSnapshots.forEach((id, snapshot) ->
+                data.resultsSnapshots.put(id, new String(snapshot.body(), java.nio.charset.StandardCharsets.UTF_8)));
+            data.homomorphicTallies = new HashMap<>();
+            homomorphicTallies.forEach((id, tally) -> data.homomorphicTallies.put(id, tally.toState()));
             
             objectMapper.writeValue(file, data);
             logger.info("Data saved to disk");
@@ -118,6 +195,8 @@ public class ElectionService {
         public Map<String, Set<String>> userVotes;
         public Map<String, Map<String, Integer>> voteResults;
         public Map<String, String> blobTransactions;
+        public Map<String, String> resultsSnapshots; // electionId -> JSON de resultados
+        public Map<String, HomomorphicTally.State> homomorphicTallies; // electionId -> agregado cifrado
     }
 
     /**
@@ -211,16 +290,118 @@ public class ElectionService {
     }
 
     /**
-     * Obtiene elecciones públicas (Activas, Cerradas, Completadas)
+     * Obtiene elecciones públicas (Activas, en cierre, Cerradas, Completadas)
      */
     public List<Election> getActiveElections() {
         return elections.values().stream()
             .filter(e -> e.status() == ElectionStatus.ACTIVE || 
+                         e.status() == ElectionStatus.CLOSING || 
                          e.status() == ElectionStatus.CLOSED || 
                          e.status() == ElectionStatus.COMPLETED)
             .toList();
     }
 
+    /**
+     * Obtiene una página de elecciones usando el índice por estado
+     * 
+     * El coste es proporcional al tamaño de página: solo se recorren las
+     * claves del índice a partir del cursor. Las elecciones que cambian de
+     * estado durante la consulta se descartan si ya no cumplen el filtro.
+     * 
+     * @param query Filtros, orden, cursor y tamaño de página
+     * @return Página con el cursor de la siguiente (null si es la última)
+     * @throws IllegalArgumentException si el cursor no es válido para la consulta
+     */
+    public ElectionPage getElectionsPage(ElectionQuery query) {
+        Set<ElectionStatus> statuses = query.statuses().isEmpty()
+            ? EnumSet.allOf(ElectionStatus.class)
+            : EnumSet.copyOf(query.statuses());
+        ElectionIndex.Key after = query.cursor() != null ? decodeCursor(query.cursor()) : null;
+
+        // Se pide un elemento extra para saber si existe una página siguiente
+        List<ElectionIndex.Key> keys;
+        try {
+            keys = electionIndex.page(statuses, query.from(), query.to(),
+                query.descending(), after, query.limit() + 1);
+        } catch (IllegalArgumentException e) {
+            // Cursor fuera del rango de fechas solicitado
+            throw new IllegalArgumentException("Cursor does not match the requested filters", e);
+        }
+
+        List<Election> items = new ArrayList<>(Math.min(keys.size(), query.limit()));
+        ElectionIndex.Key last = null;
+        for (ElectionIndex.Key key : keys) {
+            if (items.size() == query.limit()) {
+                break;
+            }
+            last = key;
+            Election election = elections.get(key.id());
+            if (election != null && statuses.contains(election.status())) {
+                items.add(election);
+            }
+        }
+
+        String nextCursor = keys.size() > query.limit() ? encodeCursor(last) : null;
+        return new ElectionPage(items, nextCursor);
+    }
+
+    /**
+     * Consulta paginada de elecciones
+     * 
+     * @param statuses Estados incluidos (vacío = todos)
+     * @param from Inicio mínimo de la votación (inclusive) o null
+     * @param to Inicio máximo de la votación (exclusive) o null
+     * @param descending true para ordenar de más reciente a más antigua
+     * @param cursor Cursor opaco devuelto en la página anterior o null
+     * @param limit Tamaño de página (mayor que 0)
+     */
+    public record ElectionQuery(
+        Set<ElectionStatus> statuses,
+        LocalDateTime from,
+        LocalDateTime to,
+        boolean descending,
+        String cursor,
+        int limit
+    ) {
+        public ElectionQuery {
+            statuses = statuses != null ? Set.copyOf(statuses) : Set.of();
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Page size must be positive");
+            }
+            if (from != null && to != null && !to.isAfter(from)) {
+                throw new IllegalArgumentException("'to' must be after 'from'");
+            }
+        }
+    }
+
+    /**
+     * Página de elecciones y cursor opaco de la siguiente
+     */
+    public record ElectionPage(List<Election> items, String nextCursor) {
+    }
+
+    private static String encodeCursor(ElectionIndex.Key key) {
+        String raw = (key.startTime() != null ? key.startTime().toString() : "") + "|" + key.id();
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(raw.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+    }
+
+    private static ElectionIndex.Key decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), java.nio.charset.StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            String startTime = raw.substring(0, separator);
+            return new ElectionIndex.Key(
+                startTime.isEmpty() ? null : LocalDateTime.parse(startTime),
+                raw.substring(separator + 1));
+        } catch (IllegalArgumentException | java.time.format.DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
     /**
      * Obtiene una elección por ID
      */
@@ -228,6 +409,99 @@ public class ElectionService {
         return Optional.ofNullable(elections.get(electionId));
     }
 
+    /**
+     * Versión actual de una elección (0 si nunca ha cambiado desde el arranque)
+     */
+    public long getElectionVersion(String electionId) {
+        AtomicLong version = electionVersions.get(electionId);
+        return version != null ? version.get() : 0L;
+    }
+
+    /**
+     * Versión global del catálogo: cambia con cualquier modificación de cualquier elección
+     */
+    public long getCatalogVersion() {
+        return catalogVersion.get();
+    }
+
+    /**
+     * Identificador del arranque actual, para distinguir versiones entre reinicios
+     */
+    public String getVersionEpoch() {
+        return versionEpoch;
+    }
+
+    /**
+     * Sustituye una elección manteniendo el índice por estado
+     * El mapa y el índice se actualizan juntos para no dejar claves huérfanas
+     */
+    private void putElection(Election election) {
+        synchronized (electionIndex) {
+            Election previous = elections.put(election.id(), election);
+            electionIndex.update(previous, election);
+        }
+    }
+
+    /**
+     * Modifica una elección de forma atómica (lectura y escritura con el mismo monitor)
+     * Evita que, por ejemplo, sumar un voto sobrescriba un cambio de estado concurrente
+     *
+     * @return Elección modificada o null si no existe
+     */
+    private Election updateElection(String electionId, java.util.function.UnaryOperator<Election> change) {
+        synchronized (electionIndex) {
+            Election previous = elections.get(electionId);
+            if (previous == null) {
+                return null;
+            }
+            Election updated = change.apply(previous);
+            elections.put(electionId, updated);
+            electionIndex.update(previous, updated);
+            return updated;
+        }
+    }
+
+    /**
+     * Admite un voto si la elección acepta votos
+     *
+     * Mientras el voto no se libere con {@link #releaseVote}, el cierre espera
+     * antes de pasar la elección a CLOSING; así ningún voto admitido se
+     * almacena después de que el recuento liste los blobs.
+     *
+     * @return true si se admite (y debe liberarse con releaseVote)
+     */
+    public boolean admitVote(String electionId) {
+        java.util.concurrent.locks.Lock gate = voteGate(electionId).readLock();
+        gate.lock();
+        Election election = elections.get(electionId);
+        if (election != null && election.isActiveForVoting()) {
+            return true;
+        }
+        gate.unlock();
+        return false;
+    }
+
+    /**
+     * Libera un voto admitido con {@link #admitVote} (desde el mismo hilo)
+     */
+    public void releaseVote(String electionId) {
+        voteGate(electionId).readLock().unlock();
+    }
+
+    private ReentrantReadWriteLock voteGate(String electionId) {
+        return voteGates.computeIfAbsent(electionId, id -> new ReentrantReadWriteLock());
+    }
+
+    /**
+     * Registra un cambio en una elección
+     * Se invoca después de modificar los datos, de modo que quien lea una
+     * versión ve al menos el estado que la originó
+     */
+    private void touch(String electionId) {
+        electionVersions.computeIfAbsent(electionId, k -> new AtomicLong()).incrementAndGet();
+        catalogVersion.incrementAndGet();
+    }
+
     /**
      * Verifica si un usuario ya votó en una elección
      */
@@ -236,6 +510,44 @@ public class ElectionService {
         return voters != null && voters.contains(userId);
     }
 
+    /**
+     * Indica si una elección usa recuento homomórfico
+     */
+    public boolean isHomomorphic(String electionId) {
+        return homomorphicTallies.containsKey(electionId);
+    }
+
+    /**
+     * Valida una papeleta homomórfica (formato y prueba de validez) antes de almacenarla
+     * 
+     * @throws IllegalArgumentException si la papeleta no es válida para la elección
+     */
+    public void validateHomomorphicBallot(String electionId, String encryptedPayload) {
+        parseHomomorphicBallot(electionId, encryptedPayload);
+    }
+
+    private BigInteger[] parseHomomorphicBallot(String electionId, String encryptedPayload) {
+        HomomorphicTally tally = homomorphicTallies.get(electionId);
+        if (tally == null) {
+            throw new IllegalArgumentException("Election " + electionId + " does not use homomorphic tallying");
+        }
+        return cryptoService.parseHomomorphicBallot(tally.publicKey(), encryptedPayload, tally.optionCount());
+    }
+
+    /**
+     * Registra un voto cifrado; en elecciones homomórficas lo suma al agregado
+     * 
+     * @param encryptedPayload Papeleta cifrada enviada por el cliente
+     */
+    public void registerVote(String electionId, String userId, String optionId, String blobId,
+                             String transactionId, String encryptedPayload) {
+        HomomorphicTally tally = homomorphicTallies.get(electionId);
+        if (tally != null) {
+            tally.add(parseHomomorphicBallot(electionId, encryptedPayload));
+        }
+        registerVote(electionId, userId, optionId, blobId, transactionId);
+    }
+
     /**
      * Registra un voto
      */
@@ -251,16 +563,26 @@ public class ElectionService {
         // Registrar mapeo blob -> transaccion
         if (blobId != null && transactionId != null) {
             blobTransactions.put(blobId, transactionId);
+            // Verificación contra blockchain en segundo plano, antes del cierre
+            if (integrityVerifier != null) {
+                integrityVerifier.submit(electionId, blobId, transactionId);
+            }
+            // Nueva hoja en el árbol de Merkle: se anclará en el siguiente ciclo
+            if (merkleAnchorer != null) {
+                merkleAnchorer.markChanged(electionId);
+            }
         }
         
         // Actualizar total de votos en la elección
-        Election election = elections.get(electionId);
-        if (election != null) {
-            Election updated = election.withTotalVotes(election.totalVotes() + 1);
-            elections.put(electionId, updated);
+        updateElection(electionId, election -> election.withTotalVotes(election.totalVotes() + 1));
+        touch(electionId);
+
+        // Notificar a los streams de participación (solo incrementa contadores)
+        if (turnoutBroadcaster != null) {
+            turnoutBroadcaster.publish(electionId, getTotalVoters(electionId));
         }
         
-        logger.info("Vote registered: electionId={}, userId={}, optionId={}, txId={}", 
+        logger.debug("Vote registered: electionId={}, userId={}, optionId={}, txId={}", 
             electionId, userId, optionId, transactionId);
         saveData();
     }
@@ -272,6 +594,56 @@ public class ElectionService {
         return voteResults.getOrDefault(electionId, new HashMap<>());
     }
 
+    /**
+     * Obtiene el snapshot inmutable de resultados de una elección cerrada
+     * 
+     * Se genera al cerrar la elección; las elecciones cerradas sin snapshot
+     * (datos anteriores o cambios de estado manuales) lo generan en la
+     * primera consulta.
+     * 
+     * @param electionId ID de la elección
+     * @return Snapshot o null si la elección no existe o no tiene resultados
+     */
+    public ResultsSnapshot getResultsSnapshot(String electionId) {
+        ResultsSnapshot snapshot = resultsSnapshots.get(electionId);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        Election election = elections.get(electionId);
+        if (election == null || !election.status().hasResults()) {
+            return null;
+        }
+        return resultsSnapshots.computeIfAbsent(electionId, id -> buildResultsSnapshot(election));
+    }
+
+    /**
+     * Resultados serializados una sola vez junto al hash de su contenido
+     * 
+     * @param body JSON de ElectionResultsResponse (no debe modificarse)
+     * @param contentHash SHA-256 en Base64 del JSON
+     */
+    public record ResultsSnapshot(byte[] body, String contentHash) {
+
+        static ResultsSnapshot of(byte[] body) {
+            try {
+                byte[] hash = java.security.MessageDigest.getInstance("SHA-256").digest(body);
+                return new ResultsSnapshot(body, Base64.getEncoder().encodeToString(hash));
+            } catch (java.security.NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+    }
+
+    private ResultsSnapshot buildResultsSnapshot(Election election) {
+        es.tfg.votacion.dto.ElectionResultsResponse results = es.tfg.votacion.dto.ElectionResultsResponse.fromResults(
+            election, getElectionResults(election.id()), java.time.Instant.now());
+        try {
+            return ResultsSnapshot.of(objectMapper.writeValueAsBytes(results));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot serialize results of election " + election.id(), e);
+        }
+    }
+
     /**
      * Obtiene el número total de votantes en una elección
      */
@@ -284,10 +656,30 @@ public class ElectionService {
      * Crea una nueva elección
      */
     public es.tfg.votacion.dto.ElectionCreationResult createElection(Election election) {
-        // Generate Keys
-        java.security.KeyPair keyPair = cryptoService.generateKeyPair();
-        String publicKeyPem = cryptoService.publicKeyToPem(keyPair.getPublic());
-        String privateKeyPem = cryptoService.privateKeyToPem(keyPair.getPrivate());
+        return createElection(election, TallyMode.DECRYPT);
+    }
+
+    /**
+     * Crea una nueva elección con el modo de recuento indicado
+     */
+    public es.tfg.votacion.dto.ElectionCreationResult createElection(Election election, TallyMode tallyMode) {
+        String publicKeyPem;
+        String privateKeyPem;
+        HomomorphicTally tally = null;
+        if (tallyMode == TallyMode.HOMOMORPHIC) {
+            // Paillier: la clave pública lleva el prefijo "phe1." que identifica el modo
+            CryptoService.PaillierKeyPair keyPair = cryptoService.generatePaillierKeyPair();
+            publicKeyPem = cryptoService.paillierPublicKeyToString(keyPair.publicKey());
+            privateKeyPem = cryptoService.paillierPrivateKeyToString(keyPair.privateKey());
+            tally = new HomomorphicTally(keyPair.publicKey(), election.options().size());
+        } else {
+            // Generate Keys (pre-generated in background when the pool is available)
+            java.security.KeyPair keyPair = electionKeyPool != null
+                ? electionKeyPool.take()
+                : cryptoService.generateKeyPair();
+            publicKeyPem = cryptoService.publicKeyToPem(keyPair.getPublic());
+            privateKeyPem = cryptoService.privateKeyToPem(keyPair.getPrivate());
+        }
 
         // Update election with public key
         Election electionWithKey = new Election(
@@ -298,8 +690,12 @@ public class ElectionService {
             election.requireAuditTrail(), publicKeyPem
         );
 
-        elections.put(electionWithKey.id(), electionWithKey);
-        logger.info("Election created: {}", electionWithKey.id());
+        if (tally != null) {
+            homomorphicTallies.put(electionWithKey.id(), tally);
+        }
+        putElection(electionWithKey);
+        touch(electionWithKey.id());
+        logger.info("Election created: {} (tally mode {})", electionWithKey.id(), tallyMode.getCode());
         
         // Create on Blockchain
         try {
@@ -320,13 +716,11 @@ public class ElectionService {
      * Actualiza el estado de una elección
      */
     public Election updateElectionStatus(String electionId, ElectionStatus newStatus) {
-        Election election = elections.get(electionId);
-        if (election == null) {
+        Election updated = updateElection(electionId, election -> election.withStatus(newStatus));
+        if (updated == null) {
             return null;
         }
-        
-        Election updated = election.withStatus(newStatus);
-        elections.put(electionId, updated);
+        touch(electionId);
         logger.info("Election status updated: {} -> {}", electionId, newStatus);
         saveData();
         return updated;
@@ -334,113 +728,464 @@ public class ElectionService {
 
     /**
      * Cierra una elección y realiza el recuento de votos
+     * 
+     * El recuento se ejecuta como trabajo en segundo plano con puntos de control
+     * (ver {@link RecountJob}); esta llamada espera a que termine. Si se corta
+     * la petición HTTP el trabajo continúa, y si se reinicia el servicio a mitad
+     * de recuento, volver a cerrar con la misma clave lo reanuda desde el último
+     * punto de control.
      */
     public Election closeElection(String electionId, String privateKeyPem) {
-        logger.info("Closing election process started: {}", electionId);
+        RecountJob job = startRecount(electionId, privateKeyPem);
+        try {
+            return job.completion().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the recount of election " + electionId, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Recount failed for election " + electionId, e.getCause());
+        }
+    }
 
-        // 1. Close on Blockchain
+    /**
+     * Cierra una elección sin esperar al recuento
+     * 
+     * @return Estado inicial del trabajo; el progreso se consulta con {@link #getRecountStatus}
+     */
+    public RecountStatus startClose(String electionId, String privateKeyPem) {
+        return toStatus(startRecount(electionId, privateKeyPem));
+    }
+
+    /**
+     * Lanza (o reanuda) el trabajo de recuento de una elección
+     * 
+     * - Con un trabajo en curso devuelve ese mismo trabajo
+     * - Con un trabajo interrumpido o fallido y la misma clave continúa desde su marca
+     * - En otro caso empieza un recuento nuevo
+     */
+    private RecountJob startRecount(String electionId, String privateKeyPem) {
+        // Modo homomórfico: la clave se valida antes de cerrar, porque descifrar
+        // con otra clave daría totales arbitrarios en lugar de fallar
+        HomomorphicTally tally = homomorphicTallies.get(electionId);
+        CryptoService.PaillierPrivateKey paillierKey = null;
+        if (tally != null) {
+            paillierKey = cryptoService.parsePaillierPrivateKey(privateKeyPem);
+            if (!paillierKey.n().equals(tally.publicKey().n())) {
+                throw new IllegalArgumentException("Private key does not match the public key of election " + electionId);
+            }
+        }
+
+        beginClosing(electionId);
+
+        String fingerprint = sha256(privateKeyPem.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        CryptoService.PaillierPrivateKey recountKey = paillierKey;
+        synchronized (recountJobs) {
+            RecountJob existing = recountJobs.get(electionId);
+            if (existing != null && existing.phase() == RecountJob.Phase.RUNNING) {
+                return existing;
+            }
+            RecountJob job;
+            if (existing != null && existing.phase() != RecountJob.Phase.COMPLETED
+                    && existing.keyFingerprint().equals(fingerprint)) {
+                logger.info("Resuming recount of election {} after blob {} ({} blobs already processed)",
+                    electionId, existing.watermark(), existing.processed());
+                existing.resume();
+                job = existing;
+            } else {
+                job = new RecountJob(electionId, fingerprint);
+                recountJobs.put(electionId, job);
+            }
+            recountExecutor.execute(() -> runRecount(job, privateKeyPem, tally, recountKey));
+            return job;
+        }
+    }
+
+    /**
+     * Pasa una elección activa a CLOSING antes de lanzar el recuento
+     * Espera a los votos ya admitidos; los siguientes se rechazan. Si el
+     * recuento falla o se interrumpe, la elección sigue sin aceptar votos
+     * hasta que se vuelva a cerrar.
+     */
+    private void beginClosing(String electionId) {
+        java.util.concurrent.locks.Lock gate = voteGate(electionId).writeLock();
+        gate.lock();
         try {
-            if (fabricService != null) {
-                fabricService.closeElection(electionId);
-                logger.info("Election closed on blockchain: {}", electionId);
+            Election election = elections.get(electionId);
+            if (election != null && election.status() == ElectionStatus.ACTIVE) {
+                updateElectionStatus(electionId, ElectionStatus.CLOSING);
             }
-        } catch (Exception e) {
-            logger.error("Failed to close election on blockchain: {}", e.getMessage());
-            // Continue to close locally
+        } finally {
+            gate.unlock();
+        }
+    }
+
+    /**
+     * Cuerpo del trabajo de recuento (hilo election-recount)
+     */
+    private void runRecount(RecountJob job, String privateKeyPem, HomomorphicTally tally,
+                            CryptoService.PaillierPrivateKey paillierKey) {
+        String electionId = job.electionId();
+        try {
+            job.complete(recount(job, privateKeyPem, tally, paillierKey));
+            saveCheckpoint(job);
+        } catch (RuntimeException | Error e) {
+            logger.error("Recount of election {} failed after {} blobs: {}", electionId, job.processed(), e.getMessage());
+            job.fail(e);
+            saveCheckpoint(job);
+        } finally {
+            job.publish();
         }
+    }
 
-        // 2. Perform Recount (Decryption)
+    private Election recount(RecountJob job, String privateKeyPem, HomomorphicTally tally,
+                             CryptoService.PaillierPrivateKey paillierKey) {
+        String electionId = job.electionId();
+        logger.info("Closing election process started: {}", electionId);
+
+        // 1. Anchor the final Merkle root and close on Blockchain (only once per job)
+        if (!job.ledgerClosed()) {
+            if (merkleAnchorer != null) {
+                merkleAnchorer.anchor(electionId);
+            }
+            try {
+                if (fabricService != null) {
+                    fabricService.closeElection(electionId);
+                    logger.info("Election closed on blockchain: {}", electionId);
+                }
+            } catch (Exception e) {
+                logger.error("Failed to close election on blockchain: {}", e.getMessage());
+                // Continue to close locally
+            }
+            job.markLedgerClosed();
+            saveCheckpoint(job);
+        }
+
+        // 2. Perform Recount (Decryption) from the last checkpoint
         if (storageService != null) {
             logger.info("Starting vote recount (decryption) for election: {}", electionId);
-            Map<String, Integer> recountedResults = new HashMap<>();
-            List<String> blobs = storageService.listElectionBlobs(electionId);
+            List<String> blobs = new ArrayList<>(storageService.listElectionBlobs(electionId));
+            Collections.sort(blobs);
+            job.setTotal(blobs.size());
             
-            int decryptedCount = 0;
+            String watermark = job.watermark();
+            int checkpointEvery = checkpointInterval();
+            java.security.PrivateKey privateKey = null;
+            BigInteger[] verifiedAggregate = tally != null ? job.aggregate(tally.optionCount()) : null;
+            Map<String, Integer> recountedResults = job.counts();
             for (String blobId : blobs) {
+                if (watermark != null && blobId.compareTo(watermark) <= 0) {
+                    continue; // Already counted before the checkpoint
+                }
                 try {
-                    byte[] decrypted = storageService.loadDecrypted(blobId);
+                    byte[] decrypted = storageService.loadDecrypted(electionId, blobId);
+                    if (!verifyVoteCommitment(electionId, blobId, decrypted)) {
+                        job.recordIntegrityFailure();
+                        continue; // Skip this vote!
+                    }
+
+                    BallotEnvelope envelope = readBallot(decrypted);
                     
-                    // --- VERIFICATION START ---
-                    try {
-                        java.security.MessageDigest digest = java.security.MessageDigest.getInstance("SHA-256");
-                        byte[] hash = digest.digest(decrypted);
-                        String calculatedCommitment = java.util.Base64.getEncoder().encodeToString(hash);
-                        
-                        String transactionId = blobTransactions.get(blobId);
-                        if (transactionId != null) {
-                            String blockchainCommitment = fabricService.getVoteCommitment(transactionId);
-                            if (blockchainCommitment != null) {
-                                if (!calculatedCommitment.equals(blockchainCommitment)) {
-                                    logger.error("INTEGRITY FAILURE: Blob {} commitment {} does not match blockchain commitment {}", 
-                                        blobId, calculatedCommitment, blockchainCommitment);
-                                    continue; // Skip this vote!
-                                } else {
-                                    logger.debug("Integrity check passed for blob {}", blobId);
-                                }
-                            } else {
-                                 if (fabricService.isConnected()) {
-                                     logger.error("Transaction {} not found in blockchain. Skipping vote.", transactionId);
-                                     continue;
-                                 } else {
-                                     logger.warn("Could not verify vote against blockchain (not connected). Proceeding with local data.");
-                                 }
-                            }
-                        } else {
-                            logger.warn("No transaction ID found for blob {}. Skipping verification.", blobId);
+                    if (tally != null) {
+                        // Homomorphic: only multiply ciphertexts, decryption happens once per option
+                        if (!envelope.isEncrypted()) {
+                            logger.error("Vote {} is not a homomorphic ballot. Skipping vote.", blobId);
+                            job.recordDecryptionFailure();
+                            continue;
                         }
-                    } catch (Exception e) {
-                        logger.error("Error during vote verification: {}", e.getMessage());
+                        BigInteger[] ballot;
+                        try {
+                            // Se vuelve a verificar la prueba de validez: el blob no pasa por el controlador
+                            ballot = cryptoService.parseHomomorphicBallot(
+                                tally.publicKey(), envelope.vote(), tally.optionCount());
+                        } catch (IllegalArgumentException e) {
+                            logger.error("INTEGRITY FAILURE: Vote {} is not a valid homomorphic ballot: {}. Skipping vote.",
+                                blobId, e.getMessage());
+                            job.recordIntegrityFailure();
+                            continue;
+                        }
+                        for (int i = 0; i < ballot.length; i++) {
+                            verifiedAggregate[i] = cryptoService.paillierAdd(tally.publicKey(), verifiedAggregate[i], ballot[i]);
+                        }
+                        job.addVerifiedBallot();
+                        continue;
                     }
-                    // --- VERIFICATION END ---
 
-                    com.fasterxml.jackson.databind.JsonNode voteNode = objectMapper.readTree(decrypted);
-                    
-                    String optionId = null;
-                    if (voteNode.has("encryptedVote")) {
-                        // RSA Decrypt using the provided private key
-                        String encryptedVoteBase64 = voteNode.get("encryptedVote").asText();
+                    String optionId;
+                    if (envelope.isEncrypted()) {
+                        // Decrypt using the provided private key (legacy RSA or hybrid RSA-OAEP + AES-GCM)
+                        String encryptedVote = envelope.vote();
                         try {
-                            optionId = cryptoService.decrypt(encryptedVoteBase64, privateKeyPem);
+                            if (privateKey == null) {
+                                // Parsed once for the whole recount instead of once per ballot
+                                privateKey = cryptoService.pemToPrivateKey(privateKeyPem);
+                            }
+                            optionId = cryptoService.decryptBallot(encryptedVote, privateKey, electionId);
                         } catch (Exception e) {
-                            logger.error("Failed to RSA decrypt vote {}: {}", blobId, e.getMessage());
+                            logger.error("Failed to decrypt vote {}: {}", blobId, e.getMessage());
+                            job.recordDecryptionFailure();
                             continue; // Skip this vote if decryption fails
                         }
-                    } else if (voteNode.has("optionId")) {
+                    } else {
                         // Legacy/Dev fallback
-                        optionId = voteNode.get("optionId").asText();
+                        optionId = envelope.vote();
                     }
                     
                     if (optionId != null) {
                         recountedResults.merge(optionId, 1, Integer::sum);
-                        decryptedCount++;
                     }
                 } catch (Exception e) {
                     logger.error("Failed to process vote blob {}: {}", blobId, e.getMessage());
+                    job.recordDecryptionFailure();
+                } finally {
+                    job.advance(blobId);
+                    if (job.processed() % checkpointEvery == 0) {
+                        saveCheckpoint(job);
+                    }
                 }
             }
+            saveCheckpoint(job);
             
-            logger.info("Recount finished. Decrypted {} votes.", decryptedCount);
+            if (tally != null) {
+                recountedResults = decryptHomomorphicTally(electionId, tally, paillierKey,
+                    verifiedAggregate, job.verifiedBallots());
+            }
+
+            logger.info("Recount finished. Decrypted {} votes.", job.counted());
             
-            // Log discrepancy if any
-            Map<String, Integer> currentResults = voteResults.getOrDefault(electionId, new HashMap<>());
-            if (!currentResults.equals(recountedResults)) {
-                logger.warn("DISCREPANCY DETECTED! Incremental count: {}, Decrypted count: {}", currentResults, recountedResults);
-            } else {
-                logger.info("Integrity check passed: Incremental count matches decrypted count.");
+            // Log discrepancy if any (homomorphic elections compare aggregates in decryptHomomorphicTally)
+            if (tally == null) {
+                Map<String, Integer> currentResults = voteResults.getOrDefault(electionId, new HashMap<>());
+                if (!currentResults.equals(recountedResults)) {
+                    logger.warn("DISCREPANCY DETECTED! Incremental count: {}, Decrypted count: {}", currentResults, recountedResults);
+                } else {
+                    logger.info("Integrity check passed: Incremental count matches decrypted count.");
+                }
             }
 
             // 3. Update Results with Recounted values (Source of Truth)
-            voteResults.put(electionId, recountedResults);
+            voteResults.put(electionId, new HashMap<>(recountedResults));
+            if (integrityVerifier != null) {
+                integrityVerifier.release(electionId);
+            }
             
             // Update total votes based on recount
             int totalRecountedVotes = recountedResults.values().stream().mapToInt(Integer::intValue).sum();
-            Election election = elections.get(electionId);
-            if (election != null) {
-                Election updated = election.withTotalVotes(totalRecountedVotes);
-                elections.put(electionId, updated);
-            }
+            updateElection(electionId, election -> election.withTotalVotes(totalRecountedVotes));
+            touch(electionId);
+        }
+
+        // 4. Snapshot inmutable de resultados, guardado antes de publicar el cierre
+        //    para que ninguna consulta llegue a generar otro distinto
+        Election current = elections.get(electionId);
+        if (current != null) {
+            ResultsSnapshot snapshot = buildResultsSnapshot(current.withStatus(ElectionStatus.CLOSED));
+            resultsSnapshots.put(electionId, snapshot);
+            logger.info("Results snapshot stored for election {} ({} bytes)", electionId, snapshot.body().length);
         }
 
         return updateElectionStatus(electionId, ElectionStatus.CLOSED);
     }
+
+    /**
+     * Estado del último recuento de una elección
+     * 
+     * @return Estado o null si la elección no se ha empezado a cerrar
+     */
+    public RecountStatus getRecountStatus(String electionId) {
+        RecountJob job = recountJobs.get(electionId);
+        return job != null ? toStatus(job) : null;
+    }
+
+    private static RecountStatus toStatus(RecountJob job) {
+        return new RecountStatus(job.jobId(), job.electionId(), job.phase().getCode(), job.processed(), job.total(),
+            job.integrityFailures(), job.decryptionFailures(), job.throughput(),
+            job.watermark(), job.startedAt(), job.updatedAt(), job.error());
+    }
+
+    /**
+     * Progreso de un trabajo de recuento para el endpoint de seguimiento
+     * 
+     * @param status             running, completed, failed o interrupted (pendiente de reanudar con la clave)
+     * @param processed          Blobs procesados (contados o descartados)
+     * @param total              Blobs de la elección en la última pasada
+     * @param integrityFailures  Blobs descartados por no coincidir con blockchain
+     * @param decryptionFailures Blobs que no se han podido descifrar
+     * @param blobsPerSecond     Ritmo de la ejecución actual
+     * @param watermark          Último blob procesado, punto de reanudación
+     */
+    public record RecountStatus(String jobId, String electionId, String status, long processed, long total,
+                                long integrityFailures, long decryptionFailures, double blobsPerSecond,
+                                String watermark, java.time.Instant startedAt, java.time.Instant updatedAt,
+                                String error) {
+    }
+
+    private int checkpointInterval() {
+        return electionProperties != null
+            ? Math.max(1, electionProperties.getRecount().getCheckpointEvery())
+            : 500;
+    }
+
+    /**
+     * Escribe el punto de control del trabajo (reemplazo atómico del fichero)
+     */
+    private void saveCheckpoint(RecountJob job) {
+        job.touch();
+        try {
+            Files.createDirectories(recountDir);
+            Path target = recountDir.resolve(checkpointFileName(job.electionId()));
+            Path temp = recountDir.resolve(target.getFileName() + ".tmp");
+            objectMapper.writeValue(temp.toFile(), job.toState());
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // El recuento sigue; como mucho se repite el tramo desde el punto anterior
+            logger.error("Could not save recount checkpoint of election {}: {}", job.electionId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Carga los puntos de control; los trabajos en curso al detenerse quedan interrumpidos
+     */
+    void recoverRecountJobs() {
+        if (!Files.isDirectory(recountDir)) {
+            return;
+        }
+        try (java.util.stream.Stream<Path> files = Files.list(recountDir)) {
+            files.filter(file -> file.getFileName().toString().endsWith(".json")).forEach(file -> {
+                try {
+                    RecountJob job = RecountJob.fromState(objectMapper.readValue(file.toFile(), RecountJob.State.class));
+                    recountJobs.put(job.electionId(), job);
+                    if (job.phase() == RecountJob.Phase.INTERRUPTED) {
+                        logger.warn("Recount of election {} was interrupted after {} of {} blobs; close it again to resume",
+                            job.electionId(), job.processed(), job.total());
+                    }
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Ignoring unreadable recount checkpoint {}: {}", file.getFileName(), e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            logger.error("Error loading recount checkpoints", e);
+        }
+    }
+
+    private static String checkpointFileName(String electionId) {
+        return electionId.replaceAll("[^a-zA-Z0-9_-]", "_") + ".json";
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return java.util.Base64.getEncoder().encodeToString(
+                java.security.MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Detiene el hilo de recuento; el punto de control permite reanudar
+     */
+    @PreDestroy
+    public void shutdown() {
+        recountExecutor.shutdownNow();
+    }
+
+    /**
+     * Lee la papeleta de un blob: sobre binario o, en votos antiguos, JSON
+     */
+    private BallotEnvelope readBallot(byte[] content) throws java.io.IOException {
+        if (BallotEnvelope.isEnvelope(content)) {
+            return BallotEnvelope.decode(content);
+        }
+        return BallotEnvelope.fromLegacyJson(objectMapper.readTree(content));
+    }
+
+    /**
+     * Comprueba el commitment de un voto almacenado contra el registrado en blockchain
+     * Los blobs ya verificados en segundo plano y sin cambios no consultan el ledger
+     * 
+     * @return false si el voto debe descartarse del recuento
+     */
+    private boolean verifyVoteCommitment(String electionId, String blobId, byte[] content) {
+        try {
+            java.security.MessageDigest digest = java.security.MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(content);
+            String calculatedCommitment = java.util.Base64.getEncoder().encodeToString(hash);
+
+            if (integrityVerifier != null && integrityVerifier.isVerified(electionId, blobId, calculatedCommitment)) {
+                logger.debug("Blob {} already verified in background", blobId);
+                return true;
+            }
+            
+            String transactionId = blobTransactions.get(blobId);
+            if (transactionId != null) {
+                String blockchainCommitment = fabricService.getVoteCommitment(transactionId);
+                if (blockchainCommitment != null) {
+                    if (!calculatedCommitment.equals(blockchainCommitment)) {
+                        logger.error("INTEGRITY FAILURE: Blob {} commitment {} does not match blockchain commitment {}", 
+                            blobId, calculatedCommitment, blockchainCommitment);
+                        return false;
+                    } else {
+                        logger.debug("Integrity check passed for blob {}", blobId);
+                    }
+                } else {
+                     if (fabricService.isConnected()) {
+                         logger.error("Transaction {} not found in blockchain. Skipping vote.", transactionId);
+                         return false;
+                     } else {
+                         logger.warn("Could not verify vote against blockchain (not connected). Proceeding with local data.");
+                     }
+                }
+            } else {
+                logger.warn("No transaction ID found for blob {}. Skipping verification.", blobId);
+            }
+        } catch (Exception e) {
+            logger.error("Error during vote verification: {}", e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Descifra el agregado homomórfico verificado: una operación por opción
+     * 
+     * El agregado incremental solo se usa como control: la fuente de verdad son
+     * las papeletas que superan la verificación contra blockchain.
+     *
+     * @throws IllegalStateException si los totales no suman el número de papeletas
+     */
+    private Map<String, Integer> decryptHomomorphicTally(String electionId, HomomorphicTally tally,
+                                                         CryptoService.PaillierPrivateKey privateKey,
+                                                         BigInteger[] verifiedAggregate, long verifiedBallots) {
+        if (tally.ballots() != verifiedBallots || !Arrays.equals(tally.aggregate(), verifiedAggregate)) {
+            logger.warn("DISCREPANCY DETECTED! Incremental aggregate covers {} ballots, verified ballots: {}",
+                tally.ballots(), verifiedBallots);
+        } else {
+            logger.info("Integrity check passed: Incremental aggregate matches verified ballots.");
+        }
+
+        List<ElectionOption> options = elections.get(electionId).options();
+        BigInteger ballots = BigInteger.valueOf(verifiedBallots);
+        BigInteger sum = BigInteger.ZERO;
+        boolean outOfRange = false;
+        Map<String, Integer> results = new HashMap<>();
+        for (int i = 0; i < options.size(); i++) {
+            BigInteger count = cryptoService.paillierDecrypt(privateKey, verifiedAggregate[i]);
+            sum = sum.add(count);
+            // Un valor negativo cifrado se descifra como n - k: también queda por encima
+            outOfRange |= count.compareTo(ballots) > 0;
+            if (count.signum() > 0 && !outOfRange) {
+                results.put(options.get(i).optionId(), count.intValue());
+            }
+        }
+        if (outOfRange || !sum.equals(ballots)) {
+            // Las pruebas de validez ya excluyen las papeletas manipuladas; esto solo
+            // puede fallar con un agregado corrupto: el recuento falla y no se publica nada
+            logger.error("INTEGRITY FAILURE: Homomorphic tally of election {} sums {} votes for {} ballots",
+                electionId, sum, verifiedBallots);
+            throw new IllegalStateException("Homomorphic tally of election " + electionId
+                + " does not match its ballot count (" + verifiedBallots + " ballots); results withheld");
+        }
+        return results;
+    }
 }
@@ -198,7 +198,7 @@ public class FabricService {
      * @throws RuntimeException si la operación falla
      */
     public String emitVote(String commitment, String electionId, String userId) {
-        logger.info("Emitting vote commitment to blockchain - Election: {}, Commitment: {}, User: {}", electionId, commitment, userId);
+        logger.debug("Emitting vote commitment to blockchain - Election: {}, Commitment: {}, User: {}", electionId, commitment, userId);
         
         if (!isConnected()) {
             logger.warn("No blockchain connection available, returning mock transaction ID");
@@ -212,7 +212,7 @@ public class FabricService {
                 // Our chaincode returns txId as string
                 String transactionId = new String(result, StandardCharsets.UTF_8);
                 
-                logger.info("Vote emitted successfully. TX-ID: {}", transactionId);
+                logger.debug("Vote emitted successfully. TX-ID: {}", transactionId);
                 return transactionId;
                 
             } catch (Exception e) {
@@ -414,6 +414,75 @@ public class FabricService {
         }, "verifyVoteTransaction");
     }
 
+    /**
+     * Raíz de Merkle del almacenamiento off-chain anclada en blockchain
+     * 
+     * @param root      Raíz en Base64
+     * @param leafCount Commitments cubiertos por la raíz
+     */
+    public record MerkleAnchor(String electionId, String root, long leafCount, String txId, long timestamp) {
+    }
+
+    /**
+     * Ancla la raíz de Merkle de los votos almacenados de una elección
+     * 
+     * @param electionId ID de la elección
+     * @param root       Raíz en Base64
+     * @param leafCount  Commitments cubiertos por la raíz
+     * @return Anclaje registrado (transacción simulada sin conexión)
+     */
+    public MerkleAnchor anchorMerkleRoot(String electionId, String root, long leafCount) {
+        logger.info("Anchoring Merkle root for election {}: {} leaves", electionId, leafCount);
+
+        if (!isConnected()) {
+            logger.warn("No blockchain connection available, returning mock anchor");
+            return new MerkleAnchor(electionId, root, leafCount,
+                "MOCK-TX-ANCHOR-" + electionId + "-" + System.currentTimeMillis(), System.currentTimeMillis());
+        }
+
+        return executeWithRetry(() -> {
+            try {
+                byte[] result = contract.submitTransaction("anchorMerkleRoot", electionId, root, Long.toString(leafCount));
+                return parseMerkleAnchor(result);
+            } catch (Exception e) {
+                logger.error("Failed to anchor Merkle root: {}", e.getMessage());
+                throw new RuntimeException("Failed to anchor Merkle root", e);
+            }
+        }, "anchorMerkleRoot");
+    }
+
+    /**
+     * Obtiene la última raíz de Merkle anclada de una elección
+     * 
+     * @param electionId ID de la elección
+     * @return Anclaje o null si no hay ninguno (o no hay conexión)
+     */
+    public MerkleAnchor getMerkleAnchor(String electionId) {
+        if (!isConnected()) {
+            logger.warn("No blockchain connection available, returning null");
+            return null;
+        }
+
+        return executeWithRetry(() -> {
+            try {
+                return parseMerkleAnchor(contract.evaluateTransaction("getMerkleAnchor", electionId));
+            } catch (Exception e) {
+                logger.error("Failed to get Merkle anchor: {}", e.getMessage());
+                return null;
+            }
+        }, "getMerkleAnchor");
+    }
+
+    private MerkleAnchor parseMerkleAnchor(byte[] result) throws IOException {
+        com.fasterxml.jackson.databind.JsonNode node = new com.fasterxml.jackson.databind.ObjectMapper().readTree(result);
+        return new MerkleAnchor(
+            node.path("electionId").asText(),
+            node.path("root").asText(),
+            node.path("leafCount").asLong(),
+            node.path("txId").asText(),
+            node.path("timestamp").asLong());
+    }
+
     /**
      * Verifica si hay conexión activa con la blockchain
      * 
@@ -0,0 +1,125 @@
+package es.tfg.votacion.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Generador de nonces (IV) para AES-GCM sin contención entre hilos
+ *
+ * Construcción determinista de NIST SP 800-38D (sección 8.2.1):
+ * [prefijo aleatorio][contador de 64 bits, big-endian]
+ * - El contador es único mientras exista keyring.json: cada nonce es un
+ *   getAndIncrement sobre un AtomicLong y los valores se reservan por
+ *   tramos, guardando el límite de forma duradera antes de usar ninguno.
+ *   Tras un reinicio se continúa desde el último límite guardado, así que
+ *   un valor nunca se repite con las mismas claves de datos (como mucho se
+ *   pierde el resto del tramo en curso)
+ * - El prefijo (ivLength - 8 bytes) se obtiene de SecureRandom una vez por
+ *   arranque; no es necesario para la unicidad y solo añade una defensa si
+ *   se perdiera el límite guardado
+ *
+ * Sustituye a SecureRandom en el camino del voto: su nextBytes está
+ * sincronizado y con muchos votantes simultáneos era un punto de espera.
+ * Solo se bloquea al agotar un tramo (una escritura cada
+ * storage.encryption.nonce-reservation nonces).
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ * @since Java 21
+ */
+final class GcmNonceGenerator {
+
+    /**
+     * Almacén duradero del límite de contadores reservados
+     */
+    @FunctionalInterface
+    interface Reservations {
+
+        /**
+         * Guarda {@code limit} de forma duradera antes de volver
+         * Ningún contador por debajo de limit se usa hasta que la llamada termina
+         */
+        void reserve(long limit) throws IOException;
+    }
+
+    private static final int COUNTER_BYTES = 8;
+    private static final int MIN_PREFIX_BYTES = 4;
+
+    private final byte[] prefix;
+    private final AtomicLong counter;
+    private final long reservationSize;
+    private final Reservations reservations;
+    // ReentrantLock y no synchronized: no fija el hilo portador de un hilo virtual durante la escritura
+    private final ReentrantLock reserveLock = new ReentrantLock();
+    private volatile long reserved;
+
+    /**
+     * @param highWaterMark   Último límite guardado (0 si no hay ninguno)
+     * @param reservationSize Contadores reservados por escritura
+     * @throws UncheckedIOException si no se puede guardar la primera reserva
+     */
+    GcmNonceGenerator(int ivLength, SecureRandom seed, long highWaterMark, long reservationSize,
+                      Reservations reservations) {
+        if (ivLength < COUNTER_BYTES + MIN_PREFIX_BYTES) {
+            throw new IllegalArgumentException("GCM IV must be at least 12 bytes, got " + ivLength);
+        }
+        if (highWaterMark < 0 || reservationSize < 1) {
+            throw new IllegalArgumentException("Invalid nonce reservation: mark " + highWaterMark
+                + ", size " + reservationSize);
+        }
+        this.prefix = new byte[ivLength - COUNTER_BYTES];
+        seed.nextBytes(prefix);
+        this.counter = new AtomicLong(highWaterMark);
+        this.reserved = highWaterMark;
+        this.reservationSize = reservationSize;
+        this.reservations = reservations;
+        // Primera reserva al arrancar: un keyring no escribible falla aquí y no en el primer voto
+        reserveThrough(highWaterMark);
+    }
+
+    int length() {
+        return prefix.length + COUNTER_BYTES;
+    }
+
+    /**
+     * Escribe el siguiente nonce en {@code dst} a partir de {@code offset}
+     *
+     * @throws UncheckedIOException si no se puede guardar una reserva nueva
+     */
+    void next(byte[] dst, int offset) {
+        long value = counter.getAndIncrement();
+        if (value < 0) {
+            // 2^63 nonces: inalcanzable en la práctica, pero nunca se reutiliza uno
+            throw new IllegalStateException("GCM nonce space exhausted, rotate the key");
+        }
+        if (value >= reserved) {
+            reserveThrough(value);
+        }
+        System.arraycopy(prefix, 0, dst, offset, prefix.length);
+        int position = offset + prefix.length;
+        for (int i = COUNTER_BYTES - 1; i >= 0; i--) {
+            dst[position + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private void reserveThrough(long value) {
+        reserveLock.lock();
+        try {
+            while (value >= reserved) {
+                long limit = reserved + Math.min(reservationSize, Long.MAX_VALUE - reserved);
+                try {
+                    reservations.reserve(limit);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot reserve GCM nonces", e);
+                }
+                reserved = limit;
+            }
+        } finally {
+            reserveLock.unlock();
+        }
+    }
+}
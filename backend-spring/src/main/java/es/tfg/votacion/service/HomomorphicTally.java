@@ -0,0 +1,93 @@
+package es.tfg.votacion.service;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Agregado cifrado de una elección homomórfica
+ *
+ * Mantiene un cifrado Paillier por opción con la suma de las papeletas
+ * registradas: cada voto cuesta una multiplicación modular por opción y el
+ * recuento descifra únicamente estos totales.
+ *
+ * El agregado vacío es 1 (cifrado trivial de 0). Las actualizaciones se
+ * serializan con el monitor del objeto.
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ * @since Java 21
+ */
+final class HomomorphicTally {
+
+    private final CryptoService.PaillierPublicKey publicKey;
+    private final BigInteger nSquared;
+    private final BigInteger[] aggregate;
+    private long ballots;
+
+    HomomorphicTally(CryptoService.PaillierPublicKey publicKey, int optionCount) {
+        this.publicKey = publicKey;
+        this.nSquared = publicKey.nSquared();
+        this.aggregate = new BigInteger[optionCount];
+        Arrays.fill(aggregate, BigInteger.ONE);
+    }
+
+    CryptoService.PaillierPublicKey publicKey() {
+        return publicKey;
+    }
+
+    int optionCount() {
+        return aggregate.length;
+    }
+
+    /**
+     * Suma una papeleta ya validada
+     *
+     * @param ballot Un cifrado por opción
+     */
+    synchronized void add(BigInteger[] ballot) {
+        if (ballot.length != aggregate.length) {
+            throw new IllegalArgumentException("Ballot size does not match the number of options");
+        }
+        for (int i = 0; i < aggregate.length; i++) {
+            aggregate[i] = aggregate[i].multiply(ballot[i]).mod(nSquared);
+        }
+        ballots++;
+    }
+
+    synchronized BigInteger[] aggregate() {
+        return aggregate.clone();
+    }
+
+    synchronized long ballots() {
+        return ballots;
+    }
+
+    /**
+     * Forma persistida: cifrados en Base64url y número de papeletas
+     */
+    static class State {
+        public List<String> aggregate;
+        public long ballots;
+    }
+
+    synchronized State toState() {
+        State state = new State();
+        state.aggregate = new ArrayList<>(aggregate.length);
+        for (BigInteger value : aggregate) {
+            state.aggregate.add(CryptoService.encodeBigInteger(value));
+        }
+        state.ballots = ballots;
+        return state;
+    }
+
+    static HomomorphicTally fromState(CryptoService.PaillierPublicKey publicKey, State state) {
+        HomomorphicTally tally = new HomomorphicTally(publicKey, state.aggregate.size());
+        for (int i = 0; i < tally.aggregate.length; i++) {
+            tally.aggregate[i] = CryptoService.decodeBigInteger(state.aggregate.get(i));
+        }
+        tally.ballots = state.ballots;
+        return tally;
+    }
+}
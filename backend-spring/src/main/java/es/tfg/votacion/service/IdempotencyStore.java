@@ -0,0 +1,156 @@
+package es.tfg.votacion.service;
+
+import es.tfg.votacion.config.ElectionProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
+
+/**
+ * Almacén acotado de claves de idempotencia para la emisión de votos
+ *
+ * Cada clave pasa por dos estados:
+ * - En curso: la primera petición la reclama con {@link #begin}
+ * - Completada: se guarda la respuesta para reproducirla en los reintentos
+ *
+ * Solo se recuerdan respuestas 2xx; ante un error la clave se libera para
+ * que el cliente pueda reintentar. El tamaño está acotado por
+ * elections.idempotency.max-entries (se expulsan las claves más antiguas)
+ * y las entradas caducan tras elections.idempotency.ttl-seconds.
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ * @since Java 21
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    /**
+     * Resultado de reclamar una clave
+     */
+    public enum Status {
+        // La clave es nueva: el llamante debe procesar la petición
+        NEW,
+        // Otra petición con la misma clave se está procesando
+        IN_FLIGHT,
+        // Ya existe respuesta: debe reproducirse
+        COMPLETED,
+        // La clave se usó con una petición distinta
+        MISMATCH
+    }
+
+    /**
+     * Resultado de {@link #begin}: estado y, si está completada, la respuesta guardada
+     */
+    public record Claim(Status status, int httpStatus, Object body) {
+
+        static Claim of(Status status) {
+            return new Claim(status, 0, null);
+        }
+    }
+
+    private record Entry(Object request, boolean inFlight, int httpStatus, Object body, long createdAt) {
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    @Autowired
+    public IdempotencyStore(ElectionProperties electionProperties) {
+        this(electionProperties, System::currentTimeMillis);
+    }
+
+    IdempotencyStore(ElectionProperties electionProperties, LongSupplier clock) {
+        this.maxEntries = Math.max(1, electionProperties.getIdempotency().getMaxEntries());
+        this.ttlMillis = electionProperties.getIdempotency().getTtlSeconds() * 1000L;
+        this.clock = clock;
+    }
+
+    /**
+     * Reclama una clave para procesar la petición
+     *
+     * @param key     Clave (debe incluir el usuario para no compartir respuestas)
+     * @param request Petición asociada, para detectar reutilizaciones con otro contenido
+     * @return NEW si el llamante debe procesar la petición y llamar a {@link #complete}
+     */
+    public Claim begin(String key, Object request) {
+        long now = clock.getAsLong();
+        Entry claim = new Entry(request, true, 0, null, now);
+
+        while (true) {
+            Entry existing = entries.putIfAbsent(key, claim);
+            if (existing == null) {
+                insertionOrder.add(key);
+                evictOldest();
+                return Claim.of(Status.NEW);
+            }
+            if (now - existing.createdAt() >= ttlMillis) {
+                // Entrada caducada: se reemplaza atómicamente por la nueva reclamación
+                if (entries.replace(key, existing, claim)) {
+                    return Claim.of(Status.NEW);
+                }
+                continue;
+            }
+            if (!Objects.equals(existing.request(), request)) {
+                return Claim.of(Status.MISMATCH);
+            }
+            if (existing.inFlight()) {
+                return Claim.of(Status.IN_FLIGHT);
+            }
+            return new Claim(Status.COMPLETED, existing.httpStatus(), existing.body());
+        }
+    }
+
+    /**
+     * Registra la respuesta de una clave reclamada con {@link #begin}
+     * Las respuestas no 2xx liberan la clave para permitir reintentos
+     *
+     * @param key        Clave reclamada
+     * @param httpStatus Código HTTP de la respuesta
+     * @param body       Cuerpo de la respuesta
+     */
+    public void complete(String key, int httpStatus, Object body) {
+        Entry current = entries.get(key);
+        if (current == null || !current.inFlight()) {
+            return;
+        }
+
+        if (httpStatus >= 200 && httpStatus < 300) {
+            entries.replace(key, current,
+                new Entry(current.request(), false, httpStatus, body, current.createdAt()));
+        } else if (entries.remove(key, current)) {
+            insertionOrder.remove(key);
+        }
+    }
+
+    /**
+     * Número de claves recordadas
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private void evictOldest() {
+        while (entries.size() > maxEntries) {
+            String oldest = insertionOrder.poll();
+            if (oldest == null) {
+                return;
+            }
+            if (entries.remove(oldest) != null) {
+                logger.debug("Idempotency key evicted: store at capacity ({})", maxEntries);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package es.tfg.votacion.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Muestreo de líneas de log en endpoints de alto volumen
+ *
+ * Deja pasar el primer evento y después uno de cada {@code every}. Los
+ * listados de elecciones se consultan en cada recarga del dashboard y
+ * escribir una línea por petición (más una por elección) era el grueso del
+ * log en los picos de votación. Solo cuesta un incremento atómico.
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ * @since Java 21
+ */
+public final class LogSampler {
+
+    private final int every;
+    private final AtomicLong events = new AtomicLong();
+
+    /**
+     * @param every Uno de cada cuántos eventos se registra (1 o menos = todos)
+     */
+    public LogSampler(int every) {
+        this.every = Math.max(1, every);
+    }
+
+    /**
+     * true si este evento debe registrarse
+     */
+    public boolean sample() {
+        return every == 1 || events.getAndIncrement() % every == 0;
+    }
+
+    public int every() {
+        return every;
+    }
+}
@@ -0,0 +1,143 @@
+package es.tfg.votacion.service;
+
+import es.tfg.votacion.config.ElectionProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Anclaje periódico en blockchain de la raíz de Merkle de cada elección
+ *
+ * StorageService mantiene el árbol de los commitments almacenados; aquí se
+ * registra su raíz con la transacción anchorMerkleRoot de VotingContract:
+ * - Cada elections.merkle.anchor-seconds, solo las elecciones con votos nuevos
+ * - Al cerrar la elección, siempre (raíz final)
+ *
+ * Con la raíz anclada, la integridad de todo el almacenamiento se comprueba
+ * con una sola comparación ({@link #verifyStore}) y cada recibo con una
+ * prueba de inclusión de O(log n) hashes.
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ * @since Java 21
+ */
+@Component
+public class MerkleAnchorer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MerkleAnchorer.class);
+
+    private final StorageService storageService;
+    private final FabricService fabricService;
+    private final ElectionProperties.Merkle properties;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    // Último anclaje realizado por este proceso (también vale sin conexión con blockchain)
+    private final Map<String, FabricService.MerkleAnchor> anchors = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    public MerkleAnchorer(StorageService storageService, FabricService fabricService,
+                          ElectionProperties electionProperties) {
+        this.storageService = storageService;
+        this.fabricService = fabricService;
+        this.properties = electionProperties.getMerkle();
+    }
+
+    @PostConstruct
+    public void start() {
+        long interval = Math.max(1, properties.getAnchorSeconds());
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "merkle-anchor");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::anchorPending, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Marca una elección con votos nuevos (llamado en el camino del voto)
+     */
+    public void markChanged(String electionId) {
+        pending.add(electionId);
+    }
+
+    /**
+     * Ancla la raíz actual de una elección si cubre votos nuevos
+     *
+     * @return Último anclaje (null si no hay votos o falla el anclaje)
+     */
+    public synchronized FabricService.MerkleAnchor anchor(String electionId) {
+        StorageService.MerkleRoot root = storageService.getMerkleRoot(electionId);
+        FabricService.MerkleAnchor last = anchors.get(electionId);
+        if (root.leafCount() == 0 || (last != null && last.leafCount() == root.leafCount())) {
+            return last;
+        }
+        try {
+            FabricService.MerkleAnchor anchor = fabricService.anchorMerkleRoot(electionId, root.root(), root.leafCount());
+            if (anchor != null) {
+                anchors.put(electionId, anchor);
+                logger.info("Merkle root anchored for election {}: {} leaves, txId={}",
+                    electionId, anchor.leafCount(), anchor.txId());
+            }
+            return anchor;
+        } catch (RuntimeException e) {
+            logger.error("Failed to anchor Merkle root of election {}: {}", electionId, e.getMessage());
+            // Se reintenta en el siguiente ciclo
+            pending.add(electionId);
+            return last;
+        }
+    }
+
+    /**
+     * Último anclaje de una elección: el del ledger y, sin conexión, el local
+     */
+    public FabricService.MerkleAnchor getLatestAnchor(String electionId) {
+        FabricService.MerkleAnchor onChain = fabricService.getMerkleAnchor(electionId);
+        return onChain != null ? onChain : anchors.get(electionId);
+    }
+
+    /**
+     * Recalcula la raíz desde los blobs y la compara con la anclada
+     *
+     * @return Resultado o null si la elección no tiene raíz anclada
+     */
+    public StorageService.MerkleVerification verifyStore(String electionId) {
+        FabricService.MerkleAnchor anchor = getLatestAnchor(electionId);
+        if (anchor == null) {
+            return null;
+        }
+        StorageService.MerkleVerification verification =
+            storageService.verifyMerkleRoot(electionId, (int) anchor.leafCount(), anchor.root());
+        if (!verification.consistent()) {
+            logger.error("INTEGRITY FAILURE: Merkle root of election {} does not match the anchored root ({} invalid blobs)",
+                electionId, verification.invalidBlobs().size());
+        }
+        return verification;
+    }
+
+    void anchorPending() {
+        for (String electionId : Set.copyOf(pending)) {
+            pending.remove(electionId);
+            try {
+                anchor(electionId);
+            } catch (RuntimeException e) {
+                logger.error("Merkle anchoring failed for election {}: {}", electionId, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
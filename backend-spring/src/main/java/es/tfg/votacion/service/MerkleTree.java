@@ -0,0 +1,184 @@
+package es.tfg.votacion.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Árbol de Merkle incremental (solo añadir) sobre los commitments de una elección
+ *
+ * Hash al estilo RFC 6962 (Certificate Transparency):
+ * - Hoja: SHA-256(0x00 || commitment)
+ * - Nodo: SHA-256(0x01 || izquierdo || derecho)
+ * - Con n hojas, el subárbol izquierdo cubre la mayor potencia de 2 menor que n
+ *
+ * Se guardan los subárboles completos por nivel: añadir una hoja cuesta
+ * O(log n) hashes y raíz y pruebas de inclusión O(log n) nodos.
+ *
+ * No es seguro para hilos: el llamante serializa las operaciones.
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ * @since Java 21
+ */
+final class MerkleTree {
+
+    private static final byte LEAF_PREFIX = 0x00;
+    private static final byte NODE_PREFIX = 0x01;
+
+    // levels.get(k).get(i): hash del subárbol completo de 2^k hojas que empieza en i·2^k
+    private final List<List<byte[]>> levels = new ArrayList<>();
+
+    MerkleTree() {
+        levels.add(new ArrayList<>());
+    }
+
+    /**
+     * Añade una hoja
+     *
+     * @param commitment Commitment del voto (bytes del SHA-256)
+     * @return Índice de la hoja
+     */
+    int append(byte[] commitment) {
+        int index = size();
+        byte[] node = leafHash(commitment);
+        levels.get(0).add(node);
+
+        // Cada par completo de un nivel forma un nodo del nivel superior
+        int position = index;
+        for (int level = 0; (position & 1) == 1; level++) {
+            List<byte[]> current = levels.get(level);
+            node = nodeHash(current.get(position - 1), node);
+            if (levels.size() == level + 1) {
+                levels.add(new ArrayList<>());
+            }
+            levels.get(level + 1).add(node);
+            position >>= 1;
+        }
+        return index;
+    }
+
+    int size() {
+        return levels.get(0).size();
+    }
+
+    /**
+     * Raíz del árbol (SHA-256 de la cadena vacía si no hay hojas)
+     */
+    byte[] root() {
+        return root(size());
+    }
+
+    /**
+     * Raíz de las primeras {@code treeSize} hojas (raíces anteriores ya ancladas)
+     */
+    byte[] root(int treeSize) {
+        if (treeSize < 0 || treeSize > size()) {
+            throw new IllegalArgumentException("Tree size out of range: " + treeSize);
+        }
+        if (treeSize == 0) {
+            return sha256(new byte[0]);
+        }
+        return subtreeHash(0, treeSize);
+    }
+
+    /**
+     * Prueba de inclusión de una hoja en el árbol de {@code treeSize} hojas
+     *
+     * @return Hermanos desde la hoja hasta la raíz
+     */
+    List<byte[]> inclusionProof(int index, int treeSize) {
+        if (treeSize < 1 || treeSize > size() || index < 0 || index >= treeSize) {
+            throw new IllegalArgumentException("Leaf index out of range: " + index);
+        }
+        List<byte[]> path = new ArrayList<>();
+        collectPath(index, 0, treeSize, path);
+        return path;
+    }
+
+    private void collectPath(int index, int start, int size, List<byte[]> path) {
+        if (size == 1) {
+            return;
+        }
+        int split = Integer.highestOneBit(size - 1);
+        if (index < start + split) {
+            collectPath(index, start, split, path);
+            path.add(subtreeHash(start + split, size - split));
+        } else {
+            collectPath(index, start + split, size - split, path);
+            path.add(subtreeHash(start, split));
+        }
+    }
+
+    /**
+     * Hash del subárbol de {@code size} hojas que empieza en {@code start}
+     * Los subárboles completos alineados se leen del nivel correspondiente
+     */
+    private byte[] subtreeHash(int start, int size) {
+        if (Integer.bitCount(size) == 1) {
+            int level = Integer.numberOfTrailingZeros(size);
+            return levels.get(level).get(start >> level);
+        }
+        int split = Integer.highestOneBit(size - 1);
+        return nodeHash(subtreeHash(start, split), subtreeHash(start + split, size - split));
+    }
+
+    /**
+     * Verifica una prueba de inclusión sin acceso al árbol (lado del auditor)
+     *
+     * @return true si la hoja y el camino reproducen la raíz
+     */
+    static boolean verifyInclusion(byte[] commitment, int index, int treeSize, List<byte[]> path, byte[] root) {
+        if (index < 0 || index >= treeSize) {
+            return false;
+        }
+        // RFC 9162, sección 2.1.3.2
+        long fn = index;
+        long sn = treeSize - 1L;
+        byte[] node = leafHash(commitment);
+        for (byte[] sibling : path) {
+            if (sn == 0) {
+                return false;
+            }
+            if ((fn & 1) == 1 || fn == sn) {
+                node = nodeHash(sibling, node);
+                while ((fn & 1) == 0 && fn != 0) {
+                    fn >>= 1;
+                    sn >>= 1;
+                }
+            } else {
+                node = nodeHash(node, sibling);
+            }
+            fn >>= 1;
+            sn >>= 1;
+        }
+        return sn == 0 && Arrays.equals(node, root);
+    }
+
+    static byte[] leafHash(byte[] commitment) {
+        MessageDigest digest = newDigest();
+        digest.update(LEAF_PREFIX);
+        return digest.digest(commitment);
+    }
+
+    static byte[] nodeHash(byte[] left, byte[] right) {
+        MessageDigest digest = newDigest();
+        digest.update(NODE_PREFIX);
+        digest.update(left);
+        return digest.digest(right);
+    }
+
+    private static byte[] sha256(byte[] data) {
+        return newDigest().digest(data);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
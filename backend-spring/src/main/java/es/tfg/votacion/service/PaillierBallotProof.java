@@ -0,0 +1,205 @@
+package es.tfg.votacion.service;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Pruebas de conocimiento cero de validez de una papeleta homomórfica
+ *
+ * Sin ellas un votante podría cifrar (+2, -1, 0): los totales siguen sumando
+ * el número de papeletas y ninguno se sale de rango, pero quita un voto a
+ * otra opción. Cada papeleta lleva, no interactivas (Fiat-Shamir con SHA-256):
+ * - Por opción, que su cifrado c es de 0 o de 1: prueba disyuntiva de que c
+ *   o c·g⁻¹ es una potencia n-ésima módulo n²
+ * - Que el producto de los cifrados es de 1: prueba de que (Πc)·g⁻¹ es una
+ *   potencia n-ésima (exactamente una opción elegida)
+ *
+ * Una potencia n-ésima u = r^n se prueba con el protocolo Σ habitual:
+ * a = ρ^n, e = H(…), z = ρ·r^e mod n, y se verifica z^n = a·u^e mod n².
+ * En la disyuntiva la rama falsa se simula eligiendo antes su reto y su
+ * respuesta, y los dos retos deben sumar el del hash. Los retos son de 256
+ * bits, muy por debajo de los factores primos de n. Cada hash incluye n y
+ * todos los cifrados: una prueba no se puede trasladar a otra papeleta ni a
+ * otra elección.
+ *
+ * Formato tras los cifrados: por opción a0.a1.e0.z0.z1 (e1 se deduce) y al
+ * final a.z de la prueba de suma.
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ * @since Java 21
+ */
+final class PaillierBallotProof {
+
+    static final int OPTION_PROOF_PARTS = 5;
+    static final int SUM_PROOF_PARTS = 2;
+    private static final int CHALLENGE_BITS = 256;
+    private static final BigInteger CHALLENGE_MODULUS = BigInteger.ONE.shiftLeft(CHALLENGE_BITS);
+    private static final int SUM_INDEX = -1;
+    private static final byte[] DOMAIN = "votacion-phe1-ballot-proof".getBytes(StandardCharsets.UTF_8);
+
+    private PaillierBallotProof() {
+    }
+
+    /**
+     * Número de elementos de la prueba de una papeleta
+     */
+    static int proofLength(int optionCount) {
+        return optionCount * OPTION_PROOF_PARTS + SUM_PROOF_PARTS;
+    }
+
+    /**
+     * Genera la prueba de una papeleta
+     *
+     * @param ciphertexts Cifrado de cada opción
+     * @param votes       0 o 1 por opción, con un único 1
+     * @param randomness  Aleatorio r con el que se generó cada cifrado
+     * @return Elementos de la prueba en el orden del formato
+     */
+    static BigInteger[] prove(CryptoService.PaillierPublicKey publicKey, BigInteger[] ciphertexts, int[] votes,
+                              BigInteger[] randomness, SecureRandom random) {
+        BigInteger n = publicKey.n();
+        BigInteger nSquared = publicKey.nSquared();
+        BigInteger gInverse = gInverse(publicKey);
+        BigInteger[] proof = new BigInteger[proofLength(ciphertexts.length)];
+        BigInteger product = BigInteger.ONE;
+        BigInteger productRandomness = BigInteger.ONE;
+
+        for (int i = 0; i < ciphertexts.length; i++) {
+            int real = votes[i];
+            int simulated = 1 - real;
+            BigInteger[] u = {ciphertexts[i], ciphertexts[i].multiply(gInverse).mod(nSquared)};
+            BigInteger[] a = new BigInteger[2];
+            BigInteger[] e = new BigInteger[2];
+            BigInteger[] z = new BigInteger[2];
+
+            // Rama simulada: reto y respuesta elegidos antes que el compromiso
+            e[simulated] = new BigInteger(CHALLENGE_BITS, random);
+            z[simulated] = CryptoService.randomUnit(n, random);
+            a[simulated] = z[simulated].modPow(n, nSquared)
+                .multiply(u[simulated].modPow(e[simulated], nSquared).modInverse(nSquared)).mod(nSquared);
+
+            BigInteger rho = CryptoService.randomUnit(n, random);
+            a[real] = rho.modPow(n, nSquared);
+            BigInteger challenge = challenge(publicKey, ciphertexts, i, a[0], a[1]);
+            e[real] = challenge.subtract(e[simulated]).mod(CHALLENGE_MODULUS);
+            z[real] = rho.multiply(randomness[i].modPow(e[real], n)).mod(n);
+
+            int offset = i * OPTION_PROOF_PARTS;
+            proof[offset] = a[0];
+            proof[offset + 1] = a[1];
+            proof[offset + 2] = e[0];
+            proof[offset + 3] = z[0];
+            proof[offset + 4] = z[1];
+
+            product = product.multiply(ciphertexts[i]).mod(nSquared);
+            productRandomness = productRandomness.multiply(randomness[i]).mod(n);
+        }
+
+        BigInteger rho = CryptoService.randomUnit(n, random);
+        BigInteger a = rho.modPow(n, nSquared);
+        BigInteger e = challenge(publicKey, ciphertexts, SUM_INDEX, a);
+        int offset = ciphertexts.length * OPTION_PROOF_PARTS;
+        proof[offset] = a;
+        proof[offset + 1] = rho.multiply(productRandomness.modPow(e, n)).mod(n);
+        return proof;
+    }
+
+    /**
+     * Verifica la prueba de una papeleta
+     *
+     * @return true si cada cifrado es de 0 o 1 y su suma es 1
+     */
+    static boolean verify(CryptoService.PaillierPublicKey publicKey, BigInteger[] ciphertexts, BigInteger[] proof) {
+        if (proof.length != proofLength(ciphertexts.length)) {
+            return false;
+        }
+        BigInteger n = publicKey.n();
+        BigInteger nSquared = publicKey.nSquared();
+        BigInteger gInverse = gInverse(publicKey);
+        BigInteger product = BigInteger.ONE;
+
+        for (int i = 0; i < ciphertexts.length; i++) {
+            int offset = i * OPTION_PROOF_PARTS;
+            BigInteger a0 = proof[offset];
+            BigInteger a1 = proof[offset + 1];
+            BigInteger e0 = proof[offset + 2];
+            BigInteger z0 = proof[offset + 3];
+            BigInteger z1 = proof[offset + 4];
+            if (!isUnit(a0, nSquared, n) || !isUnit(a1, nSquared, n) || !isUnit(z0, n, n) || !isUnit(z1, n, n)
+                    || e0.compareTo(CHALLENGE_MODULUS) >= 0) {
+                return false;
+            }
+            BigInteger e1 = challenge(publicKey, ciphertexts, i, a0, a1).subtract(e0).mod(CHALLENGE_MODULUS);
+            BigInteger u0 = ciphertexts[i];
+            BigInteger u1 = ciphertexts[i].multiply(gInverse).mod(nSquared);
+            if (!isNthPowerResponse(publicKey, u0, a0, e0, z0) || !isNthPowerResponse(publicKey, u1, a1, e1, z1)) {
+                return false;
+            }
+            product = product.multiply(ciphertexts[i]).mod(nSquared);
+        }
+
+        int offset = ciphertexts.length * OPTION_PROOF_PARTS;
+        BigInteger a = proof[offset];
+        BigInteger z = proof[offset + 1];
+        if (!isUnit(a, nSquared, n) || !isUnit(z, n, n)) {
+            return false;
+        }
+        BigInteger e = challenge(publicKey, ciphertexts, SUM_INDEX, a);
+        return isNthPowerResponse(publicKey, product.multiply(gInverse).mod(nSquared), a, e, z);
+    }
+
+    /**
+     * z^n = a·u^e mod n²
+     */
+    private static boolean isNthPowerResponse(CryptoService.PaillierPublicKey publicKey, BigInteger u,
+                                              BigInteger a, BigInteger e, BigInteger z) {
+        BigInteger nSquared = publicKey.nSquared();
+        return z.modPow(publicKey.n(), nSquared).equals(a.multiply(u.modPow(e, nSquared)).mod(nSquared));
+    }
+
+    /**
+     * g⁻¹ mod n² con g = n + 1: (1 + n)(1 - n) = 1 - n² ≡ 1
+     */
+    private static BigInteger gInverse(CryptoService.PaillierPublicKey publicKey) {
+        return publicKey.nSquared().subtract(publicKey.n()).add(BigInteger.ONE);
+    }
+
+    private static boolean isUnit(BigInteger value, BigInteger modulus, BigInteger n) {
+        return value.signum() > 0 && value.compareTo(modulus) < 0 && value.gcd(n).equals(BigInteger.ONE);
+    }
+
+    /**
+     * Reto de Fiat-Shamir: SHA-256 de n, todos los cifrados, la opción y los compromisos
+     */
+    private static BigInteger challenge(CryptoService.PaillierPublicKey publicKey, BigInteger[] ciphertexts,
+                                        int index, BigInteger... commitments) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        digest.update(DOMAIN);
+        update(digest, publicKey.n());
+        digest.update(ByteBuffer.allocate(2 * Integer.BYTES).putInt(ciphertexts.length).putInt(index).array());
+        for (BigInteger ciphertext : ciphertexts) {
+            update(digest, ciphertext);
+        }
+        for (BigInteger commitment : commitments) {
+            update(digest, commitment);
+        }
+        return new BigInteger(1, digest.digest());
+    }
+
+    private static void update(MessageDigest digest, BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        // Con longitud delante: concatenaciones distintas no producen la misma entrada
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+}
@@ -0,0 +1,352 @@
+package es.tfg.votacion.service;
+
+import es.tfg.votacion.model.Election;
+
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Trabajo de recuento de una elección con puntos de control
+ *
+ * Los blobs se recorren en orden de ID; el punto de control guarda la marca
+ * del último blob procesado y los totales parciales, de modo que un recuento
+ * interrumpido continúa desde la marca en lugar de empezar de cero:
+ * - Modo descifrado: conteo parcial por opción
+ * - Modo homomórfico: agregado parcial de las papeletas verificadas
+ *
+ * La clave privada nunca se persiste: tras un reinicio el trabajo queda
+ * interrumpido hasta que el administrador vuelve a cerrar con la clave. Solo
+ * se guarda su SHA-256 para no mezclar parciales de claves distintas.
+ *
+ * Solo el hilo de recuento modifica el trabajo. El progreso (blobs
+ * procesados, fallos de integridad y de descifrado) se lleva en contadores
+ * atómicos y campos volátiles: las consultas de progreso no toman ningún
+ * cerrojo ni frenan el bucle de recuento.
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ * @since Java 21
+ */
+final class RecountJob {
+
+    /**
+     * Estado del trabajo
+     */
+    enum Phase {
+        RUNNING("running"),
+        COMPLETED("completed"),
+        FAILED("failed"),
+        // Reinicio a mitad de recuento: se reanuda al volver a cerrar
+        INTERRUPTED("interrupted");
+
+        private final String code;
+
+        Phase(String code) {
+            this.code = code;
+        }
+
+        String getCode() {
+            return code;
+        }
+    }
+
+    private final String jobId;
+    private final String electionId;
+    private final String keyFingerprint;
+    private final Instant startedAt;
+    private final Map<String, Integer> counts;
+    private BigInteger[] aggregate;
+    private long verifiedBallots;
+    private boolean ledgerClosed;
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong integrityFailures = new AtomicLong();
+    private final AtomicLong decryptionFailures = new AtomicLong();
+    private volatile Phase phase;
+    private volatile String watermark;
+    private volatile long total;
+    // Ritmo de la ejecución actual (una reanudación no cuenta lo hecho antes del reinicio)
+    private volatile long runStartedNanos = System.nanoTime();
+    private volatile long runFinishedNanos;
+    private volatile long processedAtRunStart;
+    private volatile Instant updatedAt;
+    private volatile String error;
+    // Solo existe en el proceso que ejecuta el trabajo
+    private CompletableFuture<Election> completion = new CompletableFuture<>();
+    private Election result;
+    private Throwable failure;
+
+    RecountJob(String electionId, String keyFingerprint) {
+        this(UUID.randomUUID().toString(), electionId, keyFingerprint, Instant.now(), new HashMap<>());
+    }
+
+    private RecountJob(String jobId, String electionId, String keyFingerprint, Instant startedAt,
+                       Map<String, Integer> counts) {
+        this.jobId = jobId;
+        this.electionId = electionId;
+        this.keyFingerprint = keyFingerprint;
+        this.startedAt = startedAt;
+        this.counts = counts;
+        this.phase = Phase.RUNNING;
+        this.updatedAt = startedAt;
+    }
+
+    String jobId() {
+        return jobId;
+    }
+
+    String electionId() {
+        return electionId;
+    }
+
+    String keyFingerprint() {
+        return keyFingerprint;
+    }
+
+    Instant startedAt() {
+        return startedAt;
+    }
+
+    Phase phase() {
+        return phase;
+    }
+
+    String watermark() {
+        return watermark;
+    }
+
+    long processed() {
+        return processed.get();
+    }
+
+    long integrityFailures() {
+        return integrityFailures.get();
+    }
+
+    long decryptionFailures() {
+        return decryptionFailures.get();
+    }
+
+    /**
+     * Blobs por segundo en la ejecución actual (o la última, si ya terminó)
+     */
+    double throughput() {
+        long end = runFinishedNanos != 0 ? runFinishedNanos : System.nanoTime();
+        long elapsed = end - runStartedNanos;
+        if (elapsed <= 0) {
+            return 0;
+        }
+        return (processed.get() - processedAtRunStart) / (elapsed / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    long total() {
+        return total;
+    }
+
+    Instant updatedAt() {
+        return updatedAt;
+    }
+
+    String error() {
+        return error;
+    }
+
+    Map<String, Integer> counts() {
+        return counts;
+    }
+
+    boolean ledgerClosed() {
+        return ledgerClosed;
+    }
+
+    void markLedgerClosed() {
+        this.ledgerClosed = true;
+    }
+
+    CompletableFuture<Election> completion() {
+        return completion;
+    }
+
+    /**
+     * Agregado homomórfico parcial (se inicializa a cifrados triviales de 0)
+     */
+    BigInteger[] aggregate(int optionCount) {
+        if (aggregate == null) {
+            aggregate = new BigInteger[optionCount];
+            Arrays.fill(aggregate, BigInteger.ONE);
+        }
+        return aggregate;
+    }
+
+    long verifiedBallots() {
+        return verifiedBallots;
+    }
+
+    void addVerifiedBallot() {
+        verifiedBallots++;
+    }
+
+    /**
+     * Número de votos contados hasta ahora
+     */
+    long counted() {
+        return aggregate != null
+            ? verifiedBallots
+            : counts.values().stream().mapToLong(Integer::longValue).sum();
+    }
+
+    void setTotal(long total) {
+        this.total = total;
+    }
+
+    /**
+     * Avanza la marca tras procesar un blob (contado o descartado)
+     */
+    void advance(String blobId) {
+        this.watermark = blobId;
+        processed.incrementAndGet();
+    }
+
+    /**
+     * Blob descartado porque no coincide con su commitment en blockchain
+     */
+    void recordIntegrityFailure() {
+        integrityFailures.incrementAndGet();
+    }
+
+    /**
+     * Blob que no se ha podido descifrar o interpretar
+     */
+    void recordDecryptionFailure() {
+        decryptionFailures.incrementAndGet();
+    }
+
+    /**
+     * Reanuda un trabajo interrumpido en este proceso
+     */
+    void resume() {
+        this.phase = Phase.RUNNING;
+        this.error = null;
+        this.completion = new CompletableFuture<>();
+        this.result = null;
+        this.failure = null;
+        this.processedAtRunStart = processed.get();
+        this.runStartedNanos = System.nanoTime();
+        this.runFinishedNanos = 0;
+        touch();
+    }
+
+    void complete(Election election) {
+        this.runFinishedNanos = System.nanoTime();
+        this.result = election;
+        this.phase = Phase.COMPLETED;
+        touch();
+    }
+
+    void fail(Throwable cause) {
+        this.runFinishedNanos = System.nanoTime();
+        this.failure = cause;
+        this.phase = Phase.FAILED;
+        this.error = cause.getMessage();
+        touch();
+    }
+
+    /**
+     * Despierta a quien espera el resultado (tras guardar el punto de control final)
+     */
+    void publish() {
+        if (failure != null) {
+            completion.completeExceptionally(failure);
+        } else {
+            completion.complete(result);
+        }
+    }
+
+    void touch() {
+        this.updatedAt = Instant.now();
+    }
+
+    /**
+     * Forma persistida del punto de control
+     */
+    static class State {
+        public String jobId;
+        public String electionId;
+        public String keyFingerprint;
+        public String phase;
+        public String watermark;
+        public long processed;
+        public long total;
+        public long integrityFailures;
+        public long decryptionFailures;
+        public Map<String, Integer> counts;
+        public List<String> aggregate;
+        public long verifiedBallots;
+        public boolean ledgerClosed;
+        public Instant startedAt;
+        public Instant updatedAt;
+        public String error;
+    }
+
+    State toState() {
+        State state = new State();
+        state.jobId = jobId;
+        state.electionId = electionId;
+        state.keyFingerprint = keyFingerprint;
+        state.phase = phase.name();
+        state.watermark = watermark;
+        state.processed = processed.get();
+        state.total = total;
+        state.integrityFailures = integrityFailures.get();
+        state.decryptionFailures = decryptionFailures.get();
+        state.counts = new HashMap<>(counts);
+        if (aggregate != null) {
+            state.aggregate = new ArrayList<>(aggregate.length);
+            for (BigInteger value : aggregate) {
+                state.aggregate.add(CryptoService.encodeBigInteger(value));
+            }
+        }
+        state.verifiedBallots = verifiedBallots;
+        state.ledgerClosed = ledgerClosed;
+        state.startedAt = startedAt;
+        state.updatedAt = updatedAt;
+        state.error = error;
+        return state;
+    }
+
+    /**
+     * Restaura un punto de control; un trabajo que estaba en curso queda interrumpido
+     */
+    static RecountJob fromState(State state) {
+        RecountJob job = new RecountJob(state.jobId, state.electionId, state.keyFingerprint, state.startedAt,
+            state.counts != null ? new HashMap<>(state.counts) : new HashMap<>());
+        Phase phase = Phase.valueOf(state.phase);
+        job.phase = phase == Phase.RUNNING ? Phase.INTERRUPTED : phase;
+        job.watermark = state.watermark;
+        job.processed.set(state.processed);
+        job.processedAtRunStart = state.processed;
+        job.runFinishedNanos = job.runStartedNanos;
+        job.total = state.total;
+        job.integrityFailures.set(state.integrityFailures);
+        job.decryptionFailures.set(state.decryptionFailures);
+        if (state.aggregate != null) {
+            job.aggregate = new BigInteger[state.aggregate.size()];
+            for (int i = 0; i < job.aggregate.length; i++) {
+                job.aggregate[i] = CryptoService.decodeBigInteger(state.aggregate.get(i));
+            }
+        }
+        job.verifiedBallots = state.verifiedBallots;
+        job.ledgerClosed = state.ledgerClosed;
+        job.updatedAt = state.updatedAt != null ? state.updatedAt : state.startedAt;
+        job.error = state.error;
+        return job;
+    }
+}
@@ -0,0 +1,132 @@
+package es.tfg.votacion.service;
+
+import es.tfg.votacion.config.ElectionProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Progreso del recuento de cierre por SSE
+ *
+ * Un único hilo lee cada elections.recount.progress-millis el estado de los
+ * recuentos con suscriptores ({@link ElectionService#getRecountStatus}, que
+ * solo lee contadores atómicos) y envía un evento "progress" a cada uno.
+ * Cuando el trabajo termina, falla o queda interrumpido se envía el estado
+ * final y se cierra la conexión.
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ * @since Java 21
+ */
+@Component
+public class RecountProgressStreamer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecountProgressStreamer.class);
+    static final String EVENT_NAME = "progress";
+    // Conexiones abiertas como mucho mientras dura un recuento largo
+    private static final long EMITTER_TIMEOUT_MILLIS = TimeUnit.HOURS.toMillis(2);
+
+    private final ElectionService electionService;
+    private final ElectionProperties.Recount properties;
+    private final Map<String, Set<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    private ScheduledExecutorService ticker;
+
+    public RecountProgressStreamer(ElectionService electionService, ElectionProperties electionProperties) {
+        this.electionService = electionService;
+        this.properties = electionProperties.getRecount();
+    }
+
+    @PostConstruct
+    public void start() {
+        long interval = Math.max(100, properties.getProgressMillis());
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "recount-progress");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::tickSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Crea un emisor SSE con el progreso del recuento de una elección
+     * El estado actual se envía en el momento
+     */
+    public SseEmitter subscribe(String electionId) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MILLIS);
+        Set<SseEmitter> emitters = subscribers.computeIfAbsent(electionId, id -> ConcurrentHashMap.newKeySet());
+        emitters.add(emitter);
+        Runnable unsubscribe = () -> emitters.remove(emitter);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+
+        ElectionService.RecountStatus status = electionService.getRecountStatus(electionId);
+        if (status != null) {
+            send(electionId, emitter, status);
+        }
+        return emitter;
+    }
+
+    void tick() {
+        subscribers.forEach((electionId, emitters) -> {
+            if (emitters.isEmpty()) {
+                subscribers.remove(electionId, emitters);
+                return;
+            }
+            ElectionService.RecountStatus status = electionService.getRecountStatus(electionId);
+            if (status == null) {
+                return;
+            }
+            for (SseEmitter emitter : emitters) {
+                send(electionId, emitter, status);
+            }
+        });
+    }
+
+    private void send(String electionId, SseEmitter emitter, ElectionService.RecountStatus status) {
+        try {
+            emitter.send(SseEmitter.event().name(EVENT_NAME).data(status, MediaType.APPLICATION_JSON));
+            if (!"running".equals(status.status())) {
+                emitter.complete();
+                subscribers.getOrDefault(electionId, Set.of()).remove(emitter);
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Cliente desconectado: onError/onCompletion retiran la suscripción
+            logger.debug("Recount progress subscriber dropped: {}", e.getMessage());
+            subscribers.getOrDefault(electionId, Set.of()).remove(emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void tickSafely() {
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            logger.error("Recount progress tick failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Cierra las conexiones abiertas y detiene el hilo
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+        subscribers.values().forEach(emitters -> emitters.forEach(SseEmitter::complete));
+    }
+}
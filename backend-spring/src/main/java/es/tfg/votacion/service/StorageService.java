@@ -2,32 +2,42 @@ package es.tfg.votacion.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import es.tfg.votacion.config.StorageProperties;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import javax.crypto.AEADBadTagException;
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.io.File;
 import java.io.IOException;
-import java.nio.ByteBuffer;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.SecureRandom;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Stream;
 
 /**
@@ -38,9 +48,24 @@ import java.util.stream.Stream;
  * - Almacenamiento en sistema de archivos
  * - Gestión de claves desde keystore
  * - Limpieza automática de archivos antiguos
+ * - Árbol de Merkle incremental por elección sobre los commitments de los votos
  * 
  * Formato de archivo cifrado:
- * [IV (12 bytes)][Datos cifrados con tag de autenticación (16 bytes)]
+ * [formato (1 byte)][keyId (1 byte)][IV (12 bytes)][Datos cifrados con tag de autenticación (16 bytes)]
+ * 
+ * Cada elección cifra con su propia clave de datos derivada de la maestra
+ * ({@link ElectionKeyring}); la cabecera indica cuál y se autentica como AAD.
+ * Los blobs del formato anterior ([IV][cifrado], con la clave maestra) se
+ * siguen leyendo. Rotar la clave maestra solo reenvuelve las claves de datos.
+ * 
+ * Las instancias de Cipher se reutilizan desde un pool acotado
+ * ({@link AesGcmCipherPool}) en lugar de crearse en cada operación, y los IV
+ * salen de un generador de nonces por contador ({@link GcmNonceGenerator})
+ * en lugar de un SecureRandom compartido.
+ * 
+ * Cada elección mantiene además merkle.log (solo añadir): una línea
+ * "blobId commitment" por voto, en orden de inserción. Define las hojas del
+ * árbol, que se reconstruye en memoria la primera vez que se consulta.
  * 
  * @author Enrique Huet Adrover
  * @version 1.0
@@ -52,17 +77,28 @@ public class StorageService {
     private static final Logger logger = LoggerFactory.getLogger(StorageService.class);
     
     private final StorageProperties storageProperties;
+    private final VoteMetrics voteMetrics;
     private final ObjectMapper objectMapper;
-    private final SecureRandom secureRandom;
+    private GcmNonceGenerator nonceGenerator;
+    private final AesGcmCipherPool cipherPool;
     
+    private static final String MERKLE_LOG = "merkle.log";
+    private static final String KEYRING_FILE = "keyring.json";
+    // Primer byte de los blobs con clave por elección (los anteriores empiezan por el IV)
+    static final byte BLOB_FORMAT = (byte) 0xE2;
+    static final int BLOB_HEADER_LENGTH = 2;
+
     private SecretKey masterKey;
+    private ElectionKeyring keyring;
     private Path storageBasePath;
+    private final Map<String, ElectionMerkle> merkleTrees = new ConcurrentHashMap<>();
 
-    @Autowired
-    public StorageService(StorageProperties storageProperties) {
+    public StorageService(StorageProperties storageProperties, VoteMetrics voteMetrics) {
         this.storageProperties = storageProperties;
+        this.voteMetrics = voteMetrics;
         this.objectMapper = new ObjectMapper();
-        this.secureRandom = new SecureRandom();
+        this.cipherPool = new AesGcmCipherPool(storageProperties.getEncryption().getAlgorithm(),
+            storageProperties.getEncryption().getCipherPoolSize());
     }
 
     /**
@@ -75,7 +111,7 @@ public class StorageService {
         
         try {
             // Cargar clave de cifrado desde keystore
-            this.masterKey = loadEncryptionKey();
+            this.masterKey = loadEncryptionKey(Paths.get(storageProperties.getKeystorePath()));
             logger.info("Encryption key loaded successfully from keystore");
             
             // Configurar directorio de almacenamiento
@@ -83,6 +119,14 @@ public class StorageService {
             Files.createDirectories(storageBasePath);
             logger.info("Storage directory initialized: {}", storageBasePath.toAbsolutePath());
             
+            // Claves de datos por elección (y las reenvueltas en rotaciones anteriores)
+            loadKeyring();
+            
+            // Los contadores de nonce continúan desde el último límite reservado en keyring.json
+            StorageProperties.Encryption encryption = storageProperties.getEncryption();
+            this.nonceGenerator = new GcmNonceGenerator(encryption.getIvLength(), new SecureRandom(),
+                keyring.nonceHighWaterMark(), encryption.getNonceReservation(), keyring::reserveNonces);
+            
             // Verificar configuración de cifrado
             logger.debug("Encryption algorithm: {}", storageProperties.getEncryption().getAlgorithm());
             logger.debug("Key length: {} bits", storageProperties.getEncryption().getKeyLength());
@@ -116,37 +160,63 @@ public class StorageService {
             throw new IllegalArgumentException("Data to encrypt cannot be null or empty");
         }
         
-        logger.info("Storing encrypted data for election: {} ({} bytes)", electionId, data.length);
+        logger.debug("Storing encrypted data for election: {} ({} bytes)", electionId, data.length);
         
+        Path blobPath = null;
         try {
             // Generar ID único para el blob
             String blobId = generateBlobId(electionId);
             
-            // Cifrar datos
-            byte[] encryptedData = encryptData(data, masterKey);
-            logger.debug("Data encrypted successfully - size: {} bytes", encryptedData.length);
-            
             // Crear directorio de elección si no existe
-            Path electionDir = storageBasePath.resolve(sanitizeElectionId(electionId));
+            // Antes de pedir la clave: una rotación de la maestra en curso ya ve la elección
+            String electionKeyId = sanitizeElectionId(electionId);
+            Path electionDir = storageBasePath.resolve(electionKeyId);
             Files.createDirectories(electionDir);
             
+            // Cifrar datos con la clave de datos de la elección
+            long encryptStart = System.nanoTime();
+            byte[] encryptedData = sealBlob(electionKeyId, data);
+            voteMetrics.recordStorage("encrypt", electionId, System.nanoTime() - encryptStart);
+            logger.debug("Data encrypted successfully - size: {} bytes", encryptedData.length);
+            
             // Guardar en archivo
-            Path blobPath = electionDir.resolve(blobId + ".enc");
+            blobPath = electionDir.resolve(blobId + ".enc");
+            long writeStart = System.nanoTime();
             Files.write(blobPath, encryptedData);
-            logger.info("Encrypted blob stored successfully: {}", blobPath.getFileName());
+            voteMetrics.recordStorage("write", electionId, System.nanoTime() - writeStart);
+            logger.debug("Encrypted blob stored successfully: {}", blobPath.getFileName());
+
+            // Hoja del árbol de Merkle: el mismo SHA-256 que se registra como commitment en blockchain
+            appendMerkleLeaf(electionId, blobId, MessageDigest.getInstance("SHA-256").digest(data));
             
-            // Calcular y loggear el hash del blob cifrado (para auditoría)
-            String blobHash = calculateSHA256(encryptedData);
-            logger.debug("Blob SHA-256 hash: {}", blobHash);
+            // Hash del blob cifrado (para auditoría): solo se calcula si se va a registrar
+            if (logger.isDebugEnabled()) {
+                logger.debug("Blob SHA-256 hash: {}", calculateSHA256(encryptedData));
+            }
             
             return blobId;
             
         } catch (Exception e) {
             logger.error("Failed to store encrypted data for election {}: {}", electionId, e.getMessage(), e);
+            // Sin hoja de Merkle ni transacción el blob no debe quedar en disco: el recuento lo contaría
+            deleteOrphanBlob(blobPath);
             throw new RuntimeException("Failed to store encrypted data", e);
         }
     }
 
+    private void deleteOrphanBlob(Path blobPath) {
+        if (blobPath == null) {
+            return;
+        }
+        try {
+            if (Files.deleteIfExists(blobPath)) {
+                logger.warn("Removed orphan blob after failed store: {}", blobPath.getFileName());
+            }
+        } catch (IOException e) {
+            logger.error("Failed to remove orphan blob {}: {}", blobPath.getFileName(), e.getMessage(), e);
+        }
+    }
+
     /**
      * Recupera y descifra datos del almacenamiento
      * 
@@ -159,7 +229,7 @@ public class StorageService {
             throw new IllegalArgumentException("Blob ID cannot be null or empty");
         }
         
-        logger.info("Loading and decrypting blob: {}", blobId);
+        logger.debug("Loading and decrypting blob: {}", blobId);
         
         try {
             // Buscar el archivo en los directorios de elecciones
@@ -175,8 +245,8 @@ public class StorageService {
             logger.debug("Encrypted blob loaded - size: {} bytes", encryptedData.length);
             
             // Descifrar datos
-            byte[] decryptedData = decryptData(encryptedData, masterKey);
-            logger.info("Blob decrypted successfully: {} ({} bytes)", blobId, decryptedData.length);
+            byte[] decryptedData = openBlob(blobPath.getParent().getFileName().toString(), encryptedData);
+            logger.debug("Blob decrypted successfully: {} ({} bytes)", blobId, decryptedData.length);
             
             return decryptedData;
             
@@ -186,6 +256,238 @@ public class StorageService {
         }
     }
 
+    /**
+     * Recupera y descifra un blob de una elección conocida
+     * Resuelve la ruta directamente en lugar de recorrer todo el almacenamiento
+     * 
+     * @param electionId ID de la elección del blob
+     * @param blobId     ID del blob a recuperar
+     * @return Datos descifrados originales
+     * @throws RuntimeException si falla la carga o descifrado
+     */
+    public byte[] loadDecrypted(String electionId, String blobId) {
+        Path blobPath = resolveBlobPath(electionId, blobId);
+        if (blobPath == null || !Files.exists(blobPath)) {
+            return loadDecrypted(blobId);
+        }
+        try {
+            return openBlob(sanitizeElectionId(electionId), Files.readAllBytes(blobPath));
+        } catch (Exception e) {
+            logger.error("Failed to load and decrypt blob {}: {}", blobId, e.getMessage(), e);
+            throw new RuntimeException("Failed to load decrypted data", e);
+        }
+    }
+
+    /**
+     * Fecha de última modificación de un blob
+     * 
+     * @param electionId ID de la elección del blob
+     * @param blobId     ID del blob
+     * @return Milisegundos desde epoch o -1 si el blob no existe
+     */
+    public long blobModifiedAt(String electionId, String blobId) {
+        Path blobPath = resolveBlobPath(electionId, blobId);
+        try {
+            return blobPath != null ? Files.getLastModifiedTime(blobPath).toMillis() : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Fecha de última modificación de cada blob de una elección
+     * Permite detectar blobs modificados con un único listado del directorio
+     * 
+     * @param electionId ID de la elección
+     * @return blobId -> milisegundos desde epoch
+     */
+    public java.util.Map<String, Long> blobModificationTimes(String electionId) {
+        if (electionId == null || electionId.isBlank()) {
+            return java.util.Collections.emptyMap();
+        }
+        
+        Path electionDir = storageBasePath.resolve(sanitizeElectionId(electionId));
+        if (!Files.exists(electionDir)) {
+            return java.util.Collections.emptyMap();
+        }
+        java.util.Map<String, Long> times = new java.util.HashMap<>();
+        try (Stream<Path> paths = Files.list(electionDir)) {
+            paths.filter(p -> p.getFileName().toString().endsWith(".enc")).forEach(p -> {
+                String fileName = p.getFileName().toString();
+                try {
+                    times.put(fileName.substring(0, fileName.length() - 4), Files.getLastModifiedTime(p).toMillis());
+                } catch (IOException e) {
+                    // Borrado entre el listado y la consulta: se trata como ausente
+                }
+            });
+        } catch (IOException e) {
+            logger.error("Error listing blobs for election {}: {}", electionId, e.getMessage());
+        }
+        return times;
+    }
+
+    /**
+     * Raíz de Merkle de una elección
+     *
+     * @param leafCount Número de commitments cubiertos
+     * @param root      Raíz en Base64
+     */
+    public record MerkleRoot(int leafCount, String root) {
+    }
+
+    /**
+     * Prueba de inclusión de un voto
+     *
+     * @param commitment Commitment del voto (hoja) en Base64
+     * @param path       Hermanos desde la hoja hasta la raíz, en Base64
+     * @param root       Raíz del árbol de treeSize hojas
+     */
+    public record MerkleProof(String blobId, int leafIndex, int treeSize, String commitment,
+                              List<String> path, String root) {
+    }
+
+    /**
+     * Resultado de recalcular la raíz a partir de los blobs almacenados
+     *
+     * @param consistent   true si la raíz recalculada coincide con la esperada
+     * @param invalidBlobs Blobs ausentes o cuyo contenido ya no coincide con su hoja
+     */
+    public record MerkleVerification(int leafCount, String expectedRoot, String computedRoot,
+                                     boolean consistent, List<String> invalidBlobs) {
+    }
+
+    /**
+     * Raíz actual del árbol de una elección
+     */
+    public MerkleRoot getMerkleRoot(String electionId) {
+        ElectionMerkle merkle = merkle(electionId);
+        synchronized (merkle) {
+            return new MerkleRoot(merkle.tree.size(), encode(merkle.tree.root()));
+        }
+    }
+
+    /**
+     * Prueba de inclusión de un voto en el árbol de {@code treeSize} hojas
+     *
+     * @param treeSize Tamaño del árbol (p. ej. el de la última raíz anclada) o null para el actual
+     * @return Prueba o null si el blob no está en ese árbol
+     */
+    public MerkleProof getInclusionProof(String electionId, String blobId, Integer treeSize) {
+        ElectionMerkle merkle = merkle(electionId);
+        synchronized (merkle) {
+            Integer index = merkle.leafIndex.get(blobId);
+            int size = treeSize != null ? treeSize : merkle.tree.size();
+            if (index == null || index >= size || size > merkle.tree.size()) {
+                return null;
+            }
+            List<String> path = merkle.tree.inclusionProof(index, size).stream().map(StorageService::encode).toList();
+            return new MerkleProof(blobId, index, size, merkle.commitments.get(index), path,
+                encode(merkle.tree.root(size)));
+        }
+    }
+
+    /**
+     * Recalcula la raíz de las primeras {@code leafCount} hojas desde los blobs
+     * almacenados y la compara con la esperada (p. ej. la anclada en blockchain)
+     *
+     * Una única comparación de raíz valida todo el almacenamiento; si falla, las
+     * hojas recalculadas identifican los blobs alterados.
+     */
+    public MerkleVerification verifyMerkleRoot(String electionId, int leafCount, String expectedRoot) {
+        List<String> blobIds;
+        List<String> commitments;
+        ElectionMerkle merkle = merkle(electionId);
+        synchronized (merkle) {
+            if (leafCount < 0 || leafCount > merkle.tree.size()) {
+                throw new IllegalArgumentException("Leaf count out of range: " + leafCount);
+            }
+            blobIds = List.copyOf(merkle.blobIds.subList(0, leafCount));
+            commitments = List.copyOf(merkle.commitments.subList(0, leafCount));
+        }
+
+        MerkleTree rebuilt = new MerkleTree();
+        List<String> invalid = new ArrayList<>();
+        for (int i = 0; i < leafCount; i++) {
+            byte[] leaf;
+            try {
+                leaf = MessageDigest.getInstance("SHA-256").digest(loadDecrypted(electionId, blobIds.get(i)));
+            } catch (Exception e) {
+                // Blob ausente o no descifrable: la hoja no se puede reproducir
+                leaf = new byte[0];
+            }
+            if (!encode(leaf).equals(commitments.get(i))) {
+                invalid.add(blobIds.get(i));
+            }
+            rebuilt.append(leaf);
+        }
+        String computedRoot = encode(rebuilt.root());
+        return new MerkleVerification(leafCount, expectedRoot, computedRoot,
+            computedRoot.equals(expectedRoot), invalid);
+    }
+
+    private void appendMerkleLeaf(String electionId, String blobId, byte[] commitment) throws IOException {
+        ElectionMerkle merkle = merkle(electionId);
+        String encoded = encode(commitment);
+        synchronized (merkle) {
+            // Primero el log: tras un fallo de escritura el árbol en memoria no diverge del disco
+            Files.writeString(merkleLogPath(electionId), blobId + " " + encoded + "\n",
+                StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            merkle.add(blobId, encoded, commitment);
+        }
+    }
+
+    private ElectionMerkle merkle(String electionId) {
+        return merkleTrees.computeIfAbsent(sanitizeElectionId(electionId), id -> loadMerkle(electionId));
+    }
+
+    private ElectionMerkle loadMerkle(String electionId) {
+        ElectionMerkle merkle = new ElectionMerkle();
+        Path log = merkleLogPath(electionId);
+        if (!Files.exists(log)) {
+            return merkle;
+        }
+        try {
+            for (String line : Files.readAllLines(log, StandardCharsets.UTF_8)) {
+                String[] parts = line.split(" ");
+                if (parts.length != 2) {
+                    // Línea incompleta por una caída durante la escritura
+                    logger.warn("Ignoring malformed Merkle log line for election {}", electionId);
+                    continue;
+                }
+                merkle.add(parts[0], parts[1], Base64.getDecoder().decode(parts[1]));
+            }
+            logger.info("Merkle tree loaded for election {}: {} leaves", electionId, merkle.tree.size());
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalStateException("Cannot load Merkle log of election " + electionId, e);
+        }
+        return merkle;
+    }
+
+    private Path merkleLogPath(String electionId) {
+        return storageBasePath.resolve(sanitizeElectionId(electionId)).resolve(MERKLE_LOG);
+    }
+
+    private static String encode(byte[] hash) {
+        return Base64.getEncoder().encodeToString(hash);
+    }
+
+    /**
+     * Árbol de una elección y el orden de sus hojas (protegido por su monitor)
+     */
+    private static final class ElectionMerkle {
+        private final MerkleTree tree = new MerkleTree();
+        private final List<String> blobIds = new ArrayList<>();
+        private final List<String> commitments = new ArrayList<>();
+        private final Map<String, Integer> leafIndex = new HashMap<>();
+
+        private void add(String blobId, String encodedCommitment, byte[] commitment) {
+            int index = tree.append(commitment);
+            blobIds.add(blobId);
+            commitments.add(encodedCommitment);
+            leafIndex.put(blobId, index);
+        }
+    }
+
     /**
      * Lista todos los blobs cifrados de una elección
      * 
@@ -242,9 +544,11 @@ public class StorageService {
             }
             
             // Sobrescribir con datos aleatorios antes de eliminar (borrado seguro)
+            // Basta con ruido no comprimible: se sobrescribe un cifrado, no hace falta
+            // imprevisibilidad criptográfica ni pasar por el SecureRandom compartido
             long fileSize = Files.size(blobPath);
             byte[] randomData = new byte[(int) fileSize];
-            secureRandom.nextBytes(randomData);
+            ThreadLocalRandom.current().nextBytes(randomData);
             Files.write(blobPath, randomData);
             
             // Eliminar el archivo
@@ -275,100 +579,233 @@ public class StorageService {
     }
 
     /**
-     * Cifra datos usando AES-GCM
+     * Cifra datos usando AES-GCM detrás de una cabecera que se autentica como AAD
      * 
      * Formato del resultado:
-     * [IV (12 bytes)][Datos cifrados + tag de autenticación (16 bytes)]
+     * [cabecera][IV (12 bytes)][Datos cifrados + tag de autenticación (16 bytes)]
+     * 
+     * El resultado se reserva una vez con su tamaño final y doFinal escribe
+     * el cifrado directamente detrás del IV.
      * 
-     * @param data Datos a cifrar
-     * @param key  Clave de cifrado
-     * @return Datos cifrados con IV y tag de autenticación
+     * @param data   Datos a cifrar
+     * @param key    Clave de cifrado
+     * @param header Cabecera del blob (vacía en el formato anterior)
+     * @return Cabecera, IV y datos cifrados con tag de autenticación
      * @throws Exception si falla el cifrado
      */
-    private byte[] encryptData(byte[] data, SecretKey key) throws Exception {
-        logger.debug("Encrypting data with AES-GCM - input size: {} bytes", data.length);
-        
-        // Generar IV aleatorio
-        byte[] iv = new byte[storageProperties.getEncryption().getIvLength()];
-        secureRandom.nextBytes(iv);
-        
-        // Configurar cifrador AES-GCM
-        Cipher cipher = Cipher.getInstance(storageProperties.getEncryption().getAlgorithm());
-        GCMParameterSpec parameterSpec = new GCMParameterSpec(
-            storageProperties.getEncryption().getTagLength(), 
-            iv
-        );
-        cipher.init(Cipher.ENCRYPT_MODE, key, parameterSpec);
-        
-        // Cifrar datos
-        byte[] encryptedData = cipher.doFinal(data);
+    byte[] encryptData(byte[] data, SecretKey key, byte[] header) throws Exception {
+        int ivLength = storageProperties.getEncryption().getIvLength();
+        int offset = header.length;
+        byte[] result = new byte[offset + encryptedSize(data.length)];
+        System.arraycopy(header, 0, result, 0, offset);
         
-        // Combinar IV + datos cifrados + tag
-        ByteBuffer byteBuffer = ByteBuffer.allocate(iv.length + encryptedData.length);
-        byteBuffer.put(iv);
-        byteBuffer.put(encryptedData);
+        // Nonce único detrás de la cabecera
+        nonceGenerator.next(result, offset);
         
-        byte[] result = byteBuffer.array();
-        logger.debug("Encryption complete - output size: {} bytes (IV: {}, encrypted: {})", 
-            result.length, iv.length, encryptedData.length);
+        Cipher cipher = cipherPool.borrow();
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, key,
+                new GCMParameterSpec(storageProperties.getEncryption().getTagLength(), result, offset, ivLength));
+            if (offset > 0) {
+                cipher.updateAAD(result, 0, offset);
+            }
+            cipher.doFinal(data, 0, data.length, result, offset + ivLength);
+        } finally {
+            cipherPool.release(cipher);
+        }
         
+        if (logger.isDebugEnabled()) {
+            logger.debug("Encryption complete - output size: {} bytes (IV: {}, input: {})",
+                result.length, ivLength, data.length);
+        }
         return result;
     }
 
     /**
-     * Descifra datos usando AES-GCM
+     * Descifra [cabecera][IV][Datos cifrados + tag] autenticando la cabecera como AAD
      * 
-     * Espera formato:
-     * [IV (12 bytes)][Datos cifrados + tag de autenticación (16 bytes)]
+     * IV y cifrado se leen in situ (sin copiar el cifrado a otro array).
      * 
-     * @param encryptedData Datos cifrados con IV y tag
+     * @param encryptedData Blob completo
      * @param key           Clave de descifrado
+     * @param headerLength  Longitud de la cabecera (0 en el formato anterior)
      * @return Datos originales descifrados
      * @throws Exception si falla el descifrado o la autenticación
      */
-    private byte[] decryptData(byte[] encryptedData, SecretKey key) throws Exception {
-        logger.debug("Decrypting data with AES-GCM - input size: {} bytes", encryptedData.length);
-        
+    byte[] decryptData(byte[] encryptedData, SecretKey key, int headerLength) throws Exception {
         int ivLength = storageProperties.getEncryption().getIvLength();
         
-        if (encryptedData.length < ivLength) {
+        if (encryptedData.length < headerLength + ivLength) {
             throw new IllegalArgumentException("Encrypted data is too short to contain IV");
         }
         
-        // Extraer IV
-        ByteBuffer byteBuffer = ByteBuffer.wrap(encryptedData);
-        byte[] iv = new byte[ivLength];
-        byteBuffer.get(iv);
-        
-        // Extraer datos cifrados
-        byte[] cipherText = new byte[byteBuffer.remaining()];
-        byteBuffer.get(cipherText);
-        
-        // Configurar cifrador AES-GCM
-        Cipher cipher = Cipher.getInstance(storageProperties.getEncryption().getAlgorithm());
-        GCMParameterSpec parameterSpec = new GCMParameterSpec(
-            storageProperties.getEncryption().getTagLength(), 
-            iv
-        );
-        cipher.init(Cipher.DECRYPT_MODE, key, parameterSpec);
-        
-        // Descifrar datos (el tag se verifica automáticamente)
-        byte[] decryptedData = cipher.doFinal(cipherText);
-        logger.debug("Decryption complete - output size: {} bytes", decryptedData.length);
+        Cipher cipher = cipherPool.borrow();
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(
+                storageProperties.getEncryption().getTagLength(), encryptedData, headerLength, ivLength));
+            if (headerLength > 0) {
+                cipher.updateAAD(encryptedData, 0, headerLength);
+            }
+            // Descifrar datos (el tag se verifica automáticamente)
+            int offset = headerLength + ivLength;
+            byte[] decryptedData = cipher.doFinal(encryptedData, offset, encryptedData.length - offset);
+            logger.debug("Decryption complete - output size: {} bytes", decryptedData.length);
+            return decryptedData;
+        } finally {
+            cipherPool.release(cipher);
+        }
+    }
+
+    /**
+     * Tamaño cifrado de {@code plaintextLength} bytes: IV + datos + tag
+     */
+    int encryptedSize(int plaintextLength) {
+        StorageProperties.Encryption encryption = storageProperties.getEncryption();
+        return encryption.getIvLength() + plaintextLength + encryption.getTagLength() / 8;
+    }
+
+    /**
+     * Cifra un blob con la clave de datos vigente de la elección
+     * 
+     * @param electionKeyId ID de elección sanitizado (nombre de su directorio)
+     */
+    private byte[] sealBlob(String electionKeyId, byte[] data) throws Exception {
+        int keyId = keyring.currentKeyId(electionKeyId);
+        byte[] header = {BLOB_FORMAT, (byte) keyId};
+        return encryptData(data, keyring.dataKey(electionKeyId, keyId), header);
+    }
+
+    /**
+     * Descifra un blob con la clave que indica su cabecera
+     * Sin cabecera válida se trata como blob del formato anterior
+     * 
+     * @param electionKeyId ID de elección sanitizado (nombre de su directorio)
+     */
+    private byte[] openBlob(String electionKeyId, byte[] blob) throws Exception {
+        if (blob.length > BLOB_HEADER_LENGTH && blob[0] == BLOB_FORMAT) {
+            try {
+                SecretKey dataKey = keyring.dataKey(electionKeyId, blob[1] & 0xFF);
+                return decryptData(blob, dataKey, BLOB_HEADER_LENGTH);
+            } catch (AEADBadTagException | IllegalArgumentException e) {
+                // Un IV del formato anterior puede empezar por el mismo byte (1 de cada 256)
+                logger.debug("Blob is not in keyed format, trying legacy format: {}", e.getMessage());
+            }
+        }
+        return decryptData(blob, keyring.legacyKey(), 0);
+    }
+
+    /**
+     * Emite una clave de datos nueva para los blobs nuevos de una elección
+     * Los blobs ya almacenados no se tocan y se siguen descifrando
+     * 
+     * @param electionId ID de la elección
+     * @return keyId de la nueva clave
+     */
+    public int rotateElectionKey(String electionId) {
+        try {
+            int keyId = keyring.rotateElectionKey(sanitizeElectionId(electionId));
+            logger.info("Data key of election {} rotated to key id {}", electionId, keyId);
+            return keyId;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to rotate data key of election " + electionId, e);
+        }
+    }
+
+    /**
+     * Rotación en caliente de la clave maestra
+     * 
+     * No re-cifra ningún blob: las claves de datos en uso se reenvuelven con
+     * la clave nueva (O(elecciones)) y los votos siguen aceptándose durante
+     * la rotación. Orden ante caídas:
+     * 1. keystore.json.next con la clave nueva
+     * 2. keyring.json reenvuelto (reemplazo atómico)
+     * 3. keystore.json.next sustituye a keystore.json
+     * Si se cae entre 2 y 3, el arranque completa el paso 3 ({@link #loadKeyring}).
+     * 
+     * @param newKeyBytes Clave maestra nueva
+     * @return Número de claves de datos reenvueltas
+     */
+    public synchronized int rotateMasterKey(byte[] newKeyBytes) {
+        int keyLength = storageProperties.getEncryption().getKeyLength();
+        if (newKeyBytes == null || newKeyBytes.length != keyLength / 8) {
+            throw new IllegalArgumentException("Master key must be " + keyLength / 8 + " bytes");
+        }
+        SecretKey newKey = new SecretKeySpec(newKeyBytes, "AES");
+        Path keystorePath = Paths.get(storageProperties.getKeystorePath());
+        Path pendingPath = pendingKeystorePath(keystorePath);
         
-        return decryptedData;
+        try {
+            ObjectNode keystoreJson = (ObjectNode) objectMapper.readTree(keystorePath.toFile());
+            keystoreJson.put("masterKey", Base64.getEncoder().encodeToString(newKeyBytes));
+            keystoreJson.put("rotatedAt", Instant.now().toString());
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(pendingPath.toFile(), keystoreJson);
+            
+            int rewrapped = keyring.rewrap(newKey, this::listElectionDirectories);
+            
+            Files.move(pendingPath, keystorePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            this.masterKey = newKey;
+            logger.info("Master key rotated to {} - {} data keys rewrapped", keyring.masterKeyId(), rewrapped);
+            return rewrapped;
+        } catch (Exception e) {
+            logger.error("Master key rotation failed: {}", e.getMessage(), e);
+            throw new RuntimeException("Master key rotation failed", e);
+        }
     }
 
     /**
-     * Carga la clave de cifrado desde el keystore
+     * Carga keyring.json y comprueba que corresponde a la clave maestra del keystore
+     */
+    private void loadKeyring() throws Exception {
+        Path keystorePath = Paths.get(storageProperties.getKeystorePath());
+        Path pendingPath = pendingKeystorePath(keystorePath);
+        this.keyring = new ElectionKeyring(storageBasePath.resolve(KEYRING_FILE), masterKey,
+            storageProperties.getEncryption().getKeyCacheSize(), objectMapper);
+        String keyringMasterId = keyring.load();
+        
+        if (keyringMasterId != null && !keyringMasterId.equals(keyring.masterKeyId())) {
+            // Rotación interrumpida entre el keyring y el keystore: se completa
+            SecretKey pendingKey = Files.exists(pendingPath) ? loadEncryptionKey(pendingPath) : null;
+            if (pendingKey == null || !keyringMasterId.equals(ElectionKeyring.fingerprint(pendingKey))) {
+                throw new IllegalStateException("Keyring was written under master key " + keyringMasterId
+                    + " but the keystore holds " + keyring.masterKeyId());
+            }
+            Files.move(pendingPath, keystorePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            this.masterKey = pendingKey;
+            this.keyring = new ElectionKeyring(storageBasePath.resolve(KEYRING_FILE), masterKey,
+                storageProperties.getEncryption().getKeyCacheSize(), objectMapper);
+            keyring.load();
+            logger.warn("Completed interrupted master key rotation to {}", keyring.masterKeyId());
+        } else if (Files.exists(pendingPath)) {
+            // Rotación interrumpida antes de reenvolver: la clave vigente sigue siendo la del keystore
+            Files.delete(pendingPath);
+            logger.warn("Discarded unfinished master key rotation");
+        }
+        logger.info("Keyring loaded - master key id {}", keyring.masterKeyId());
+    }
+
+    private static Path pendingKeystorePath(Path keystorePath) {
+        return keystorePath.resolveSibling(keystorePath.getFileName() + ".next");
+    }
+
+    /**
+     * Directorios de elección del almacenamiento (IDs sanitizados)
+     */
+    private List<String> listElectionDirectories() {
+        try (Stream<Path> paths = Files.list(storageBasePath)) {
+            return paths.filter(Files::isDirectory).map(p -> p.getFileName().toString()).toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list election directories", e);
+        }
+    }
+
+    /**
+     * Carga una clave de cifrado desde un keystore
      * 
      * @return Clave de cifrado AES
      * @throws Exception si falla la carga del keystore
      */
-    private SecretKey loadEncryptionKey() throws Exception {
-        logger.debug("Loading encryption key from keystore: {}", storageProperties.getKeystorePath());
-        
-        Path keystorePath = Paths.get(storageProperties.getKeystorePath());
+    private SecretKey loadEncryptionKey(Path keystorePath) throws Exception {
+        logger.debug("Loading encryption key from keystore: {}", keystorePath);
         
         if (!Files.exists(keystorePath)) {
             throw new IOException("Keystore file not found: " + keystorePath);
@@ -425,6 +862,19 @@ public class StorageService {
         return electionId.replaceAll("[^a-zA-Z0-9_-]", "_");
     }
 
+    /**
+     * Ruta directa de un blob dentro del directorio de su elección
+     * 
+     * @return Ruta del archivo (puede no existir) o null si los IDs no son válidos
+     */
+    private Path resolveBlobPath(String electionId, String blobId) {
+        if (electionId == null || electionId.isBlank() || blobId == null || blobId.isBlank()
+                || blobId.contains("/") || blobId.contains("\\") || blobId.contains("..")) {
+            return null;
+        }
+        return storageBasePath.resolve(sanitizeElectionId(electionId)).resolve(blobId + ".enc");
+    }
+
     /**
      * Busca la ruta de un blob en el sistema de archivos
      * 
@@ -0,0 +1,375 @@
+package es.tfg.votacion.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.tfg.votacion.config.ElectionProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bus de eventos en memoria para la participación en tiempo real (SSE)
+ *
+ * Flujo:
+ * - ElectionService publica cada voto registrado ({@link #publish})
+ * - Un único hilo agrega los votos de cada elección por tick
+ *   (elections.turnout.tick-millis) y serializa el estado una vez
+ * - El mismo frame se envía a todos los suscriptores de la elección
+ *
+ * Así, cientos de dashboards cuestan una agregación por tick en lugar de
+ * una petición completa cada uno. Los envíos se hacen en hilos virtuales;
+ * un suscriptor que aún no ha terminado de recibir el frame anterior no
+ * acumula envíos: al terminar recibe el frame más reciente si se ha quedado
+ * atrás (cada suscriptor recuerda la secuencia del último frame entregado).
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ * @since Java 21
+ */
+@Component
+public class TurnoutBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(TurnoutBroadcaster.class);
+    static final String EVENT_NAME = "turnout";
+    static final String SUBSCRIBERS_GAUGE = "elections.turnout.subscribers";
+    private static final long WINDOW_MILLIS = 60_000;
+    private static final Set<ResponseBodyEmitter.DataWithMediaType> KEEP_ALIVE =
+        SseEmitter.event().comment("keep-alive").build();
+
+    /**
+     * Participación agregada de una elección
+     *
+     * @param votesPerMinute Votos registrados en el último minuto
+     */
+    public record TurnoutSnapshot(String electionId, int totalVoters, long votesPerMinute, Instant timestamp) {
+    }
+
+    /**
+     * Se ha alcanzado elections.turnout.max-subscribers
+     */
+    public static class SubscriberLimitExceededException extends RuntimeException {
+        public SubscriberLimitExceededException(String message) {
+            super(message);
+        }
+    }
+
+    private final ElectionProperties.Turnout properties;
+    private final Executor sendExecutor;
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final Map<String, ElectionTurnout> elections = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final AtomicLong eventSequence = new AtomicLong();
+    private ScheduledExecutorService ticker;
+
+    @Autowired
+    public TurnoutBroadcaster(ElectionProperties electionProperties, MeterRegistry meterRegistry) {
+        this(electionProperties, Executors.newVirtualThreadPerTaskExecutor());
+        Gauge.builder(SUBSCRIBERS_GAUGE, subscriberCount, AtomicInteger::get)
+            .description("Open turnout SSE connections")
+            .register(meterRegistry);
+    }
+
+    TurnoutBroadcaster(ElectionProperties electionProperties, Executor sendExecutor) {
+        this.properties = electionProperties.getTurnout();
+        this.sendExecutor = sendExecutor;
+    }
+
+    @PostConstruct
+    public void start() {
+        long tick = Math.max(50, properties.getTickMillis());
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "turnout-ticker");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::tickSafely, tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Notifica un voto registrado (llamado en el camino del voto: solo incrementa contadores)
+     *
+     * @param electionId  ID de la elección
+     * @param totalVoters Votantes totales tras registrar el voto
+     */
+    public void publish(String electionId, int totalVoters) {
+        ElectionTurnout state = elections.computeIfAbsent(electionId, id -> new ElectionTurnout(windowSlots()));
+        state.pendingVotes.increment();
+        state.totalVoters.accumulateAndGet(totalVoters, Math::max);
+    }
+
+    /**
+     * Crea un emisor SSE suscrito a una elección y le envía el estado actual
+     *
+     * @param electionId   ID de la elección
+     * @param currentTotal Votantes totales conocidos al suscribirse
+     * @return Emisor a devolver desde el controlador
+     * @throws SubscriberLimitExceededException si se supera el máximo de suscriptores
+     */
+    public SseEmitter subscribe(String electionId, int currentTotal) {
+        SseEmitter emitter = new SseEmitter(TimeUnit.SECONDS.toMillis(properties.getEmitterTimeoutSeconds()));
+        return register(electionId, currentTotal, emitter);
+    }
+
+    /**
+     * Registra un emisor ya creado
+     */
+    SseEmitter register(String electionId, int currentTotal, SseEmitter emitter) {
+        if (subscriberCount.incrementAndGet() > properties.getMaxSubscribers()) {
+            subscriberCount.decrementAndGet();
+            throw new SubscriberLimitExceededException("Too many turnout subscribers");
+        }
+
+        Subscriber subscriber = new Subscriber(emitter);
+        ElectionTurnout state = attach(electionId, subscriber);
+        state.totalVoters.accumulateAndGet(currentTotal, Math::max);
+
+        Runnable unsubscribe = () -> {
+            if (state.subscribers.remove(subscriber)) {
+                subscriberCount.decrementAndGet();
+            }
+        };
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+
+        // Estado inicial inmediato para no esperar al primer cambio
+        try {
+            Frame initial = frame(snapshot(electionId, state));
+            emitter.send(initial.event());
+            subscriber.markDelivered(initial.sequence());
+        } catch (IOException | IllegalStateException e) {
+            unsubscribe.run();
+            emitter.completeWithError(e);
+        }
+        logger.debug("Turnout subscriber added for election {} ({} total)", electionId, subscriberCount.get());
+        return emitter;
+    }
+
+    /**
+     * Añade el suscriptor al estado vigente de la elección
+     * El hilo de agregación puede retirar estados inactivos en paralelo: si
+     * el estado deja de estar en el mapa se reintenta con uno nuevo
+     */
+    private ElectionTurnout attach(String electionId, Subscriber subscriber) {
+        while (true) {
+            ElectionTurnout state = elections.computeIfAbsent(electionId, id -> new ElectionTurnout(windowSlots()));
+            state.subscribers.add(subscriber);
+            if (elections.get(electionId) == state) {
+                return state;
+            }
+            state.subscribers.remove(subscriber);
+        }
+    }
+
+    /**
+     * Suscriptores abiertos en total
+     */
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    /**
+     * Agrega los votos pendientes y difunde los cambios (un frame por elección)
+     */
+    void tick() {
+        long now = System.currentTimeMillis();
+        long heartbeatMillis = TimeUnit.SECONDS.toMillis(properties.getHeartbeatSeconds());
+
+        elections.forEach((electionId, state) -> {
+            state.advanceWindow(state.pendingVotes.sumThenReset());
+
+            if (state.subscribers.isEmpty()) {
+                // Sin suscriptores ni actividad reciente no hace falta conservar la ventana
+                if (state.windowSum == 0) {
+                    elections.remove(electionId, state);
+                }
+                return;
+            }
+
+            TurnoutSnapshot snapshot = snapshot(electionId, state);
+            boolean changed = snapshot.totalVoters() != state.lastSentTotal
+                || snapshot.votesPerMinute() != state.lastSentPerMinute;
+            if (changed) {
+                state.lastSentTotal = snapshot.totalVoters();
+                state.lastSentPerMinute = snapshot.votesPerMinute();
+                state.lastSentAt = now;
+                state.latest = frame(snapshot);
+                state.subscribers.forEach(subscriber -> deliver(state, subscriber, false));
+            } else if (now - state.lastSentAt >= heartbeatMillis) {
+                state.lastSentAt = now;
+                state.subscribers.forEach(subscriber -> deliver(state, subscriber, true));
+            }
+        });
+    }
+
+    private void tickSafely() {
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            logger.error("Turnout tick failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Pone en marcha un envío al suscriptor si no tiene ya uno en curso
+     * Si lo tiene no se encola nada: ese envío, al terminar, reenvía el frame
+     * más reciente si el suscriptor se ha quedado atrás
+     *
+     * @param keepAlive true para enviar un comentario de keep-alive aunque esté al día
+     */
+    private void deliver(ElectionTurnout state, Subscriber subscriber, boolean keepAlive) {
+        if (!keepAlive && !subscriber.isBehind(state.latest)) {
+            return;
+        }
+        if (subscriber.sending.compareAndSet(false, true)) {
+            sendExecutor.execute(() -> drain(state, subscriber, keepAlive));
+        }
+    }
+
+    private void drain(ElectionTurnout state, Subscriber subscriber, boolean keepAlive) {
+        do {
+            try {
+                if (keepAlive) {
+                    subscriber.emitter.send(KEEP_ALIVE);
+                    keepAlive = false;
+                }
+                Frame frame;
+                while (subscriber.isBehind(frame = state.latest)) {
+                    subscriber.emitter.send(frame.event());
+                    subscriber.markDelivered(frame.sequence());
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Cliente desconectado: onError/onCompletion retiran la suscripción
+                // (sending queda a true: no se le vuelve a enviar nada)
+                logger.debug("Turnout subscriber dropped: {}", e.getMessage());
+                if (state.subscribers.remove(subscriber)) {
+                    subscriberCount.decrementAndGet();
+                }
+                subscriber.emitter.completeWithError(e);
+                return;
+            }
+            subscriber.sending.set(false);
+            // Un frame publicado justo antes de liberar sending no ha lanzado su envío
+        } while (subscriber.isBehind(state.latest) && subscriber.sending.compareAndSet(false, true));
+    }
+
+    private TurnoutSnapshot snapshot(String electionId, ElectionTurnout state) {
+        return new TurnoutSnapshot(electionId, state.totalVoters.get(),
+            state.windowSum + state.pendingVotes.sum(), Instant.now());
+    }
+
+    private Frame frame(TurnoutSnapshot snapshot) {
+        try {
+            // Serializado una vez por tick y compartido por todos los suscriptores
+            String json = objectMapper.writeValueAsString(snapshot);
+            long sequence = eventSequence.incrementAndGet();
+            return new Frame(sequence, SseEmitter.event()
+                .id(Long.toString(sequence))
+                .name(EVENT_NAME)
+                .data(json, MediaType.APPLICATION_JSON)
+                .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize turnout snapshot", e);
+        }
+    }
+
+    private int windowSlots() {
+        return (int) Math.max(1, WINDOW_MILLIS / Math.max(50, properties.getTickMillis()));
+    }
+
+    /**
+     * Completa las conexiones abiertas y detiene el hilo de agregación
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+        elections.values().forEach(state -> state.subscribers.forEach(s -> s.emitter.complete()));
+        if (sendExecutor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Evento SSE serializado y su número de secuencia
+     */
+    private record Frame(long sequence, Set<ResponseBodyEmitter.DataWithMediaType> event) {
+    }
+
+    /**
+     * Suscriptor SSE; sending evita acumular envíos sobre un cliente lento
+     */
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicLong delivered = new AtomicLong();
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private boolean isBehind(Frame latest) {
+            return latest != null && latest.sequence() > delivered.get();
+        }
+
+        private void markDelivered(long sequence) {
+            delivered.accumulateAndGet(sequence, Math::max);
+        }
+    }
+
+    /**
+     * Estado de una elección
+     *
+     * pendingVotes y totalVoters se actualizan desde el camino del voto; la
+     * ventana deslizante y los últimos valores enviados solo los toca el hilo
+     * de agregación.
+     */
+    private static final class ElectionTurnout {
+        private final LongAdder pendingVotes = new LongAdder();
+        private final AtomicInteger totalVoters = new AtomicInteger();
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        private final long[] window;
+        private int windowIndex;
+        private volatile long windowSum;
+        private int lastSentTotal = -1;
+        private long lastSentPerMinute = -1;
+        private long lastSentAt;
+        // Último frame difundido; lo leen los hilos de envío
+        private volatile Frame latest;
+
+        private ElectionTurnout(int slots) {
+            this.window = new long[slots];
+        }
+
+        private void advanceWindow(long votes) {
+            windowSum = windowSum - window[windowIndex] + votes;
+            window[windowIndex] = votes;
+            windowIndex = (windowIndex + 1) % window.length;
+        }
+    }
+}
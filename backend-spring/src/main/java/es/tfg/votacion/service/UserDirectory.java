@@ -0,0 +1,232 @@
+package es.tfg.votacion.service;
+
+import es.tfg.votacion.model.User;
+import es.tfg.votacion.model.UserRole;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Directorio de usuarios en memoria con índices para búsquedas O(1)
+ *
+ * Índices:
+ * - Primarios: username normalizado e ID de usuario
+ * - Secundarios: rol, departamento y usuarios activos (sets de usernames)
+ *
+ * Concurrencia:
+ * - Lecturas sin bloqueo sobre mapas concurrentes
+ * - Escrituras serializadas: cada alta, baja o modificación actualiza
+ *   todos los índices bajo el mismo cerrojo
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ * @since Java 21
+ */
+final class UserDirectory {
+
+    /**
+     * Entrada del directorio: usuario junto a su hash de contraseña
+     */
+    record Entry(User user, String passwordHash) {
+    }
+
+    private final Map<String, Entry> byUsername = new ConcurrentHashMap<>();
+    private final Map<String, Entry> byId = new ConcurrentHashMap<>();
+    private final Map<UserRole, Set<String>> byRole = new EnumMap<>(UserRole.class);
+    private final Map<String, Set<String>> byDepartment = new ConcurrentHashMap<>();
+    private final Set<String> active = ConcurrentHashMap.newKeySet();
+    private final Object writeLock = new Object();
+
+    UserDirectory() {
+        for (UserRole role : UserRole.values()) {
+            byRole.put(role, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    /**
+     * Normaliza un username para usarlo como clave
+     */
+    static String normalize(String username) {
+        return username.trim().toLowerCase();
+    }
+
+    Entry findByUsername(String username) {
+        if (username == null || username.isBlank()) {
+            return null;
+        }
+        return byUsername.get(normalize(username));
+    }
+
+    Entry findById(String userId) {
+        if (userId == null || userId.isBlank()) {
+            return null;
+        }
+        return byId.get(userId);
+    }
+
+    /**
+     * Comprueba si un usuario existe y está activo sin recorrer el directorio
+     */
+    boolean isActive(String username) {
+        return username != null && active.contains(normalize(username));
+    }
+
+    List<User> activeUsers() {
+        return resolve(active);
+    }
+
+    List<User> usersByRole(UserRole role) {
+        if (role == null) {
+            return Collections.emptyList();
+        }
+        return resolve(byRole.get(role));
+    }
+
+    List<User> usersByDepartment(String department) {
+        if (department == null) {
+            return Collections.emptyList();
+        }
+        return resolve(byDepartment.getOrDefault(department, Collections.emptySet()));
+    }
+
+    /**
+     * Copia de los usernames normalizados presentes en el directorio
+     */
+    Set<String> usernames() {
+        return Set.copyOf(byUsername.keySet());
+    }
+
+    int size() {
+        return byUsername.size();
+    }
+
+    /**
+     * Inserta o reemplaza un usuario actualizando todos los índices
+     *
+     * @return Entrada anterior o null si es un alta
+     */
+    Entry put(User user, String passwordHash) {
+        Objects.requireNonNull(user, "user");
+        Entry entry = new Entry(user, passwordHash);
+        String key = normalize(user.username());
+        synchronized (writeLock) {
+            Entry previous = byUsername.put(key, entry);
+            if (previous != null) {
+                unindex(key, previous);
+            }
+            byId.put(user.id(), entry);
+            index(key, entry);
+            return previous;
+        }
+    }
+
+    /**
+     * Modifica el usuario de una entrada conservando su hash de contraseña
+     *
+     * @return Usuario resultante o null si no existe
+     */
+    User update(String username, UnaryOperator<User> change) {
+        String key = normalize(username);
+        synchronized (writeLock) {
+            Entry current = byUsername.get(key);
+            if (current == null) {
+                return null;
+            }
+            User updated = change.apply(current.user());
+            put(updated, current.passwordHash());
+            return updated;
+        }
+    }
+
+    /**
+     * Sustituye el hash de contraseña solo si no ha cambiado desde que se leyó
+     *
+     * @return true si se aplicó el cambio
+     */
+    boolean replacePasswordHash(String username, String expectedHash, String newHash) {
+        String key = normalize(username);
+        synchronized (writeLock) {
+            Entry current = byUsername.get(key);
+            if (current == null || !current.passwordHash().equals(expectedHash)) {
+                return false;
+            }
+            put(current.user(), newHash);
+            return true;
+        }
+    }
+
+    /**
+     * Elimina un usuario de todos los índices
+     *
+     * @return Entrada eliminada o null si no existía
+     */
+    Entry remove(String username) {
+        String key = normalize(username);
+        synchronized (writeLock) {
+            Entry previous = byUsername.remove(key);
+            if (previous != null) {
+                unindex(key, previous);
+            }
+            return previous;
+        }
+    }
+
+    /**
+     * Sustituye el contenido completo del directorio
+     */
+    void replaceAll(Collection<Entry> entries) {
+        synchronized (writeLock) {
+            byUsername.clear();
+            byId.clear();
+            byRole.values().forEach(Set::clear);
+            byDepartment.clear();
+            active.clear();
+            for (Entry entry : entries) {
+                put(entry.user(), entry.passwordHash());
+            }
+        }
+    }
+
+    private void index(String key, Entry entry) {
+        User user = entry.user();
+        byRole.get(user.role()).add(key);
+        if (user.department() != null) {
+            byDepartment.computeIfAbsent(user.department(), d -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+        if (user.active()) {
+            active.add(key);
+        }
+    }
+
+    private void unindex(String key, Entry entry) {
+        User user = entry.user();
+        // El ID puede haber sido reasignado a otra entrada
+        byId.remove(user.id(), entry);
+        byRole.get(user.role()).remove(key);
+        if (user.department() != null) {
+            Set<String> members = byDepartment.get(user.department());
+            if (members != null) {
+                members.remove(key);
+                if (members.isEmpty()) {
+                    byDepartment.remove(user.department(), members);
+                }
+            }
+        }
+        active.remove(key);
+    }
+
+    private List<User> resolve(Set<String> keys) {
+        return keys.stream()
+            .map(byUsername::get)
+            .filter(Objects::nonNull)
+            .map(Entry::user)
+            .toList();
+    }
+}
@@ -0,0 +1,291 @@
+package es.tfg.votacion.service;
+
+import es.tfg.votacion.config.ElectionProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verificación continua de la integridad de los votos almacenados
+ *
+ * Durante la votación, un hilo de baja prioridad comprueba cada blob nuevo
+ * contra el commitment registrado en blockchain y guarda el resultado:
+ * - Votos nuevos: se encolan al registrarse y se verifican en segundo plano
+ * - Revisión periódica (elections.integrity.sweep-seconds): los blobs cuya
+ *   fecha de modificación cambió se vuelven a hashear contra el commitment
+ *   ya obtenido (el ledger es inmutable, no hace falta consultarlo otra vez)
+ *   y se reintentan las verificaciones sin conexión con blockchain
+ *
+ * Al cerrar, un blob cuyo hash coincide con un commitment ya verificado no
+ * necesita consultar el ledger; el resto sigue la verificación completa.
+ * Una manipulación se registra en cuanto se detecta, sin esperar al cierre.
+ *
+ * El estado vive solo en memoria: tras un reinicio el cierre verifica todo.
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ * @since Java 21
+ */
+@Component
+public class VoteIntegrityVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(VoteIntegrityVerifier.class);
+    static final String CHECKS_COUNTER = "elections.integrity.checks";
+    static final String PENDING_GAUGE = "elections.integrity.pending";
+
+    /**
+     * Resultado de la última verificación de un blob
+     */
+    public enum Status {
+        // El contenido coincide con el commitment en blockchain
+        VERIFIED,
+        // El contenido no coincide o no se puede descifrar
+        TAMPERED,
+        // La transacción no existe en blockchain
+        NOT_ON_LEDGER,
+        // El blob ya no está en el almacenamiento
+        BLOB_MISSING
+    }
+
+    /**
+     * Verificación registrada de un blob
+     *
+     * @param commitment     Commitment en blockchain (null si no se encontró)
+     * @param blobModifiedAt Fecha de modificación del blob al verificarlo
+     */
+    public record Verification(Status status, String commitment, long blobModifiedAt, Instant checkedAt) {
+    }
+
+    private record Task(String electionId, String blobId, String transactionId) {
+    }
+
+    private final StorageService storageService;
+    private final FabricService fabricService;
+    private final ElectionProperties.Integrity properties;
+    private final BlockingQueue<Task> queue;
+    // electionId -> blobId -> última verificación
+    private final Map<String, Map<String, Verification>> verifications = new ConcurrentHashMap<>();
+    // electionId -> blobId -> transactionId, pendientes de conexión con blockchain
+    private final Map<String, Map<String, String>> awaitingLedger = new ConcurrentHashMap<>();
+    private final Map<Status, Counter> checks = new EnumMap<>(Status.class);
+    private Thread worker;
+
+    public VoteIntegrityVerifier(StorageService storageService, FabricService fabricService,
+                                 ElectionProperties electionProperties, MeterRegistry meterRegistry) {
+        this.storageService = storageService;
+        this.fabricService = fabricService;
+        this.properties = electionProperties.getIntegrity();
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, properties.getMaxQueue()));
+
+        Gauge.builder(PENDING_GAUGE, queue, BlockingQueue::size)
+            .description("Stored votes waiting for background verification")
+            .register(meterRegistry);
+        for (Status status : Status.values()) {
+            checks.put(status, Counter.builder(CHECKS_COUNTER)
+                .description("Background integrity checks of stored votes")
+                .tag("result", status.name().toLowerCase())
+                .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Arranca el hilo de verificación (si está habilitado)
+     */
+    @PostConstruct
+    public void start() {
+        if (!properties.isEnabled()) {
+            logger.info("Background vote verification disabled, votes will be verified at close");
+            return;
+        }
+        worker = new Thread(this::run, "vote-verifier");
+        worker.setDaemon(true);
+        worker.setPriority(Thread.MIN_PRIORITY);
+        worker.start();
+        logger.info("Background vote verification started: sweep every {}s", properties.getSweepSeconds());
+    }
+
+    /**
+     * Encola un voto recién almacenado (no bloquea el camino del voto)
+     * Si la cola está llena el voto se verificará al cerrar la elección
+     */
+    public void submit(String electionId, String blobId, String transactionId) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (!queue.offer(new Task(electionId, blobId, transactionId))) {
+            logger.debug("Verification queue full, blob {} will be verified at close", blobId);
+        }
+    }
+
+    /**
+     * Indica si el contenido de un blob ya se verificó contra blockchain
+     *
+     * @param commitment SHA-256 (Base64) del contenido actual del blob
+     * @return true si coincide con un commitment verificado
+     */
+    public boolean isVerified(String electionId, String blobId, String commitment) {
+        Verification verification = getVerification(electionId, blobId);
+        return verification != null
+            && verification.status() == Status.VERIFIED
+            && verification.commitment().equals(commitment);
+    }
+
+    /**
+     * Última verificación de un blob
+     *
+     * @return Verificación o null si aún no se ha comprobado
+     */
+    public Verification getVerification(String electionId, String blobId) {
+        Map<String, Verification> byBlob = verifications.get(electionId);
+        return byBlob != null ? byBlob.get(blobId) : null;
+    }
+
+    /**
+     * Descarta el estado de una elección ya recontada
+     */
+    public void release(String electionId) {
+        verifications.remove(electionId);
+        awaitingLedger.remove(electionId);
+    }
+
+    /**
+     * Verifica un blob contra su commitment en blockchain
+     */
+    void verify(String electionId, String blobId, String transactionId) {
+        String onChain = fabricService.getVoteCommitment(transactionId);
+        if (onChain == null) {
+            if (fabricService.isConnected()) {
+                logger.error("INTEGRITY FAILURE: Transaction {} of blob {} not found in blockchain", transactionId, blobId);
+                record(electionId, blobId, Status.NOT_ON_LEDGER, null, storageService.blobModifiedAt(electionId, blobId));
+            } else {
+                // Sin conexión: se reintenta en la siguiente revisión periódica
+                awaitingLedger.computeIfAbsent(electionId, id -> new ConcurrentHashMap<>()).put(blobId, transactionId);
+            }
+            return;
+        }
+        Map<String, String> waiting = awaitingLedger.get(electionId);
+        if (waiting != null) {
+            waiting.remove(blobId);
+        }
+        rehash(electionId, blobId, onChain);
+    }
+
+    /**
+     * Recalcula el hash del blob y lo compara con el commitment en blockchain
+     * La fecha de modificación se lee antes que el contenido: un cambio
+     * posterior a la lectura se detecta en la siguiente revisión
+     */
+    private void rehash(String electionId, String blobId, String onChain) {
+        long modifiedAt = storageService.blobModifiedAt(electionId, blobId);
+        if (modifiedAt < 0) {
+            logger.error("INTEGRITY FAILURE: Blob {} of election {} is missing", blobId, electionId);
+            record(electionId, blobId, Status.BLOB_MISSING, onChain, modifiedAt);
+            return;
+        }
+
+        String calculated;
+        try {
+            calculated = sha256(storageService.loadDecrypted(electionId, blobId));
+        } catch (RuntimeException e) {
+            // GCM no autentica el blob: su contenido cifrado fue alterado
+            calculated = null;
+        }
+        if (onChain.equals(calculated)) {
+            record(electionId, blobId, Status.VERIFIED, onChain, modifiedAt);
+        } else {
+            logger.error("INTEGRITY FAILURE: Blob {} of election {} does not match its blockchain commitment",
+                blobId, electionId);
+            record(electionId, blobId, Status.TAMPERED, onChain, modifiedAt);
+        }
+    }
+
+    /**
+     * Revisión periódica: blobs modificados desde su verificación y verificaciones pendientes
+     */
+    void sweep() {
+        awaitingLedger.forEach((electionId, waiting) ->
+            Map.copyOf(waiting).forEach((blobId, transactionId) -> verify(electionId, blobId, transactionId)));
+
+        verifications.forEach((electionId, byBlob) -> {
+            Map<String, Long> modified = storageService.blobModificationTimes(electionId);
+            byBlob.forEach((blobId, verification) -> {
+                if (verification.commitment() == null) {
+                    return;
+                }
+                Long modifiedAt = modified.get(blobId);
+                if (modifiedAt == null) {
+                    if (verification.status() != Status.BLOB_MISSING) {
+                        logger.error("INTEGRITY FAILURE: Blob {} of election {} is missing", blobId, electionId);
+                        record(electionId, blobId, Status.BLOB_MISSING, verification.commitment(), -1);
+                    }
+                } else if (modifiedAt != verification.blobModifiedAt()) {
+                    rehash(electionId, blobId, verification.commitment());
+                }
+            });
+        });
+    }
+
+    private void record(String electionId, String blobId, Status status, String commitment, long modifiedAt) {
+        verifications.computeIfAbsent(electionId, id -> new ConcurrentHashMap<>())
+            .put(blobId, new Verification(status, commitment, modifiedAt, Instant.now()));
+        checks.get(status).increment();
+    }
+
+    private void run() {
+        long sweepMillis = TimeUnit.SECONDS.toMillis(Math.max(1, properties.getSweepSeconds()));
+        long nextSweep = System.currentTimeMillis() + sweepMillis;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Task task = queue.poll(Math.max(1, nextSweep - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                try {
+                    if (task != null) {
+                        verify(task.electionId(), task.blobId(), task.transactionId());
+                    }
+                    if (System.currentTimeMillis() >= nextSweep) {
+                        sweep();
+                        nextSweep = System.currentTimeMillis() + sweepMillis;
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("Background vote verification failed: {}", e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static String sha256(byte[] content) {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Detiene el hilo de verificación
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (worker != null) {
+            worker.interrupt();
+        }
+        queue.clear();
+    }
+}
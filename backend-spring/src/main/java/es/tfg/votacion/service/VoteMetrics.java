@@ -0,0 +1,305 @@
+package es.tfg.votacion.service;
+
+import es.tfg.votacion.config.ElectionProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Métricas Micrometer del pipeline de emisión de votos
+ *
+ * Expone (vía /actuator/metrics):
+ * - votes.submission.stage: Timer por etapa (auth, validation, serialization,
+ *   storage, commitment, fabric_submit, persistence) y elección
+ * - votes.submission.duration: Timer extremo a extremo por resultado
+ * - votes.submission.outcome: Contador de resultados (accepted, duplicate,
+ *   fabric_failed, rejected, error) por elección
+ * - votes.submission.active: Gauge de votos en curso
+ * - votes.submission.inflight: Gauge de votos en curso por etapa
+ * - votes.storage.operation: Timer del cifrado AES-GCM y la escritura del blob
+ *
+ * El tag "election" está acotado a elections.metrics.max-election-tags valores;
+ * las elecciones que exceden el límite se agrupan en "other".
+ *
+ * Cada emisión termina con un único evento de log estructurado (logger
+ * es.tfg.votacion.vote, pares clave-valor): resultado, elección, duración
+ * total y por etapa, y los detalles que añada el pipeline (blob, txId).
+ * Sustituye a las varias líneas INFO que escribía cada voto.
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ * @since Java 21
+ */
+@Component
+public class VoteMetrics {
+
+    static final String STAGE_TIMER = "votes.submission.stage";
+    static final String DURATION_TIMER = "votes.submission.duration";
+    static final String OUTCOME_COUNTER = "votes.submission.outcome";
+    static final String ACTIVE_GAUGE = "votes.submission.active";
+    static final String INFLIGHT_GAUGE = "votes.submission.inflight";
+    static final String STORAGE_TIMER = "votes.storage.operation";
+
+    static final String UNKNOWN_ELECTION = "unknown";
+    static final String OTHER_ELECTIONS = "other";
+    static final String VOTE_LOGGER = "es.tfg.votacion.vote";
+
+    private static final Logger voteLog = LoggerFactory.getLogger(VOTE_LOGGER);
+
+    /**
+     * Etapas del pipeline de emisión de voto
+     */
+    public enum Stage {
+        AUTH, VALIDATION, SERIALIZATION, STORAGE, COMMITMENT, FABRIC_SUBMIT, PERSISTENCE;
+
+        public String tagValue() {
+            return name().toLowerCase();
+        }
+    }
+
+    /**
+     * Resultado final de una emisión de voto
+     */
+    public enum Outcome {
+        ACCEPTED, DUPLICATE, FABRIC_FAILED, REJECTED, ERROR;
+
+        public String tagValue() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final int maxElectionTags;
+    private final Set<String> electionTags = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Map<Stage, AtomicInteger> inFlight = new EnumMap<>(Stage.class);
+
+    @Autowired
+    public VoteMetrics(MeterRegistry registry, ElectionProperties electionProperties) {
+        this.registry = registry;
+        this.maxElectionTags = electionProperties.getMetrics().getMaxElectionTags();
+
+        Gauge.builder(ACTIVE_GAUGE, active, AtomicInteger::get)
+            .description("Vote submissions currently being processed")
+            .register(registry);
+
+        for (Stage stage : Stage.values()) {
+            AtomicInteger counter = new AtomicInteger();
+            inFlight.put(stage, counter);
+            Gauge.builder(INFLIGHT_GAUGE, counter, AtomicInteger::get)
+                .description("Vote submissions currently in a pipeline stage")
+                .tag("stage", stage.tagValue())
+                .register(registry);
+        }
+    }
+
+    /**
+     * Inicia la medición de una emisión de voto
+     *
+     * @return Contexto de la emisión; debe cerrarse con {@link Submission#finish(int)}
+     */
+    public Submission startSubmission() {
+        active.incrementAndGet();
+        return new Submission();
+    }
+
+    /**
+     * Registra la duración de una operación interna de almacenamiento
+     *
+     * @param operation  Operación (encrypt, write)
+     * @param electionId ID de la elección
+     * @param nanos      Duración en nanosegundos
+     */
+    public void recordStorage(String operation, String electionId, long nanos) {
+        Timer.builder(STORAGE_TIMER)
+            .description("Off-chain storage operations on the vote path")
+            .tag("operation", operation)
+            .tag("election", electionTag(electionId))
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Traduce un ID de elección a un valor de tag de cardinalidad acotada
+     */
+    String electionTag(String electionId) {
+        if (electionId == null || electionId.isBlank()) {
+            return UNKNOWN_ELECTION;
+        }
+        if (electionTags.contains(electionId)) {
+            return electionId;
+        }
+        synchronized (electionTags) {
+            if (electionTags.size() < maxElectionTags) {
+                electionTags.add(electionId);
+                return electionId;
+            }
+        }
+        return OTHER_ELECTIONS;
+    }
+
+    /**
+     * Contexto de medición de una única emisión de voto
+     *
+     * Las etapas son secuenciales: iniciar una etapa cierra la anterior.
+     * Los timers se registran al finalizar, cuando ya se conoce si la
+     * elección es válida y puede usarse como tag.
+     */
+    public final class Submission {
+
+        private final long startedAt = System.nanoTime();
+        private final Map<Stage, Long> durations = new EnumMap<>(Stage.class);
+        private String election = UNKNOWN_ELECTION;
+        private String electionId;
+        private Map<String, String> details;
+        private Stage current;
+        private long currentStartedAt;
+        private boolean finished;
+
+        private Submission() {
+        }
+
+        /**
+         * Cierra la etapa en curso (si la hay) e inicia la siguiente
+         */
+        public void stage(Stage next) {
+            endCurrentStage();
+            current = next;
+            currentStartedAt = System.nanoTime();
+            inFlight.get(next).incrementAndGet();
+        }
+
+        /**
+         * Asocia la emisión a una elección existente (solo tras validarla)
+         */
+        public void election(String electionId) {
+            this.election = electionTag(electionId);
+            this.electionId = electionId;
+        }
+
+        /**
+         * Añade un dato al evento de log de la emisión (p. ej. blobId o txId)
+         */
+        public void detail(String key, String value) {
+            if (details == null) {
+                details = new LinkedHashMap<>();
+            }
+            details.put(key, value);
+        }
+
+        /**
+         * Etapa en curso, o la última iniciada si ya se cerró
+         */
+        public Stage currentStage() {
+            return current;
+        }
+
+        /**
+         * Finaliza la medición a partir del código HTTP de la respuesta
+         *
+         * @param httpStatus Código HTTP devuelto al cliente
+         */
+        public void finish(int httpStatus) {
+            finish(outcomeFor(httpStatus));
+        }
+
+        /**
+         * Finaliza la medición registrando timers, contadores y gauges
+         */
+        public void finish(Outcome outcome) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            endCurrentStage();
+            active.decrementAndGet();
+
+            durations.forEach((stage, nanos) -> Timer.builder(STAGE_TIMER)
+                .description("Vote submission pipeline stage latency")
+                .tag("stage", stage.tagValue())
+                .tag("election", election)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS));
+
+            Timer.builder(DURATION_TIMER)
+                .description("End-to-end vote submission latency")
+                .tag("outcome", outcome.tagValue())
+                .register(registry)
+                .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+
+            Counter.builder(OUTCOME_COUNTER)
+                .description("Vote submission outcomes")
+                .tag("outcome", outcome.tagValue())
+                .tag("election", election)
+                .register(registry)
+                .increment();
+
+            logSummary(outcome);
+        }
+
+        /**
+         * Evento único por voto; solo se construye si el nivel está habilitado
+         */
+        private void logSummary(Outcome outcome) {
+            Level level = outcome == Outcome.ERROR || outcome == Outcome.FABRIC_FAILED ? Level.WARN : Level.INFO;
+            if (!voteLog.isEnabledForLevel(level)) {
+                return;
+            }
+            LoggingEventBuilder event = voteLog.atLevel(level)
+                .setMessage("vote submission")
+                .addKeyValue("outcome", outcome.tagValue())
+                .addKeyValue("election", electionId != null ? electionId : UNKNOWN_ELECTION)
+                .addKeyValue("total_ms", millis(System.nanoTime() - startedAt));
+            if (outcome == Outcome.ERROR || outcome == Outcome.FABRIC_FAILED) {
+                event.addKeyValue("failed_stage", current != null ? current.tagValue() : "none");
+            }
+            durations.forEach((stage, nanos) -> event.addKeyValue(stage.tagValue() + "_ms", millis(nanos)));
+            if (details != null) {
+                details.forEach(event::addKeyValue);
+            }
+            event.log();
+        }
+
+        private static double millis(long nanos) {
+            return Math.round(nanos / 1_000.0) / 1_000.0;
+        }
+
+        private Outcome outcomeFor(int httpStatus) {
+            if (httpStatus >= 200 && httpStatus < 300) {
+                return Outcome.ACCEPTED;
+            }
+            if (httpStatus == 409) {
+                return Outcome.DUPLICATE;
+            }
+            if (httpStatus >= 400 && httpStatus < 500) {
+                return Outcome.REJECTED;
+            }
+            // Un 5xx con la etapa de Fabric abierta indica fallo en el envío al ledger
+            return current == Stage.FABRIC_SUBMIT ? Outcome.FABRIC_FAILED : Outcome.ERROR;
+        }
+
+        private void endCurrentStage() {
+            if (current == null || currentStartedAt == 0) {
+                return;
+            }
+            durations.merge(current, System.nanoTime() - currentStartedAt, Long::sum);
+            inFlight.get(current).decrementAndGet();
+            currentStartedAt = 0;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package es.tfg.votacion.config;
+
+import es.tfg.votacion.model.User;
+import es.tfg.votacion.model.UserRole;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para RateLimitFilter
+ *
+ * Verifica:
+ * - Límite por IP en el login y por usuario en la emisión de votos
+ * - Recarga de tokens con el paso del tiempo
+ * - Memoria acotada mediante la expulsión de buckets llenos
+ * - Claves nuevas rechazadas (y no admitidas sin límite) con el mapa lleno
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ */
+class RateLimitFilterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final AtomicLong clock = new AtomicLong(0);
+    private RateLimitProperties properties;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RateLimitProperties();
+        properties.setLogin(new RateLimitProperties.Limit(2, 1.0));
+        properties.setVote(new RateLimitProperties.Limit(1, 0.5));
+        properties.setMaxBuckets(2);
+        filter = new RateLimitFilter(properties, clock::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Login should be limited per IP and refill over time")
+    void loginShouldBeLimitedPerIp() throws Exception {
+        assertEquals(200, login("10.0.0.1").getStatus());
+        assertEquals(200, login("10.0.0.1").getStatus());
+
+        MockHttpServletResponse rejected = login("10.0.0.1");
+        assertEquals(429, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+        assertEquals(200, login("10.0.0.2").getStatus(), "Other IPs have their own bucket");
+
+        clock.addAndGet(SECOND);
+        assertEquals(200, login("10.0.0.1").getStatus());
+    }
+
+    @Test
+    @DisplayName("Votes should be limited per authenticated user")
+    void votesShouldBeLimitedPerUser() throws Exception {
+        authenticate("user-1");
+        assertEquals(200, vote().getStatus());
+        MockHttpServletResponse rejected = vote();
+        assertEquals(429, rejected.getStatus());
+        assertEquals("2", rejected.getHeader("Retry-After"));
+
+        authenticate("user-2");
+        assertEquals(200, vote().getStatus());
+    }
+
+    @Test
+    @DisplayName("Other endpoints and anonymous votes should not be limited")
+    void otherRequestsShouldPassThrough() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/elections");
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request, response, new MockFilterChain());
+            assertEquals(200, response.getStatus());
+            assertEquals(200, vote().getStatus());
+        }
+        assertEquals(0, filter.bucketCount());
+    }
+
+    @Test
+    @DisplayName("Full buckets should be evicted when the limit is reached")
+    void fullBucketsShouldBeEvicted() throws Exception {
+        login("10.0.0.1");
+        login("10.0.0.2");
+        assertEquals(2, filter.bucketCount());
+
+        clock.addAndGet(5 * SECOND);
+        assertEquals(200, login("10.0.0.3").getStatus());
+        assertEquals(1, filter.bucketCount());
+    }
+
+    @Test
+    @DisplayName("Requests should still be limited when the bucket map is full")
+    void requestsShouldBeLimitedWhenMapIsFull() throws Exception {
+        login("10.0.0.1");
+        login("10.0.0.1");
+        login("10.0.0.2");
+        assertEquals(2, filter.bucketCount());
+
+        // Rotando IPs no se evita el límite: sin bucket libre las claves nuevas reciben 429
+        for (int i = 3; i < 10; i++) {
+            MockHttpServletResponse rejected = login("10.0.0." + i);
+            assertEquals(429, rejected.getStatus());
+            assertEquals("1", rejected.getHeader("Retry-After"));
+        }
+        assertEquals(429, login("10.0.0.1").getStatus(), "Tracked keys keep their limit");
+        assertEquals(2, filter.bucketCount());
+
+        // 10.0.0.2 se llena en 1 s: se expulsa y deja sitio a una clave nueva
+        clock.addAndGet(SECOND);
+        assertEquals(200, login("10.0.0.10").getStatus());
+        assertEquals(2, filter.bucketCount());
+        assertEquals(429, login("10.0.0.11").getStatus());
+    }
+
+    private MockHttpServletResponse login(String ip) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/login");
+        request.setRemoteAddr(ip);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private MockHttpServletResponse vote() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/elections/election-001/vote");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private void authenticate(String userId) {
+        User user = new User(userId, userId, userId + "@empresa.com", "Usuario " + userId,
+            UserRole.VOTER, "Ventas", true, null, LocalDateTime.now());
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(user, null, List.of()));
+    }
+}
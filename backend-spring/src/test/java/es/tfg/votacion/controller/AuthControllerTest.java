@@ -146,6 +146,24 @@ class AuthControllerTest {
                 .andExpect(jsonPath("$.message").value("Invalid username or password"));
     }
 
+    @Test
+    @DisplayName("Login rechazado con 429 cuando el pool BCrypt está saturado")
+    void testLoginWhenPasswordPoolSaturated() throws Exception {
+        // Given
+        LoginRequest loginRequest = new LoginRequest("test.user", "password123");
+        
+        when(authService.authenticateUser("test.user", "password123"))
+            .thenThrow(new AuthService.LoginCapacityExceededException("Too many concurrent logins, retry later"));
+
+        // When & Then
+        mockMvc.perform(post("/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.status").value(429));
+    }
+
     @Test
     @DisplayName("Login fallido con username vacío")
     void testLoginWithEmptyUsername() throws Exception {
@@ -26,6 +26,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.doNothing;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -173,6 +174,8 @@ class ElectionControllerTest {
         // Fix for varargs matching
         when(authService.hasAnyRole(any(), any())).thenReturn(true);
         when(authService.hasAnyRole(any(), eq(UserRole.ADMIN), eq(UserRole.AUDITOR))).thenReturn(true);
+        // Ningún cierre en curso: los votos a elecciones activas se admiten
+        when(electionService.admitVote(anyString())).thenReturn(true);
     }
 
     // ==================== GET ELECTIONS TESTS ====================
@@ -228,6 +231,95 @@ class ElectionControllerTest {
                 .andExpect(jsonPath("$", hasSize(0)));
     }
 
+    @Test
+    @DisplayName("Listar elecciones con ETag vigente retorna 304 sin construir la respuesta")
+    void testGetActiveElectionsNotModified() throws Exception {
+        // Given
+        when(electionService.getVersionEpoch()).thenReturn("epoch");
+        when(electionService.getCatalogVersion()).thenReturn(7L);
+        when(electionService.getActiveElections())
+            .thenReturn(List.of(activeElection));
+
+        String etag = mockMvc.perform(get("/elections"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().string("Cache-Control", containsString("no-cache")))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // When & Then: misma versión → 304
+        mockMvc.perform(get("/elections").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+        verify(electionService, times(1)).getActiveElections();
+
+        // Nueva versión → 200 con otro ETag
+        when(electionService.getCatalogVersion()).thenReturn(8L);
+        mockMvc.perform(get("/elections").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)));
+    }
+
+    @Test
+    @DisplayName("El ETag del detalle depende del usuario autenticado")
+    void testGetElectionByIdEtagPerUser() throws Exception {
+        // Given
+        when(authService.validateJwtToken(voterToken))
+            .thenReturn(voterUser);
+        when(authService.validateJwtToken(adminToken))
+            .thenReturn(adminUser);
+        when(electionService.getElectionById("election-001"))
+            .thenReturn(Optional.of(activeElection));
+        when(electionService.getElectionVersion("election-001")).thenReturn(3L);
+
+        String adminEtag = mockMvc.perform(get("/elections/election-001")
+                .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // When & Then: el ETag de otro usuario no sirve para el votante
+        mockMvc.perform(get("/elections/election-001")
+                .header("Authorization", "Bearer " + voterToken)
+                .header("If-None-Match", adminEtag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(adminEtag)));
+
+        mockMvc.perform(get("/elections/election-001")
+                .header("Authorization", "Bearer " + adminToken)
+                .header("If-None-Match", adminEtag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @DisplayName("Listar elecciones con limit devuelve una página con cursor")
+    void testGetActiveElectionsPaged() throws Exception {
+        // Given
+        when(electionService.getElectionsPage(any()))
+            .thenReturn(new ElectionService.ElectionPage(List.of(activeElection), "next-cursor"));
+
+        // When & Then
+        mockMvc.perform(get("/elections")
+                .param("status", "active")
+                .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id").value("election-001"))
+                .andExpect(jsonPath("$.nextCursor").value("next-cursor"))
+                .andExpect(jsonPath("$.limit").value(1));
+        verify(electionService, never()).getActiveElections();
+    }
+
+    @Test
+    @DisplayName("Listado público rechaza estados no publicados y parámetros inválidos")
+    void testGetActiveElectionsInvalidFilters() throws Exception {
+        mockMvc.perform(get("/elections").param("status", "draft"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/elections").param("from", "yesterday"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/elections").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        verify(electionService, never()).getElectionsPage(any());
+    }
+
     // ==================== GET ELECTION BY ID TESTS ====================
 
     @Test
@@ -317,6 +409,53 @@ class ElectionControllerTest {
         verify(electionService).registerVote(eq("election-001"), eq("voter-001"), eq("ENCRYPTED"), anyString(), anyString());
     }
 
+    @Test
+    @DisplayName("Reintento con Idempotency-Key reproduce la respuesta sin repetir el voto")
+    void testEmitVoteIdempotentRetry() throws Exception {
+        // Given
+        VoteSubmissionRequest voteRequest = new VoteSubmissionRequest(
+            "election-001",
+            "opt-001",
+            "encrypted-payload",
+            null
+        );
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        when(authService.validateJwtToken(voterToken))
+            .thenReturn(voterUser);
+        when(electionService.getElectionById("election-001"))
+            .thenReturn(Optional.of(activeElection));
+        when(electionService.hasUserVoted("election-001", "voter-001"))
+            .thenReturn(false);
+        when(storageService.storeEncrypted(eq("election-001"), any(byte[].class)))
+            .thenReturn("blob-12345");
+        when(fabricService.emitVote(anyString(), eq("election-001"), anyString()))
+            .thenReturn("abcdef0123456789");
+
+        // When & Then
+        for (int attempt = 0; attempt < 2; attempt++) {
+            mockMvc.perform(post("/elections/election-001/vote")
+                    .header("Authorization", "Bearer " + voterToken)
+                    .header("Idempotency-Key", idempotencyKey)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(voteRequest)))
+                    .andExpect(status().isCreated())
+                    .andExpect(jsonPath("$.transactionId").value("abcdef0123456789"));
+        }
+
+        // La misma clave con otro contenido se rechaza
+        VoteSubmissionRequest otherRequest = new VoteSubmissionRequest(
+            "election-001", "opt-002", "encrypted-payload", null);
+        mockMvc.perform(post("/elections/election-001/vote")
+                .header("Authorization", "Bearer " + voterToken)
+                .header("Idempotency-Key", idempotencyKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(otherRequest)))
+                .andExpect(status().isUnprocessableEntity());
+
+        verify(fabricService, times(1)).emitVote(anyString(), eq("election-001"), anyString());
+    }
+
     @Test
     @DisplayName("Emitir voto sin autenticación retorna 401")
     void testEmitVoteWithoutAuth() throws Exception {
@@ -413,6 +552,45 @@ class ElectionControllerTest {
                 .andExpect(jsonPath("$.message").value("Election is not active for voting"));
     }
 
+    @Test
+    @DisplayName("Votar tras solicitar el cierre (recuento en curso) retorna 400")
+    void testVoteAfterCloseRequested() throws Exception {
+        // Given
+        VoteSubmissionRequest voteRequest = new VoteSubmissionRequest(
+            "election-001",
+            "option-1",
+            null,
+            null
+        );
+
+        when(authService.validateJwtToken(voterToken))
+            .thenReturn(voterUser);
+        when(electionService.getElectionById("election-001"))
+            .thenReturn(Optional.of(activeElection.withStatus(ElectionStatus.CLOSING)));
+
+        // When & Then
+        mockMvc.perform(post("/elections/election-001/vote")
+                .header("Authorization", "Bearer " + voterToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(voteRequest)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Election is not active for voting"));
+
+        // Cierre iniciado entre la lectura de la elección y la admisión del voto
+        when(electionService.getElectionById("election-001"))
+            .thenReturn(Optional.of(activeElection));
+        when(electionService.admitVote("election-001")).thenReturn(false);
+
+        mockMvc.perform(post("/elections/election-001/vote")
+                .header("Authorization", "Bearer " + voterToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(voteRequest)))
+                .andExpect(status().isBadRequest());
+
+        verify(storageService, never()).storeEncrypted(anyString(), any());
+        verify(electionService, never()).registerVote(anyString(), anyString(), anyString(), anyString(), anyString());
+    }
+
     @Test
     @DisplayName("Votar con opción inválida retorna 400")
     void testVoteWithInvalidOption() throws Exception {
@@ -469,8 +647,9 @@ class ElectionControllerTest {
             .thenReturn(Optional.of(activeElection));
         
         // Mock return value
-        when(electionService.closeElection(eq("election-001"), anyString()))
-            .thenReturn(closedElection);
+        when(electionService.startClose(eq("election-001"), anyString()))
+            .thenReturn(new ElectionService.RecountStatus("job-1", "election-001", "running", 0, 0, 0, 0, 0,
+                null, java.time.Instant.now(), java.time.Instant.now(), null));
 
         es.tfg.votacion.dto.CloseElectionRequest closeRequest = new es.tfg.votacion.dto.CloseElectionRequest("fake-private-key");
 
@@ -479,10 +658,12 @@ class ElectionControllerTest {
                 .header("Authorization", "Bearer " + adminToken)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(closeRequest)))
-                .andExpect(status().isOk())
-                .andExpect(jsonPath("$.status").value("closed"));
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/elections/election-001/close/progress"))
+                .andExpect(jsonPath("$.jobId").value("job-1"))
+                .andExpect(jsonPath("$.status").value("running"));
 
-        verify(electionService).closeElection(eq("election-001"), anyString());
+        verify(electionService).startClose(eq("election-001"), anyString());
     }
 
     @Test
@@ -541,6 +722,33 @@ class ElectionControllerTest {
                 .andExpect(jsonPath("$.message").value("Election is not active"));
     }
 
+    @Test
+    @DisplayName("Progreso del recuento como AUDITOR")
+    void testGetCloseProgressAsAuditor() throws Exception {
+        // Given
+        when(authService.validateJwtToken(auditorToken))
+            .thenReturn(auditorUser);
+        when(electionService.getRecountStatus("election-001"))
+            .thenReturn(new ElectionService.RecountStatus("job-1", "election-001", "running", 500, 1200, 2, 1, 250.0,
+                "blob-0500", java.time.Instant.now(), java.time.Instant.now(), null));
+
+        // When & Then
+        mockMvc.perform(get("/elections/election-001/close/progress")
+                .header("Authorization", "Bearer " + auditorToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("running"))
+                .andExpect(jsonPath("$.processed").value(500))
+                .andExpect(jsonPath("$.total").value(1200))
+                .andExpect(jsonPath("$.integrityFailures").value(2))
+                .andExpect(jsonPath("$.decryptionFailures").value(1))
+                .andExpect(jsonPath("$.blobsPerSecond").value(250.0));
+
+        when(electionService.getRecountStatus("election-002")).thenReturn(null);
+        mockMvc.perform(get("/elections/election-002/close/progress")
+                .header("Authorization", "Bearer " + auditorToken))
+                .andExpect(status().isNotFound());
+    }
+
     // ==================== GET RESULTS TESTS ====================
 
     @Test
@@ -571,6 +779,33 @@ class ElectionControllerTest {
                 .andExpect(jsonPath("$.results[0].percentage").isNumber());
     }
 
+    @Test
+    @DisplayName("Ver resultados sirve el snapshot del cierre con caché fuerte")
+    void testGetResultsFromSnapshot() throws Exception {
+        // Given
+        byte[] body = "{\"electionId\":\"election-002\",\"totalVotes\":40}".getBytes();
+        when(authService.validateJwtToken(adminToken))
+            .thenReturn(adminUser);
+        when(electionService.getElectionById("election-002"))
+            .thenReturn(Optional.of(closedElection));
+        when(electionService.getResultsSnapshot("election-002"))
+            .thenReturn(new ElectionService.ResultsSnapshot(body, "c2hhMjU2LWhhc2g="));
+
+        // When & Then
+        mockMvc.perform(get("/elections/election-002/results")
+                .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"c2hhMjU2LWhhc2g=\""))
+                .andExpect(header().string("Cache-Control", containsString("immutable")))
+                .andExpect(jsonPath("$.totalVotes").value(40));
+
+        mockMvc.perform(get("/elections/election-002/results")
+                .header("Authorization", "Bearer " + adminToken)
+                .header("If-None-Match", "\"c2hhMjU2LWhhc2g=\""))
+                .andExpect(status().isNotModified());
+        verify(electionService, never()).getElectionResults("election-002");
+    }
+
     @Test
     @DisplayName("Ver resultados como AUDITOR")
     void testGetResultsAsAuditor() throws Exception {
@@ -687,4 +922,44 @@ class ElectionControllerTest {
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.verified").value(true));
     }
+
+    // ==================== TURNOUT STREAM TESTS ====================
+
+    @Test
+    @DisplayName("Stream de participación abre SSE para ADMIN con el estado inicial")
+    void testTurnoutStreamAdmin() throws Exception {
+        // Given
+        when(authService.validateJwtToken(adminToken))
+            .thenReturn(adminUser);
+        when(electionService.getElectionById("election-001"))
+            .thenReturn(Optional.of(activeElection));
+        when(electionService.getTotalVoters("election-001"))
+            .thenReturn(42);
+
+        // When & Then
+        mockMvc.perform(get("/elections/election-001/turnout/stream")
+                .header("Authorization", "Bearer " + adminToken))
+                .andExpect(request().asyncStarted())
+                .andExpect(header().string("Content-Type", containsString("text/event-stream")))
+                .andExpect(content().string(containsString("\"totalVoters\":42")));
+    }
+
+    @Test
+    @DisplayName("Stream de participación rechaza votantes y elecciones inexistentes")
+    void testTurnoutStreamForbiddenAndNotFound() throws Exception {
+        when(authService.validateJwtToken(voterToken))
+            .thenReturn(voterUser);
+        when(authService.validateJwtToken(adminToken))
+            .thenReturn(adminUser);
+        when(electionService.getElectionById("non-existent"))
+            .thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/elections/election-001/turnout/stream")
+                .header("Authorization", "Bearer " + voterToken))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(get("/elections/non-existent/turnout/stream")
+                .header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isNotFound());
+    }
 }
@@ -0,0 +1,89 @@
+package es.tfg.votacion.service;
+
+import es.tfg.votacion.config.AuthProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para el pool acotado de verificación BCrypt
+ *
+ * Verifica:
+ * - Rechazo rápido de logins cuando el pool y su cola están llenos
+ * - Métricas de tiempo de hash y logins rechazados
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ */
+class AuthServiceLoginPoolTest {
+
+    private SimpleMeterRegistry registry;
+    private AuthService authService;
+
+    @BeforeEach
+    void setUp() {
+        AuthProperties properties = new AuthProperties();
+        properties.setUsersFile("src/main/resources/mock/users.json");
+        properties.getJwt().setSecret("test-secret-key-for-jwt-signing-must-be-at-least-256-bits-long");
+        properties.getReload().setEnabled(false);
+        properties.getLogin().setWorkers(1);
+        properties.getLogin().setQueueCapacity(1);
+        registry = new SimpleMeterRegistry();
+        authService = new AuthService(properties, registry);
+        authService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        authService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Saturated pool should reject logins instead of queueing them")
+    void saturatedPoolShouldRejectLogins() throws Exception {
+        int attempts = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger authenticated = new AtomicInteger();
+        ExecutorService clients = Executors.newFixedThreadPool(attempts);
+        List<Future<?>> results = new ArrayList<>();
+
+        for (int i = 0; i < attempts; i++) {
+            results.add(clients.submit(() -> {
+                start.await();
+                try {
+                    if (authService.authenticateUser("test.user", "password123") != null) {
+                        authenticated.incrementAndGet();
+                    }
+                } catch (AuthService.LoginCapacityExceededException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        clients.shutdown();
+
+        assertTrue(rejected.get() > 0, "Some logins should be rejected");
+        assertTrue(authenticated.get() > 0, "Admitted logins should still succeed");
+        assertEquals(attempts, rejected.get() + authenticated.get());
+        assertEquals(rejected.get(), registry.get("auth.login.rejected").counter().count());
+        assertEquals(authenticated.get(), registry.get("auth.password.verify").timer().count());
+        assertEquals(0.0, registry.get("auth.login.queue.depth").gauge().value());
+    }
+}
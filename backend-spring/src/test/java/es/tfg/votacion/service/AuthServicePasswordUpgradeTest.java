@@ -0,0 +1,118 @@
+package es.tfg.votacion.service;
+
+import es.tfg.votacion.config.AuthProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para la calibración del coste BCrypt y el re-hash en el login
+ *
+ * Verifica:
+ * - Selección del coste dentro de los límites configurados
+ * - Re-hash al coste objetivo tras un login correcto
+ * - Persistencia de los hashes regenerados en el archivo de usuarios
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ */
+class AuthServicePasswordUpgradeTest {
+
+    // Hash BCrypt de coste 10 de "password123"
+    private static final String HASH = "$2b$10$lG5t085DkHyjC0dOjXuZtem/XVXvTnebO2FAPwDQjNXvtGAio8s6y";
+    private static final String PASSWORD = "password123";
+
+    @TempDir
+    Path tempDir;
+
+    private AuthService authService;
+
+    @AfterEach
+    void tearDown() {
+        if (authService != null) {
+            authService.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Calibration should pick a cost within the configured bounds")
+    void calibrationShouldRespectBounds() throws IOException {
+        AuthProperties generous = properties(writeUsersFile());
+        generous.getPassword().setMinCost(4);
+        generous.getPassword().setMaxCost(6);
+        generous.getPassword().setTargetMillis(60_000);
+        authService = new AuthService(generous, new SimpleMeterRegistry());
+        authService.init();
+        assertEquals(6, authService.getPasswordCost());
+        authService.shutdown();
+
+        AuthProperties strict = properties(writeUsersFile());
+        strict.getPassword().setMinCost(5);
+        strict.getPassword().setMaxCost(8);
+        strict.getPassword().setTargetMillis(0);
+        authService = new AuthService(strict, new SimpleMeterRegistry());
+        authService.init();
+        assertEquals(5, authService.getPasswordCost());
+    }
+
+    @Test
+    @DisplayName("Successful login should rehash and persist the password at the target cost")
+    void loginShouldRehashAndPersist() throws IOException {
+        Path usersFile = writeUsersFile();
+        AuthProperties properties = properties(usersFile);
+        properties.getPassword().setCalibrate(false);
+        properties.getPassword().setCost(4);
+        properties.getPassword().setPersistRehash(true);
+        properties.getPassword().setPersistIntervalSeconds(3600);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        authService = new AuthService(properties, registry);
+        authService.init();
+
+        assertNotNull(authService.authenticateUser("ana.lopez", PASSWORD));
+        assertNotNull(authService.authenticateUser("ana.lopez", PASSWORD));
+        assertNull(authService.authenticateUser("ana.lopez", "wrong-password"));
+        assertEquals(1.0, registry.get("auth.password.rehash").counter().count());
+
+        authService.flushRehashedPasswords();
+
+        String persisted = Files.readString(usersFile, StandardCharsets.UTF_8);
+        assertFalse(persisted.contains(HASH), "Old hash should be replaced");
+        assertTrue(persisted.contains("$2b$04$"), "New hash should use the target cost");
+        assertTrue(persisted.contains("\"fullName\" : \"Ana López\""), "Other fields should be preserved");
+        assertNotNull(authService.authenticateUser("ana.lopez", PASSWORD));
+    }
+
+    @Test
+    @DisplayName("Should extract the cost from a BCrypt hash")
+    void shouldExtractCost() {
+        assertEquals(10, AuthService.costOf(HASH));
+        assertEquals(-1, AuthService.costOf("not-a-hash"));
+    }
+
+    private Path writeUsersFile() throws IOException {
+        Path usersFile = Files.createTempFile(tempDir, "users", ".json");
+        Files.writeString(usersFile, """
+            [{"id": "u1", "username": "ana.lopez", "password": "%s", "email": "ana.lopez@empresa.com",
+              "fullName": "Ana López", "role": "VOTER", "department": "Ventas",
+              "active": true, "lastLogin": null, "createdAt": "2025-01-01T00:00:00"}]
+            """.formatted(HASH), StandardCharsets.UTF_8);
+        return usersFile;
+    }
+
+    private static AuthProperties properties(Path usersFile) {
+        AuthProperties properties = new AuthProperties();
+        properties.setUsersFile(usersFile.toString());
+        properties.getJwt().setSecret("test-secret-key-for-jwt-signing-must-be-at-least-256-bits-long");
+        properties.getReload().setEnabled(false);
+        return properties;
+    }
+}
@@ -0,0 +1,127 @@
+package es.tfg.votacion.service;
+
+import es.tfg.votacion.config.AuthProperties;
+import es.tfg.votacion.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para la recarga en caliente del directorio de usuarios
+ *
+ * Verifica:
+ * - Aplicación incremental de altas, bajas y desactivaciones
+ * - Invalidación de tokens de usuarios desactivados
+ * - Rechazo de archivos inválidos conservando el directorio
+ * - Detección de cambios mediante WatchService
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ */
+class AuthServiceReloadTest {
+
+    private static final String HASH = "$2b$10$lG5t085DkHyjC0dOjXuZtem/XVXvTnebO2FAPwDQjNXvtGAio8s6y";
+
+    @TempDir
+    Path tempDir;
+
+    private Path usersFile;
+    private AuthService authService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        usersFile = tempDir.resolve("users.json");
+        writeUsers(user("u1", "ana.lopez", true), user("u2", "luis.ruiz", true));
+
+        AuthProperties properties = new AuthProperties();
+        properties.setUsersFile(usersFile.toString());
+        properties.getJwt().setSecret("test-secret-key-for-jwt-signing-must-be-at-least-256-bits-long");
+        properties.getJwt().setIssuer("votacion-test");
+        properties.getJwt().setAudience("test-system");
+        properties.getReload().setDebounceMillis(50);
+        authService = new AuthService(properties, new SimpleMeterRegistry());
+        authService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        authService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Reload should apply only the differences")
+    void reloadShouldApplyDiff() throws IOException {
+        writeUsers(user("u1", "ana.lopez", false), user("u3", "eva.sanz", true));
+
+        AuthService.DirectoryDiff diff = authService.reloadUsers();
+
+        assertEquals(new AuthService.DirectoryDiff(1, 0, 1, 1), diff);
+        assertFalse(authService.isUserActive("ana.lopez"));
+        assertNull(authService.findUserByUsername("luis.ruiz"));
+        assertEquals("u3", authService.findUserByUsername("eva.sanz").id());
+        assertEquals(new AuthService.DirectoryDiff(0, 0, 0, 0), authService.reloadUsers());
+    }
+
+    @Test
+    @DisplayName("Deactivated users should lose their cached tokens")
+    void deactivationShouldInvalidateTokens() throws IOException {
+        String token = authService.generateJwtToken(authService.findUserByUsername("ana.lopez"));
+        assertNotNull(authService.validateJwtToken(token));
+
+        writeUsers(user("u1", "ana.lopez", false), user("u2", "luis.ruiz", true));
+        authService.reloadUsers();
+
+        assertEquals(0, authService.getValidatedTokenCacheSize());
+        assertNull(authService.validateJwtToken(token));
+    }
+
+    @Test
+    @DisplayName("Invalid file should keep the current directory")
+    void invalidFileShouldKeepDirectory() throws IOException {
+        Files.writeString(usersFile, "[" + user("u1", "ana.lopez", true) + ", {\"id\": \"broken\"}]");
+
+        assertThrows(IOException.class, () -> authService.reloadUsers());
+        assertNotNull(authService.findUserByUsername("luis.ruiz"));
+    }
+
+    @Test
+    @DisplayName("Watcher should reload the directory when the file changes")
+    void watcherShouldReloadOnChange() throws Exception {
+        Path staged = tempDir.resolve("users.json.tmp");
+        Files.writeString(staged, "[" + user("u1", "ana.lopez", true) + "," + user("u4", "pablo.gil", true) + "]");
+        Files.move(staged, usersFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        User added = null;
+        while (added == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            added = authService.findUserByUsername("pablo.gil");
+        }
+
+        assertNotNull(added, "Watcher should pick up the new user");
+        assertNull(authService.findUserByUsername("luis.ruiz"));
+    }
+
+    private void writeUsers(String... users) throws IOException {
+        Files.writeString(usersFile, "[" + String.join(",", users) + "]", StandardCharsets.UTF_8);
+    }
+
+    private static String user(String id, String username, boolean active) {
+        return """
+            {"id": "%s", "username": "%s", "password": "%s", "email": "%s@empresa.com",
+             "fullName": "Usuario %s", "role": "VOTER", "department": "Ventas",
+             "active": %s, "lastLogin": null, "createdAt": "2025-01-01T00:00:00"}
+            """.formatted(id, username, HASH, username, username, active);
+    }
+}
@@ -20,6 +20,7 @@ import static org.junit.jupiter.api.Assertions.*;
  * - Autenticación con BCrypt
  * - Generación de JWT tokens
  * - Validación de JWT tokens
+ * - Cache de tokens validados
  * - Gestión de roles
  * - Búsqueda de usuarios
  * 
@@ -424,4 +425,53 @@ class AuthServiceTest {
         assertEquals(user1.id(), user2.id());
         assertEquals(user1.id(), user3.id());
     }
+
+    @Test
+    @Order(26)
+    @DisplayName("Repeated validations should be served from the token cache")
+    void repeatedValidationShouldUseTokenCache() {
+        User user = authService.authenticateUser(VALID_USERNAME, VALID_PASSWORD);
+        String token = authService.generateJwtToken(user);
+        
+        User first = authService.validateJwtToken(token);
+        int cacheSize = authService.getValidatedTokenCacheSize();
+        User second = authService.validateJwtToken(token);
+        
+        assertNotNull(first);
+        assertNotNull(second);
+        assertEquals(first.id(), second.id());
+        assertTrue(cacheSize > 0, "Validated token should be cached");
+        assertEquals(cacheSize, authService.getValidatedTokenCacheSize(), "Cache hit should not add entries");
+    }
+
+    @Test
+    @Order(27)
+    @DisplayName("Invalidating a user should evict its cached tokens")
+    void invalidateTokensForUserShouldEvictCachedTokens() {
+        User user = authService.authenticateUser(VALID_USERNAME, VALID_PASSWORD);
+        String token = authService.generateJwtToken(user);
+        assertNotNull(authService.validateJwtToken(token));
+        int cacheSize = authService.getValidatedTokenCacheSize();
+        
+        authService.invalidateTokensForUser(VALID_USERNAME.toUpperCase());
+        
+        assertTrue(authService.getValidatedTokenCacheSize() < cacheSize);
+        // El token sigue siendo válido: se re-verifica la firma y se vuelve a cachear
+        assertNotNull(authService.validateJwtToken(token));
+    }
+
+    @Test
+    @Order(28)
+    @DisplayName("Tampered token should not be accepted from the cache")
+    void tamperedTokenShouldNotHitCache() {
+        User user = authService.authenticateUser(VALID_USERNAME, VALID_PASSWORD);
+        String token = authService.generateJwtToken(user);
+        assertNotNull(authService.validateJwtToken(token));
+        
+        String[] parts = token.split("\\.");
+        char flipped = parts[1].charAt(10) == 'A' ? 'B' : 'A';
+        String tampered = parts[0] + "." + parts[1].substring(0, 10) + flipped + parts[1].substring(11) + "." + parts[2];
+        
+        assertNull(authService.validateJwtToken(tampered));
+    }
 }
@@ -0,0 +1,116 @@
+package es.tfg.votacion.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para BallotEnvelope
+ *
+ * Verifica:
+ * - Ida y vuelta de todos los campos, incluidos caracteres no ASCII
+ * - Sustitutos aislados escritos como '?' (igual que String.getBytes)
+ * - Tamaño menor que el JSON equivalente
+ * - Lectura de votos JSON antiguos
+ * - Rechazo de sobres truncados o con bytes sobrantes
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ */
+class BallotEnvelopeTest {
+
+    private static final Instant TIMESTAMP = Instant.parse("2030-05-01T10:15:30.123Z");
+
+    @Test
+    @DisplayName("Envelope should round-trip every field")
+    void envelopeShouldRoundTrip() throws Exception {
+        String ballot = "hyb1." + Base64.getEncoder().encodeToString(new byte[300]);
+        byte[] encoded = BallotEnvelope.encode(BallotEnvelope.ENCRYPTED_BALLOT, TIMESTAMP, ballot,
+            "election-001", "user_josé.núñez_001", null);
+
+        assertTrue(BallotEnvelope.isEnvelope(encoded));
+        BallotEnvelope envelope = BallotEnvelope.decode(encoded);
+        assertEquals(BallotEnvelope.FORMAT_VERSION, envelope.version());
+        assertEquals(BallotEnvelope.ENCRYPTED_BALLOT, envelope.ballotType());
+        assertTrue(envelope.isEncrypted());
+        assertEquals(TIMESTAMP, envelope.timestamp());
+        assertEquals(ballot, envelope.vote());
+        assertEquals(ballot.length(), envelope.voteBytes().remaining());
+        assertEquals("election-001", envelope.electionId());
+        assertEquals("user_josé.núñez_001", envelope.userId());
+        assertEquals("", envelope.comment());
+
+        BallotEnvelope plain = BallotEnvelope.decode(BallotEnvelope.encode(BallotEnvelope.PLAIN_BALLOT, TIMESTAMP,
+            "opt1", "election-001", "user-1", "¡Ánimo! 🗳"));
+        assertFalse(plain.isEncrypted());
+        assertEquals("opt1", plain.vote());
+        assertEquals("¡Ánimo! 🗳", plain.comment());
+
+        // Mismos datos que el JSON que se guardaba antes
+        Map<String, Object> json = new HashMap<>();
+        json.put("electionId", "election-001");
+        json.put("encryptedVote", ballot);
+        json.put("userId", "user_josé.núñez_001");
+        json.put("timestamp", TIMESTAMP.toString());
+        assertTrue(encoded.length < new ObjectMapper().writeValueAsBytes(json).length);
+    }
+
+    @Test
+    @DisplayName("Lone surrogates should be written as '?' like String.getBytes")
+    void loneSurrogatesShouldBeReplaced() {
+        // Misma longitud en bytes que en caracteres: no debe tomarse el camino ASCII
+        for (String comment : new String[] {"a\uD800b", "\uDC00", "ok\uD83D", "ñ\uD800🗳"}) {
+            byte[] encoded = BallotEnvelope.encode(BallotEnvelope.PLAIN_BALLOT, TIMESTAMP, "opt1",
+                "election-001", "user-1", comment);
+            BallotEnvelope envelope = BallotEnvelope.decode(encoded);
+            assertEquals(new String(comment.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8),
+                envelope.comment());
+            assertFalse(envelope.comment().contains("\u0000"));
+        }
+    }
+
+    @Test
+    @DisplayName("Legacy JSON votes should be read into an envelope")
+    void legacyJsonShouldBeReadable() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        byte[] legacy = ("{\"electionId\":\"election-001\",\"encryptedVote\":\"phe1.AQ\","
+            + "\"userId\":\"user-1\",\"timestamp\":\"" + TIMESTAMP + "\"}").getBytes(StandardCharsets.UTF_8);
+        assertFalse(BallotEnvelope.isEnvelope(legacy));
+
+        BallotEnvelope envelope = BallotEnvelope.fromLegacyJson(mapper.readTree(legacy));
+        assertTrue(envelope.isEncrypted());
+        assertEquals("phe1.AQ", envelope.vote());
+        assertEquals(TIMESTAMP, envelope.timestamp());
+        assertEquals("user-1", envelope.userId());
+
+        BallotEnvelope plain = BallotEnvelope.fromLegacyJson(mapper.readTree("{\"optionId\":\"opt2\"}"));
+        assertFalse(plain.isEncrypted());
+        assertEquals("opt2", plain.vote());
+        assertThrows(IllegalArgumentException.class, () -> BallotEnvelope.fromLegacyJson(mapper.readTree("{}")));
+    }
+
+    @Test
+    @DisplayName("Truncated or padded envelopes should be rejected")
+    void malformedEnvelopesShouldBeRejected() {
+        byte[] encoded = BallotEnvelope.encode(BallotEnvelope.PLAIN_BALLOT, TIMESTAMP, "opt1",
+            "election-001", "user-1", "comment");
+
+        for (int length = BallotEnvelope.HEADER_LENGTH; length < encoded.length; length++) {
+            byte[] truncated = Arrays.copyOf(encoded, length);
+            assertThrows(IllegalArgumentException.class, () -> BallotEnvelope.decode(truncated));
+        }
+        assertThrows(IllegalArgumentException.class,
+            () -> BallotEnvelope.decode(Arrays.copyOf(encoded, encoded.length + 1)));
+        assertThrows(IllegalArgumentException.class,
+            () -> BallotEnvelope.decode("{\"optionId\":\"opt1\"}".getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,94 @@
+package es.tfg.votacion.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks JMH para CryptoService
+ *
+ * Mide:
+ * - Cifrado/descifrado RSA reconstruyendo la clave desde PEM en cada llamada
+ * - Cifrado/descifrado RSA con la clave ya reconstruida (sin re-parseo)
+ * - Descifrado de papeletas híbridas RSA-OAEP + AES-GCM (pequeñas y de 4 KB)
+ * - Generación de pares de claves RSA por elección
+ *
+ * Ejecución: ./mvnw -Pbenchmark test -Djmh.args="CryptoServiceBenchmark"
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CryptoServiceBenchmark {
+
+    private static final String OPTION_ID = "option-1";
+    private static final String ELECTION_ID = "election-bench";
+
+    private CryptoService cryptoService;
+    private String publicKeyPem;
+    private String privateKeyPem;
+    private PublicKey publicKey;
+    private PrivateKey privateKey;
+    private String encryptedVote;
+    private String hybridVote;
+    private String largeHybridVote;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StorageServiceBenchmark.quietLogging();
+        cryptoService = new CryptoService();
+        KeyPair keyPair = cryptoService.generateKeyPair();
+        publicKey = keyPair.getPublic();
+        privateKey = keyPair.getPrivate();
+        publicKeyPem = cryptoService.publicKeyToPem(publicKey);
+        privateKeyPem = cryptoService.privateKeyToPem(privateKey);
+        encryptedVote = cryptoService.encrypt(OPTION_ID, publicKey);
+        hybridVote = cryptoService.encryptHybrid(OPTION_ID.getBytes(java.nio.charset.StandardCharsets.UTF_8),
+            publicKey, ELECTION_ID);
+        largeHybridVote = cryptoService.encryptHybrid(new byte[4096], publicKey, ELECTION_ID);
+    }
+
+    @Benchmark
+    public String encryptWithPemParsing() {
+        return cryptoService.encrypt(OPTION_ID, publicKeyPem);
+    }
+
+    @Benchmark
+    public String encryptWithParsedKey() {
+        return cryptoService.encrypt(OPTION_ID, publicKey);
+    }
+
+    @Benchmark
+    public String decryptWithPemParsing() {
+        return cryptoService.decrypt(encryptedVote, privateKeyPem);
+    }
+
+    @Benchmark
+    public String decryptWithParsedKey() {
+        return cryptoService.decrypt(encryptedVote, privateKey);
+    }
+
+    @Benchmark
+    public String decryptHybridBallot() {
+        return cryptoService.decryptBallot(hybridVote, privateKey, ELECTION_ID);
+    }
+
+    @Benchmark
+    public byte[] decryptLargeHybridBallot() {
+        return cryptoService.decryptHybrid(largeHybridVote, privateKey, ELECTION_ID);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public KeyPair generateKeyPair() {
+        return cryptoService.generateKeyPair();
+    }
+}
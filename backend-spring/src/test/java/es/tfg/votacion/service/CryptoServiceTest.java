@@ -0,0 +1,156 @@
+package es.tfg.votacion.service;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para CryptoService
+ *
+ * Verifica:
+ * - Ida y vuelta del formato híbrido RSA-OAEP + AES-GCM
+ * - Papeletas mayores que el límite de RSA directo
+ * - Rechazo de papeletas trasladadas a otra elección o manipuladas
+ * - Compatibilidad con el formato RSA legacy
+ * - Suma homomórfica Paillier y validación de papeletas
+ * - Pruebas de validez: rechazo de papeletas que trasladan votos entre opciones
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ */
+class CryptoServiceTest {
+
+    private static CryptoService cryptoService;
+    private static KeyPair keyPair;
+    private static CryptoService.PaillierKeyPair paillierKeyPair;
+
+    @BeforeAll
+    static void setUp() {
+        cryptoService = new CryptoService();
+        keyPair = cryptoService.generateKeyPair();
+        paillierKeyPair = cryptoService.generatePaillierKeyPair();
+    }
+
+    @Test
+    @DisplayName("Hybrid ballots should round-trip regardless of size")
+    void hybridBallotShouldRoundTrip() {
+        String ranking = "[\"opt-3\",\"opt-1\",\"opt-2\"]".repeat(40);
+        assertTrue(ranking.length() > 245);
+
+        String ballot = cryptoService.encryptHybrid(
+            ranking.getBytes(StandardCharsets.UTF_8), keyPair.getPublic(), "election-001");
+
+        assertTrue(cryptoService.isHybridBallot(ballot));
+        assertEquals(ranking, cryptoService.decryptBallot(ballot, keyPair.getPrivate(), "election-001"));
+    }
+
+    @Test
+    @DisplayName("Hybrid ballots should be bound to their election and authenticated")
+    void hybridBallotShouldRejectOtherElectionAndTampering() {
+        String ballot = cryptoService.encryptHybrid(
+            "opt-1".getBytes(StandardCharsets.UTF_8), keyPair.getPublic(), "election-001");
+
+        assertThrows(RuntimeException.class,
+            () -> cryptoService.decryptBallot(ballot, keyPair.getPrivate(), "election-002"));
+
+        char last = ballot.charAt(ballot.length() - 1);
+        String tampered = ballot.substring(0, ballot.length() - 1) + (last == 'A' ? 'B' : 'A');
+        assertThrows(RuntimeException.class,
+            () -> cryptoService.decryptBallot(tampered, keyPair.getPrivate(), "election-001"));
+    }
+
+    @Test
+    @DisplayName("Legacy RSA ballots should still be decrypted")
+    void legacyBallotShouldStillDecrypt() {
+        String legacy = cryptoService.encrypt("opt-2", keyPair.getPublic());
+
+        assertFalse(cryptoService.isHybridBallot(legacy));
+        assertEquals("opt-2", cryptoService.decryptBallot(legacy, keyPair.getPrivate(), "election-001"));
+    }
+
+    @Test
+    @DisplayName("Paillier ciphertexts should add homomorphically")
+    void paillierShouldAddCiphertexts() {
+        CryptoService.PaillierPublicKey publicKey = cryptoService.parsePaillierPublicKey(
+            cryptoService.paillierPublicKeyToString(paillierKeyPair.publicKey()));
+        CryptoService.PaillierPrivateKey privateKey = cryptoService.parsePaillierPrivateKey(
+            cryptoService.paillierPrivateKeyToString(paillierKeyPair.privateKey()));
+
+        BigInteger sum = cryptoService.paillierEncrypt(publicKey, BigInteger.ZERO);
+        for (int i = 1; i <= 5; i++) {
+            sum = cryptoService.paillierAdd(publicKey, sum, cryptoService.paillierEncrypt(publicKey, BigInteger.valueOf(i)));
+        }
+
+        assertEquals(BigInteger.valueOf(15), cryptoService.paillierDecrypt(privateKey, sum));
+    }
+
+    @Test
+    @DisplayName("Homomorphic ballots should carry one valid ciphertext per option and a validity proof")
+    void homomorphicBallotShouldBeValidated() {
+        CryptoService.PaillierPublicKey publicKey = paillierKeyPair.publicKey();
+        String ballot = cryptoService.encryptHomomorphicBallot(publicKey, 1, 3);
+
+        BigInteger[] ciphertexts = cryptoService.parseHomomorphicBallot(publicKey, ballot, 3);
+        assertEquals(BigInteger.ZERO, cryptoService.paillierDecrypt(paillierKeyPair.privateKey(), ciphertexts[0]));
+        assertEquals(BigInteger.ONE, cryptoService.paillierDecrypt(paillierKeyPair.privateKey(), ciphertexts[1]));
+
+        assertThrows(IllegalArgumentException.class, () -> cryptoService.parseHomomorphicBallot(publicKey, ballot, 2));
+        String multipleOfN = CryptoService.HOMOMORPHIC_PREFIX + CryptoService.encodeBigInteger(publicKey.n());
+        assertThrows(IllegalArgumentException.class, () -> cryptoService.parseHomomorphicBallot(publicKey, multipleOfN, 1));
+        assertThrows(IllegalArgumentException.class, () -> cryptoService.parseHomomorphicBallot(publicKey, "phe1.***", 1));
+
+        // Sin prueba (formato anterior) no se acepta
+        String[] parts = ballot.substring(CryptoService.HOMOMORPHIC_PREFIX.length()).split("\\.");
+        assertEquals(3 + PaillierBallotProof.proofLength(3), parts.length);
+        String withoutProof = CryptoService.HOMOMORPHIC_PREFIX + String.join(".", java.util.Arrays.copyOf(parts, 3));
+        assertThrows(IllegalArgumentException.class, () -> cryptoService.parseHomomorphicBallot(publicKey, withoutProof, 3));
+    }
+
+    @Test
+    @DisplayName("Ballots that move votes between options should fail the validity proof")
+    void ballotShiftingVotesShouldBeRejected() {
+        CryptoService.PaillierPublicKey publicKey = paillierKeyPair.publicKey();
+        String honest = cryptoService.encryptHomomorphicBallot(publicKey, 2, 3);
+        String[] parts = honest.substring(CryptoService.HOMOMORPHIC_PREFIX.length()).split("\\.");
+
+        // (+2, -1, 0): suma 1, pero quita un voto a la segunda opción
+        BigInteger minusOne = publicKey.n().subtract(BigInteger.ONE);
+        String[] shifted = parts.clone();
+        shifted[0] = CryptoService.encodeBigInteger(cryptoService.paillierEncrypt(publicKey, BigInteger.TWO));
+        shifted[1] = CryptoService.encodeBigInteger(cryptoService.paillierEncrypt(publicKey, minusOne));
+        shifted[2] = CryptoService.encodeBigInteger(cryptoService.paillierEncrypt(publicKey, BigInteger.ZERO));
+        assertThrows(IllegalArgumentException.class,
+            () -> cryptoService.parseHomomorphicBallot(publicKey, join(shifted), 3));
+
+        // Cifrados válidos (0/1) de otra papeleta con la prueba de esta
+        String[] other = cryptoService.encryptHomomorphicBallot(publicKey, 0, 3)
+            .substring(CryptoService.HOMOMORPHIC_PREFIX.length()).split("\\.");
+        String[] swapped = parts.clone();
+        System.arraycopy(other, 0, swapped, 0, 3);
+        assertThrows(IllegalArgumentException.class,
+            () -> cryptoService.parseHomomorphicBallot(publicKey, join(swapped), 3));
+
+        // Cualquier elemento de la prueba alterado
+        for (int i = 3; i < parts.length; i++) {
+            String[] tampered = parts.clone();
+            tampered[i] = CryptoService.encodeBigInteger(CryptoService.decodeBigInteger(parts[i]).add(BigInteger.ONE));
+            assertThrows(IllegalArgumentException.class,
+                () -> cryptoService.parseHomomorphicBallot(publicKey, join(tampered), 3), "Proof element " + i);
+        }
+
+        // La misma papeleta no vale con la clave de otra elección
+        CryptoService.PaillierPublicKey otherKey = cryptoService.generatePaillierKeyPair().publicKey();
+        assertThrows(IllegalArgumentException.class, () -> cryptoService.parseHomomorphicBallot(otherKey, honest, 3));
+        assertEquals(3, cryptoService.parseHomomorphicBallot(publicKey, honest, 3).length);
+    }
+
+    private static String join(String[] parts) {
+        return CryptoService.HOMOMORPHIC_PREFIX + String.join(".", parts);
+    }
+}
@@ -0,0 +1,86 @@
+package es.tfg.votacion.service;
+
+import es.tfg.votacion.config.ElectionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests para ElectionKeyPool
+ *
+ * Verifica:
+ * - Relleno en segundo plano hasta el tamaño configurado
+ * - Cada par se entrega una sola vez
+ * - Generación en el momento con el pool desactivado o vacío
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ */
+class ElectionKeyPoolTest {
+
+    private ElectionKeyPool pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should fill in background and hand out each pair once")
+    void shouldFillAndHandOutDistinctPairs() throws Exception {
+        CryptoService cryptoService = mock(CryptoService.class);
+        when(cryptoService.generateKeyPair(3072)).thenAnswer(invocation -> mock(KeyPair.class));
+
+        pool = new ElectionKeyPool(cryptoService, properties(3, 3072), new SimpleMeterRegistry());
+        pool.start();
+        waitUntilAvailable(3);
+
+        Set<KeyPair> handedOut = new HashSet<>();
+        for (int i = 0; i < 6; i++) {
+            assertTrue(handedOut.add(pool.take()), "Key pair handed out twice");
+        }
+        verify(cryptoService, never()).generateKeyPair();
+        verify(cryptoService, atLeast(6)).generateKeyPair(3072);
+    }
+
+    @Test
+    @DisplayName("Disabled pool should generate key pairs inline")
+    void disabledPoolShouldGenerateInline() {
+        CryptoService cryptoService = mock(CryptoService.class);
+        KeyPair keyPair = mock(KeyPair.class);
+        when(cryptoService.generateKeyPair(anyInt())).thenReturn(keyPair);
+
+        pool = new ElectionKeyPool(cryptoService, properties(0, 2048), new SimpleMeterRegistry());
+        pool.start();
+
+        assertSame(keyPair, pool.take());
+        assertEquals(0, pool.available());
+        verify(cryptoService, times(1)).generateKeyPair(2048);
+    }
+
+    private static ElectionProperties properties(int size, int keySize) {
+        ElectionProperties properties = new ElectionProperties();
+        properties.getKeyPool().setSize(size);
+        properties.getKeyPool().setKeySize(keySize);
+        return properties;
+    }
+
+    private void waitUntilAvailable(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pool.available() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, pool.available());
+    }
+}
@@ -4,17 +4,25 @@ import es.tfg.votacion.dto.ElectionCreationResult;
 import es.tfg.votacion.model.Election;
 import es.tfg.votacion.model.ElectionOption;
 import es.tfg.votacion.model.ElectionStatus;
+import es.tfg.votacion.model.TallyMode;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.math.BigInteger;
+import java.nio.file.Path;
 import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -35,9 +43,13 @@ class ElectionServiceTest {
     @Mock
     private StorageService storageService;
 
+    @TempDir
+    Path recountDir;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(electionService, "recountDir", recountDir);
         
         // Mock CryptoService behavior
         KeyPair mockKeyPair = mock(KeyPair.class);
@@ -83,4 +95,267 @@ class ElectionServiceTest {
         // Verify FabricService was called with the correct parameters including public key
         verify(fabricService).createElection(eq("test-election-1"), eq("mock-public-key-pem"));
     }
+
+    @Test
+    void versionsShouldAdvanceOnEveryChange() {
+        Election election = new Election(
+            "test-election-version",
+            "Versioned Election",
+            "Description",
+            List.of(new ElectionOption("opt1", "Option 1", "Desc 1", 1)),
+            ElectionStatus.ACTIVE,
+            LocalDateTime.now().minusHours(1),
+            LocalDateTime.now().plusDays(1),
+            "admin",
+            LocalDateTime.now(),
+            0,
+            1,
+            false,
+            true,
+            null
+        );
+
+        long catalogBefore = electionService.getCatalogVersion();
+        assertEquals(0L, electionService.getElectionVersion("test-election-version"));
+
+        electionService.createElection(election);
+        long afterCreate = electionService.getElectionVersion("test-election-version");
+        assertTrue(afterCreate > 0);
+
+        electionService.registerVote("test-election-version", "voter-1", "opt1", null, null);
+        long afterVote = electionService.getElectionVersion("test-election-version");
+        assertTrue(afterVote > afterCreate);
+
+        electionService.updateElectionStatus("test-election-version", ElectionStatus.CLOSED);
+        assertTrue(electionService.getElectionVersion("test-election-version") > afterVote);
+        assertEquals(catalogBefore + 3, electionService.getCatalogVersion());
+
+        // Una elección sin cambios conserva su versión
+        assertEquals(0L, electionService.getElectionVersion("other-election"));
+        assertNotNull(electionService.getVersionEpoch());
+    }
+
+    @Test
+    void electionsPageShouldWalkIndexWithCursor() {
+        LocalDateTime base = LocalDateTime.of(2030, 1, 1, 9, 0);
+        for (int i = 0; i < 5; i++) {
+            electionService.createElection(electionStartingAt("page-election-" + i, base.plusDays(i)));
+        }
+        electionService.updateElectionStatus("page-election-1", ElectionStatus.ACTIVE);
+        electionService.updateElectionStatus("page-election-3", ElectionStatus.CLOSED);
+        electionService.updateElectionStatus("page-election-4", ElectionStatus.ACTIVE);
+
+        // Dos estados mezclados en orden descendente, de dos en dos
+        Set<ElectionStatus> published = Set.of(ElectionStatus.ACTIVE, ElectionStatus.CLOSED);
+        ElectionService.ElectionPage first = electionService.getElectionsPage(
+            new ElectionService.ElectionQuery(published, null, null, true, null, 2));
+        assertEquals(List.of("page-election-4", "page-election-3"), ids(first));
+        assertNotNull(first.nextCursor());
+
+        ElectionService.ElectionPage second = electionService.getElectionsPage(
+            new ElectionService.ElectionQuery(published, null, null, true, first.nextCursor(), 2));
+        assertEquals(List.of("page-election-1"), ids(second));
+        assertNull(second.nextCursor());
+
+        // Filtro de fechas (to exclusive) y orden ascendente sobre los borradores
+        ElectionService.ElectionPage drafts = electionService.getElectionsPage(
+            new ElectionService.ElectionQuery(Set.of(ElectionStatus.DRAFT),
+                base, base.plusDays(2), false, null, 10));
+        assertEquals(List.of("page-election-0"), ids(drafts));
+
+        assertThrows(IllegalArgumentException.class, () -> electionService.getElectionsPage(
+            new ElectionService.ElectionQuery(published, null, null, true, "not-a-cursor", 2)));
+    }
+
+    private static Election electionStartingAt(String id, LocalDateTime start) {
+        return new Election(
+            id,
+            "Paged Election",
+            "Description",
+            List.of(new ElectionOption("opt1", "Option 1", "Desc 1", 1), new ElectionOption("opt2", "Option 2", "Desc 2", 2)),
+            ElectionStatus.DRAFT,
+            start,
+            start.plusDays(1),
+            "admin",
+            LocalDateTime.now(),
+            0,
+            1,
+            false,
+            true,
+            null
+        );
+    }
+
+    private static List<String> ids(ElectionService.ElectionPage page) {
+        return page.items().stream().map(Election::id).toList();
+    }
+
+    @Test
+    void closeElectionShouldStoreImmutableResultsSnapshot() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2030, 6, 1, 9, 0);
+        electionService.createElection(electionStartingAt("snapshot-election", start));
+        electionService.updateElectionStatus("snapshot-election", ElectionStatus.ACTIVE);
+        assertNull(electionService.getResultsSnapshot("snapshot-election"));
+
+        electionService.closeElection("snapshot-election", "mock-private-key-pem");
+
+        ElectionService.ResultsSnapshot snapshot = electionService.getResultsSnapshot("snapshot-election");
+        assertNotNull(snapshot);
+        assertSame(snapshot, electionService.getResultsSnapshot("snapshot-election"));
+
+        String expectedHash = java.util.Base64.getEncoder().encodeToString(
+            java.security.MessageDigest.getInstance("SHA-256").digest(snapshot.body()));
+        assertEquals(expectedHash, snapshot.contentHash());
+
+        String json = new String(snapshot.body(), java.nio.charset.StandardCharsets.UTF_8);
+        assertTrue(json.contains("\"electionId\":\"snapshot-election\""));
+        assertTrue(json.contains("\"status\":\"closed\""));
+    }
+
+    @Test
+    void homomorphicElectionShouldDecryptOncePerOption() {
+        CryptoService realCrypto = spy(new CryptoService());
+        ReflectionTestUtils.setField(electionService, "cryptoService", realCrypto);
+        LocalDateTime start = LocalDateTime.of(2030, 7, 1, 9, 0);
+        ElectionCreationResult created = electionService.createElection(
+            electionStartingAt("phe-election", start), TallyMode.HOMOMORPHIC);
+        electionService.updateElectionStatus("phe-election", ElectionStatus.ACTIVE);
+        assertTrue(electionService.isHomomorphic("phe-election"));
+
+        CryptoService.PaillierPublicKey publicKey = realCrypto.parsePaillierPublicKey(created.election().publicKey());
+        Map<String, byte[]> blobs = new LinkedHashMap<>();
+        int[] choices = {0, 1, 1};
+        for (int i = 0; i < choices.length; i++) {
+            String ballot = realCrypto.encryptHomomorphicBallot(publicKey, choices[i], 2);
+            electionService.validateHomomorphicBallot("phe-election", ballot);
+            electionService.registerVote("phe-election", "voter-" + i, "ENCRYPTED", "phe-blob-" + i, "tx-" + i, ballot);
+            // Votos nuevos en sobre binario y uno antiguo en JSON
+            blobs.put("phe-blob-" + i, i < 2
+                ? BallotEnvelope.encode(BallotEnvelope.ENCRYPTED_BALLOT, java.time.Instant.now(), ballot,
+                    "phe-election", "voter-" + i, null)
+                : ("{\"encryptedVote\":\"" + ballot + "\"}").getBytes());
+        }
+        assertThrows(IllegalArgumentException.class,
+            () -> electionService.validateHomomorphicBallot("phe-election", "phe1.AQ"));
+
+        when(storageService.listElectionBlobs("phe-election")).thenReturn(List.copyOf(blobs.keySet()));
+        when(storageService.loadDecrypted(anyString(), anyString())).thenAnswer(invocation -> blobs.get(invocation.<String>getArgument(1)));
+
+        electionService.closeElection("phe-election", created.privateKey());
+
+        assertEquals(Map.of("opt1", 1, "opt2", 2), electionService.getElectionResults("phe-election"));
+        verify(realCrypto, times(2)).paillierDecrypt(any(), any());
+    }
+
+    @Test
+    void homomorphicBallotShiftingVotesShouldBeRejected() {
+        CryptoService realCrypto = new CryptoService();
+        ReflectionTestUtils.setField(electionService, "cryptoService", realCrypto);
+        LocalDateTime start = LocalDateTime.of(2030, 7, 2, 9, 0);
+        ElectionCreationResult created = electionService.createElection(
+            electionStartingAt("phe-tampered", start), TallyMode.HOMOMORPHIC);
+        electionService.updateElectionStatus("phe-tampered", ElectionStatus.ACTIVE);
+
+        CryptoService.PaillierPublicKey publicKey = realCrypto.parsePaillierPublicKey(created.election().publicKey());
+        String honest = realCrypto.encryptHomomorphicBallot(publicKey, 1, 2);
+        // (+2, -1): suma 1 y ningún total se sale de rango, pero resta un voto a la segunda opción.
+        // Lleva la prueba de la papeleta honesta para tener el formato completo
+        String proof = honest.substring(honest.indexOf('.', honest.indexOf('.', CryptoService.HOMOMORPHIC_PREFIX.length()) + 1));
+        String tampered = CryptoService.HOMOMORPHIC_PREFIX
+            + CryptoService.encodeBigInteger(realCrypto.paillierEncrypt(publicKey, BigInteger.TWO)) + "."
+            + CryptoService.encodeBigInteger(realCrypto.paillierEncrypt(publicKey, publicKey.n().subtract(BigInteger.ONE)))
+            + proof;
+
+        assertThrows(IllegalArgumentException.class,
+            () -> electionService.validateHomomorphicBallot("phe-tampered", tampered));
+        assertThrows(IllegalArgumentException.class,
+            () -> electionService.registerVote("phe-tampered", "voter-0", "ENCRYPTED", "tampered-blob-0", "tx-0", tampered));
+
+        // Blob que no pasó por el controlador: el recuento vuelve a verificar la prueba y lo descarta
+        electionService.registerVote("phe-tampered", "voter-1", "ENCRYPTED", "tampered-blob-1", "tx-1", honest);
+        Map<String, byte[]> blobs = new LinkedHashMap<>();
+        blobs.put("tampered-blob-0", BallotEnvelope.encode(BallotEnvelope.ENCRYPTED_BALLOT, java.time.Instant.now(),
+            tampered, "phe-tampered", "voter-0", null));
+        blobs.put("tampered-blob-1", BallotEnvelope.encode(BallotEnvelope.ENCRYPTED_BALLOT, java.time.Instant.now(),
+            honest, "phe-tampered", "voter-1", null));
+        when(storageService.listElectionBlobs("phe-tampered")).thenReturn(List.copyOf(blobs.keySet()));
+        when(storageService.loadDecrypted(anyString(), anyString())).thenAnswer(invocation -> blobs.get(invocation.<String>getArgument(1)));
+
+        electionService.closeElection("phe-tampered", created.privateKey());
+
+        assertEquals(Map.of("opt2", 1), electionService.getElectionResults("phe-tampered"));
+        assertEquals(1, electionService.getRecountStatus("phe-tampered").integrityFailures());
+    }
+
+    @Test
+    void startCloseShouldStopAcceptingVotesBeforeTheRecountFinishes() throws Exception {
+        LocalDateTime start = LocalDateTime.now().minusHours(1);
+        electionService.createElection(electionStartingAt("closing-election", start));
+        electionService.updateElectionStatus("closing-election", ElectionStatus.ACTIVE);
+        assertTrue(electionService.admitVote("closing-election"));
+        electionService.releaseVote("closing-election");
+
+        // El recuento queda bloqueado listando los blobs
+        java.util.concurrent.CountDownLatch listing = new java.util.concurrent.CountDownLatch(1);
+        java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+        when(storageService.listElectionBlobs("closing-election")).thenAnswer(invocation -> {
+            listing.countDown();
+            release.await();
+            return List.of();
+        });
+
+        electionService.startClose("closing-election", "mock-private-key-pem");
+        assertTrue(listing.await(5, java.util.concurrent.TimeUnit.SECONDS));
+
+        assertEquals(ElectionStatus.CLOSING, electionService.getElectionById("closing-election").orElseThrow().status());
+        assertFalse(electionService.admitVote("closing-election"));
+
+        release.countDown();
+        assertEquals(ElectionStatus.CLOSED, electionService.closeElection("closing-election", "mock-private-key-pem").status());
+    }
+
+    @Test
+    void interruptedRecountShouldResumeFromCheckpoint() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2030, 8, 1, 9, 0);
+        electionService.createElection(electionStartingAt("resume-election", start));
+        electionService.updateElectionStatus("resume-election", ElectionStatus.ACTIVE);
+
+        // Checkpoint left by a recount that stopped after blob-2
+        RecountJob previous = new RecountJob("resume-election", sha256("mock-private-key-pem"));
+        previous.markLedgerClosed();
+        previous.counts().put("opt1", 2);
+        previous.advance("blob-1");
+        previous.advance("blob-2");
+        new com.fasterxml.jackson.databind.ObjectMapper()
+            .registerModule(new com.fasterxml.jackson.datatype.jsr310.JavaTimeModule())
+            .writeValue(recountDir.resolve("resume-election.json").toFile(), previous.toState());
+        electionService.recoverRecountJobs();
+        assertEquals("interrupted", electionService.getRecountStatus("resume-election").status());
+
+        when(storageService.listElectionBlobs("resume-election"))
+            .thenReturn(List.of("blob-4", "blob-2", "blob-1", "blob-3"));
+        when(storageService.loadDecrypted(eq("resume-election"), anyString())).thenReturn("{\"optionId\":\"opt2\"}".getBytes());
+
+        Election closed = electionService.closeElection("resume-election", "mock-private-key-pem");
+
+        assertEquals(ElectionStatus.CLOSED, closed.status());
+        assertEquals(Map.of("opt1", 2, "opt2", 2), electionService.getElectionResults("resume-election"));
+        verify(storageService, never()).loadDecrypted("resume-election", "blob-1");
+        verify(storageService, never()).loadDecrypted("resume-election", "blob-2");
+        // Sin recorrer todo el almacenamiento por cada blob
+        verify(storageService, never()).loadDecrypted(anyString());
+        verify(fabricService, never()).closeElection("resume-election");
+
+        ElectionService.RecountStatus status = electionService.getRecountStatus("resume-election");
+        assertEquals("completed", status.status());
+        assertEquals(4, status.processed());
+        assertEquals("blob-4", status.watermark());
+        assertEquals(0, status.integrityFailures());
+        assertEquals(0, status.decryptionFailures());
+    }
+
+    private static String sha256(String value) throws Exception {
+        return java.util.Base64.getEncoder().encodeToString(
+            java.security.MessageDigest.getInstance("SHA-256").digest(value.getBytes(java.nio.charset.StandardCharsets.UTF_8)));
+    }
 }
@@ -0,0 +1,148 @@
+package es.tfg.votacion.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para GcmNonceGenerator
+ *
+ * Verifica:
+ * - Nonces únicos con 64 hilos generando a la vez
+ * - Prefijo fijo por generador y contador en los últimos 8 bytes
+ * - Reserva duradera de contadores antes de usarlos y continuación tras reiniciar
+ * - Rechazo de IV demasiado cortos para la construcción por contador
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ */
+class GcmNonceGeneratorTest {
+
+    private static final long RESERVATION = 1024;
+
+    @Test
+    @DisplayName("Concurrent threads should never receive the same nonce")
+    void noncesShouldBeUniqueAcrossThreads() throws Exception {
+        AtomicLong store = new AtomicLong();
+        GcmNonceGenerator generator = new GcmNonceGenerator(12, new SecureRandom(), 0, RESERVATION, store::set);
+        int threads = 64;
+        int perThread = 3 * (int) RESERVATION + 7;
+        Set<ByteBuffer> seen = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        byte[] nonce = new byte[12];
+                        generator.next(nonce, 0);
+                        seen.add(ByteBuffer.wrap(nonce));
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+
+        assertEquals(threads * perThread, seen.size());
+        byte[] prefix = Arrays.copyOf(seen.iterator().next().array(), 4);
+        assertTrue(seen.stream().allMatch(nonce -> Arrays.equals(prefix, Arrays.copyOf(nonce.array(), 4))));
+        assertTrue(store.get() >= (long) threads * perThread);
+    }
+
+    @Test
+    @DisplayName("Nonce should be written at the offset with a big-endian counter")
+    void nonceShouldBeWrittenAtOffset() {
+        GcmNonceGenerator generator = new GcmNonceGenerator(12, new SecureRandom(), 0, RESERVATION, limit -> { });
+        byte[] first = new byte[14];
+        byte[] second = new byte[14];
+        generator.next(first, 2);
+        generator.next(second, 2);
+
+        assertEquals(0, first[0]);
+        assertEquals(0, first[1]);
+        assertArrayEquals(Arrays.copyOfRange(first, 2, 6), Arrays.copyOfRange(second, 2, 6));
+        assertEquals(ByteBuffer.wrap(first, 6, 8).getLong() + 1, ByteBuffer.wrap(second, 6, 8).getLong());
+
+        assertThrows(IllegalArgumentException.class,
+            () -> new GcmNonceGenerator(8, new SecureRandom(), 0, RESERVATION, limit -> { }));
+    }
+
+    @Test
+    @DisplayName("Counters should be reserved before use and never reused after a restart")
+    void countersShouldNotRepeatAfterRestart() {
+        AtomicLong store = new AtomicLong();
+        GcmNonceGenerator.Reservations durable = limit -> {
+            assertTrue(limit > store.get());
+            store.set(limit);
+        };
+        GcmNonceGenerator generator = new GcmNonceGenerator(12, new SecureRandom(), store.get(), RESERVATION, durable);
+        assertEquals(RESERVATION, store.get());
+
+        long lastBeforeRestart = -1;
+        for (int i = 0; i < RESERVATION + 10; i++) {
+            lastBeforeRestart = counter(generator);
+            assertTrue(lastBeforeRestart < store.get());
+        }
+
+        // Reinicio: el generador nuevo parte del límite guardado y no del último contador usado
+        GcmNonceGenerator restarted = new GcmNonceGenerator(12, new SecureRandom(), store.get(), RESERVATION, durable);
+        long firstAfterRestart = counter(restarted);
+        assertTrue(firstAfterRestart > lastBeforeRestart);
+        assertEquals(2 * RESERVATION, firstAfterRestart);
+        assertEquals(3 * RESERVATION, store.get());
+    }
+
+    @Test
+    @DisplayName("Should not hand out a nonce whose reservation failed")
+    void failedReservationShouldNotHandOutNonces() {
+        AtomicLong store = new AtomicLong();
+        AtomicLong failing = new AtomicLong();
+        GcmNonceGenerator generator = new GcmNonceGenerator(12, new SecureRandom(), 0, 2, limit -> {
+            if (failing.get() > 0) {
+                throw new IOException("Disk full");
+            }
+            store.set(limit);
+        });
+        counter(generator);
+        counter(generator);
+
+        failing.set(1);
+        assertThrows(UncheckedIOException.class, () -> counter(generator));
+
+        // Recuperado el disco, los contadores siguen dentro de lo reservado
+        failing.set(0);
+        assertTrue(counter(generator) < store.get());
+        assertThrows(UncheckedIOException.class, () -> new GcmNonceGenerator(12, new SecureRandom(), 0, 2,
+            limit -> { throw new IOException("Read-only"); }));
+    }
+
+    private static long counter(GcmNonceGenerator generator) {
+        byte[] nonce = new byte[12];
+        generator.next(nonce, 0);
+        return ByteBuffer.wrap(nonce, 4, 8).getLong();
+    }
+}
@@ -0,0 +1,74 @@
+package es.tfg.votacion.service;
+
+import es.tfg.votacion.config.ElectionProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para IdempotencyStore
+ *
+ * Verifica:
+ * - Reclamación, reproducción y detección de peticiones en curso
+ * - Liberación de la clave ante respuestas de error
+ * - Caducidad y límite de tamaño
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ */
+class IdempotencyStoreTest {
+
+    private final AtomicLong clock = new AtomicLong(0);
+    private IdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        ElectionProperties properties = new ElectionProperties();
+        properties.getIdempotency().setMaxEntries(2);
+        properties.getIdempotency().setTtlSeconds(60);
+        store = new IdempotencyStore(properties, clock::get);
+    }
+
+    @Test
+    @DisplayName("Completed keys should replay the stored response")
+    void shouldReplayCompletedResponse() {
+        assertEquals(IdempotencyStore.Status.NEW, store.begin("k1", "vote-a").status());
+        assertEquals(IdempotencyStore.Status.IN_FLIGHT, store.begin("k1", "vote-a").status());
+
+        store.complete("k1", 201, "receipt");
+
+        IdempotencyStore.Claim replay = store.begin("k1", "vote-a");
+        assertEquals(IdempotencyStore.Status.COMPLETED, replay.status());
+        assertEquals(201, replay.httpStatus());
+        assertEquals("receipt", replay.body());
+        assertEquals(IdempotencyStore.Status.MISMATCH, store.begin("k1", "vote-b").status());
+    }
+
+    @Test
+    @DisplayName("Error responses should release the key")
+    void errorShouldReleaseKey() {
+        store.begin("k1", "vote-a");
+        store.complete("k1", 500, null);
+
+        assertEquals(0, store.size());
+        assertEquals(IdempotencyStore.Status.NEW, store.begin("k1", "vote-a").status());
+    }
+
+    @Test
+    @DisplayName("Expired and excess keys should be dropped")
+    void shouldExpireAndBoundEntries() {
+        store.begin("k1", "vote-a");
+        store.complete("k1", 201, "receipt");
+        clock.addAndGet(60_000);
+        assertEquals(IdempotencyStore.Status.NEW, store.begin("k1", "vote-a").status());
+
+        store.begin("k2", "vote-b");
+        store.begin("k3", "vote-c");
+        assertEquals(2, store.size());
+        assertEquals(IdempotencyStore.Status.NEW, store.begin("k1", "vote-a").status());
+    }
+}
@@ -0,0 +1,74 @@
+package es.tfg.votacion.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para MerkleTree
+ *
+ * Verifica:
+ * - Raíces incrementales iguales a la definición recursiva de RFC 6962
+ * - Pruebas de inclusión válidas para cada hoja y tamaño de árbol
+ * - Rechazo de pruebas sobre otra hoja u otra raíz
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ */
+class MerkleTreeTest {
+
+    @Test
+    @DisplayName("Incremental roots and proofs should match the recursive definition")
+    void rootsAndProofsShouldMatchDefinition() {
+        MerkleTree tree = new MerkleTree();
+        List<byte[]> leaves = new ArrayList<>();
+        for (int i = 0; i < 33; i++) {
+            byte[] leaf = ("commitment-" + i).getBytes(StandardCharsets.UTF_8);
+            leaves.add(leaf);
+            assertEquals(i, tree.append(leaf));
+        }
+
+        for (int size = 1; size <= leaves.size(); size++) {
+            byte[] expected = referenceRoot(leaves.subList(0, size));
+            assertArrayEquals(expected, tree.root(size), "root of " + size + " leaves");
+            for (int index = 0; index < size; index++) {
+                List<byte[]> path = tree.inclusionProof(index, size);
+                assertTrue(MerkleTree.verifyInclusion(leaves.get(index), index, size, path, expected),
+                    "proof of leaf " + index + " in " + size);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Proofs should not verify another leaf or another root")
+    void proofShouldRejectOtherLeafOrRoot() {
+        MerkleTree tree = new MerkleTree();
+        for (int i = 0; i < 7; i++) {
+            tree.append(("commitment-" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        List<byte[]> path = tree.inclusionProof(4, 7);
+        byte[] leaf = "commitment-4".getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(MerkleTree.verifyInclusion(leaf, 4, 7, path, tree.root()));
+        assertFalse(MerkleTree.verifyInclusion("commitment-5".getBytes(StandardCharsets.UTF_8), 4, 7, path, tree.root()));
+        assertFalse(MerkleTree.verifyInclusion(leaf, 4, 7, path, tree.root(6)));
+        assertFalse(MerkleTree.verifyInclusion(leaf, 5, 7, path, tree.root()));
+    }
+
+    /**
+     * MTH(D[n]) de RFC 6962 sin estado intermedio
+     */
+    private static byte[] referenceRoot(List<byte[]> leaves) {
+        if (leaves.size() == 1) {
+            return MerkleTree.leafHash(leaves.get(0));
+        }
+        int split = Integer.highestOneBit(leaves.size() - 1);
+        return MerkleTree.nodeHash(referenceRoot(leaves.subList(0, split)),
+            referenceRoot(leaves.subList(split, leaves.size())));
+    }
+}
@@ -0,0 +1,70 @@
+package es.tfg.votacion.service;
+
+import es.tfg.votacion.config.StorageProperties;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks JMH de contención en la generación de IV y datos de borrado
+ *
+ * Compara, con 64 hilos a la vez (votantes simultáneos):
+ * - IV de 12 bytes desde un SecureRandom compartido frente a GcmNonceGenerator
+ * - 4 KB de sobrescritura (borrado seguro) desde SecureRandom frente a ThreadLocalRandom
+ *
+ * Ejecución: ./mvnw -Pbenchmark test -Djmh.args="NonceContentionBenchmark"
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(64)
+@Fork(1)
+public class NonceContentionBenchmark {
+
+    private static final int IV_LENGTH = 12;
+    private static final int OVERWRITE_SIZE = 4096;
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        final SecureRandom secureRandom = new SecureRandom();
+        // Reserva por defecto sin disco: se mide el contador, no la escritura de keyring.json
+        final GcmNonceGenerator nonceGenerator = new GcmNonceGenerator(IV_LENGTH, new SecureRandom(), 0,
+            new StorageProperties.Encryption().getNonceReservation(), limit -> { });
+    }
+
+    @State(Scope.Thread)
+    public static class Buffers {
+        final byte[] iv = new byte[IV_LENGTH];
+        final byte[] overwrite = new byte[OVERWRITE_SIZE];
+    }
+
+    @Benchmark
+    public byte[] ivSharedSecureRandom(Shared shared, Buffers buffers) {
+        shared.secureRandom.nextBytes(buffers.iv);
+        return buffers.iv;
+    }
+
+    @Benchmark
+    public byte[] ivNonceGenerator(Shared shared, Buffers buffers) {
+        shared.nonceGenerator.next(buffers.iv, 0);
+        return buffers.iv;
+    }
+
+    @Benchmark
+    public byte[] overwriteSharedSecureRandom(Shared shared, Buffers buffers) {
+        shared.secureRandom.nextBytes(buffers.overwrite);
+        return buffers.overwrite;
+    }
+
+    @Benchmark
+    public byte[] overwriteThreadLocalRandom(Buffers buffers) {
+        ThreadLocalRandom.current().nextBytes(buffers.overwrite);
+        return buffers.overwrite;
+    }
+}
@@ -0,0 +1,175 @@
+package es.tfg.votacion.service;
+
+import es.tfg.votacion.config.ElectionProperties;
+import es.tfg.votacion.config.StorageProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Microbenchmarks JMH para StorageService
+ *
+ * Mide:
+ * - Cifrado/descifrado AES-GCM en memoria (encryptData/decryptData) en el
+ *   formato de los blobs almacenados (cabecera autenticada como AAD)
+ * - storeEncrypted/loadDecrypted contra el sistema de archivos
+ *   con distinto número de blobs ya almacenados en la elección
+ *
+ * Ejecución: ./mvnw -Pbenchmark test -Djmh.args="StorageServiceBenchmark -prof gc"
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StorageServiceBenchmark {
+
+    private static final String ELECTION_ID = "bench-election";
+    private static final byte[] BLOB_HEADER = {StorageService.BLOB_FORMAT, 1};
+
+    /**
+     * Estado para las operaciones en memoria (sin E/S)
+     */
+    @State(Scope.Benchmark)
+    public static class CipherState {
+
+        @Param({"256", "4096"})
+        int payloadSize;
+
+        StorageService storageService;
+        Path basePath;
+        SecretKey key;
+        byte[] plaintext;
+        byte[] ciphertext;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            quietLogging();
+            // init() carga el keyring del que salen los nonces; se cifra con una clave generada aquí
+            basePath = Files.createTempDirectory("bench-cipher");
+            storageService = newStorageService(newProperties(basePath));
+            storageService.init();
+            KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+            keyGenerator.init(256);
+            key = keyGenerator.generateKey();
+            plaintext = new byte[payloadSize];
+            java.util.Arrays.fill(plaintext, (byte) 'v');
+            ciphertext = storageService.encryptData(plaintext, key, BLOB_HEADER);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            deleteRecursively(basePath);
+        }
+    }
+
+    /**
+     * Estado para las operaciones con sistema de archivos
+     * Pre-carga blobCount blobs en la elección antes de medir
+     */
+    @State(Scope.Benchmark)
+    public static class StoreState {
+
+        @Param({"10", "1000", "10000"})
+        int blobCount;
+
+        StorageService storageService;
+        Path basePath;
+        byte[] vote;
+        List<String> blobIds;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            quietLogging();
+            basePath = Files.createTempDirectory("bench-store");
+            storageService = newStorageService(newProperties(basePath));
+            storageService.init();
+            vote = "{\"electionId\":\"bench-election\",\"encryptedVote\":\"AAAA\",\"userId\":\"user-1\"}"
+                .getBytes(StandardCharsets.UTF_8);
+            blobIds = new ArrayList<>(blobCount);
+            for (int i = 0; i < blobCount; i++) {
+                blobIds.add(storageService.storeEncrypted(ELECTION_ID, vote));
+            }
+        }
+
+        String nextBlobId() {
+            String blobId = blobIds.get(next);
+            next = (next + 1) % blobIds.size();
+            return blobId;
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            deleteRecursively(basePath);
+        }
+    }
+
+    @Benchmark
+    public byte[] encryptData(CipherState state) throws Exception {
+        return state.storageService.encryptData(state.plaintext, state.key, BLOB_HEADER);
+    }
+
+    @Benchmark
+    public byte[] decryptData(CipherState state) throws Exception {
+        return state.storageService.decryptData(state.ciphertext, state.key, BLOB_HEADER.length);
+    }
+
+    @Benchmark
+    public String storeEncrypted(StoreState state) {
+        return state.storageService.storeEncrypted(ELECTION_ID, state.vote);
+    }
+
+    @Benchmark
+    public byte[] loadDecrypted(StoreState state) {
+        return state.storageService.loadDecrypted(state.nextBlobId());
+    }
+
+    /**
+     * StorageService con un registro de métricas propio (fuera de Spring)
+     */
+    static StorageService newStorageService(StorageProperties properties) {
+        return new StorageService(properties, new VoteMetrics(new SimpleMeterRegistry(), new ElectionProperties()));
+    }
+
+    static StorageProperties newProperties(Path basePath) {
+        StorageProperties properties = new StorageProperties();
+        properties.setBasePath(basePath.toString());
+        properties.setKeystorePath("src/main/resources/keystore/keystore.json");
+        properties.getCleanup().setEnabled(false);
+        return properties;
+    }
+
+    /**
+     * Reduce el logging de la aplicación para no medir la escritura a consola
+     */
+    static void quietLogging() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+            .setLevel(ch.qos.logback.classic.Level.WARN);
+    }
+
+    static void deleteRecursively(Path path) throws IOException {
+        if (path == null || !Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.sorted(Comparator.reverseOrder())
+                .forEach(p -> p.toFile().delete());
+        }
+    }
+}
@@ -2,6 +2,7 @@ package es.tfg.votacion.service;
 
 import es.tfg.votacion.config.StorageProperties;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.TestPropertySource;
@@ -12,6 +13,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Comparator;
+import java.util.List;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -25,6 +27,9 @@ import static org.junit.jupiter.api.Assertions.*;
  * - Carga de claves desde keystore
  * - Operaciones CRUD de blobs
  * - Integridad de datos
+ * - Árbol de Merkle de los commitments y pruebas de inclusión
+ * - Claves de datos por elección y rotación de la clave maestra
+ * - Sin blobs huérfanos cuando falla el registro de la hoja de Merkle
  * 
  * @author Enrique Huet Adrover
  * @version 1.0
@@ -335,11 +340,191 @@ class StorageServiceTest {
         assertArrayEquals(data, decrypted2);
     }
 
+    @Test
+    @Order(17)
+    @DisplayName("Merkle root should prove inclusion and detect tampered blobs")
+    void merkleRootShouldProveInclusionAndDetectTampering() throws IOException {
+        // Elección propia: el árbol en memoria sobrevive a la limpieza entre tests
+        String electionId = "merkle-election-" + System.nanoTime();
+        java.util.List<String> blobIds = new java.util.ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            blobIds.add(storageService.storeEncrypted(electionId, ("vote-" + i).getBytes(StandardCharsets.UTF_8)));
+        }
+
+        StorageService.MerkleRoot root = storageService.getMerkleRoot(electionId);
+        assertEquals(5, root.leafCount());
+
+        StorageService.MerkleProof proof = storageService.getInclusionProof(electionId, blobIds.get(3), null);
+        assertNotNull(proof);
+        assertEquals(3, proof.leafIndex());
+        assertTrue(MerkleTree.verifyInclusion(
+            java.util.Base64.getDecoder().decode(proof.commitment()), proof.leafIndex(), proof.treeSize(),
+            proof.path().stream().map(java.util.Base64.getDecoder()::decode).toList(),
+            java.util.Base64.getDecoder().decode(root.root())));
+
+        assertTrue(storageService.verifyMerkleRoot(electionId, 5, root.root()).consistent());
+
+        // Sustituir un blob por otro voto válido cambia su hoja y la raíz
+        Path tampered = findBlobPath(blobIds.get(1));
+        Files.write(tampered, Files.readAllBytes(findBlobPath(blobIds.get(2))));
+        StorageService.MerkleVerification verification = storageService.verifyMerkleRoot(electionId, 5, root.root());
+        assertFalse(verification.consistent());
+        assertEquals(java.util.List.of(blobIds.get(1)), verification.invalidBlobs());
+    }
+
+    @Test
+    @Order(18)
+    @DisplayName("Encryption should authenticate the blob header")
+    void encryptionShouldAuthenticateBlobHeader() throws Exception {
+        javax.crypto.KeyGenerator keyGenerator = javax.crypto.KeyGenerator.getInstance("AES");
+        keyGenerator.init(256);
+        javax.crypto.SecretKey key = keyGenerator.generateKey();
+        byte[] vote = TEST_DATA.getBytes(StandardCharsets.UTF_8);
+        byte[] header = {StorageService.BLOB_FORMAT, 1};
+
+        // Cabecera + IV + datos + tag, reservado una sola vez
+        byte[] encrypted = storageService.encryptData(vote, key, header);
+        assertEquals(header.length + storageService.encryptedSize(vote.length), encrypted.length);
+        assertArrayEquals(vote, storageService.decryptData(encrypted, key, header.length));
+
+        // La cabecera es AAD: cambiar el keyId invalida el blob
+        encrypted[1] = 2;
+        assertThrows(javax.crypto.AEADBadTagException.class,
+            () -> storageService.decryptData(encrypted, key, header.length));
+        encrypted[1] = 1;
+
+        // Un fallo de autenticación no deja inservible el Cipher devuelto al pool
+        encrypted[encrypted.length - 1] ^= 1;
+        assertThrows(javax.crypto.AEADBadTagException.class,
+            () -> storageService.decryptData(encrypted, key, header.length));
+        encrypted[encrypted.length - 1] ^= 1;
+        assertArrayEquals(vote, storageService.decryptData(encrypted, key, header.length));
+    }
+
+    @Test
+    @Order(19)
+    @DisplayName("Blobs should be encrypted with a per-election data key and keep reading the legacy format")
+    void blobsShouldUsePerElectionDataKeys() throws Exception {
+        byte[] vote = TEST_DATA.getBytes(StandardCharsets.UTF_8);
+        String blobA = storageService.storeEncrypted(TEST_ELECTION_ID, vote);
+        String blobB = storageService.storeEncrypted("test-election-002", vote);
+
+        // Cabecera [formato][keyId] delante del IV
+        byte[] encryptedA = Files.readAllBytes(findBlobPath(blobA));
+        assertEquals(StorageService.BLOB_FORMAT, encryptedA[0]);
+        assertEquals(1, encryptedA[1]);
+        assertEquals(StorageService.BLOB_HEADER_LENGTH + storageService.encryptedSize(vote.length), encryptedA.length);
+
+        // Otra elección, otra clave: el blob movido de directorio no se descifra
+        Path movedB = findBlobPath(blobA).resolveSibling(blobB + ".enc");
+        Files.write(movedB, Files.readAllBytes(findBlobPath(blobB)));
+        Files.delete(testStoragePath.resolve("test-election-002").resolve(blobB + ".enc"));
+        assertThrows(RuntimeException.class, () -> storageService.loadDecrypted(TEST_ELECTION_ID, blobB));
+
+        // Blob del formato anterior: [IV][cifrado] con la clave maestra
+        javax.crypto.SecretKey masterKey =
+            (javax.crypto.SecretKey) org.springframework.test.util.ReflectionTestUtils.getField(storageService, "masterKey");
+        Path legacy = findBlobPath(blobA).resolveSibling("BLOB-legacy.enc");
+        Files.write(legacy, storageService.encryptData(vote, masterKey, new byte[0]));
+        assertArrayEquals(vote, storageService.loadDecrypted(TEST_ELECTION_ID, "BLOB-legacy"));
+        assertArrayEquals(vote, storageService.loadDecrypted(blobA));
+    }
+
+    @Test
+    @Order(20)
+    @DisplayName("Master key rotation should rewrap data keys without re-encrypting blobs")
+    void masterKeyRotationShouldRewrapWithoutReencrypting(@TempDir Path tempDir) throws Exception {
+        // Servicio aislado: la rotación reescribe el keystore
+        Path keystore = tempDir.resolve("keystore.json");
+        Files.copy(Paths.get(storageProperties.getKeystorePath()), keystore);
+        StorageProperties properties = new StorageProperties();
+        properties.setBasePath(tempDir.resolve("storage").toString());
+        properties.setKeystorePath(keystore.toString());
+        properties.getEncryption().setKeyCacheSize(2);
+        properties.getCleanup().setEnabled(false);
+        StorageService service = StorageServiceBenchmark.newStorageService(properties);
+        service.init();
+
+        java.util.Map<String, byte[]> votes = new java.util.LinkedHashMap<>();
+        for (int i = 0; i < 3; i++) {
+            byte[] vote = ("vote-" + i).getBytes(StandardCharsets.UTF_8);
+            votes.put(service.storeEncrypted("election-" + i, vote), vote);
+        }
+        assertEquals(2, service.rotateElectionKey("election-0"));
+        byte[] rotatedVote = "vote-after-election-rotation".getBytes(StandardCharsets.UTF_8);
+        String rotatedBlob = service.storeEncrypted("election-0", rotatedVote);
+        votes.put(rotatedBlob, rotatedVote);
+
+        java.util.Map<String, byte[]> filesBefore = new java.util.HashMap<>();
+        for (String blobId : votes.keySet()) {
+            filesBefore.put(blobId, Files.readAllBytes(findBlobPath(tempDir, blobId)));
+        }
+        assertEquals(2, filesBefore.get(rotatedBlob)[1]);
+        String keystoreBefore = Files.readString(keystore);
+
+        byte[] newMasterKey = new byte[32];
+        new java.security.SecureRandom().nextBytes(newMasterKey);
+        // election-0 tiene dos claves de datos, las demás una
+        assertEquals(4, service.rotateMasterKey(newMasterKey));
+
+        assertNotEquals(keystoreBefore, Files.readString(keystore));
+        assertFalse(Files.exists(tempDir.resolve("keystore.json.next")));
+        for (var entry : votes.entrySet()) {
+            assertArrayEquals(filesBefore.get(entry.getKey()), Files.readAllBytes(findBlobPath(tempDir, entry.getKey())),
+                "Rotation must not rewrite blobs");
+            assertArrayEquals(entry.getValue(), service.loadDecrypted(entry.getKey()));
+        }
+
+        // Tras un reinicio las claves se desenvuelven con la maestra nueva
+        StorageService restarted = StorageServiceBenchmark.newStorageService(properties);
+        restarted.init();
+        for (var entry : votes.entrySet()) {
+            assertArrayEquals(entry.getValue(), restarted.loadDecrypted(entry.getKey()));
+        }
+        byte[] newVote = "vote-after-master-rotation".getBytes(StandardCharsets.UTF_8);
+        String restartedBlob = restarted.storeEncrypted("election-1", newVote);
+        assertArrayEquals(newVote, restarted.loadDecrypted(restartedBlob));
+
+        // El contador del nonce continúa por encima de los usados antes del reinicio
+        long restartedCounter = nonceCounter(Files.readAllBytes(findBlobPath(tempDir, restartedBlob)));
+        for (byte[] blob : filesBefore.values()) {
+            assertTrue(restartedCounter > nonceCounter(blob));
+        }
+    }
+
+    @Test
+    @Order(21)
+    @DisplayName("Failed Merkle append should not leave an orphan blob")
+    void failedMerkleAppendShouldNotLeaveOrphanBlob() throws Exception {
+        String electionId = "test-election-orphan";
+        byte[] vote = TEST_DATA.getBytes(StandardCharsets.UTF_8);
+        String stored = storageService.storeEncrypted(electionId, vote);
+
+        // merkle.log sustituido por un directorio: la siguiente hoja no se puede añadir
+        Path merkleLog = testStoragePath.resolve(electionId).resolve("merkle.log");
+        Files.delete(merkleLog);
+        Files.createDirectory(merkleLog);
+
+        assertThrows(RuntimeException.class, () -> storageService.storeEncrypted(electionId, vote));
+        assertEquals(List.of(stored), storageService.listElectionBlobs(electionId));
+    }
+
+    /**
+     * Contador del nonce de un blob: [formato][keyId][prefijo 4 bytes][contador 8 bytes]...
+     */
+    private static long nonceCounter(byte[] blob) {
+        return java.nio.ByteBuffer.wrap(blob, StorageService.BLOB_HEADER_LENGTH + 4, 8).getLong();
+    }
+
     /**
      * Método auxiliar para encontrar la ruta de un blob en el sistema de archivos
      */
     private Path findBlobPath(String blobId) throws IOException {
-        try (Stream<Path> paths = Files.walk(testStoragePath)) {
+        return findBlobPath(testStoragePath, blobId);
+    }
+
+    private Path findBlobPath(Path root, String blobId) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
             return paths
                 .filter(Files::isRegularFile)
                 .filter(p -> p.getFileName().toString().equals(blobId + ".enc"))
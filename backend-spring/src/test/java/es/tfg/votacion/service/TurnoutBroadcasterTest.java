@@ -0,0 +1,134 @@
+package es.tfg.votacion.service;
+
+import es.tfg.votacion.config.ElectionProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para TurnoutBroadcaster
+ *
+ * Verifica:
+ * - Estado inicial al suscribirse
+ * - Agregación de varios votos en un único evento por tick
+ * - Sin eventos cuando no hay cambios
+ * - Reenvío del último frame a un suscriptor que estaba ocupado
+ * - Retirada de suscriptores desconectados y límite de suscriptores
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ */
+class TurnoutBroadcasterTest {
+
+    private TurnoutBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        ElectionProperties properties = new ElectionProperties();
+        properties.getTurnout().setMaxSubscribers(2);
+        properties.getTurnout().setHeartbeatSeconds(3600);
+        // Envíos síncronos para que los tests sean deterministas
+        broadcaster = new TurnoutBroadcaster(properties, Runnable::run);
+    }
+
+    @Test
+    @DisplayName("Should coalesce votes into one event per tick")
+    void shouldCoalesceVotesPerTick() {
+        CapturingEmitter emitter = new CapturingEmitter();
+        broadcaster.register("election-001", 3, emitter);
+
+        assertEquals(1, emitter.frames.size());
+        assertTrue(emitter.frames.get(0).contains("\"totalVoters\":3"));
+
+        for (int total = 4; total <= 8; total++) {
+            broadcaster.publish("election-001", total);
+        }
+        broadcaster.tick();
+
+        assertEquals(2, emitter.frames.size());
+        String event = emitter.frames.get(1);
+        assertTrue(event.contains("event:" + TurnoutBroadcaster.EVENT_NAME));
+        assertTrue(event.contains("\"totalVoters\":8"));
+        assertTrue(event.contains("\"votesPerMinute\":5"));
+
+        // Sin votos nuevos no se reenvía el mismo estado
+        broadcaster.tick();
+        assertEquals(2, emitter.frames.size());
+    }
+
+    @Test
+    @DisplayName("Should resend the latest frame to a subscriber that was busy when it changed")
+    void shouldResendLatestFrameAfterInFlightSend() {
+        CapturingEmitter emitter = new CapturingEmitter();
+        broadcaster.register("election-001", 0, emitter);
+
+        // Mientras se envía el frame de 1 votante llega otro voto y otro tick
+        emitter.onNextSend = () -> {
+            broadcaster.publish("election-001", 2);
+            broadcaster.tick();
+        };
+        broadcaster.publish("election-001", 1);
+        broadcaster.tick();
+
+        assertEquals(3, emitter.frames.size());
+        assertTrue(emitter.frames.get(1).contains("\"totalVoters\":1"));
+        assertTrue(emitter.frames.get(2).contains("\"totalVoters\":2"));
+
+        // Ya está al día: sin cambios no se reenvía nada
+        broadcaster.tick();
+        assertEquals(3, emitter.frames.size());
+    }
+
+    @Test
+    @DisplayName("Should drop failing subscribers and enforce the subscriber limit")
+    void shouldDropFailingSubscribersAndLimit() {
+        CapturingEmitter healthy = new CapturingEmitter();
+        CapturingEmitter broken = new CapturingEmitter();
+        broadcaster.register("election-001", 0, healthy);
+        broadcaster.register("election-001", 0, broken);
+        assertEquals(2, broadcaster.getSubscriberCount());
+
+        assertThrows(TurnoutBroadcaster.SubscriberLimitExceededException.class,
+            () -> broadcaster.register("election-002", 0, new CapturingEmitter()));
+
+        broken.failing = true;
+        broadcaster.publish("election-001", 1);
+        broadcaster.tick();
+
+        assertEquals(1, broadcaster.getSubscriberCount());
+        assertEquals(2, healthy.frames.size());
+    }
+
+    /**
+     * Emisor que guarda los frames en lugar de escribir en una respuesta HTTP
+     */
+    private static final class CapturingEmitter extends SseEmitter {
+        private final List<String> frames = new CopyOnWriteArrayList<>();
+        private volatile boolean failing;
+        // Se ejecuta una vez durante el siguiente envío (simula un envío en curso)
+        private volatile Runnable onNextSend;
+
+        @Override
+        public synchronized void send(Set<ResponseBodyEmitter.DataWithMediaType> items) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            frames.add(items.stream().map(item -> item.getData().toString()).collect(Collectors.joining()));
+            Runnable hook = onNextSend;
+            if (hook != null) {
+                onNextSend = null;
+                hook.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package es.tfg.votacion.service;
+
+import es.tfg.votacion.model.User;
+import es.tfg.votacion.model.UserRole;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para UserDirectory
+ *
+ * Verifica:
+ * - Búsquedas por username (case-insensitive) e ID
+ * - Índices secundarios por rol, departamento y estado activo
+ * - Reindexado al modificar y eliminar usuarios
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ */
+class UserDirectoryTest {
+
+    private UserDirectory directory;
+
+    @BeforeEach
+    void setUp() {
+        directory = new UserDirectory();
+        directory.replaceAll(List.of(
+            new UserDirectory.Entry(user("u1", "ana.lopez", UserRole.VOTER, "Ventas", true), "hash1"),
+            new UserDirectory.Entry(user("u2", "admin", UserRole.ADMIN, "IT", true), "hash2"),
+            new UserDirectory.Entry(user("u3", "luis.ruiz", UserRole.VOTER, "Ventas", false), "hash3")
+        ));
+    }
+
+    @Test
+    @DisplayName("Should look up users by username and id")
+    void shouldLookUpByUsernameAndId() {
+        assertEquals("u1", directory.findByUsername("ANA.LOPEZ").user().id());
+        assertEquals("admin", directory.findById("u2").user().username());
+        assertEquals("hash2", directory.findById("u2").passwordHash());
+        assertNull(directory.findByUsername("nobody"));
+        assertNull(directory.findById(null));
+        assertEquals(3, directory.size());
+    }
+
+    @Test
+    @DisplayName("Should maintain secondary indexes")
+    void shouldMaintainSecondaryIndexes() {
+        assertEquals(2, directory.usersByRole(UserRole.VOTER).size());
+        assertEquals(1, directory.usersByRole(UserRole.ADMIN).size());
+        assertTrue(directory.usersByRole(UserRole.AUDITOR).isEmpty());
+        assertEquals(2, directory.usersByDepartment("Ventas").size());
+        assertEquals(2, directory.activeUsers().size());
+        assertTrue(directory.isActive("Ana.Lopez"));
+        assertFalse(directory.isActive("luis.ruiz"));
+    }
+
+    @Test
+    @DisplayName("Updating a user should reindex it and keep its password hash")
+    void updateShouldReindex() {
+        User updated = directory.update("ana.lopez", u -> u.withActiveStatus(false));
+
+        assertFalse(updated.active());
+        assertFalse(directory.isActive("ana.lopez"));
+        assertEquals(1, directory.activeUsers().size());
+        assertEquals("hash1", directory.findById("u1").passwordHash());
+        assertFalse(directory.findById("u1").user().active());
+        assertNull(directory.update("nobody", u -> u));
+    }
+
+    @Test
+    @DisplayName("Removing a user should clear every index")
+    void removeShouldClearIndexes() {
+        assertNotNull(directory.remove("admin"));
+
+        assertNull(directory.findByUsername("admin"));
+        assertNull(directory.findById("u2"));
+        assertTrue(directory.usersByRole(UserRole.ADMIN).isEmpty());
+        assertTrue(directory.usersByDepartment("IT").isEmpty());
+        assertEquals(1, directory.activeUsers().size());
+        assertNull(directory.remove("admin"));
+    }
+
+    private static User user(String id, String username, UserRole role, String department, boolean active) {
+        return new User(id, username, username + "@empresa.com", "Usuario " + username, role,
+            department, active, null, LocalDateTime.of(2025, 1, 1, 0, 0));
+    }
+}
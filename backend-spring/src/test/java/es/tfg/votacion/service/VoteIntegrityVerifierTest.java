@@ -0,0 +1,88 @@
+package es.tfg.votacion.service;
+
+import es.tfg.votacion.config.ElectionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests para VoteIntegrityVerifier
+ *
+ * Verifica:
+ * - Registro de blobs verificados y reutilización al cerrar
+ * - Detección de blobs modificados en la revisión periódica sin consultar el ledger
+ * - Reintento de verificaciones sin conexión con blockchain
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ */
+class VoteIntegrityVerifierTest {
+
+    private static final byte[] VOTE = "{\"encryptedVote\":\"abc\"}".getBytes(StandardCharsets.UTF_8);
+    private static final String COMMITMENT = VoteIntegrityVerifier.sha256(VOTE);
+
+    private StorageService storageService;
+    private FabricService fabricService;
+    private VoteIntegrityVerifier verifier;
+
+    @BeforeEach
+    void setUp() {
+        storageService = mock(StorageService.class);
+        fabricService = mock(FabricService.class);
+        verifier = new VoteIntegrityVerifier(storageService, fabricService, new ElectionProperties(),
+            new SimpleMeterRegistry());
+
+        when(storageService.blobModifiedAt("election-001", "blob-1")).thenReturn(1000L);
+        when(storageService.loadDecrypted("election-001", "blob-1")).thenReturn(VOTE);
+    }
+
+    @Test
+    @DisplayName("Should detect a blob modified after its verification")
+    void shouldDetectModifiedBlobOnSweep() {
+        when(fabricService.getVoteCommitment("tx-1")).thenReturn(COMMITMENT);
+
+        verifier.verify("election-001", "blob-1", "tx-1");
+        assertTrue(verifier.isVerified("election-001", "blob-1", COMMITMENT));
+
+        // Sin cambios: la revisión no vuelve a leer el blob
+        when(storageService.blobModificationTimes("election-001")).thenReturn(Map.of("blob-1", 1000L));
+        verifier.sweep();
+        verify(storageService, times(1)).loadDecrypted("election-001", "blob-1");
+
+        byte[] tampered = "{\"encryptedVote\":\"xyz\"}".getBytes(StandardCharsets.UTF_8);
+        when(storageService.blobModifiedAt("election-001", "blob-1")).thenReturn(2000L);
+        when(storageService.loadDecrypted("election-001", "blob-1")).thenReturn(tampered);
+        when(storageService.blobModificationTimes("election-001")).thenReturn(Map.of("blob-1", 2000L));
+        verifier.sweep();
+
+        assertEquals(VoteIntegrityVerifier.Status.TAMPERED,
+            verifier.getVerification("election-001", "blob-1").status());
+        assertFalse(verifier.isVerified("election-001", "blob-1", VoteIntegrityVerifier.sha256(tampered)));
+        // El commitment ya obtenido basta: una sola consulta al ledger
+        verify(fabricService, times(1)).getVoteCommitment("tx-1");
+    }
+
+    @Test
+    @DisplayName("Should retry verification once the ledger is reachable")
+    void shouldRetryWhenLedgerUnavailable() {
+        when(fabricService.isConnected()).thenReturn(false);
+        verifier.verify("election-001", "blob-1", "tx-1");
+        assertNull(verifier.getVerification("election-001", "blob-1"));
+
+        when(fabricService.getVoteCommitment("tx-1")).thenReturn(COMMITMENT);
+        when(storageService.blobModificationTimes("election-001")).thenReturn(Map.of("blob-1", 1000L));
+        verifier.sweep();
+
+        assertTrue(verifier.isVerified("election-001", "blob-1", COMMITMENT));
+
+        verifier.release("election-001");
+        assertNull(verifier.getVerification("election-001", "blob-1"));
+    }
+}
@@ -0,0 +1,150 @@
+package es.tfg.votacion.service;
+
+import es.tfg.votacion.config.ElectionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para VoteMetrics
+ *
+ * Verifica:
+ * - Timers por etapa con tag de elección
+ * - Contadores de resultado a partir del código HTTP
+ * - Gauges de votos en curso
+ * - Límite de cardinalidad del tag de elección
+ * - Evento de log estructurado por voto y muestreo de logs
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ */
+class VoteMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private VoteMetrics voteMetrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        ElectionProperties properties = new ElectionProperties();
+        properties.getMetrics().setMaxElectionTags(2);
+        voteMetrics = new VoteMetrics(registry, properties);
+    }
+
+    @Test
+    @DisplayName("Should record stage timers and accepted outcome")
+    void shouldRecordStagesAndAcceptedOutcome() {
+        VoteMetrics.Submission submission = voteMetrics.startSubmission();
+        submission.stage(VoteMetrics.Stage.AUTH);
+        submission.stage(VoteMetrics.Stage.VALIDATION);
+        submission.election("election-001");
+        submission.stage(VoteMetrics.Stage.FABRIC_SUBMIT);
+
+        assertEquals(1.0, registry.get(VoteMetrics.ACTIVE_GAUGE).gauge().value());
+        assertEquals(1.0, registry.get(VoteMetrics.INFLIGHT_GAUGE).tag("stage", "fabric_submit").gauge().value());
+
+        submission.finish(201);
+
+        assertEquals(0.0, registry.get(VoteMetrics.ACTIVE_GAUGE).gauge().value());
+        assertEquals(0.0, registry.get(VoteMetrics.INFLIGHT_GAUGE).tag("stage", "fabric_submit").gauge().value());
+        assertEquals(1, registry.get(VoteMetrics.STAGE_TIMER)
+            .tags("stage", "auth", "election", "election-001").timer().count());
+        assertEquals(1, registry.get(VoteMetrics.STAGE_TIMER)
+            .tags("stage", "fabric_submit", "election", "election-001").timer().count());
+        assertEquals(1.0, registry.get(VoteMetrics.OUTCOME_COUNTER)
+            .tags("outcome", "accepted", "election", "election-001").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should classify duplicate, rejected and fabric failures")
+    void shouldClassifyOutcomes() {
+        VoteMetrics.Submission duplicate = voteMetrics.startSubmission();
+        duplicate.stage(VoteMetrics.Stage.VALIDATION);
+        duplicate.finish(409);
+
+        VoteMetrics.Submission rejected = voteMetrics.startSubmission();
+        rejected.stage(VoteMetrics.Stage.AUTH);
+        rejected.finish(401);
+
+        VoteMetrics.Submission fabricFailed = voteMetrics.startSubmission();
+        fabricFailed.stage(VoteMetrics.Stage.FABRIC_SUBMIT);
+        fabricFailed.finish(500);
+
+        VoteMetrics.Submission error = voteMetrics.startSubmission();
+        error.stage(VoteMetrics.Stage.STORAGE);
+        error.finish(500);
+
+        assertEquals(1.0, registry.get(VoteMetrics.OUTCOME_COUNTER).tag("outcome", "duplicate").counter().count());
+        assertEquals(1.0, registry.get(VoteMetrics.OUTCOME_COUNTER).tag("outcome", "rejected").counter().count());
+        assertEquals(1.0, registry.get(VoteMetrics.OUTCOME_COUNTER).tag("outcome", "fabric_failed").counter().count());
+        assertEquals(1.0, registry.get(VoteMetrics.OUTCOME_COUNTER).tag("outcome", "error").counter().count());
+        assertEquals(0.0, registry.get(VoteMetrics.ACTIVE_GAUGE).gauge().value());
+    }
+
+    @Test
+    @DisplayName("Should bound election tag cardinality")
+    void shouldBoundElectionTagCardinality() {
+        assertEquals("election-001", voteMetrics.electionTag("election-001"));
+        assertEquals("election-002", voteMetrics.electionTag("election-002"));
+        assertEquals(VoteMetrics.OTHER_ELECTIONS, voteMetrics.electionTag("election-003"));
+        assertEquals("election-001", voteMetrics.electionTag("election-001"));
+        assertEquals(VoteMetrics.UNKNOWN_ELECTION, voteMetrics.electionTag(null));
+    }
+
+    @Test
+    @DisplayName("Finishing twice should not double count")
+    void finishShouldBeIdempotent() {
+        VoteMetrics.Submission submission = voteMetrics.startSubmission();
+        submission.stage(VoteMetrics.Stage.AUTH);
+        submission.finish(201);
+        submission.finish(201);
+
+        assertEquals(1.0, registry.get(VoteMetrics.OUTCOME_COUNTER).tag("outcome", "accepted").counter().count());
+        assertEquals(0.0, registry.get(VoteMetrics.ACTIVE_GAUGE).gauge().value());
+    }
+
+    @Test
+    @DisplayName("Should log a single structured summary event per submission")
+    void shouldLogStructuredSummary() {
+        ch.qos.logback.classic.Logger voteLogger =
+            (ch.qos.logback.classic.Logger) org.slf4j.LoggerFactory.getLogger(VoteMetrics.VOTE_LOGGER);
+        ch.qos.logback.core.read.ListAppender<ch.qos.logback.classic.spi.ILoggingEvent> appender =
+            new ch.qos.logback.core.read.ListAppender<>();
+        appender.start();
+        voteLogger.addAppender(appender);
+        try {
+            VoteMetrics.Submission submission = voteMetrics.startSubmission();
+            submission.stage(VoteMetrics.Stage.VALIDATION);
+            submission.election("election-001");
+            submission.stage(VoteMetrics.Stage.STORAGE);
+            submission.detail("blob_id", "BLOB-1");
+            submission.stage(VoteMetrics.Stage.FABRIC_SUBMIT);
+            submission.finish(500);
+            submission.finish(500);
+
+            assertEquals(1, appender.list.size());
+            ch.qos.logback.classic.spi.ILoggingEvent event = appender.list.get(0);
+            assertEquals(ch.qos.logback.classic.Level.WARN, event.getLevel());
+            java.util.Map<String, Object> fields = new java.util.HashMap<>();
+            event.getKeyValuePairs().forEach(pair -> fields.put(pair.key, pair.value));
+            assertEquals("fabric_failed", fields.get("outcome"));
+            assertEquals("election-001", fields.get("election"));
+            assertEquals("fabric_submit", fields.get("failed_stage"));
+            assertEquals("BLOB-1", fields.get("blob_id"));
+            assertTrue(fields.containsKey("storage_ms"));
+            assertTrue(fields.containsKey("total_ms"));
+        } finally {
+            voteLogger.detachAppender(appender);
+        }
+
+        LogSampler sampler = new LogSampler(3);
+        int logged = 0;
+        for (int i = 0; i < 7; i++) {
+            logged += sampler.sample() ? 1 : 0;
+        }
+        assertEquals(3, logged);
+    }
+}
@@ -0,0 +1,90 @@
+package es.tfg.votacion.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks JMH del coste por voto fuera del cifrado
+ *
+ * Mide:
+ * - Serialización Jackson del voto (ObjectMapper compartido vs nuevo por voto)
+ * - Parseo en árbol del voto durante el recuento (readTree)
+ * - Sobre binario de la papeleta (codificación y lectura del voto)
+ * - Generación del commitment SHA-256 + Base64 que se registra en Fabric
+ *
+ * Ejecución: ./mvnw -Pbenchmark test -Djmh.args="VotePayloadBenchmark -prof gc"
+ *
+ * @author Enrique Huet Adrover
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VotePayloadBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Map<String, Object> voteData;
+    private byte[] voteBytes;
+    private byte[] envelopeBytes;
+    private String encryptedVote;
+    private Instant timestamp;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper();
+        voteData = new HashMap<>();
+        voteData.put("electionId", "election-001");
+        // Tamaño equivalente a un voto RSA-2048 en Base64
+        voteData.put("encryptedVote", Base64.getEncoder().encodeToString(new byte[256]));
+        voteData.put("userId", "user_juan.perez_001");
+        voteData.put("timestamp", Instant.now().toString());
+        voteBytes = objectMapper.writeValueAsBytes(voteData);
+        encryptedVote = (String) voteData.get("encryptedVote");
+        timestamp = Instant.now();
+        envelopeBytes = BallotEnvelope.encode(BallotEnvelope.ENCRYPTED_BALLOT, timestamp, encryptedVote,
+            "election-001", "user_juan.perez_001", null);
+    }
+
+    @Benchmark
+    public byte[] serializeVoteSharedMapper() throws Exception {
+        return objectMapper.writeValueAsBytes(voteData);
+    }
+
+    @Benchmark
+    public byte[] serializeVoteNewMapper() throws Exception {
+        return new ObjectMapper().writeValueAsBytes(voteData);
+    }
+
+    @Benchmark
+    public JsonNode parseVoteTree() throws Exception {
+        return objectMapper.readTree(voteBytes);
+    }
+
+    @Benchmark
+    public byte[] encodeEnvelope() {
+        return BallotEnvelope.encode(BallotEnvelope.ENCRYPTED_BALLOT, timestamp, encryptedVote,
+            "election-001", "user_juan.perez_001", null);
+    }
+
+    @Benchmark
+    public String decodeEnvelopeVote() {
+        return BallotEnvelope.decode(envelopeBytes).vote();
+    }
+
+    @Benchmark
+    public String sha256Commitment() throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return Base64.getEncoder().encodeToString(digest.digest(voteBytes));
+    }
+}
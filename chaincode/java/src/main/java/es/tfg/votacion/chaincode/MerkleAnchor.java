@@ -0,0 +1,84 @@
+package main.java.es.tfg.votacion.chaincode;
+
+import com.owlike.genson.annotation.JsonProperty;
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+
+import java.util.Objects;
+
+@DataType()
+public class MerkleAnchor {
+
+    @Property()
+    private final String electionId;
+
+    @Property()
+    private final String root; // Base64 of the Merkle root over the election's vote commitments
+
+    @Property()
+    private final long leafCount;
+
+    @Property()
+    private final String txId;
+
+    @Property()
+    private final long timestamp;
+
+    public MerkleAnchor(@JsonProperty("electionId") final String electionId,
+                        @JsonProperty("root") final String root,
+                        @JsonProperty("leafCount") final long leafCount,
+                        @JsonProperty("txId") final String txId,
+                        @JsonProperty("timestamp") final long timestamp) {
+        this.electionId = electionId;
+        this.root = root;
+        this.leafCount = leafCount;
+        this.txId = txId;
+        this.timestamp = timestamp;
+    }
+
+    public String getElectionId() {
+        return electionId;
+    }
+
+    public String getRoot() {
+        return root;
+    }
+
+    public long getLeafCount() {
+        return leafCount;
+    }
+
+    public String getTxId() {
+        return txId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if ((obj == null) || (getClass() != obj.getClass())) {
+            return false;
+        }
+        MerkleAnchor other = (MerkleAnchor) obj;
+        return Objects.equals(getElectionId(), other.getElectionId()) &&
+                Objects.equals(getRoot(), other.getRoot()) &&
+                Objects.equals(getLeafCount(), other.getLeafCount()) &&
+                Objects.equals(getTxId(), other.getTxId()) &&
+                Objects.equals(getTimestamp(), other.getTimestamp());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getElectionId(), getRoot(), getLeafCount(), getTxId(), getTimestamp());
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + "@" + Integer.toHexString(hashCode()) + " [electionId=" + electionId + ", root=" + root + ", leafCount=" + leafCount + ", txId=" + txId + ", timestamp=" + timestamp + "]";
+    }
+}
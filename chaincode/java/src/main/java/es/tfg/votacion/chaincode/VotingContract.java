@@ -36,7 +36,9 @@ public class VotingContract implements ContractInterface {
         ELECTION_ALREADY_EXISTS,
         ELECTION_CLOSED,
         VOTE_ALREADY_EXISTS,
-        ALREADY_VOTED
+        ALREADY_VOTED,
+        ANCHOR_NOT_FOUND,
+        ANCHOR_NOT_APPEND_ONLY
     }
 
     /**
@@ -223,4 +225,69 @@ public class VotingContract implements ContractInterface {
         
         return genson.deserialize(voteState, Vote.class);
     }
+
+    /**
+     * Anchor the Merkle root of an election's off-chain vote store
+     *
+     * The tree is append-only, so an anchor may never cover fewer leaves than
+     * the previous one. Anchors are also accepted after close, so the final
+     * root can be recorded once the last vote is stored.
+     *
+     * @param ctx        the transaction context
+     * @param electionId the ID of the election
+     * @param root       the Base64 Merkle root over the vote commitments
+     * @param leafCount  the number of commitments covered by the root
+     * @return the stored anchor
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public MerkleAnchor anchorMerkleRoot(final Context ctx, final String electionId, final String root, final long leafCount) {
+        ChaincodeStub stub = ctx.getStub();
+        String electionState = stub.getStringState(electionId);
+
+        if (electionState == null || electionState.isEmpty()) {
+            String errorMessage = String.format("Election %s does not exist", electionId);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, VotingErrors.ELECTION_NOT_FOUND.toString());
+        }
+
+        String anchorKey = "merkle_root_" + electionId;
+        String previousState = stub.getStringState(anchorKey);
+        if (previousState != null && !previousState.isEmpty()) {
+            MerkleAnchor previous = genson.deserialize(previousState, MerkleAnchor.class);
+            if (leafCount < previous.getLeafCount()
+                    || (leafCount == previous.getLeafCount() && !root.equals(previous.getRoot()))) {
+                String errorMessage = String.format("Anchor for election %s would rewrite %d anchored commitments",
+                        electionId, previous.getLeafCount());
+                System.out.println(errorMessage);
+                throw new ChaincodeException(errorMessage, VotingErrors.ANCHOR_NOT_APPEND_ONLY.toString());
+            }
+        }
+
+        MerkleAnchor anchor = new MerkleAnchor(electionId, root, leafCount, stub.getTxId(),
+                stub.getTxTimestamp().toEpochMilli());
+        stub.putStringState(anchorKey, genson.serialize(anchor));
+
+        return anchor;
+    }
+
+    /**
+     * Get the latest Merkle root anchored for an election
+     *
+     * @param ctx        the transaction context
+     * @param electionId the ID of the election
+     * @return the latest anchor
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public MerkleAnchor getMerkleAnchor(final Context ctx, final String electionId) {
+        ChaincodeStub stub = ctx.getStub();
+        String anchorState = stub.getStringState("merkle_root_" + electionId);
+
+        if (anchorState == null || anchorState.isEmpty()) {
+            String errorMessage = String.format("No Merkle root anchored for election %s", electionId);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, VotingErrors.ANCHOR_NOT_FOUND.toString());
+        }
+
+        return genson.deserialize(anchorState, MerkleAnchor.class);
+    }
 }
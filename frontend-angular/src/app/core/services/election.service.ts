@@ -137,7 +137,7 @@ export class ElectionService {
    *
    * @param electionId ID de la elección a cerrar
    * @param privateKey Clave privada para el recuento
-   * @returns Observable con confirmación del cierre
+   * @returns Observable con el trabajo de recuento (202, progreso en /close/progress)
    */
   closeElection(electionId: string, privateKey: string): Observable<any> {
     this.loadingSubject.next(true);
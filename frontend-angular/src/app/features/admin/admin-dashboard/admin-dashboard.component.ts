@@ -93,7 +93,7 @@ export class AdminDashboardComponent implements OnInit {
       next: () => {
         this.loading = false;
         this.showCloseDialog = false;
-        this.messageService.add({severity:'success', summary:'Éxito', detail:'Elección cerrada y recuento completado'});
+        this.messageService.add({severity:'success', summary:'Éxito', detail:'Cierre iniciado: el recuento continúa en segundo plano'});
         this.loadElections();
       },
       error: (err) => {
@@ -107,6 +107,7 @@ export class AdminDashboardComponent implements OnInit {
     switch (status) {
       case 'active':
         return 'success';
+      case 'closing':
       case 'closed':
         return 'danger';
       case 'draft':
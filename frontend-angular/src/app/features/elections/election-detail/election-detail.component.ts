@@ -284,6 +284,7 @@ export class ElectionDetailComponent implements OnInit {
         return 'status-active';
       case 'draft':
         return 'status-draft';
+      case 'closing':
       case 'closed':
       case 'completed':
         return 'status-closed';
@@ -305,6 +306,8 @@ export class ElectionDetailComponent implements OnInit {
         return 'Activa';
       case 'draft':
         return 'Borrador';
+      case 'closing':
+        return 'Cerrando';
       case 'closed':
         return 'Cerrada';
       case 'completed':
@@ -138,6 +138,7 @@ export class ElectionListComponent implements OnInit {
         return 'status-badge-active';
       case 'draft':
         return 'status-badge-draft';
+      case 'closing':
       case 'closed':
       case 'completed':
         return 'status-badge-closed';
@@ -157,6 +158,8 @@ export class ElectionListComponent implements OnInit {
         return 'Activa';
       case 'draft':
         return 'Borrador';
+      case 'closing':
+        return 'Cerrando';
       case 'closed':
         return 'Cerrada';
       case 'completed':
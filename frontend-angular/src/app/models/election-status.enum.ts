@@ -5,6 +5,7 @@
 export enum ElectionStatus {
   DRAFT = 'draft',
   ACTIVE = 'active',
+  CLOSING = 'closing',
   CLOSED = 'closed',
   COMPLETED = 'completed',
   CANCELLED = 'cancelled'
@@ -17,6 +18,7 @@ export function getStatusName(status: ElectionStatus): string {
   const statusNames: Record<ElectionStatus, string> = {
     [ElectionStatus.DRAFT]: 'Borrador',
     [ElectionStatus.ACTIVE]: 'Activa',
+    [ElectionStatus.CLOSING]: 'Cerrando',
     [ElectionStatus.CLOSED]: 'Cerrada',
     [ElectionStatus.COMPLETED]: 'Completada',
     [ElectionStatus.CANCELLED]: 'Cancelada'
@@ -31,6 +33,7 @@ export function getStatusColor(status: ElectionStatus): string {
   const statusColors: Record<ElectionStatus, string> = {
     [ElectionStatus.DRAFT]: 'gray',
     [ElectionStatus.ACTIVE]: 'green',
+    [ElectionStatus.CLOSING]: 'orange',
     [ElectionStatus.CLOSED]: 'orange',
     [ElectionStatus.COMPLETED]: 'blue',
     [ElectionStatus.CANCELLED]: 'red'